@@ -0,0 +1,90 @@
+package com.chatapp.admin;
+
+import com.chatapp.admin.service.ImportFormat;
+import com.chatapp.admin.service.ImportJob;
+import com.chatapp.admin.service.ImportService;
+import com.chatapp.api.dto.ApiResponse;
+import com.chatapp.api.dto.ImportJobDTO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.List;
+
+// Admin only (see SecurityConfig). Bodies are streamed, one record per line.
+@RestController
+@RequestMapping("/admin/import")
+public class ImportController {
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    // IMPORT USERS (NDJSON or CSV with email, username, password)
+    @PostMapping("/users")
+    public ResponseEntity<ApiResponse<ImportJobDTO>> importUsers(
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(defaultValue = "0") long resumeAfter,
+            InputStream body
+    ) {
+        ImportJob job = importService.importUsers(body, ImportFormat.of(contentType), resumeAfter);
+        return result(job, "Users imported");
+    }
+
+    // IMPORT MESSAGES (NDJSON or CSV with from, to, content, optional sentAt and read)
+    @PostMapping("/messages")
+    public ResponseEntity<ApiResponse<ImportJobDTO>> importMessages(
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(defaultValue = "0") long resumeAfter,
+            InputStream body
+    ) {
+        ImportJob job = importService.importMessages(body, ImportFormat.of(contentType), resumeAfter);
+        return result(job, "Messages imported");
+    }
+
+    // LIST recent imports, including ones still running
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<ImportJobDTO>>> getJobs() {
+        List<ImportJobDTO> jobs = importService.getJobs().stream().map(this::convertToDTO).toList();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Imports retrieved successfully", jobs));
+    }
+
+    // GET one import's progress
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<ImportJobDTO>> getJob(@PathVariable String id) {
+        ImportJobDTO dto = convertToDTO(importService.getJob(id));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Import retrieved successfully", dto));
+    }
+
+    // A failed import still returns its progress, so the caller knows where to resume
+    private ResponseEntity<ApiResponse<ImportJobDTO>> result(ImportJob job, String message) {
+        if (job.getState() == ImportJob.State.FAILED) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Import failed: " + job.getFailure(), convertToDTO(job)));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, message, convertToDTO(job)));
+    }
+
+    private ImportJobDTO convertToDTO(ImportJob job) {
+        return new ImportJobDTO(
+                job.getId(),
+                job.getKind().name(),
+                job.getState().name(),
+                job.getResumedAfter(),
+                job.getLinesRead(),
+                job.getCommittedLines(),
+                job.getImported(),
+                job.getDuplicates(),
+                job.getRejected(),
+                job.getRowsPerSecond(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                job.getFailure(),
+                job.getErrors()
+        );
+    }
+}
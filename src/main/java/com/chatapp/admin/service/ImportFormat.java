@@ -0,0 +1,107 @@
+package com.chatapp.admin.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+// Import input: one record per line, either a JSON object (NDJSON) or a CSV row
+// under a header line. Quoted CSV fields may contain commas and "" but not line
+// breaks, so every record is one line and lines can be parsed independently.
+public enum ImportFormat {
+
+    NDJSON, CSV;
+
+    public static ImportFormat of(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (type.contains("csv")) {
+            return CSV;
+        }
+        if (type.contains("ndjson") || type.contains("json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Send application/x-ndjson or text/csv");
+    }
+
+    // A parsed line; get returns null for absent or empty fields
+    interface Fields {
+        String get(String name);
+    }
+
+    // header is the first line of the input for CSV, ignored for NDJSON
+    Function<String, Fields> parser(String header, ObjectMapper objectMapper) {
+        if (this == NDJSON) {
+            return line -> {
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Invalid JSON");
+                }
+                if (node == null || !node.isObject()) {
+                    throw new IllegalArgumentException("Expected a JSON object");
+                }
+                return name -> {
+                    JsonNode value = node.get(name);
+                    return value == null || value.isNull() || value.asText().isEmpty() ? null : value.asText();
+                };
+            };
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("CSV input needs a header line");
+        }
+        List<String> names = split(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        return line -> {
+            List<String> values = split(line);
+            if (values.size() != names.size()) {
+                throw new IllegalArgumentException("Expected " + names.size() + " fields, found " + values.size());
+            }
+            return name -> {
+                Integer column = columns.get(name);
+                String value = column == null ? null : values.get(column);
+                return value == null || value.isEmpty() ? null : value;
+            };
+        };
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,98 @@
+package com.chatapp.admin.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Progress of one import request. Counters are written only by the thread
+// running the import and read by status requests, so volatile is enough.
+// Lines are numbered from 1, not counting a CSV header; committedLines is the
+// line to pass as resumeAfter when re-sending the same input after a failure.
+public class ImportJob {
+
+    public enum Kind { USERS, MESSAGES }
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private final String id = UUID.randomUUID().toString().replace("-", "");
+    private final Kind kind;
+    private final long resumedAfter;
+    private final int maxErrors;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final List<String> errors = new ArrayList<>();
+
+    private volatile State state = State.RUNNING;
+    private volatile long linesRead;
+    private volatile long committedLines;
+    private volatile long imported;
+    private volatile long duplicates;
+    private volatile long rejected;
+    private volatile LocalDateTime finishedAt;
+    private volatile String failure;
+
+    ImportJob(Kind kind, long resumedAfter, int maxErrors) {
+        this.kind = kind;
+        this.resumedAfter = resumedAfter;
+        this.maxErrors = maxErrors;
+        this.linesRead = resumedAfter;
+        this.committedLines = resumedAfter;
+    }
+
+    void read(long lines) {
+        linesRead += lines;
+    }
+
+    void committed(long line, long importedRows, long duplicateRows) {
+        imported += importedRows;
+        duplicates += duplicateRows;
+        committedLines = line;
+    }
+
+    void reject(long line, String reason) {
+        rejected++;
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+    }
+
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+
+    void fail(String reason) {
+        failure = reason;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    // Lines committed per second since the job started
+    public double getRowsPerSecond() {
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        double seconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+        return (committedLines - resumedAfter) / seconds;
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    public String getId() { return id; }
+    public Kind getKind() { return kind; }
+    public State getState() { return state; }
+    public long getResumedAfter() { return resumedAfter; }
+    public long getLinesRead() { return linesRead; }
+    public long getCommittedLines() { return committedLines; }
+    public long getImported() { return imported; }
+    public long getDuplicates() { return duplicates; }
+    public long getRejected() { return rejected; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public String getFailure() { return failure; }
+}
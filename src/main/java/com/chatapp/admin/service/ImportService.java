@@ -0,0 +1,468 @@
+package com.chatapp.admin.service;
+
+import com.chatapp.chat.Message;
+import com.chatapp.chat.service.MessageCipher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+// Bulk import of users and messages from another chat system, streamed from
+// NDJSON or CSV so the input never has to fit in memory.
+//
+// Input is read in chunks of chunk-size lines. While one chunk is written, the
+// next is parsed and validated on a dedicated pool, so the database is rarely
+// idle. Each chunk is written in its own transaction with JDBC batch inserts,
+// bypassing JPA. Progress is recorded only when a chunk commits; a failed import
+// is resumed by sending the same input again with resumeAfter set to the job's
+// committed line count.
+//
+// Emails are checked for uniqueness within the chunk in memory, then against the
+// users table with sorted IN (...) lookups on its unique index; earlier chunks
+// are committed by then, so that also catches duplicates across chunks. Users
+// whose email exists are skipped, which makes re-importing users harmless.
+// Messages are not deduplicated, so use resumeAfter for them.
+@Service
+public class ImportService implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(ImportService.class);
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final int MAX_FIELD_LENGTH = 255;
+    // The content column holds 2048 bytes once sealed
+    private static final int MAX_CONTENT_BYTES = 2048 - MessageCipher.SEALED_OVERHEAD;
+    private static final int LOOKUP_BATCH = 1000;
+    private static final int MAX_JOBS = 50;
+
+    private static final String INSERT_USER =
+            "insert into users (username, email, password, status, created_at, updated_at) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MESSAGE =
+            "insert into message (sender_id, receiver_id, content, delivered, read, toxic, created_at) "
+                    + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageCipher messageCipher;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final int userCacheSize;
+    private final ForkJoinPool pool;
+
+    private final Map<String, ImportJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    private final MeterRegistry meterRegistry;
+
+    public ImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         MessageCipher messageCipher, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${chat.import.chunk-size:5000}") int chunkSize,
+                         @Value("${chat.import.max-errors:100}") int maxErrors,
+                         @Value("${chat.import.user-cache-size:100000}") int userCacheSize,
+                         @Value("${chat.import.threads:0}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messageCipher = messageCipher;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.maxErrors = maxErrors;
+        this.userCacheSize = Math.max(userCacheSize, 1);
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    // Each user: email, username and password. Returns when the input ends.
+    public ImportJob importUsers(InputStream in, ImportFormat format, long resumeAfter) {
+        ImportJob job = start(ImportJob.Kind.USERS, resumeAfter);
+        run(job, in, format, ImportService::parseUser, this::writeUsers);
+        return job;
+    }
+
+    // Each message: from and to (the users' emails), content, and optionally
+    // sentAt (ISO-8601) and read. Users must be imported first.
+    public ImportJob importMessages(InputStream in, ImportFormat format, long resumeAfter) {
+        ImportJob job = start(ImportJob.Kind.MESSAGES, resumeAfter);
+        Map<String, Long> userIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > userCacheSize;
+            }
+        };
+        run(job, in, format, ImportService::parseMessage, (chunk, current) -> writeMessages(chunk, current, userIds));
+        return job;
+    }
+
+    public ImportJob getJob(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new RuntimeException("Import job not found");
+        }
+        return job;
+    }
+
+    // Most recent first
+    public List<ImportJob> getJobs() {
+        List<ImportJob> list;
+        synchronized (jobs) {
+            list = new ArrayList<>(jobs.values());
+        }
+        Collections.reverse(list);
+        return list;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private ImportJob start(ImportJob.Kind kind, long resumeAfter) {
+        if (resumeAfter < 0) {
+            throw new IllegalArgumentException("resumeAfter can't be negative");
+        }
+        ImportJob job = new ImportJob(kind, resumeAfter, maxErrors);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    private <T> void run(ImportJob job, InputStream in, ImportFormat format,
+                         Function<ImportFormat.Fields, T> parser, ChunkWriter<T> writer) {
+        long started = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            skipByteOrderMark(reader);
+            String header = format == ImportFormat.CSV ? reader.readLine() : null;
+            Function<String, ImportFormat.Fields> fields = format.parser(header, objectMapper);
+            for (long skipped = 0; skipped < job.getResumedAfter(); skipped++) {
+                if (reader.readLine() == null) {
+                    break;
+                }
+            }
+
+            long nextLine = job.getResumedAfter() + 1;
+            List<String> lines = readChunk(reader);
+            CompletableFuture<List<Parsed<T>>> next = lines.isEmpty() ? null : parse(lines, nextLine, fields, parser);
+            while (next != null) {
+                List<Parsed<T>> chunk = next.join();
+                job.read(chunk.size());
+                nextLine += chunk.size();
+                // Parse the next chunk while this one is written. If the input
+                // breaks meanwhile, still commit this one so resuming repeats less.
+                IOException readFailure = null;
+                try {
+                    lines = readChunk(reader);
+                } catch (IOException e) {
+                    readFailure = e;
+                    lines = List.of();
+                }
+                next = lines.isEmpty() ? null : parse(lines, nextLine, fields, parser);
+                writer.write(chunk, job);
+                if (readFailure != null) {
+                    throw readFailure;
+                }
+            }
+            job.complete();
+            count(job);
+            logger.info("Import " + job.getId() + " of " + job.getKind() + " completed: " + job.getImported()
+                    + " imported, " + job.getDuplicates() + " duplicates, " + job.getRejected() + " rejected in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            job.fail(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+            count(job);
+            logger.warn("Import " + job.getId() + " of " + job.getKind() + " failed after line "
+                    + job.getCommittedLines() + ": " + job.getFailure());
+        }
+    }
+
+    private List<String> readChunk(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>(chunkSize);
+        String line;
+        while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private <T> CompletableFuture<List<Parsed<T>>> parse(List<String> lines, long firstLine,
+                                                         Function<String, ImportFormat.Fields> fields,
+                                                         Function<ImportFormat.Fields, T> parser) {
+        return CompletableFuture.supplyAsync(() -> IntStream.range(0, lines.size()).parallel()
+                .mapToObj(i -> {
+                    long line = firstLine + i;
+                    String text = lines.get(i);
+                    if (text.isBlank()) {
+                        return new Parsed<T>(line, null, null);
+                    }
+                    try {
+                        return new Parsed<>(line, parser.apply(fields.apply(text)), null);
+                    } catch (IllegalArgumentException e) {
+                        return new Parsed<T>(line, null, e.getMessage());
+                    }
+                })
+                .toList(), pool);
+    }
+
+    private void writeUsers(List<Parsed<UserRecord>> chunk, ImportJob job) {
+        // First occurrence of an email in the chunk wins
+        Map<String, UserRecord> byEmail = new HashMap<>();
+        long duplicates = 0;
+        for (Parsed<UserRecord> parsed : chunk) {
+            if (parsed.error() != null) {
+                job.reject(parsed.line(), parsed.error());
+            } else if (parsed.record() != null && byEmail.putIfAbsent(parsed.record().email(), parsed.record()) != null) {
+                duplicates++;
+            }
+        }
+        long[] written;
+        try {
+            written = insertUsers(byEmail);
+        } catch (DuplicateKeyException e) {
+            // Someone registered one of these emails since the lookup; look again
+            written = insertUsers(byEmail);
+        }
+        job.committed(lastLine(chunk), written[0], duplicates + written[1]);
+    }
+
+    // Returns {inserted, already registered}
+    private long[] insertUsers(Map<String, UserRecord> byEmail) {
+        return transactionTemplate.execute(status -> {
+            Set<String> existing = existingEmails(byEmail.keySet());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> rows = new ArrayList<>(byEmail.size());
+            for (UserRecord user : byEmail.values()) {
+                if (!existing.contains(user.email())) {
+                    rows.add(new Object[] {user.username(), user.email(), user.password(), "OFFLINE", now, now});
+                }
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_USER, rows);
+            }
+            return new long[] {rows.size(), existing.size()};
+        });
+    }
+
+    private Set<String> existingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (List<String> batch : sortedBatches(emails)) {
+            existing.addAll(jdbcTemplate.queryForList(
+                    "select email from users where email in (" + placeholders(batch.size()) + ")",
+                    String.class, batch.toArray()));
+        }
+        return existing;
+    }
+
+    private void writeMessages(List<Parsed<MessageRecord>> chunk, ImportJob job, Map<String, Long> userIds) {
+        // Ids for this chunk's users: from the cache, then looked up in batches
+        Map<String, Long> ids = new HashMap<>();
+        Set<String> unknown = new HashSet<>();
+        for (Parsed<MessageRecord> parsed : chunk) {
+            if (parsed.record() != null) {
+                for (String email : List.of(parsed.record().from(), parsed.record().to())) {
+                    Long id = userIds.get(email);
+                    if (id != null) {
+                        ids.put(email, id);
+                    } else {
+                        unknown.add(email);
+                    }
+                }
+            }
+        }
+        for (List<String> batch : sortedBatches(unknown)) {
+            jdbcTemplate.query("select id, email from users where email in (" + placeholders(batch.size()) + ")",
+                    rs -> {
+                        ids.put(rs.getString("email"), rs.getLong("id"));
+                        userIds.put(rs.getString("email"), rs.getLong("id"));
+                    }, batch.toArray());
+        }
+
+        List<Message> messages = new ArrayList<>(chunk.size());
+        for (Parsed<MessageRecord> parsed : chunk) {
+            if (parsed.error() != null) {
+                job.reject(parsed.line(), parsed.error());
+                continue;
+            }
+            MessageRecord record = parsed.record();
+            if (record == null) {
+                continue;
+            }
+            Long senderId = ids.get(record.from());
+            Long receiverId = ids.get(record.to());
+            if (senderId == null || receiverId == null) {
+                job.reject(parsed.line(), "Unknown " + (senderId == null ? "sender " + record.from()
+                        : "receiver " + record.to()));
+                continue;
+            }
+            Message message = new Message();
+            message.setSenderId(senderId);
+            message.setReceiverId(receiverId);
+            message.setContent(record.content());
+            message.setDelivered(true);
+            message.setRead(record.read());
+            message.setCreatedAt(record.sentAt());
+            messages.add(message);
+        }
+        // Sealing is the CPU-heavy part; spread it over the pool
+        pool.submit(() -> messages.parallelStream().forEach(messageCipher::seal)).join();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!messages.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE, messages, messages.size(), (ps, message) -> {
+                    ps.setLong(1, message.getSenderId());
+                    ps.setLong(2, message.getReceiverId());
+                    ps.setBytes(3, message.getSealedContent());
+                    ps.setBoolean(4, message.isDelivered());
+                    ps.setBoolean(5, message.isRead());
+                    ps.setBoolean(6, message.isToxic());
+                    ps.setTimestamp(7, Timestamp.valueOf(message.getCreatedAt()));
+                });
+            }
+        });
+        job.committed(lastLine(chunk), messages.size(), 0);
+    }
+
+    private void count(ImportJob job) {
+        String kind = job.getKind().name().toLowerCase();
+        Counter.builder("chat.import.rows").tag("kind", kind).tag("result", "imported")
+                .register(meterRegistry).increment(job.getImported());
+        Counter.builder("chat.import.rows").tag("kind", kind).tag("result", "duplicate")
+                .register(meterRegistry).increment(job.getDuplicates());
+        Counter.builder("chat.import.rows").tag("kind", kind).tag("result", "rejected")
+                .register(meterRegistry).increment(job.getRejected());
+    }
+
+    static UserRecord parseUser(ImportFormat.Fields fields) {
+        String email = requireEmail(fields.get("email"), "email");
+        String username = require(fields.get("username"), "username");
+        String password = require(fields.get("password"), "password");
+        return new UserRecord(email, username, password);
+    }
+
+    static MessageRecord parseMessage(ImportFormat.Fields fields) {
+        String from = requireEmail(fields.get("from"), "from");
+        String to = requireEmail(fields.get("to"), "to");
+        String content = fields.get("content");
+        if (content == null) {
+            throw new IllegalArgumentException("content is required");
+        }
+        if (content.getBytes(StandardCharsets.UTF_8).length > MAX_CONTENT_BYTES) {
+            throw new IllegalArgumentException("content is longer than " + MAX_CONTENT_BYTES + " bytes");
+        }
+        String read = fields.get("read");
+        if (read != null && !read.equalsIgnoreCase("true") && !read.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("read must be true or false");
+        }
+        return new MessageRecord(from, to, content, parseTime(fields.get("sentAt")), Boolean.parseBoolean(read));
+    }
+
+    private static String require(String value, String name) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        if (value.length() > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException(name + " is longer than " + MAX_FIELD_LENGTH + " characters");
+        }
+        return value;
+    }
+
+    private static String requireEmail(String value, String name) {
+        String email = require(value, name).trim();
+        if (!EMAIL.matcher(email).matches()) {
+            throw new IllegalArgumentException(name + " is not a valid email");
+        }
+        return email;
+    }
+
+    // ISO-8601 with an offset, or local time; defaults to now
+    private static LocalDateTime parseTime(String value) {
+        if (value == null) {
+            return LocalDateTime.now();
+        }
+        try {
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException again) {
+                throw new IllegalArgumentException("sentAt is not an ISO-8601 time");
+            }
+        }
+    }
+
+    // Sorted, so each lookup walks the unique email index in order
+    private static List<List<String>> sortedBatches(Collection<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i += LOOKUP_BATCH) {
+            batches.add(sorted.subList(i, Math.min(i + LOOKUP_BATCH, sorted.size())));
+        }
+        return batches;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static long lastLine(List<? extends Parsed<?>> chunk) {
+        return chunk.get(chunk.size() - 1).line();
+    }
+
+    // Spreadsheet exports often start with one
+    private static void skipByteOrderMark(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    private interface ChunkWriter<T> {
+        void write(List<Parsed<T>> chunk, ImportJob job);
+    }
+
+    // One input line: a record, a rejection reason, or neither for a blank line
+    private record Parsed<T>(long line, T record, String error) {
+    }
+
+    record UserRecord(String email, String username, String password) {
+    }
+
+    record MessageRecord(String from, String to, String content, LocalDateTime sentAt, boolean read) {
+    }
+}
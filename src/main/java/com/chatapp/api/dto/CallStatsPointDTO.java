@@ -0,0 +1,53 @@
+package com.chatapp.api.dto;
+
+// One point of a call quality timeline: a raw sample or a rollup bucket
+public class CallStatsPointDTO {
+    private long timestamp; // sample time, or bucket start
+    private Long userId; // raw samples only
+    private int samples;
+    private double rttAvgMs;
+    private double rttMaxMs;
+    private double jitterAvgMs;
+    private double packetLossAvg;
+    private double bitrateAvgKbps;
+
+    // Constructors
+    public CallStatsPointDTO() {}
+
+    public CallStatsPointDTO(long timestamp, Long userId, int samples, double rttAvgMs, double rttMaxMs,
+                             double jitterAvgMs, double packetLossAvg, double bitrateAvgKbps) {
+        this.timestamp = timestamp;
+        this.userId = userId;
+        this.samples = samples;
+        this.rttAvgMs = rttAvgMs;
+        this.rttMaxMs = rttMaxMs;
+        this.jitterAvgMs = jitterAvgMs;
+        this.packetLossAvg = packetLossAvg;
+        this.bitrateAvgKbps = bitrateAvgKbps;
+    }
+
+    // Getters and Setters
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public int getSamples() { return samples; }
+    public void setSamples(int samples) { this.samples = samples; }
+
+    public double getRttAvgMs() { return rttAvgMs; }
+    public void setRttAvgMs(double rttAvgMs) { this.rttAvgMs = rttAvgMs; }
+
+    public double getRttMaxMs() { return rttMaxMs; }
+    public void setRttMaxMs(double rttMaxMs) { this.rttMaxMs = rttMaxMs; }
+
+    public double getJitterAvgMs() { return jitterAvgMs; }
+    public void setJitterAvgMs(double jitterAvgMs) { this.jitterAvgMs = jitterAvgMs; }
+
+    public double getPacketLossAvg() { return packetLossAvg; }
+    public void setPacketLossAvg(double packetLossAvg) { this.packetLossAvg = packetLossAvg; }
+
+    public double getBitrateAvgKbps() { return bitrateAvgKbps; }
+    public void setBitrateAvgKbps(double bitrateAvgKbps) { this.bitrateAvgKbps = bitrateAvgKbps; }
+}
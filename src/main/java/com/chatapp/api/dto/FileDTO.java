@@ -0,0 +1,54 @@
+package com.chatapp.api.dto;
+
+import java.time.LocalDateTime;
+
+public class FileDTO {
+    private String id;
+    private Long ownerId;
+    private String filename;
+    private String contentType;
+    private long size;
+    private String sha256;
+    private String processingStatus; // NONE, PENDING, READY or FAILED
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public FileDTO() {}
+
+    public FileDTO(String id, Long ownerId, String filename, String contentType,
+                   long size, String sha256, String processingStatus, LocalDateTime createdAt) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.sha256 = sha256;
+        this.processingStatus = processingStatus;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Long getOwnerId() { return ownerId; }
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public String getProcessingStatus() { return processingStatus; }
+    public void setProcessingStatus(String processingStatus) { this.processingStatus = processingStatus; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
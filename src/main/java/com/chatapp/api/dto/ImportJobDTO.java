@@ -0,0 +1,89 @@
+package com.chatapp.api.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Progress of a bulk import; resume a failed one by re-sending the same input
+// with resumeAfter=committedLines
+public class ImportJobDTO {
+    private String id;
+    private String kind;
+    private String state;
+    private long resumedAfter;
+    private long linesRead;
+    private long committedLines;
+    private long imported;
+    private long duplicates;
+    private long rejected;
+    private double rowsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String failure;
+    private List<String> errors;
+
+    // Constructors
+    public ImportJobDTO() {}
+
+    public ImportJobDTO(String id, String kind, String state, long resumedAfter, long linesRead,
+                        long committedLines, long imported, long duplicates, long rejected,
+                        double rowsPerSecond, LocalDateTime startedAt, LocalDateTime finishedAt, String failure,
+                        List<String> errors) {
+        this.id = id;
+        this.kind = kind;
+        this.state = state;
+        this.resumedAfter = resumedAfter;
+        this.linesRead = linesRead;
+        this.committedLines = committedLines;
+        this.imported = imported;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.rowsPerSecond = rowsPerSecond;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.failure = failure;
+        this.errors = errors;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public long getResumedAfter() { return resumedAfter; }
+    public void setResumedAfter(long resumedAfter) { this.resumedAfter = resumedAfter; }
+
+    public long getLinesRead() { return linesRead; }
+    public void setLinesRead(long linesRead) { this.linesRead = linesRead; }
+
+    public long getCommittedLines() { return committedLines; }
+    public void setCommittedLines(long committedLines) { this.committedLines = committedLines; }
+
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+
+    public long getDuplicates() { return duplicates; }
+    public void setDuplicates(long duplicates) { this.duplicates = duplicates; }
+
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+
+    public double getRowsPerSecond() { return rowsPerSecond; }
+    public void setRowsPerSecond(double rowsPerSecond) { this.rowsPerSecond = rowsPerSecond; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getFailure() { return failure; }
+    public void setFailure(String failure) { this.failure = failure; }
+
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
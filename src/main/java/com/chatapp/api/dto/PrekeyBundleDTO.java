@@ -0,0 +1,49 @@
+package com.chatapp.api.dto;
+
+// What a sender needs to start a session with userId (X3DH). The one-time prekey
+// fields are null once the user's pool has run out.
+public class PrekeyBundleDTO {
+    private Long userId;
+    private String identityKey;
+    private Integer signedPrekeyId;
+    private String signedPrekey;
+    private String signedPrekeySignature;
+    private Integer oneTimePrekeyId;
+    private String oneTimePrekey;
+
+    // Constructors
+    public PrekeyBundleDTO() {}
+
+    public PrekeyBundleDTO(Long userId, String identityKey, Integer signedPrekeyId, String signedPrekey,
+                           String signedPrekeySignature, Integer oneTimePrekeyId, String oneTimePrekey) {
+        this.userId = userId;
+        this.identityKey = identityKey;
+        this.signedPrekeyId = signedPrekeyId;
+        this.signedPrekey = signedPrekey;
+        this.signedPrekeySignature = signedPrekeySignature;
+        this.oneTimePrekeyId = oneTimePrekeyId;
+        this.oneTimePrekey = oneTimePrekey;
+    }
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getIdentityKey() { return identityKey; }
+    public void setIdentityKey(String identityKey) { this.identityKey = identityKey; }
+
+    public Integer getSignedPrekeyId() { return signedPrekeyId; }
+    public void setSignedPrekeyId(Integer signedPrekeyId) { this.signedPrekeyId = signedPrekeyId; }
+
+    public String getSignedPrekey() { return signedPrekey; }
+    public void setSignedPrekey(String signedPrekey) { this.signedPrekey = signedPrekey; }
+
+    public String getSignedPrekeySignature() { return signedPrekeySignature; }
+    public void setSignedPrekeySignature(String signedPrekeySignature) { this.signedPrekeySignature = signedPrekeySignature; }
+
+    public Integer getOneTimePrekeyId() { return oneTimePrekeyId; }
+    public void setOneTimePrekeyId(Integer oneTimePrekeyId) { this.oneTimePrekeyId = oneTimePrekeyId; }
+
+    public String getOneTimePrekey() { return oneTimePrekey; }
+    public void setOneTimePrekey(String oneTimePrekey) { this.oneTimePrekey = oneTimePrekey; }
+}
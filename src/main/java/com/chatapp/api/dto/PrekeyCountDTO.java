@@ -0,0 +1,23 @@
+package com.chatapp.api.dto;
+
+// How many one-time prekeys a user has left; also pushed to /user/queue/keys
+// when the count drops to the low watermark and again when it reaches zero
+public class PrekeyCountDTO {
+    private int count;
+    private int lowWatermark;
+
+    // Constructors
+    public PrekeyCountDTO() {}
+
+    public PrekeyCountDTO(int count, int lowWatermark) {
+        this.count = count;
+        this.lowWatermark = lowWatermark;
+    }
+
+    // Getters and Setters
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+
+    public int getLowWatermark() { return lowWatermark; }
+    public void setLowWatermark(int lowWatermark) { this.lowWatermark = lowWatermark; }
+}
@@ -0,0 +1,34 @@
+package com.chatapp.api.dto;
+
+import java.util.List;
+
+// Short-lived TURN credentials for RTCPeerConnection iceServers
+public class TurnCredentialsDTO {
+    private String username; // <expiry unix seconds>:<user>
+    private String password;
+    private long ttl; // seconds
+    private List<String> uris;
+
+    // Constructors
+    public TurnCredentialsDTO() {}
+
+    public TurnCredentialsDTO(String username, String password, long ttl, List<String> uris) {
+        this.username = username;
+        this.password = password;
+        this.ttl = ttl;
+        this.uris = uris;
+    }
+
+    // Getters and Setters
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+
+    public long getTtl() { return ttl; }
+    public void setTtl(long ttl) { this.ttl = ttl; }
+
+    public List<String> getUris() { return uris; }
+    public void setUris(List<String> uris) { this.uris = uris; }
+}
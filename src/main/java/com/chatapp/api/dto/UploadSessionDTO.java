@@ -0,0 +1,45 @@
+package com.chatapp.api.dto;
+
+import java.util.List;
+
+// State of a chunked upload; ranges are [start, end) byte offsets received so far
+public class UploadSessionDTO {
+    private String uploadId;
+    private String filename;
+    private long size;
+    private int chunkSize;
+    private long received;
+    private List<long[]> ranges;
+
+    // Constructors
+    public UploadSessionDTO() {}
+
+    public UploadSessionDTO(String uploadId, String filename, long size, int chunkSize,
+                            long received, List<long[]> ranges) {
+        this.uploadId = uploadId;
+        this.filename = filename;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.received = received;
+        this.ranges = ranges;
+    }
+
+    // Getters and Setters
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public long getReceived() { return received; }
+    public void setReceived(long received) { this.received = received; }
+
+    public List<long[]> getRanges() { return ranges; }
+    public void setRanges(List<long[]> ranges) { this.ranges = ranges; }
+}
@@ -2,6 +2,10 @@ package com.chatapp.auth;
 
 import com.chatapp.api.dto.ApiResponse;
 import com.chatapp.security.jwt.JwtUtil;
+import com.chatapp.security.jwt.TokenRevocationStore;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +19,17 @@ public class AuthController {
 
     private final AuthService authService;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginThrottle loginThrottle;
 
-    public AuthController(AuthService authService, JwtUtil jwtUtil) {
+    public AuthController(AuthService authService, JwtUtil jwtUtil, TokenRevocationStore tokenRevocationStore,
+                          RefreshTokenService refreshTokenService, LoginThrottle loginThrottle) {
         this.authService = authService;
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.refreshTokenService = refreshTokenService;
+        this.loginThrottle = loginThrottle;
     }
 
     // REGISTER
@@ -34,19 +45,67 @@ public class AuthController {
         }
     }
 
-    // LOGIN
+    // LOGIN (throttled per IP and per account before credentials are checked)
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<Map<String, String>>> login(@RequestBody LoginRequest request) {
+    public ResponseEntity<ApiResponse<Map<String, String>>> login(@RequestBody LoginRequest request,
+                                                                  HttpServletRequest httpRequest) {
+        String ip = httpRequest.getRemoteAddr();
+        long retryAfter = loginThrottle.retryAfterSeconds(ip, request.getEmail());
+        if (retryAfter > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter))
+                    .body(new ApiResponse<>(false, "Too many failed login attempts, try again later"));
+        }
         try {
             authService.login(request.getEmail(), request.getPassword());
-            String token = jwtUtil.generateToken(request.getEmail());
-            Map<String, String> data = new HashMap<>();
-            data.put("token", token);
-            data.put("email", request.getEmail());
-            return ResponseEntity.ok(new ApiResponse<>(true, "Login successful", data));
+        } catch (RuntimeException e) {
+            loginThrottle.recordFailure(ip, request.getEmail());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new ApiResponse<>(false, e.getMessage()));
+        }
+        loginThrottle.recordSuccess(request.getEmail());
+        String refreshToken = refreshTokenService.issue(request.getEmail());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Login successful",
+                tokens(request.getEmail(), refreshToken)));
+    }
+
+    // REFRESH (new access token and refresh token, without the password)
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<Map<String, String>>> refresh(@RequestBody RefreshRequest request) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+            return ResponseEntity.ok(new ApiResponse<>(true, "Token refreshed successfully",
+                    tokens(rotation.email(), rotation.refreshToken())));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new ApiResponse<>(false, e.getMessage()));
         }
     }
+
+    // LOGOUT (the presented token and refresh token stop working; the user is set OFFLINE)
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) RefreshRequest request) {
+        Claims claims = authorization != null && authorization.startsWith("Bearer ")
+                ? jwtUtil.getValidClaims(authorization.substring(7)) : null;
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new ApiResponse<>(false, "Invalid or expired token"));
+        }
+        tokenRevocationStore.revoke(claims.getId(), claims.getExpiration().getTime());
+        if (request != null) {
+            refreshTokenService.revoke(request.getRefreshToken(), claims.getSubject());
+        }
+        authService.logout(claims.getSubject());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Logged out successfully"));
+    }
+
+    private Map<String, String> tokens(String email, String refreshToken) {
+        Map<String, String> data = new HashMap<>();
+        data.put("token", jwtUtil.generateToken(email));
+        data.put("refreshToken", refreshToken);
+        data.put("email", email);
+        return data;
+    }
 }
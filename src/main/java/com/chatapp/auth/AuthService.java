@@ -1,20 +1,28 @@
 package com.chatapp.auth;
 
 import org.springframework.stereotype.Service;
+import com.chatapp.security.PrincipalCache;
 import com.chatapp.user.*;
 
 @Service
 public class AuthService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
-    public AuthService(UserRepository userRepository) {
+    public AuthService(UserRepository userRepository, PrincipalCache principalCache) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     // REGISTER
     public void register(String username, String email, String password) {
 
+        // Admin rights follow the email, so a configured admin address can't be claimed here
+        if (principalCache.isAdminEmail(email)) {
+            throw new RuntimeException("Email is reserved");
+        }
+
         if (userRepository.findByEmail(email).isPresent()) {
             throw new RuntimeException("Email already exists");
         }
@@ -40,7 +48,17 @@ public class AuthService {
 
         user.setStatus("ONLINE");
         userRepository.save(user);
+        principalCache.invalidate(email);
 
         return "LOGIN_SUCCESS";
     }
+
+    // LOGOUT
+    public void logout(String email) {
+        userRepository.findByEmail(email).ifPresent(user -> {
+            user.setStatus("OFFLINE");
+            userRepository.save(user);
+            principalCache.invalidate(email);
+        });
+    }
 }
@@ -0,0 +1,199 @@
+package com.chatapp.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Failed login tracking, per client IP and per account. Past a threshold of
+// failures a key is locked out for a window that doubles with every further
+// failure, up to a cap; failures are forgotten after a quiet period, and a
+// successful login clears the account's count.
+//
+// The check runs before AuthService, so a locked-out attempt costs two hash
+// lookups and never reaches the database. Each table is split into stripes,
+// each a small LRU map under its own lock, so concurrent logins rarely contend
+// and memory stays bounded however many IPs or emails an attacker sprays.
+@Component
+public class LoginThrottle {
+
+    private final FailureTable byIp;
+    private final FailureTable byAccount;
+    private final long baseLockoutMillis;
+    private final long maxLockoutMillis;
+    private final long windowMillis;
+
+    private final Counter ipRejections;
+    private final Counter accountRejections;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${chat.auth.throttle.ip-threshold:50}") int ipThreshold,
+                         @Value("${chat.auth.throttle.account-threshold:5}") int accountThreshold,
+                         @Value("${chat.auth.throttle.base-lockout-ms:1000}") long baseLockoutMillis,
+                         @Value("${chat.auth.throttle.max-lockout-ms:900000}") long maxLockoutMillis,
+                         @Value("${chat.auth.throttle.window-ms:900000}") long windowMillis,
+                         @Value("${chat.auth.throttle.stripes:64}") int stripes,
+                         @Value("${chat.auth.throttle.max-entries:100000}") int maxEntries) {
+        this.baseLockoutMillis = Math.max(baseLockoutMillis, 1);
+        this.maxLockoutMillis = Math.max(maxLockoutMillis, this.baseLockoutMillis);
+        this.windowMillis = windowMillis;
+        this.byIp = new FailureTable(Math.max(ipThreshold, 1), stripes, maxEntries);
+        this.byAccount = new FailureTable(Math.max(accountThreshold, 1), stripes, maxEntries);
+
+        Gauge.builder("chat.auth.throttle.tracked", this, throttle -> throttle.byIp.size() + throttle.byAccount.size())
+                .description("IPs and accounts with recent failed logins")
+                .register(meterRegistry);
+        this.ipRejections = meterRegistry.counter("chat.auth.throttle.rejected", "scope", "ip");
+        this.accountRejections = meterRegistry.counter("chat.auth.throttle.rejected", "scope", "account");
+    }
+
+    // Seconds until this IP and account may try again, or 0 if they may now
+    public long retryAfterSeconds(String ip, String email) {
+        long now = System.currentTimeMillis();
+        long ipWait = byIp.lockedFor(ip, now);
+        long accountWait = byAccount.lockedFor(account(email), now);
+        if (ipWait > 0) {
+            ipRejections.increment();
+        } else if (accountWait > 0) {
+            accountRejections.increment();
+        }
+        long wait = Math.max(ipWait, accountWait);
+        return wait == 0 ? 0 : Math.max(1, (wait + 999) / 1000);
+    }
+
+    public void recordFailure(String ip, String email) {
+        long now = System.currentTimeMillis();
+        byIp.recordFailure(ip, now);
+        byAccount.recordFailure(account(email), now);
+    }
+
+    // Clears the account's failures; the IP keeps its count, so a stuffing run
+    // with the odd valid credential is still slowed down
+    public void recordSuccess(String email) {
+        byAccount.clear(account(email));
+    }
+
+    // Drops keys that are neither locked nor within the failure window
+    @Scheduled(fixedDelayString = "${chat.auth.throttle.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        byIp.evictIdle(now);
+        byAccount.evictIdle(now);
+    }
+
+    int getTrackedKeys() {
+        return byIp.size() + byAccount.size();
+    }
+
+    private static String account(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private final class FailureTable {
+
+        private final int threshold;
+        private final Stripe[] stripes;
+        private final int mask;
+
+        FailureTable(int threshold, int stripeCount, int maxEntries) {
+            this.threshold = threshold;
+            int count = Integer.highestOneBit(Math.max(stripeCount, 1));
+            this.stripes = new Stripe[count];
+            this.mask = count - 1;
+            int perStripe = Math.max(maxEntries / count, 1);
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Stripe(perStripe);
+            }
+        }
+
+        long lockedFor(String key, long now) {
+            if (key == null) {
+                return 0;
+            }
+            Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                Failures failures = stripe.get(key);
+                return failures == null ? 0 : Math.max(0, failures.lockedUntil - now);
+            }
+        }
+
+        void recordFailure(String key, long now) {
+            if (key == null) {
+                return;
+            }
+            Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                Failures failures = stripe.get(key);
+                if (failures == null || now - failures.lastFailure > windowMillis) {
+                    failures = new Failures();
+                    stripe.put(key, failures);
+                }
+                failures.count++;
+                failures.lastFailure = now;
+                if (failures.count >= threshold) {
+                    int doublings = Math.min(failures.count - threshold, 30);
+                    failures.lockedUntil = now + Math.min(baseLockoutMillis << doublings, maxLockoutMillis);
+                }
+            }
+        }
+
+        void clear(String key) {
+            Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                stripe.remove(key);
+            }
+        }
+
+        void evictIdle(long now) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.values().removeIf(f -> f.lockedUntil <= now && now - f.lastFailure > windowMillis);
+                }
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
+        }
+
+        private Stripe stripeFor(String key) {
+            int h = key.hashCode();
+            return stripes[(h ^ (h >>> 16)) & mask];
+        }
+    }
+
+    // Access-ordered, so when a stripe is full the key idle longest goes first;
+    // a key under attack is touched on every attempt and stays
+    private static final class Stripe extends LinkedHashMap<String, Failures> {
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Failures> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final class Failures {
+        int count;
+        long lastFailure;
+        long lockedUntil;
+    }
+}
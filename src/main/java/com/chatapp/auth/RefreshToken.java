@@ -0,0 +1,75 @@
+package com.chatapp.auth;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// One login session's refresh token. The id is the public half of the token and
+// stays the same across rotations; tokenHash is the SHA-256 of the secret half
+// currently valid, so a database leak gives away no usable tokens. Presenting a
+// session's id with any other secret means an old token was replayed.
+@Entity
+@Table(name = "refresh_token")
+public class RefreshToken implements Persistable<String> {
+
+    @Id
+    @Column(length = 32)
+    private String id;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Ids are assigned before saving; insert without a select first
+    @Transient
+    private boolean isNew = true;
+
+    public RefreshToken() {}
+
+    public RefreshToken(String id, String email, String tokenHash, LocalDateTime expiresAt) {
+        this.id = id;
+        this.email = email;
+        this.tokenHash = tokenHash;
+        this.expiresAt = expiresAt;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    @PostPersist
+    @PostLoad
+    protected void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @Override
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,26 @@
+package com.chatapp.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    // Compare-and-set on the current hash: of two refreshes racing with the same
+    // token, exactly one updates a row
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.tokenHash = :newHash, t.expiresAt = :expiresAt "
+            + "where t.id = :id and t.tokenHash = :oldHash")
+    int rotate(@Param("id") String id, @Param("oldHash") String oldHash,
+               @Param("newHash") String newHash, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
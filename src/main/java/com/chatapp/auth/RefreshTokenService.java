@@ -0,0 +1,157 @@
+package com.chatapp.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+// Rotating refresh tokens, so access tokens can be short-lived without sending
+// users back through a password login. A token is "<session id>.<secret>": the
+// id finds the session's row by primary key, and the secret is checked against
+// its stored SHA-256. The secrets are 256 random bits, so a fast hash is enough;
+// unlike a password there is nothing to guess. Every refresh replaces the secret.
+//
+// Reuse detection: a token whose session exists but whose secret is no longer the
+// current one has already been used. Either it was stolen, or the thief rotated
+// first and this is the real client; we can't tell which, so the session ends
+// and the user logs in again.
+@Service
+public class RefreshTokenService {
+
+    private static final Log logger = LogFactory.getLog(RefreshTokenService.class);
+
+    private static final int ID_BYTES = 16;
+    private static final int SECRET_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long expirationMillis;
+    private final SecureRandom random = new SecureRandom();
+
+    private final Counter issued;
+    private final Counter rotated;
+    private final Counter reused;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, MeterRegistry meterRegistry,
+                               @Value("${jwt.refresh.expiration:2592000000}") long expirationMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.expirationMillis = expirationMillis;
+
+        this.issued = meterRegistry.counter("jwt.refresh.issued");
+        this.rotated = meterRegistry.counter("jwt.refresh.rotated");
+        this.reused = meterRegistry.counter("jwt.refresh.reused");
+    }
+
+    // Starts a session after a successful login; returns its first refresh token
+    public String issue(String email) {
+        String id = HexFormat.of().formatHex(randomBytes(ID_BYTES));
+        String secret = encode(randomBytes(SECRET_BYTES));
+        refreshTokenRepository.save(new RefreshToken(id, email, hash(secret), expiresAt()));
+        issued.increment();
+        return id + "." + secret;
+    }
+
+    // Swaps a refresh token for the next one in its session. One primary key
+    // read and one conditional update; the user's password is never checked.
+    public Rotation rotate(String token) {
+        String[] parts = split(token);
+        RefreshToken session = refreshTokenRepository.findById(parts[0])
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            refreshTokenRepository.deleteById(session.getId());
+            throw new RuntimeException("Refresh token expired");
+        }
+        String presented = hash(parts[1]);
+        if (!matches(presented, session.getTokenHash())) {
+            throw endReusedSession(session);
+        }
+        String secret = encode(randomBytes(SECRET_BYTES));
+        if (refreshTokenRepository.rotate(session.getId(), presented, hash(secret), expiresAt()) == 0) {
+            // Another refresh with the same token got there first
+            throw endReusedSession(session);
+        }
+        rotated.increment();
+        return new Rotation(session.getEmail(), session.getId() + "." + secret);
+    }
+
+    // Ends the token's session on logout. Only the current token of one of the
+    // user's own sessions counts; anything else is ignored, so an id alone can't
+    // be used to log someone else out.
+    public void revoke(String token, String email) {
+        String[] parts;
+        try {
+            parts = split(token);
+        } catch (RuntimeException e) {
+            return;
+        }
+        Optional<RefreshToken> session = refreshTokenRepository.findById(parts[0]);
+        if (session.isPresent() && session.get().getEmail().equals(email)
+                && matches(hash(parts[1]), session.get().getTokenHash())) {
+            refreshTokenRepository.deleteById(parts[0]);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.debug("Purged " + purged + " expired refresh tokens");
+        }
+    }
+
+    private RuntimeException endReusedSession(RefreshToken session) {
+        reused.increment();
+        refreshTokenRepository.deleteById(session.getId());
+        logger.warn("Refresh token reuse detected for " + session.getEmail() + "; session ended");
+        return new RuntimeException("Refresh token reuse detected");
+    }
+
+    private LocalDateTime expiresAt() {
+        return LocalDateTime.now().plusNanos(expirationMillis * 1_000_000);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String[] split(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        return new String[] {token.substring(0, dot), token.substring(dot + 1)};
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(secret.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean matches(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.US_ASCII), b.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public record Rotation(String email, String refreshToken) {
+    }
+}
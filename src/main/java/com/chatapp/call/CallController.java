@@ -1,23 +1,49 @@
 package com.chatapp.call;
 
+import com.chatapp.call.service.CallRoomRegistry;
+import com.chatapp.call.service.CallSessionRegistry;
+import com.chatapp.websocket.SessionRegistry;
+import com.chatapp.websocket.UserSession;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
 @Controller
 public class CallController {
 
-    private final SimpMessagingTemplate template;
+    private final CallSessionRegistry callSessionRegistry;
+    private final CallRoomRegistry callRoomRegistry;
+    private final SessionRegistry sessionRegistry;
 
-    public CallController(SimpMessagingTemplate template) {
-        this.template = template;
+    public CallController(CallSessionRegistry callSessionRegistry, CallRoomRegistry callRoomRegistry,
+                          SessionRegistry sessionRegistry) {
+        this.callSessionRegistry = callSessionRegistry;
+        this.callRoomRegistry = callRoomRegistry;
+        this.sessionRegistry = sessionRegistry;
     }
 
     @MessageMapping("/call")
-    public void call(CallSignal signal) {
-        template.convertAndSend(
-            "/topic/call/" + signal.getReceiverId(),
-            signal
-        );
+    public void call(CallSignal signal, SimpMessageHeaderAccessor headers) {
+        if (fromSession(signal, headers)) {
+            callSessionRegistry.onSignal(signal);
+        }
+    }
+
+    @MessageMapping("/call/room")
+    public void room(CallSignal signal, SimpMessageHeaderAccessor headers) {
+        if (fromSession(signal, headers)) {
+            callRoomRegistry.onSignal(signal);
+        }
+    }
+
+    // The sender is the user the STOMP session authenticated as; a callerId in
+    // the payload is overwritten, so nobody can signal on another user's behalf
+    private boolean fromSession(CallSignal signal, SimpMessageHeaderAccessor headers) {
+        UserSession session = sessionRegistry.getSession(headers.getSessionId());
+        if (session == null) {
+            return false;
+        }
+        signal.setCallerId(session.getUserId());
+        return true;
     }
 }
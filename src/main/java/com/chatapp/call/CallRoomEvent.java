@@ -0,0 +1,35 @@
+package com.chatapp.call;
+
+// Room membership change, pushed to every participant on /user/queue/call-room
+public class CallRoomEvent {
+
+    public static final String JOINED = "JOINED";
+    public static final String LEFT = "LEFT";
+    public static final String FULL = "FULL"; // only sent to the user who tried to join
+    public static final String DENIED = "DENIED"; // only sent to a user who joined uninvited
+    public static final String INVITED = "INVITED"; // only sent to the invitee; userId is who invited them
+
+    private final String roomId;
+    private final String type;
+    private final Long userId;
+    private final long version; // increases with every roster change in the room
+    private final long[] participants;
+
+    public CallRoomEvent(String roomId, String type, Long userId, long version, long[] participants) {
+        this.roomId = roomId;
+        this.type = type;
+        this.userId = userId;
+        this.version = version;
+        this.participants = participants;
+    }
+
+    public String getRoomId() { return roomId; }
+
+    public String getType() { return type; }
+
+    public Long getUserId() { return userId; }
+
+    public long getVersion() { return version; }
+
+    public long[] getParticipants() { return participants; }
+}
@@ -2,9 +2,44 @@ package com.chatapp.call;
 
 public class CallSignal {
 
+    // Client signals
+    public static final String OFFER = "OFFER";
+    public static final String ANSWER = "ANSWER";
+    public static final String ICE = "ICE";
+    public static final String CONNECTED = "CONNECTED"; // media is flowing
+    public static final String REJECT = "REJECT";
+    public static final String HANGUP = "HANGUP";
+    public static final String JOIN = "JOIN";   // rooms only
+    public static final String LEAVE = "LEAVE"; // rooms only
+    public static final String INVITE = "INVITE"; // rooms only, receiverId may then JOIN
+
+    // Sent by the server
+    public static final String BUSY = "BUSY";
+    public static final String TIMEOUT = "TIMEOUT";
+
+    private String callId; // assigned by the server on OFFER
+    private String roomId; // set for group calls, see /app/call/room
     private Long callerId;
     private Long receiverId;
-    private String type; // OFFER, ANSWER, ICE
+    private String receiverDeviceId; // optional, targets a single device
+    private String type;
+    private Object payload; // SDP for OFFER/ANSWER; one candidate or an array of them for ICE
+
+    public CallSignal() {
+    }
+
+    public CallSignal(String callId, Long callerId, Long receiverId, String type) {
+        this.callId = callId;
+        this.callerId = callerId;
+        this.receiverId = receiverId;
+        this.type = type;
+    }
+
+    public String getCallId() { return callId; }
+    public void setCallId(String callId) { this.callId = callId; }
+
+    public String getRoomId() { return roomId; }
+    public void setRoomId(String roomId) { this.roomId = roomId; }
 
     public Long getCallerId() { return callerId; }
     public void setCallerId(Long callerId) { this.callerId = callerId; }
@@ -12,6 +47,12 @@ public class CallSignal {
     public Long getReceiverId() { return receiverId; }
     public void setReceiverId(Long receiverId) { this.receiverId = receiverId; }
 
+    public String getReceiverDeviceId() { return receiverDeviceId; }
+    public void setReceiverDeviceId(String receiverDeviceId) { this.receiverDeviceId = receiverDeviceId; }
+
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
+
+    public Object getPayload() { return payload; }
+    public void setPayload(Object payload) { this.payload = payload; }
 }
@@ -0,0 +1,77 @@
+package com.chatapp.call;
+
+import com.chatapp.api.dto.ApiResponse;
+import com.chatapp.api.dto.CallStatsPointDTO;
+import com.chatapp.call.service.CallRoom;
+import com.chatapp.call.service.CallRoomRegistry;
+import com.chatapp.call.service.CallSession;
+import com.chatapp.call.service.CallSessionRegistry;
+import com.chatapp.call.service.CallStatsService;
+import com.chatapp.security.ChatPrincipal;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/calls")
+public class CallStatsController {
+
+    private final CallStatsService service;
+    private final CallSessionRegistry callSessionRegistry;
+    private final CallRoomRegistry callRoomRegistry;
+
+    public CallStatsController(CallStatsService service, CallSessionRegistry callSessionRegistry,
+                               CallRoomRegistry callRoomRegistry) {
+        this.service = service;
+        this.callSessionRegistry = callSessionRegistry;
+        this.callRoomRegistry = callRoomRegistry;
+    }
+
+    // REPORT WEBRTC STATS (one or more samples, only while in the call)
+    @PostMapping("/{callId}/stats")
+    public ResponseEntity<ApiResponse<Integer>> report(
+            @PathVariable String callId,
+            @RequestBody List<CallStatsSample> samples,
+            @AuthenticationPrincipal ChatPrincipal principal
+    ) {
+        long[] participants = participants(callId, principal.id());
+        if (participants == null) {
+            throw new RuntimeException("Not in this call");
+        }
+        int accepted = service.ingest(callId, principal.id(), participants, samples);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Stats recorded", accepted));
+    }
+
+    // GET QUALITY TIMELINE (participants only)
+    @GetMapping("/{callId}/stats")
+    public ResponseEntity<ApiResponse<List<CallStatsPointDTO>>> timeline(
+            @PathVariable String callId,
+            @RequestParam(defaultValue = "10s") String resolution,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @AuthenticationPrincipal ChatPrincipal principal
+    ) {
+        List<CallStatsPointDTO> points = service.getTimeline(callId, principal.id(), resolution, from, to);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Call stats retrieved successfully", points));
+    }
+
+    // Everyone in the user's current call or room, or null if that is not callId
+    private long[] participants(String callId, Long userId) {
+        CallSession call = callSessionRegistry.getCall(userId);
+        if (call != null && call.getCallId().equals(callId)) {
+            return new long[]{call.getCallerId(), call.getReceiverId()};
+        }
+        if (callId.equals(callRoomRegistry.getRoomOf(userId))) {
+            CallRoom room = callRoomRegistry.getRoom(callId);
+            CallRoom.Roster roster = room != null ? room.getRoster() : null;
+            if (roster != null && roster.participants() != null
+                    && Arrays.binarySearch(roster.participants(), userId) >= 0) {
+                return roster.participants();
+            }
+        }
+        return null;
+    }
+}
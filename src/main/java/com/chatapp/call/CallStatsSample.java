@@ -0,0 +1,25 @@
+package com.chatapp.call;
+
+// One WebRTC stats report from a participant; who sent it comes from the token
+public class CallStatsSample {
+    private Long timestamp; // epoch millis, defaults to the time it was received
+    private Double rttMs;
+    private Double jitterMs;
+    private Double packetLoss; // fraction of packets lost, 0..1
+    private Double bitrateKbps;
+
+    public Long getTimestamp() { return timestamp; }
+    public void setTimestamp(Long timestamp) { this.timestamp = timestamp; }
+
+    public Double getRttMs() { return rttMs; }
+    public void setRttMs(Double rttMs) { this.rttMs = rttMs; }
+
+    public Double getJitterMs() { return jitterMs; }
+    public void setJitterMs(Double jitterMs) { this.jitterMs = jitterMs; }
+
+    public Double getPacketLoss() { return packetLoss; }
+    public void setPacketLoss(Double packetLoss) { this.packetLoss = packetLoss; }
+
+    public Double getBitrateKbps() { return bitrateKbps; }
+    public void setBitrateKbps(Double bitrateKbps) { this.bitrateKbps = bitrateKbps; }
+}
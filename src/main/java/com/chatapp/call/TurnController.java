@@ -0,0 +1,29 @@
+package com.chatapp.call;
+
+import com.chatapp.api.dto.ApiResponse;
+import com.chatapp.api.dto.TurnCredentialsDTO;
+import com.chatapp.call.service.TurnCredentialService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/calls")
+public class TurnController {
+
+    private final TurnCredentialService service;
+
+    public TurnController(TurnCredentialService service) {
+        this.service = service;
+    }
+
+    // GET TURN CREDENTIALS (fetch before placing or answering a call)
+    @GetMapping("/turn-credentials")
+    public ResponseEntity<ApiResponse<TurnCredentialsDTO>> credentials(Principal principal) {
+        TurnCredentialsDTO credentials = service.issue(principal != null ? principal.getName() : null);
+        return ResponseEntity.ok(new ApiResponse<>(true, "TURN credentials issued", credentials));
+    }
+}
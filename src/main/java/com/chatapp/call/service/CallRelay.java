@@ -0,0 +1,26 @@
+package com.chatapp.call.service;
+
+import com.chatapp.call.CallSignal;
+import com.chatapp.websocket.UserSessionMessenger;
+import org.springframework.stereotype.Component;
+
+// Delivers a call signal to signal.receiverId: the targeted device if given, otherwise
+// all of the receiver's sessions. A receiver with no session gets nothing; a topic
+// per user would let anyone subscribe to someone else's signals.
+@Component
+public class CallRelay {
+
+    private final UserSessionMessenger messenger;
+
+    public CallRelay(UserSessionMessenger messenger) {
+        this.messenger = messenger;
+    }
+
+    public void send(CallSignal signal) {
+        if (signal.getReceiverDeviceId() != null
+                && messenger.sendToDevice(signal.getReceiverId(), signal.getReceiverDeviceId(), "/queue/call", signal)) {
+            return;
+        }
+        messenger.sendToUser(signal.getReceiverId(), "/queue/call", signal);
+    }
+}
@@ -0,0 +1,116 @@
+package com.chatapp.call.service;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+// Group call roster. The roster snapshot is never modified in place: joins and
+// leaves build a new one and swap it in with a CAS, so fan-out and membership
+// checks read a consistent snapshot without locking. A room is its id plus one
+// snapshot holding a sorted long[], which keeps thousands of rooms cheap.
+// Whoever opens a room may join it; everyone else needs an invitation from a
+// participant. Invitations last as long as the room.
+public class CallRoom {
+
+    private static final AtomicReferenceFieldUpdater<CallRoom, Roster> ROSTER =
+            AtomicReferenceFieldUpdater.newUpdater(CallRoom.class, Roster.class, "roster");
+
+    private final String roomId;
+    private volatile Roster roster = new Roster(0, new long[0]);
+    private final Set<Long> invited = ConcurrentHashMap.newKeySet();
+
+    public CallRoom(String roomId) {
+        this.roomId = roomId;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public Roster getRoster() {
+        return roster;
+    }
+
+    public boolean contains(long userId) {
+        return Arrays.binarySearch(roster.participants, userId) >= 0;
+    }
+
+    // A room is closed once its last participant leaves; joiners then use a new one
+    public boolean isClosed() {
+        return roster.participants == null;
+    }
+
+    public boolean isInvited(long userId) {
+        return invited.contains(userId);
+    }
+
+    // Returns false once maxInvites users are invited
+    boolean invite(long userId, int maxInvites) {
+        if (invited.size() >= maxInvites && !invited.contains(userId)) {
+            return false;
+        }
+        invited.add(userId);
+        return true;
+    }
+
+    // Returns the new roster, the current one if already present, or null if the
+    // room is full or closed, or the user was not invited
+    Roster join(long userId, int maxParticipants) {
+        while (true) {
+            Roster current = roster;
+            long[] participants = current.participants;
+            if (participants == null) {
+                return null;
+            }
+            int index = Arrays.binarySearch(participants, userId);
+            if (index >= 0) {
+                return current;
+            }
+            if (participants.length > 0 && !invited.contains(userId)) {
+                return null;
+            }
+            if (participants.length >= maxParticipants) {
+                return null;
+            }
+            int insertAt = -index - 1;
+            long[] next = new long[participants.length + 1];
+            System.arraycopy(participants, 0, next, 0, insertAt);
+            next[insertAt] = userId;
+            System.arraycopy(participants, insertAt, next, insertAt + 1, participants.length - insertAt);
+            Roster updated = new Roster(current.version + 1, next);
+            if (ROSTER.compareAndSet(this, current, updated)) {
+                // The opener counts as invited, so they can come back after leaving
+                invited.add(userId);
+                return updated;
+            }
+        }
+    }
+
+    // Returns the new roster (closed once empty), or null if the user was not in it
+    Roster leave(long userId) {
+        while (true) {
+            Roster current = roster;
+            long[] participants = current.participants;
+            int index = participants == null ? -1 : Arrays.binarySearch(participants, userId);
+            if (index < 0) {
+                return null;
+            }
+            long[] next = null;
+            if (participants.length > 1) {
+                next = new long[participants.length - 1];
+                System.arraycopy(participants, 0, next, 0, index);
+                System.arraycopy(participants, index + 1, next, index, participants.length - index - 1);
+            }
+            Roster updated = new Roster(current.version + 1, next);
+            if (ROSTER.compareAndSet(this, current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    // participants is sorted and must not be modified; null once the room is closed.
+    // The version lets clients ignore a roster that arrives after a newer one.
+    public record Roster(long version, long[] participants) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.chatapp.call.service;
+
+import com.chatapp.call.CallRoomEvent;
+import com.chatapp.call.CallSignal;
+import com.chatapp.websocket.SessionRegistry;
+import com.chatapp.websocket.UserSession;
+import com.chatapp.websocket.UserSessionMessenger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Group calls. Media is negotiated per participant pair, so OFFER/ANSWER/ICE are
+// relayed to signal.receiverId only when both sides are in the room. Roster
+// changes are serialized once and pushed to every participant. A user is in at
+// most one room; joining another leaves the current one. The first JOIN opens a
+// room; after that only users a participant has invited may join.
+@Component
+public class CallRoomRegistry {
+
+    public static final String ROOM_DESTINATION = "/queue/call-room";
+
+    private final ConcurrentHashMap<String, CallRoom> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> roomByUser = new ConcurrentHashMap<>();
+    private final CallRelay relay;
+    private final UserSessionMessenger messenger;
+    private final SessionRegistry sessionRegistry;
+    private final ObjectMapper objectMapper;
+    private final int maxParticipants;
+    private final int maxRooms;
+    private final int maxInvites;
+
+    private final Counter forwarded;
+    private final Counter dropped;
+    private final Counter full;
+    private final Counter denied;
+
+    public CallRoomRegistry(CallRelay relay, UserSessionMessenger messenger, SessionRegistry sessionRegistry,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${chat.call.room.max-participants:16}") int maxParticipants,
+                            @Value("${chat.call.room.max-rooms:10000}") int maxRooms,
+                            @Value("${chat.call.room.max-invites:64}") int maxInvites) {
+        this.relay = relay;
+        this.messenger = messenger;
+        this.sessionRegistry = sessionRegistry;
+        this.objectMapper = objectMapper;
+        this.maxParticipants = maxParticipants;
+        this.maxRooms = maxRooms;
+        this.maxInvites = maxInvites;
+
+        Gauge.builder("chat.call.rooms", rooms, ConcurrentHashMap::size)
+                .description("Group call rooms with at least one participant")
+                .register(meterRegistry);
+        Gauge.builder("chat.call.room.participants", roomByUser, ConcurrentHashMap::size)
+                .register(meterRegistry);
+        this.forwarded = meterRegistry.counter("chat.call.room.signals", "outcome", "forwarded");
+        this.dropped = meterRegistry.counter("chat.call.room.signals", "outcome", "dropped");
+        this.full = meterRegistry.counter("chat.call.room.signals", "outcome", "full");
+        this.denied = meterRegistry.counter("chat.call.room.signals", "outcome", "denied");
+    }
+
+    public void onSignal(CallSignal signal) {
+        Long senderId = signal.getCallerId();
+        if (senderId == null || signal.getRoomId() == null || signal.getType() == null) {
+            dropped.increment();
+            return;
+        }
+        switch (signal.getType()) {
+            case CallSignal.JOIN -> join(signal.getRoomId(), senderId);
+            case CallSignal.LEAVE -> leave(signal.getRoomId(), senderId);
+            case CallSignal.INVITE -> invite(signal);
+            case CallSignal.OFFER, CallSignal.ANSWER, CallSignal.ICE -> relayInRoom(signal);
+            default -> dropped.increment();
+        }
+    }
+
+    public CallRoom getRoom(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    public String getRoomOf(Long userId) {
+        return roomByUser.get(userId);
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    // Runs before SessionRegistry drops the session, like CallSessionRegistry
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDisconnect(SessionDisconnectEvent event) {
+        UserSession session = sessionRegistry.getSession(event.getSessionId());
+        if (session == null || sessionRegistry.getSessions(session.getUserId()).size() > 1) {
+            return;
+        }
+        String roomId = roomByUser.get(session.getUserId());
+        if (roomId != null) {
+            leave(roomId, session.getUserId());
+        }
+    }
+
+    // The whole swap runs in roomByUser.compute, so a user's concurrent joins and
+    // leaves are serialized and roomByUser always names the room they are in.
+    // Events are pushed once the mapping is settled.
+    private void join(String roomId, Long userId) {
+        List<Runnable> events = new ArrayList<>(2);
+        roomByUser.compute(userId, (id, previous) -> {
+            if (previous != null && !previous.equals(roomId)) {
+                CallRoom.Roster left = leaveRoom(previous, userId);
+                if (left != null) {
+                    events.add(() -> publish(previous, CallRoomEvent.LEFT, userId, left, userId));
+                }
+            }
+            CallRoom.Roster roster = enterRoom(roomId, userId);
+            if (roster == null) {
+                events.add(() -> reject(roomId, userId));
+                return null;
+            }
+            events.add(() -> publish(roomId, CallRoomEvent.JOINED, userId, roster, null));
+            return roomId;
+        });
+        events.forEach(Runnable::run);
+    }
+
+    private void leave(String roomId, Long userId) {
+        CallRoom.Roster[] left = new CallRoom.Roster[1];
+        roomByUser.computeIfPresent(userId, (id, current) -> {
+            if (!current.equals(roomId)) {
+                return current;
+            }
+            left[0] = leaveRoom(roomId, userId);
+            return null;
+        });
+        if (left[0] != null) {
+            publish(roomId, CallRoomEvent.LEFT, userId, left[0], userId);
+        }
+    }
+
+    // Only a participant may invite, and the invitee is told so they can JOIN
+    private void invite(CallSignal signal) {
+        CallRoom room = rooms.get(signal.getRoomId());
+        Long inviteeId = signal.getReceiverId();
+        if (room == null || inviteeId == null || !room.contains(signal.getCallerId())
+                || !room.invite(inviteeId, maxInvites)) {
+            dropped.increment();
+            return;
+        }
+        CallRoom.Roster roster = room.getRoster();
+        long[] participants = roster.participants() == null ? new long[0] : roster.participants();
+        messenger.sendToUser(inviteeId, ROOM_DESTINATION, serialize(new CallRoomEvent(
+                signal.getRoomId(), CallRoomEvent.INVITED, signal.getCallerId(), roster.version(), participants)));
+    }
+
+    // Returns the new roster, or null if the room is full, the user is not invited
+    // or too many rooms exist
+    private CallRoom.Roster enterRoom(String roomId, Long userId) {
+        while (true) {
+            CallRoom room = rooms.get(roomId);
+            if (room == null) {
+                if (rooms.size() >= maxRooms) {
+                    return null;
+                }
+                room = rooms.computeIfAbsent(roomId, CallRoom::new);
+            }
+            CallRoom.Roster roster = room.join(userId, maxParticipants);
+            if (roster == null && room.isClosed()) {
+                // Emptied while we were joining, start a fresh one
+                rooms.remove(roomId, room);
+                continue;
+            }
+            return roster;
+        }
+    }
+
+    private CallRoom.Roster leaveRoom(String roomId, Long userId) {
+        CallRoom room = rooms.get(roomId);
+        if (room == null) {
+            return null;
+        }
+        CallRoom.Roster roster = room.leave(userId);
+        if (roster != null && roster.participants() == null) {
+            rooms.remove(roomId, room);
+        }
+        return roster;
+    }
+
+    private void relayInRoom(CallSignal signal) {
+        CallRoom room = rooms.get(signal.getRoomId());
+        if (room == null || signal.getReceiverId() == null || signal.getReceiverId().equals(signal.getCallerId())
+                || !room.contains(signal.getCallerId()) || !room.contains(signal.getReceiverId())) {
+            dropped.increment();
+            return;
+        }
+        forwarded.increment();
+        relay.send(signal);
+    }
+
+    private void reject(String roomId, Long userId) {
+        CallRoom room = rooms.get(roomId);
+        boolean invited = room == null || room.isInvited(userId);
+        if (invited) {
+            full.increment();
+        } else {
+            denied.increment();
+        }
+        messenger.sendToUser(userId, ROOM_DESTINATION, serialize(new CallRoomEvent(
+                roomId, invited ? CallRoomEvent.FULL : CallRoomEvent.DENIED, userId, 0L, new long[0])));
+    }
+
+    // The event is converted to JSON once rather than once per participant
+    private void publish(String roomId, String type, Long userId, CallRoom.Roster roster, Long alsoNotify) {
+        long[] participants = roster.participants() == null ? new long[0] : roster.participants();
+        String json = serialize(new CallRoomEvent(roomId, type, userId, roster.version(), participants));
+        for (long participant : participants) {
+            messenger.sendToUser(participant, ROOM_DESTINATION, json);
+        }
+        if (alsoNotify != null) {
+            messenger.sendToUser(alsoNotify, ROOM_DESTINATION, json);
+        }
+    }
+
+    private String serialize(CallRoomEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize room event", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.chatapp.call.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// One call between two users. Mutable fields are guarded by the lock, which is
+// also held while signals are relayed so both sides see them in order.
+public class CallSession {
+
+    private final String callId;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Long callerId;
+    private Long receiverId;
+    private CallState state = CallState.RINGING;
+    private Long pendingOfferFrom; // renegotiation OFFER waiting for its ANSWER
+    private TimingWheel.Timeout timeout;
+    private final Map<Long, IceBatch> pendingIce = new HashMap<>(4); // by sender
+
+    public CallSession(String callId, Long callerId, Long receiverId) {
+        this.callId = callId;
+        this.callerId = callerId;
+        this.receiverId = receiverId;
+    }
+
+    public String getCallId() { return callId; }
+
+    public Long getCallerId() { return callerId; }
+
+    public Long getReceiverId() { return receiverId; }
+
+    public CallState getState() { return state; }
+
+    public boolean involves(Long userId) {
+        return callerId.equals(userId) || receiverId.equals(userId);
+    }
+
+    public Long peerOf(Long userId) {
+        return callerId.equals(userId) ? receiverId : callerId;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    void setState(CallState state) {
+        this.state = state;
+    }
+
+    // Glare: the other side's OFFER wins, so the roles flip
+    void swapRoles() {
+        Long caller = callerId;
+        callerId = receiverId;
+        receiverId = caller;
+    }
+
+    Long getPendingOfferFrom() {
+        return pendingOfferFrom;
+    }
+
+    void setPendingOfferFrom(Long pendingOfferFrom) {
+        this.pendingOfferFrom = pendingOfferFrom;
+    }
+
+    IceBatch getPendingIce(Long senderId) {
+        return pendingIce.get(senderId);
+    }
+
+    IceBatch startIceBatch(Long senderId, String receiverDeviceId) {
+        IceBatch batch = new IceBatch(receiverDeviceId);
+        pendingIce.put(senderId, batch);
+        return batch;
+    }
+
+    IceBatch takePendingIce(Long senderId) {
+        return pendingIce.remove(senderId);
+    }
+
+    void clearPendingIce() {
+        pendingIce.clear();
+    }
+
+    void replaceTimeout(TimingWheel.Timeout next) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        timeout = next;
+    }
+
+    // Candidates from one sender waiting to be relayed as a single ICE signal
+    static final class IceBatch {
+
+        final String receiverDeviceId;
+        final List<Object> candidates = new ArrayList<>();
+
+        IceBatch(String receiverDeviceId) {
+            this.receiverDeviceId = receiverDeviceId;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.chatapp.call.service;
+
+import com.chatapp.call.CallSignal;
+import com.chatapp.websocket.SessionRegistry;
+import com.chatapp.websocket.UserSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory state for one-to-one calls. Signals are only relayed when they fit the
+// call's current state: duplicate ANSWERs, stray ICE and signals for calls that
+// have already ended are dropped here instead of reaching clients. A user takes
+// part in at most one call, so the per-user index is also the busy check.
+//
+// Trickled ICE candidates are held per sender for a short window and relayed as
+// one ICE signal whose payload is the candidate array. A sender's pending
+// candidates are always flushed before its next OFFER/ANSWER/CONNECTED.
+@Component
+public class CallSessionRegistry implements DisposableBean {
+
+    private final ConcurrentHashMap<Long, CallSession> callsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final CallRelay relay;
+    private final SessionRegistry sessionRegistry;
+    private final CallStatsService callStatsService;
+    private final TimingWheel timingWheel;
+    private final int maxCalls;
+    private final long ringTimeoutMs;
+    private final long connectTimeoutMs;
+    private final long iceBatchMs;
+    private final int iceBatchMax;
+    private final ScheduledThreadPoolExecutor iceFlusher;
+
+    private final Counter forwarded;
+    private final Counter dropped;
+    private final Counter busy;
+    private final Counter glare;
+    private final Counter timedOut;
+    private final DistributionSummary iceBatchSize;
+
+    public CallSessionRegistry(CallRelay relay, SessionRegistry sessionRegistry, CallStatsService callStatsService,
+                               MeterRegistry meterRegistry,
+                               @Value("${chat.call.max-sessions:10000}") int maxCalls,
+                               @Value("${chat.call.ring-timeout-ms:30000}") long ringTimeoutMs,
+                               @Value("${chat.call.connect-timeout-ms:20000}") long connectTimeoutMs,
+                               @Value("${chat.call.tick-ms:100}") long tickMs,
+                               @Value("${chat.call.ice-batch-ms:20}") long iceBatchMs,
+                               @Value("${chat.call.ice-batch-max:32}") int iceBatchMax) {
+        this.relay = relay;
+        this.sessionRegistry = sessionRegistry;
+        this.callStatsService = callStatsService;
+        this.maxCalls = maxCalls;
+        this.ringTimeoutMs = ringTimeoutMs;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.iceBatchMs = iceBatchMs;
+        this.iceBatchMax = Math.max(iceBatchMax, 1);
+        this.iceFlusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "call-ice-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long longestTimeout = Math.max(ringTimeoutMs, connectTimeoutMs);
+        this.timingWheel = new TimingWheel(tickMs, TimeUnit.MILLISECONDS, (int) Math.min(longestTimeout / tickMs + 1, 4096));
+
+        Gauge.builder("chat.call.sessions", callCount, AtomicInteger::get)
+                .description("Calls that are ringing, connecting or active")
+                .register(meterRegistry);
+        this.forwarded = meterRegistry.counter("chat.call.signals", "outcome", "forwarded");
+        this.dropped = meterRegistry.counter("chat.call.signals", "outcome", "dropped");
+        this.busy = meterRegistry.counter("chat.call.signals", "outcome", "busy");
+        this.glare = meterRegistry.counter("chat.call.glare");
+        this.timedOut = meterRegistry.counter("chat.call.timeouts");
+        this.iceBatchSize = DistributionSummary.builder("chat.call.ice.batch.size")
+                .description("Candidates relayed per ICE signal")
+                .register(meterRegistry);
+    }
+
+    public void onSignal(CallSignal signal) {
+        Long senderId = signal.getCallerId();
+        Long peerId = signal.getReceiverId();
+        if (senderId == null || peerId == null || signal.getType() == null || senderId.equals(peerId)) {
+            dropped.increment();
+            return;
+        }
+        if (CallSignal.OFFER.equals(signal.getType())) {
+            offer(signal);
+            return;
+        }
+
+        CallSession call = callsByUser.get(senderId);
+        if (call == null || !call.involves(peerId) || !matchesCallId(call, signal)) {
+            rejectUnknown(signal);
+            return;
+        }
+        call.lock().lock();
+        try {
+            if (call.getState() == CallState.ENDED) {
+                rejectUnknown(signal);
+                return;
+            }
+            signal.setCallId(call.getCallId());
+            switch (signal.getType()) {
+                case CallSignal.ANSWER -> {
+                    flushIce(call, senderId);
+                    answer(call, signal);
+                }
+                case CallSignal.ICE -> queueIce(call, signal);
+                case CallSignal.CONNECTED -> {
+                    flushIce(call, senderId);
+                    connected(call, signal);
+                }
+                case CallSignal.REJECT, CallSignal.HANGUP -> {
+                    end(call);
+                    forward(signal);
+                }
+                default -> dropped.increment();
+            }
+        } finally {
+            call.lock().unlock();
+        }
+    }
+
+    public CallSession getCall(Long userId) {
+        return callsByUser.get(userId);
+    }
+
+    public boolean isBusy(Long userId) {
+        return callsByUser.containsKey(userId);
+    }
+
+    public int getCallCount() {
+        return callCount.get();
+    }
+
+    @Override
+    public void destroy() {
+        iceFlusher.shutdownNow();
+    }
+
+    @Scheduled(fixedRateString = "${chat.call.tick-ms:100}")
+    public void advanceTimers() {
+        timingWheel.advance();
+    }
+
+    // Runs before SessionRegistry drops the session, so the user is still known.
+    // Calls end once the user's last session is gone.
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDisconnect(SessionDisconnectEvent event) {
+        UserSession session = sessionRegistry.getSession(event.getSessionId());
+        if (session == null || sessionRegistry.getSessions(session.getUserId()).size() > 1) {
+            return;
+        }
+        CallSession call = callsByUser.get(session.getUserId());
+        if (call == null) {
+            return;
+        }
+        call.lock().lock();
+        try {
+            if (call.getState() != CallState.ENDED) {
+                end(call);
+                notifyUser(call, session.getUserId(), call.peerOf(session.getUserId()), CallSignal.HANGUP);
+            }
+        } finally {
+            call.lock().unlock();
+        }
+    }
+
+    private void offer(CallSignal signal) {
+        Long callerId = signal.getCallerId();
+        Long receiverId = signal.getReceiverId();
+
+        CallSession existing = callsByUser.get(callerId);
+        if (existing != null) {
+            existing.lock().lock();
+            try {
+                if (existing.getState() != CallState.ENDED) {
+                    if (existing.involves(receiverId)) {
+                        offerWithinCall(existing, signal);
+                        return;
+                    }
+                    // Starting a new call abandons the previous one
+                    end(existing);
+                    notifyUser(existing, callerId, existing.peerOf(callerId), CallSignal.HANGUP);
+                }
+            } finally {
+                existing.lock().unlock();
+            }
+        }
+
+        if (callCount.incrementAndGet() > maxCalls) {
+            callCount.decrementAndGet();
+            replyBusy(signal);
+            return;
+        }
+        CallSession call = new CallSession(UUID.randomUUID().toString(), callerId, receiverId);
+        call.lock().lock();
+        try {
+            CallSession raced = callsByUser.putIfAbsent(callerId, call);
+            if (raced != null) {
+                // Another OFFER from this caller got in first
+                callCount.decrementAndGet();
+                call.setState(CallState.ENDED);
+                dropped.increment();
+                return;
+            }
+            if (callsByUser.putIfAbsent(receiverId, call) != null) {
+                callsByUser.remove(callerId, call);
+                callCount.decrementAndGet();
+                call.setState(CallState.ENDED);
+                replyBusy(signal);
+                return;
+            }
+            signal.setCallId(call.getCallId());
+            scheduleTimeout(call, ringTimeoutMs);
+            forward(signal);
+        } finally {
+            call.lock().unlock();
+        }
+    }
+
+    // OFFER between two users who already share a call: glare while ringing,
+    // renegotiation once answered
+    private void offerWithinCall(CallSession call, CallSignal signal) {
+        Long senderId = signal.getCallerId();
+        signal.setCallId(call.getCallId());
+        flushIce(call, senderId);
+        if (call.getState() != CallState.RINGING) {
+            call.setPendingOfferFrom(senderId);
+            forward(signal);
+            return;
+        }
+        if (call.getCallerId().equals(senderId)) {
+            // Repeated OFFER while still ringing
+            dropped.increment();
+            return;
+        }
+        glare.increment();
+        if (senderId < call.getCallerId()) {
+            // Lower user id wins; the other side drops its own OFFER on receiving this one
+            call.swapRoles();
+            scheduleTimeout(call, ringTimeoutMs);
+            forward(signal);
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void answer(CallSession call, CallSignal signal) {
+        Long senderId = signal.getCallerId();
+        if (call.getState() == CallState.RINGING && call.getReceiverId().equals(senderId)) {
+            call.setState(CallState.CONNECTING);
+            scheduleTimeout(call, connectTimeoutMs);
+            forward(signal);
+        } else if (call.getState() != CallState.RINGING && call.getPendingOfferFrom() != null
+                && !call.getPendingOfferFrom().equals(senderId)) {
+            call.setPendingOfferFrom(null);
+            forward(signal);
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void connected(CallSession call, CallSignal signal) {
+        if (call.getState() == CallState.CONNECTING) {
+            call.setState(CallState.ACTIVE);
+            call.replaceTimeout(null);
+            forward(signal);
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void queueIce(CallSession call, CallSignal signal) {
+        Long senderId = signal.getCallerId();
+        if (iceBatchMs <= 0 || signal.getPayload() == null) {
+            flushIce(call, senderId);
+            forward(signal);
+            return;
+        }
+        CallSession.IceBatch batch = call.getPendingIce(senderId);
+        if (batch != null && !Objects.equals(batch.receiverDeviceId, signal.getReceiverDeviceId())) {
+            flushIce(call, senderId);
+            batch = null;
+        }
+        if (batch == null) {
+            CallSession.IceBatch started = call.startIceBatch(senderId, signal.getReceiverDeviceId());
+            iceFlusher.schedule(() -> onIceWindow(call, senderId, started), iceBatchMs, TimeUnit.MILLISECONDS);
+            batch = started;
+        }
+        if (signal.getPayload() instanceof Collection<?> candidates) {
+            batch.candidates.addAll(candidates);
+        } else {
+            batch.candidates.add(signal.getPayload());
+        }
+        if (batch.candidates.size() >= iceBatchMax) {
+            flushIce(call, senderId);
+        }
+    }
+
+    private void onIceWindow(CallSession call, Long senderId, CallSession.IceBatch batch) {
+        call.lock().lock();
+        try {
+            // The batch may already have gone out early or been replaced
+            if (call.getState() != CallState.ENDED && call.getPendingIce(senderId) == batch) {
+                flushIce(call, senderId);
+            }
+        } finally {
+            call.lock().unlock();
+        }
+    }
+
+    // Caller holds the call lock
+    void flushIce(CallSession call, Long senderId) {
+        CallSession.IceBatch batch = call.takePendingIce(senderId);
+        if (batch == null || batch.candidates.isEmpty()) {
+            return;
+        }
+        CallSignal signal = new CallSignal(call.getCallId(), senderId, call.peerOf(senderId), CallSignal.ICE);
+        signal.setReceiverDeviceId(batch.receiverDeviceId);
+        signal.setPayload(batch.candidates);
+        iceBatchSize.record(batch.candidates.size());
+        forward(signal);
+    }
+
+    private void scheduleTimeout(CallSession call, long delayMs) {
+        CallState expected = call.getState();
+        call.replaceTimeout(timingWheel.schedule(() -> onTimeout(call, expected), delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    private void onTimeout(CallSession call, CallState expected) {
+        call.lock().lock();
+        try {
+            if (call.getState() != expected) {
+                return;
+            }
+            timedOut.increment();
+            end(call);
+            notifyUser(call, call.getReceiverId(), call.getCallerId(), CallSignal.TIMEOUT);
+            notifyUser(call, call.getCallerId(), call.getReceiverId(), CallSignal.TIMEOUT);
+        } finally {
+            call.lock().unlock();
+        }
+    }
+
+    // Caller holds the call lock
+    private void end(CallSession call) {
+        if (call.getState() == CallState.ENDED) {
+            return;
+        }
+        call.setState(CallState.ENDED);
+        call.replaceTimeout(null);
+        // Candidates are useless once the call is over
+        call.clearPendingIce();
+        callsByUser.remove(call.getCallerId(), call);
+        callsByUser.remove(call.getReceiverId(), call);
+        callCount.decrementAndGet();
+        callStatsService.callEnded(call.getCallId());
+    }
+
+    private boolean matchesCallId(CallSession call, CallSignal signal) {
+        return signal.getCallId() == null || signal.getCallId().equals(call.getCallId());
+    }
+
+    // Tells the sender to tear down a call the server no longer knows about. ICE is
+    // dropped silently since a stale peer can send a burst of candidates.
+    private void rejectUnknown(CallSignal signal) {
+        dropped.increment();
+        if (CallSignal.ANSWER.equals(signal.getType()) || CallSignal.CONNECTED.equals(signal.getType())) {
+            relay.send(new CallSignal(signal.getCallId(), signal.getReceiverId(), signal.getCallerId(), CallSignal.HANGUP));
+        }
+    }
+
+    private void replyBusy(CallSignal signal) {
+        busy.increment();
+        relay.send(new CallSignal(null, signal.getReceiverId(), signal.getCallerId(), CallSignal.BUSY));
+    }
+
+    private void notifyUser(CallSession call, Long fromId, Long toId, String type) {
+        relay.send(new CallSignal(call.getCallId(), fromId, toId, type));
+    }
+
+    private void forward(CallSignal signal) {
+        forwarded.increment();
+        relay.send(signal);
+    }
+}
@@ -0,0 +1,8 @@
+package com.chatapp.call.service;
+
+public enum CallState {
+    RINGING,    // OFFER delivered, waiting for ANSWER or REJECT
+    CONNECTING, // answered, waiting for CONNECTED
+    ACTIVE,
+    ENDED
+}
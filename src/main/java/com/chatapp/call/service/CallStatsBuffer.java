@@ -0,0 +1,391 @@
+package com.chatapp.call.service;
+
+import com.chatapp.api.dto.CallStatsPointDTO;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Quality samples for one call, stored column by column in primitive arrays, plus
+// 1s/10s/1m rollups that are updated as samples arrive. Raw samples stop being
+// kept after maxRawSamples; the rollups keep counting, up to maxBuckets buckets
+// each. Once spilled the buffer is closed and refuses appends, so late samples go
+// to a buffer reloaded from the file. The users allowed to read it are kept too.
+public class CallStatsBuffer {
+
+    public static final long[] ROLLUP_WIDTHS_MS = {1_000L, 10_000L, 60_000L};
+
+    private static final int FILE_MAGIC = 0x43535432; // "CST2"
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int maxRawSamples;
+    private final int maxBuckets;
+    private final Rollup[] rollups = new Rollup[ROLLUP_WIDTHS_MS.length];
+    private volatile long lastAppendNanos = System.nanoTime();
+    private volatile boolean ended;
+    private boolean closed;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] userIds = new long[INITIAL_CAPACITY];
+    private float[] rtt = new float[INITIAL_CAPACITY];
+    private float[] jitter = new float[INITIAL_CAPACITY];
+    private float[] loss = new float[INITIAL_CAPACITY];
+    private float[] bitrate = new float[INITIAL_CAPACITY];
+    private int size;
+    private long droppedRaw;
+    private long[] participants = new long[0]; // sorted
+
+    public CallStatsBuffer(int maxRawSamples, int maxBuckets) {
+        this.maxRawSamples = maxRawSamples;
+        this.maxBuckets = maxBuckets;
+        for (int i = 0; i < rollups.length; i++) {
+            rollups[i] = new Rollup(ROLLUP_WIDTHS_MS[i], maxBuckets);
+        }
+    }
+
+    // Returns false if the buffer has been closed
+    public boolean addParticipants(long[] userIds) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            for (long userId : userIds) {
+                int index = Arrays.binarySearch(participants, userId);
+                if (index < 0) {
+                    index = -index - 1;
+                    long[] grown = new long[participants.length + 1];
+                    System.arraycopy(participants, 0, grown, 0, index);
+                    grown[index] = userId;
+                    System.arraycopy(participants, index, grown, index + 1, participants.length - index);
+                    participants = grown;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isParticipant(long userId) {
+        lock.lock();
+        try {
+            return Arrays.binarySearch(participants, userId) >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns false if the buffer has been closed
+    public boolean append(long timestamp, long userId, float rttMs, float jitterMs, float packetLoss, float bitrateKbps) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            lastAppendNanos = System.nanoTime();
+            if (size < maxRawSamples) {
+                if (size == timestamps.length) {
+                    grow();
+                }
+                timestamps[size] = timestamp;
+                userIds[size] = userId;
+                rtt[size] = rttMs;
+                jitter[size] = jitterMs;
+                loss[size] = packetLoss;
+                bitrate[size] = bitrateKbps;
+                size++;
+            } else {
+                droppedRaw++;
+            }
+            for (Rollup rollup : rollups) {
+                rollup.add(timestamp, rttMs, jitterMs, packetLoss, bitrateKbps);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs the spiller and closes the buffer under the lock, so every sample
+    // accepted before the close is in what the spiller wrote. Returns false if
+    // the buffer was already closed; if the spiller throws it stays open.
+    public boolean close(Spiller spiller) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            spiller.spill(this);
+            closed = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastAppendNanos() {
+        return lastAppendNanos;
+    }
+
+    // The call is over; the buffer is spilled without waiting to go idle
+    public void markEnded() {
+        ended = true;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Raw samples in [from, to), in arrival order
+    public List<CallStatsPointDTO> raw(long from, long to) {
+        lock.lock();
+        try {
+            List<CallStatsPointDTO> points = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (timestamps[i] >= from && timestamps[i] < to) {
+                    points.add(new CallStatsPointDTO(timestamps[i], userIds[i], 1,
+                            rtt[i], rtt[i], jitter[i], loss[i], bitrate[i]));
+                }
+            }
+            return points;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Buckets starting in [from, to) for one of ROLLUP_WIDTHS_MS
+    public List<CallStatsPointDTO> rollup(long widthMs, long from, long to) {
+        int index = Arrays.binarySearch(ROLLUP_WIDTHS_MS, widthMs);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unsupported rollup width " + widthMs + "ms");
+        }
+        lock.lock();
+        try {
+            return rollups[index].points(from, to);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.lock();
+        try {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(maxRawSamples);
+            out.writeInt(maxBuckets);
+            out.writeLong(droppedRaw);
+            out.writeInt(participants.length);
+            for (long participant : participants) {
+                out.writeLong(participant);
+            }
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(timestamps[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeLong(userIds[i]);
+            }
+            writeFloats(out, rtt, size);
+            writeFloats(out, jitter, size);
+            writeFloats(out, loss, size);
+            writeFloats(out, bitrate, size);
+            for (Rollup rollup : rollups) {
+                rollup.writeTo(out);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static CallStatsBuffer readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("Not a call stats file");
+        }
+        int maxRawSamples = in.readInt();
+        CallStatsBuffer buffer = new CallStatsBuffer(maxRawSamples, in.readInt());
+        buffer.droppedRaw = in.readLong();
+        buffer.participants = new long[in.readInt()];
+        for (int i = 0; i < buffer.participants.length; i++) {
+            buffer.participants[i] = in.readLong();
+        }
+        int size = in.readInt();
+        buffer.size = size;
+        buffer.timestamps = new long[size];
+        buffer.userIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            buffer.timestamps[i] = in.readLong();
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.userIds[i] = in.readLong();
+        }
+        buffer.rtt = readFloats(in, size);
+        buffer.jitter = readFloats(in, size);
+        buffer.loss = readFloats(in, size);
+        buffer.bitrate = readFloats(in, size);
+        for (Rollup rollup : buffer.rollups) {
+            rollup.readFrom(in);
+        }
+        return buffer;
+    }
+
+    @FunctionalInterface
+    public interface Spiller {
+        void spill(CallStatsBuffer buffer) throws IOException;
+    }
+
+    private void grow() {
+        int capacity = Math.min(Math.max(timestamps.length * 2, INITIAL_CAPACITY), maxRawSamples);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        rtt = Arrays.copyOf(rtt, capacity);
+        jitter = Arrays.copyOf(jitter, capacity);
+        loss = Arrays.copyOf(loss, capacity);
+        bitrate = Arrays.copyOf(bitrate, capacity);
+    }
+
+    private static void writeFloats(DataOutputStream out, float[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeFloat(values[i]);
+        }
+    }
+
+    private static float[] readFloats(DataInputStream in, int count) throws IOException {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readFloat();
+        }
+        return values;
+    }
+
+    // Fixed-width buckets kept sorted by start time. Samples almost always land in
+    // the newest bucket; late ones are inserted in place. Once maxBuckets exist,
+    // samples that would need a new bucket are left out of this rollup.
+    private static final class Rollup {
+
+        private final long widthMs;
+        private final int maxBuckets;
+        private long[] starts = new long[16];
+        private int[] counts = new int[16];
+        private double[] rttSum = new double[16];
+        private float[] rttMax = new float[16];
+        private double[] jitterSum = new double[16];
+        private double[] lossSum = new double[16];
+        private double[] bitrateSum = new double[16];
+        private int size;
+
+        Rollup(long widthMs, int maxBuckets) {
+            this.widthMs = widthMs;
+            this.maxBuckets = maxBuckets;
+        }
+
+        void add(long timestamp, float rttMs, float jitterMs, float packetLoss, float bitrateKbps) {
+            long start = Math.floorDiv(timestamp, widthMs) * widthMs;
+            int index;
+            if (size > 0 && starts[size - 1] == start) {
+                index = size - 1;
+            } else {
+                int found = Arrays.binarySearch(starts, 0, size, start);
+                if (found < 0 && size >= maxBuckets) {
+                    return;
+                }
+                index = found >= 0 ? found : insert(-found - 1, start);
+            }
+            counts[index]++;
+            rttSum[index] += rttMs;
+            rttMax[index] = counts[index] == 1 ? rttMs : Math.max(rttMax[index], rttMs);
+            jitterSum[index] += jitterMs;
+            lossSum[index] += packetLoss;
+            bitrateSum[index] += bitrateKbps;
+        }
+
+        List<CallStatsPointDTO> points(long from, long to) {
+            List<CallStatsPointDTO> points = new ArrayList<>();
+            int first = Arrays.binarySearch(starts, 0, size, from);
+            for (int i = first >= 0 ? first : -first - 1; i < size && starts[i] < to; i++) {
+                int n = counts[i];
+                points.add(new CallStatsPointDTO(starts[i], null, n, rttSum[i] / n, rttMax[i],
+                        jitterSum[i] / n, lossSum[i] / n, bitrateSum[i] / n));
+            }
+            return points;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(starts[i]);
+                out.writeInt(counts[i]);
+                out.writeDouble(rttSum[i]);
+                out.writeFloat(rttMax[i]);
+                out.writeDouble(jitterSum[i]);
+                out.writeDouble(lossSum[i]);
+                out.writeDouble(bitrateSum[i]);
+            }
+        }
+
+        void readFrom(DataInputStream in) throws IOException {
+            size = 0;
+            int count = in.readInt();
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                starts[i] = in.readLong();
+                counts[i] = in.readInt();
+                rttSum[i] = in.readDouble();
+                rttMax[i] = in.readFloat();
+                jitterSum[i] = in.readDouble();
+                lossSum[i] = in.readDouble();
+                bitrateSum[i] = in.readDouble();
+            }
+            size = count;
+        }
+
+        private int insert(int index, long start) {
+            ensureCapacity(size + 1);
+            int moved = size - index;
+            System.arraycopy(starts, index, starts, index + 1, moved);
+            System.arraycopy(counts, index, counts, index + 1, moved);
+            System.arraycopy(rttSum, index, rttSum, index + 1, moved);
+            System.arraycopy(rttMax, index, rttMax, index + 1, moved);
+            System.arraycopy(jitterSum, index, jitterSum, index + 1, moved);
+            System.arraycopy(lossSum, index, lossSum, index + 1, moved);
+            System.arraycopy(bitrateSum, index, bitrateSum, index + 1, moved);
+            starts[index] = start;
+            counts[index] = 0;
+            rttSum[index] = 0;
+            rttMax[index] = 0;
+            jitterSum[index] = 0;
+            lossSum[index] = 0;
+            bitrateSum[index] = 0;
+            size++;
+            return index;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= starts.length) {
+                return;
+            }
+            int grown = Math.max(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, grown);
+            counts = Arrays.copyOf(counts, grown);
+            rttSum = Arrays.copyOf(rttSum, grown);
+            rttMax = Arrays.copyOf(rttMax, grown);
+            jitterSum = Arrays.copyOf(jitterSum, grown);
+            lossSum = Arrays.copyOf(lossSum, grown);
+            bitrateSum = Arrays.copyOf(bitrateSum, grown);
+        }
+    }
+}
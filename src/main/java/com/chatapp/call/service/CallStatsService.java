@@ -0,0 +1,232 @@
+package com.chatapp.call.service;
+
+import com.chatapp.api.dto.CallStatsPointDTO;
+import com.chatapp.call.CallStatsSample;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Call quality telemetry. Samples go into a per-call CallStatsBuffer in memory;
+// once a call has ended or been quiet for idle-ms its buffer is written to
+// <dir>/<callId>.stats and dropped from memory. Queries read whichever is present.
+// Callers vouch that the reporting user is in the call (see CallStatsController);
+// only the participants recorded with the samples may read them back.
+@Service
+public class CallStatsService implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(CallStatsService.class);
+    private static final Pattern CALL_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final ConcurrentHashMap<String, CallStatsBuffer> liveCalls = new ConcurrentHashMap<>();
+    private final Path directory;
+    private final int maxCalls;
+    private final int maxSamplesPerCall;
+    private final int maxBuckets;
+    private final long maxSkewMs;
+    private final long idleNanos;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter spilled;
+
+    public CallStatsService(MeterRegistry meterRegistry,
+                            @Value("${chat.call.stats.dir:call-stats}") String directory,
+                            @Value("${chat.call.stats.max-calls:10000}") int maxCalls,
+                            @Value("${chat.call.stats.max-samples-per-call:20000}") int maxSamplesPerCall,
+                            @Value("${chat.call.stats.idle-ms:60000}") long idleMs,
+                            @Value("${chat.call.stats.max-buckets:3600}") int maxBuckets,
+                            @Value("${chat.call.stats.max-skew-ms:30000}") long maxSkewMs) {
+        this.directory = Paths.get(directory);
+        this.maxCalls = maxCalls;
+        this.maxSamplesPerCall = maxSamplesPerCall;
+        this.maxBuckets = maxBuckets;
+        this.maxSkewMs = maxSkewMs;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMs);
+
+        Gauge.builder("chat.call.stats.live", liveCalls, ConcurrentHashMap::size)
+                .description("Calls with telemetry held in memory")
+                .register(meterRegistry);
+        this.accepted = meterRegistry.counter("chat.call.stats.samples", "outcome", "accepted");
+        this.rejected = meterRegistry.counter("chat.call.stats.samples", "outcome", "rejected");
+        this.spilled = meterRegistry.counter("chat.call.stats.spilled");
+    }
+
+    // userId is the reporting user and participants everyone currently in the call.
+    // Timestamps are clamped to within max-skew-ms of now, so a client cannot spread
+    // samples over buckets far from the call.
+    public int ingest(String callId, Long userId, long[] participants, List<CallStatsSample> samples) {
+        validateCallId(callId);
+        for (CallStatsSample sample : samples) {
+            if (sample.getRttMs() == null || sample.getJitterMs() == null
+                    || sample.getPacketLoss() == null || sample.getBitrateKbps() == null) {
+                rejected.increment(samples.size());
+                throw new IllegalArgumentException("Samples need rttMs, jitterMs, packetLoss and bitrateKbps");
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        int appended = 0;
+        while (appended < samples.size()) {
+            CallStatsBuffer buffer = liveBuffer(callId, samples.size() - appended);
+            if (!buffer.addParticipants(participants)) {
+                liveCalls.remove(callId, buffer);
+                continue;
+            }
+            for (; appended < samples.size(); appended++) {
+                CallStatsSample sample = samples.get(appended);
+                long timestamp = sample.getTimestamp() != null
+                        ? Math.max(now - maxSkewMs, Math.min(now + maxSkewMs, sample.getTimestamp()))
+                        : now;
+                if (!buffer.append(timestamp,
+                        userId,
+                        sample.getRttMs().floatValue(),
+                        sample.getJitterMs().floatValue(),
+                        sample.getPacketLoss().floatValue(),
+                        sample.getBitrateKbps().floatValue())) {
+                    // Spilled meanwhile; continue on a buffer reloaded from its file
+                    liveCalls.remove(callId, buffer);
+                    break;
+                }
+            }
+        }
+        accepted.increment(samples.size());
+        return samples.size();
+    }
+
+    // resolution is raw, 1s, 10s or 1m; from/to are epoch millis
+    public List<CallStatsPointDTO> getTimeline(String callId, Long userId, String resolution, Long from, Long to) {
+        validateCallId(callId);
+        long widthMs = switch (resolution) {
+            case "raw" -> 0L;
+            case "1s" -> 1_000L;
+            case "10s" -> 10_000L;
+            case "1m" -> 60_000L;
+            default -> throw new IllegalArgumentException("Resolution must be raw, 1s, 10s or 1m");
+        };
+
+        CallStatsBuffer buffer = liveCalls.get(callId);
+        if (buffer == null) {
+            buffer = load(callId);
+            if (buffer == null) {
+                return Collections.emptyList();
+            }
+        }
+        if (!buffer.isParticipant(userId)) {
+            throw new RuntimeException("Only participants can read a call's stats");
+        }
+        long start = from != null ? from : Long.MIN_VALUE;
+        long end = to != null ? to : Long.MAX_VALUE;
+        return widthMs == 0 ? buffer.raw(start, end) : buffer.rollup(widthMs, start, end);
+    }
+
+    // Called from the call's signaling path, so the write is left to the next sweep
+    public void callEnded(String callId) {
+        CallStatsBuffer buffer = liveCalls.get(callId);
+        if (buffer != null) {
+            buffer.markEnded();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.call.stats.sweep-interval-ms:10000}")
+    public void spillIdleCalls() {
+        long now = System.nanoTime();
+        liveCalls.forEach((callId, buffer) -> {
+            if (buffer.isEnded() || now - buffer.getLastAppendNanos() >= idleNanos) {
+                spill(callId, buffer);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        liveCalls.forEach(this::spill);
+    }
+
+    public int getLiveCallCount() {
+        return liveCalls.size();
+    }
+
+    private CallStatsBuffer liveBuffer(String callId, int pending) {
+        CallStatsBuffer buffer = liveCalls.get(callId);
+        if (buffer == null) {
+            if (liveCalls.size() >= maxCalls) {
+                rejected.increment(pending);
+                throw new IllegalStateException("Too many calls reporting stats");
+            }
+            // A call that was spilled picks up where its file left off
+            buffer = liveCalls.computeIfAbsent(callId, id -> {
+                CallStatsBuffer spilledBuffer = load(id);
+                return spilledBuffer != null ? spilledBuffer : new CallStatsBuffer(maxSamplesPerCall, maxBuckets);
+            });
+        }
+        return buffer;
+    }
+
+    // The file is written and the buffer closed before it leaves liveCalls, so a
+    // buffer loaded afterwards starts from everything the closed one accepted
+    private void spill(String callId, CallStatsBuffer buffer) {
+        try {
+            if (buffer.close(closing -> write(callId, closing))) {
+                spilled.increment();
+            }
+            liveCalls.remove(callId, buffer);
+        } catch (IOException e) {
+            // Left open and in memory; the next sweep tries again
+            logger.error("Failed to spill call stats for " + callId, e);
+        }
+    }
+
+    private void write(String callId, CallStatsBuffer buffer) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(callId + ".stats");
+        Path temp = Files.createTempFile(directory, callId, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                buffer.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private CallStatsBuffer load(String callId) {
+        Path file = directory.resolve(callId + ".stats");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return CallStatsBuffer.readFrom(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read call stats for " + callId, e);
+        }
+    }
+
+    private static void validateCallId(String callId) {
+        if (callId == null || !CALL_ID.matcher(callId).matches()) {
+            throw new IllegalArgumentException("Invalid call id");
+        }
+    }
+}
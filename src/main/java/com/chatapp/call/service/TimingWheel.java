@@ -0,0 +1,114 @@
+package com.chatapp.call.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Hashed timing wheel for call timeouts. Scheduling and cancelling are O(1) and
+// never touch a shared lock; a single thread calls advance() every tick and runs
+// whatever has expired. Timeouts fire up to one tick late.
+public class TimingWheel {
+
+    private final long tickNanos;
+    private final Queue<Timeout>[] buckets;
+    private final int mask;
+    private final long startNanos;
+
+    // Last tick whose bucket has been (or is being) processed
+    private volatile long tick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize, 1) * 2 - 1);
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, System.nanoTime());
+    }
+
+    Timeout schedule(Runnable task, long delay, TimeUnit unit, long nowNanos) {
+        long elapsed = nowNanos - startNanos + unit.toNanos(delay);
+        long deadline = Math.max((elapsed + tickNanos - 1) / tickNanos, tick + 1);
+        Timeout timeout = new Timeout(task, deadline);
+        buckets[(int) (deadline & mask)].add(timeout);
+        return timeout;
+    }
+
+    // Runs expired tasks up to now and returns how many fired
+    public int advance() {
+        return advance(System.nanoTime());
+    }
+
+    int advance(long nowNanos) {
+        long target = (nowNanos - startNanos) / tickNanos;
+        int fired = 0;
+        while (tick < target) {
+            long current = tick + 1;
+            // Published before draining so concurrent schedules land in a later bucket
+            tick = current;
+            Queue<Timeout> bucket = buckets[(int) (current & mask)];
+            for (int remaining = bucket.size(); remaining > 0; remaining--) {
+                Timeout timeout = bucket.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.cancelled) {
+                    continue;
+                }
+                if (timeout.deadline > current) {
+                    // Due in a later rotation
+                    bucket.add(timeout);
+                    continue;
+                }
+                timeout.fired = true;
+                timeout.task.run();
+                fired++;
+            }
+        }
+        return fired;
+    }
+
+    public int getPendingCount() {
+        int pending = 0;
+        for (Queue<Timeout> bucket : buckets) {
+            pending += bucket.size();
+        }
+        return pending;
+    }
+
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private volatile boolean cancelled;
+        private volatile boolean fired;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // Cancelled entries are dropped the next time their bucket comes round
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isExpired() {
+            return fired;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.chatapp.call.service;
+
+import com.chatapp.api.dto.TurnCredentialsDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.List;
+
+// Ephemeral TURN credentials following the "REST API for TURN services" draft, as
+// implemented by coturn's use-auth-secret mode:
+//   username = <expiry unix seconds>:<user>
+//   password = base64(HMAC-SHA1(shared secret, username))
+// The TURN server recomputes the password itself, so nothing is stored here.
+//
+// The secret comes from chat.turn.secret, or from chat.turn.secret-file when set,
+// which is re-read on change. To rotate without downtime, make the TURN server
+// accept both secrets, swap the file, and retire the old one after one TTL.
+@Service
+public class TurnCredentialService {
+
+    private static final Log logger = LogFactory.getLog(TurnCredentialService.class);
+    private static final String ALGORITHM = "HmacSHA1";
+
+    // Each thread keeps its own initialized Mac and rebuilds it when the secret is
+    // replaced, so issuing never contends on a shared instance
+    private final ThreadLocal<ThreadMac> macs = new ThreadLocal<>();
+
+    private final Path secretFile;
+    private final long ttlSeconds;
+    private final List<String> uris;
+    private final Counter issued;
+
+    private volatile Secret secret;
+    private long secretFileModified;
+
+    public TurnCredentialService(MeterRegistry meterRegistry,
+                                 @Value("${chat.turn.secret:}") String secret,
+                                 @Value("${chat.turn.secret-file:}") String secretFile,
+                                 @Value("${chat.turn.ttl-seconds:3600}") long ttlSeconds,
+                                 @Value("${chat.turn.uris:}") List<String> uris) {
+        this.secretFile = secretFile.isBlank() ? null : Paths.get(secretFile);
+        this.ttlSeconds = ttlSeconds;
+        this.uris = uris.stream().filter(uri -> !uri.isBlank()).toList();
+        this.issued = meterRegistry.counter("chat.turn.credentials.issued");
+        if (!secret.isBlank()) {
+            this.secret = new Secret(secret.getBytes(StandardCharsets.UTF_8), 1);
+        }
+        reloadSecretFile();
+    }
+
+    public TurnCredentialsDTO issue(String principal) {
+        if (principal == null || principal.isBlank()) {
+            throw new IllegalArgumentException("A user is required for TURN credentials");
+        }
+        Secret current = secret;
+        if (current == null) {
+            throw new IllegalStateException("TURN credentials are not configured");
+        }
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        // The username is split on ':' by the TURN server, so keep it out of the principal
+        String username = expiresAt + ":" + principal.replace(':', '_');
+        String password = sign(current, username);
+        issued.increment();
+        return new TurnCredentialsDTO(username, password, ttlSeconds, uris);
+    }
+
+    // Installs a new secret; threads pick it up on their next issue. Synchronized
+    // so concurrent rotations get distinct generations.
+    public synchronized void rotate(String newSecret) {
+        if (newSecret == null || newSecret.isBlank()) {
+            throw new IllegalArgumentException("TURN secret must not be blank");
+        }
+        Secret current = secret;
+        secret = new Secret(newSecret.getBytes(StandardCharsets.UTF_8), current == null ? 1 : current.generation + 1);
+    }
+
+    public long getSecretGeneration() {
+        Secret current = secret;
+        return current == null ? 0 : current.generation;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.turn.secret-reload-ms:30000}")
+    public synchronized void reloadSecretFile() {
+        if (secretFile == null) {
+            return;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(secretFile).toMillis();
+            if (modified == secretFileModified) {
+                return;
+            }
+            String value = Files.readString(secretFile).trim();
+            if (!value.isEmpty()) {
+                rotate(value);
+                secretFileModified = modified;
+                logger.info("Loaded TURN secret generation " + getSecretGeneration() + " from " + secretFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read TURN secret file " + secretFile + ", keeping the current secret", e);
+        }
+    }
+
+    private String sign(Secret current, String username) {
+        ThreadMac threadMac = macs.get();
+        // Compared by identity: the Mac must belong to this exact key
+        if (threadMac == null || threadMac.secret != current) {
+            threadMac = new ThreadMac(newMac(current.key), current);
+            macs.set(threadMac);
+        }
+        byte[] digest = threadMac.mac.doFinal(username.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA1 is not available", e);
+        }
+    }
+
+    private record Secret(byte[] key, long generation) {
+    }
+
+    private record ThreadMac(Mac mac, Secret secret) {
+    }
+}
@@ -1,10 +1,11 @@
 package com.chatapp.chat;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = @Index(name = "idx_message_receiver", columnList = "receiver_id, id"))
 public class Message {
 
     @Id
@@ -14,6 +15,12 @@ public class Message {
     private Long senderId;
     private Long receiverId;
 
+    // Written by MessageCipher; the plaintext content is never stored
+    @JsonIgnore
+    @Column(name = "content", length = 2048)
+    private byte[] sealedContent;
+
+    @Transient
     private String content;
 
     private boolean delivered;
@@ -40,6 +47,9 @@ public class Message {
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
 
+    public byte[] getSealedContent() { return sealedContent; }
+    public void setSealedContent(byte[] sealedContent) { this.sealedContent = sealedContent; }
+
     public boolean isDelivered() { return delivered; }
     public void setDelivered(boolean delivered) { this.delivered = delivered; }
 
@@ -37,6 +37,20 @@ public class MessageController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", dtos));
     }
 
+    // GET MESSAGES AFTER A KNOWN MESSAGE (paged catch-up)
+    @GetMapping("/receiver/{id}/after/{messageId}")
+    public ResponseEntity<ApiResponse<List<MessageDTO>>> getAfter(
+            @PathVariable Long id,
+            @PathVariable Long messageId,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        List<Message> messages = service.getMessagesByReceiverAfter(id, messageId, limit);
+        List<MessageDTO> dtos = messages.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", dtos));
+    }
+
     // MARK MESSAGE AS READ
     @PutMapping("/read/{id}")
     public ResponseEntity<ApiResponse<MessageDTO>> read(@PathVariable Long id) {
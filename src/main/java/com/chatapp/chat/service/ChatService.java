@@ -10,16 +10,21 @@ public class ChatService {
 
     private final MessageRepository repo;
     private final AiService aiService;
+    private final MessageCipher messageCipher;
 
-    public ChatService(MessageRepository repo, AiService aiService) {
+    public ChatService(MessageRepository repo, AiService aiService, MessageCipher messageCipher) {
         this.repo = repo;
         this.aiService = aiService;
+        this.messageCipher = messageCipher;
     }
 
     public Message handleMessage(Message message) {
         message.setToxic(aiService.isToxic(message.getContent()));
         message.setDelivered(true);
         message.setRead(false);
-        return repo.save(message);
+        messageCipher.seal(message);
+        Message saved = repo.save(message);
+        saved.setContent(message.getContent());
+        return saved;
     }
 }
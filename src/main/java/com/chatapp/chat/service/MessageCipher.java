@@ -0,0 +1,244 @@
+package com.chatapp.chat.service;
+
+import com.chatapp.chat.Message;
+import com.chatapp.security.MasterKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+// Column-level authenticated encryption of message content. Every conversation
+// (unordered pair of user ids) has its own AES-256 key, derived from the master
+// key with HKDF-SHA256 (RFC 5869), so there are no per-conversation keys to store:
+//
+//   sealed = version (1) | nonce (12) | AES-GCM(UTF-8 content) | tag (16)
+//   AAD    = version | sender id | receiver id
+//
+// The AAD stops a sealed value being moved to another row or having its direction
+// swapped. Version 0 is plain UTF-8, written while encryption is off and read
+// either way, so the setting can be flipped without migrating rows.
+//
+// Derived keys are cached (bounded), and each thread keeps its own Cipher and Mac
+// and only re-initialises them, so a message costs one GCM operation rather than
+// a provider lookup and key schedule. Large pages are decrypted on a dedicated
+// pool; small ones inline, where a fork would cost more than the work.
+@Component
+public class MessageCipher implements DisposableBean {
+
+    private static final byte PLAINTEXT = 0;
+    private static final byte AES_GCM = 1;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final int TAG_BYTES = TAG_BITS / 8;
+
+    // Bytes sealing adds to the UTF-8 content: version, nonce and tag
+    public static final int SEALED_OVERHEAD = 1 + NONCE_BYTES + TAG_BYTES;
+
+    private static final String HMAC = "HmacSHA256";
+    private static final byte[] HKDF_SALT = "secure-chat message keys".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HKDF_INFO = "conversation".getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean enabled;
+    private final int keyCacheSize;
+    private final int parallelThreshold;
+    private final SecretKeySpec pseudoRandomKey;
+    private final Map<Conversation, SecretKey> keys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(MessageCipher::newGcm);
+    private final ThreadLocal<Mac> macs = new ThreadLocal<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ForkJoinPool pool;
+    private final Counter derived;
+
+    public MessageCipher(MeterRegistry meterRegistry,
+                         @Value("${chat.messages.encryption.enabled:true}") boolean enabled,
+                         @Value("${chat.messages.encryption.master-key:}") String masterKey,
+                         @Value("${chat.messages.encryption.master-key-file:${chat.keys.dir:keys}/message.key}")
+                         String masterKeyFile,
+                         @Value("${chat.messages.encryption.key-cache-size:10000}") int keyCacheSize,
+                         @Value("${chat.messages.encryption.parallel-threshold:256}") int parallelThreshold,
+                         @Value("${chat.messages.encryption.threads:0}") int threads) throws IOException {
+        this.enabled = enabled;
+        this.keyCacheSize = Math.max(1, keyCacheSize);
+        this.parallelThreshold = parallelThreshold;
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        this.derived = meterRegistry.counter("chat.messages.keys.derived");
+        SecretKey master = MasterKeys.load("chat.messages.encryption.master-key", masterKey, masterKeyFile, enabled);
+        // HKDF-Extract, once: PRK = HMAC(salt, master key)
+        this.pseudoRandomKey = master == null ? null
+                : new SecretKeySpec(hmac(new SecretKeySpec(HKDF_SALT, HMAC)).doFinal(master.getEncoded()), HMAC);
+    }
+
+    // Stores the message's content in sealed form; call before saving
+    public void seal(Message message) {
+        message.setSealedContent(message.getContent() == null ? null
+                : encrypt(message.getSenderId(), message.getReceiverId(), message.getContent()));
+    }
+
+    // Fills in content from the sealed column of a loaded message. Only the
+    // transient field changes, so managed entities are not dirtied.
+    public Message open(Message message) {
+        if (message.getSealedContent() != null) {
+            message.setContent(decrypt(message.getSenderId(), message.getReceiverId(), message.getSealedContent()));
+        }
+        return message;
+    }
+
+    public List<Message> openAll(List<Message> messages) {
+        if (messages.size() < parallelThreshold) {
+            messages.forEach(this::open);
+        } else {
+            pool.submit(() -> messages.parallelStream().forEach(this::open)).join();
+        }
+        return messages;
+    }
+
+    byte[] encrypt(Long senderId, Long receiverId, String content) {
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        if (!enabled) {
+            byte[] sealed = new byte[1 + plain.length];
+            sealed[0] = PLAINTEXT;
+            System.arraycopy(plain, 0, sealed, 1, plain.length);
+            return sealed;
+        }
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        byte[] sealed = new byte[1 + NONCE_BYTES + plain.length + TAG_BYTES];
+        sealed[0] = AES_GCM;
+        System.arraycopy(nonce, 0, sealed, 1, NONCE_BYTES);
+        Cipher cipher = ciphers.get();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key(senderId, receiverId), new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(aad(AES_GCM, senderId, receiverId));
+            cipher.doFinal(plain, 0, plain.length, sealed, 1 + NONCE_BYTES);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt message content", e);
+        }
+    }
+
+    String decrypt(Long senderId, Long receiverId, byte[] sealed) {
+        if (sealed.length == 0) {
+            throw new IllegalStateException("Message content is empty");
+        }
+        if (sealed[0] == PLAINTEXT) {
+            return new String(sealed, 1, sealed.length - 1, StandardCharsets.UTF_8);
+        }
+        if (sealed[0] != AES_GCM) {
+            throw new IllegalStateException("Unknown message content version " + sealed[0]);
+        }
+        if (sealed.length < 1 + NONCE_BYTES + TAG_BYTES) {
+            throw new IllegalStateException("Message content is truncated");
+        }
+        Cipher cipher = ciphers.get();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key(senderId, receiverId), new GCMParameterSpec(TAG_BITS, sealed, 1, NONCE_BYTES));
+            cipher.updateAAD(aad(AES_GCM, senderId, receiverId));
+            byte[] plain = cipher.doFinal(sealed, 1 + NONCE_BYTES, sealed.length - 1 - NONCE_BYTES);
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (AEADBadTagException e) {
+            throw new IllegalStateException("Message content failed authentication", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not decrypt message content", e);
+        }
+    }
+
+    int getCachedKeys() {
+        return keys.size();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private SecretKey key(Long senderId, Long receiverId) {
+        Conversation conversation = Conversation.of(idOf(senderId), idOf(receiverId));
+        SecretKey key = keys.get(conversation);
+        if (key != null) {
+            return key;
+        }
+        key = derive(conversation);
+        if (keys.size() >= keyCacheSize) {
+            // Approximate bound: drop whichever entry comes first. A miss only
+            // costs one HMAC, so recency tracking isn't worth a lock on reads.
+            Iterator<Conversation> iterator = keys.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        keys.put(conversation, key);
+        derived.increment();
+        return key;
+    }
+
+    // HKDF-Expand for a single block: OKM = HMAC(PRK, info | low id | high id | 0x01)
+    private SecretKey derive(Conversation conversation) {
+        if (pseudoRandomKey == null) {
+            throw new IllegalStateException("Encrypted message content can't be read without a master key");
+        }
+        Mac mac = macs.get();
+        if (mac == null) {
+            mac = hmac(pseudoRandomKey);
+            macs.set(mac);
+        }
+        mac.update(HKDF_INFO);
+        mac.update(ByteBuffer.allocate(2 * Long.BYTES).putLong(conversation.low()).putLong(conversation.high()).array());
+        mac.update((byte) 1);
+        return new SecretKeySpec(mac.doFinal(), "AES");
+    }
+
+    private static byte[] aad(byte version, Long senderId, Long receiverId) {
+        return ByteBuffer.allocate(1 + 2 * Long.BYTES)
+                .put(version)
+                .putLong(idOf(senderId))
+                .putLong(idOf(receiverId))
+                .array();
+    }
+
+    private static long idOf(Long id) {
+        return id == null ? 0 : id;
+    }
+
+    private static Mac hmac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static Cipher newGcm() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    private record Conversation(long low, long high) {
+        static Conversation of(long a, long b) {
+            return a <= b ? new Conversation(a, b) : new Conversation(b, a);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.chatapp.chat.service;
 
 import com.chatapp.ai.service.ToxicityService;
+import com.chatapp.api.dto.MessageDTO;
 import com.chatapp.chat.Message;
 import com.chatapp.chat.MessageRepository;
+import com.chatapp.websocket.UserSessionMessenger;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,28 +13,62 @@ import java.util.List;
 @Service
 public class MessageService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final MessageRepository repo;
     private final ToxicityService toxicityService;
+    private final UserSessionMessenger messenger;
+    private final MessageCipher messageCipher;
 
-    public MessageService(MessageRepository repo, ToxicityService toxicityService) {
+    public MessageService(MessageRepository repo, ToxicityService toxicityService, UserSessionMessenger messenger,
+                          MessageCipher messageCipher) {
         this.repo = repo;
         this.toxicityService = toxicityService;
+        this.messenger = messenger;
+        this.messageCipher = messageCipher;
     }
 
     public Message sendMessage(Message message) {
         message.setDelivered(true);
         message.setToxic(toxicityService.isToxic(message.getContent()));
-        return repo.save(message);
+        messageCipher.seal(message);
+        Message saved = repo.save(message);
+        if (saved != null) {
+            // A merged copy doesn't carry the transient plaintext
+            saved.setContent(message.getContent());
+            messenger.sendToUser(saved.getReceiverId(), "/queue/messages", toDTO(saved));
+        }
+        return saved;
     }
 
     public List<Message> getMessagesByReceiver(Long receiverId) {
-        return repo.findByReceiverId(receiverId);
+        return messageCipher.openAll(repo.findByReceiverId(receiverId));
+    }
+
+    // Paged catch-up for clients whose replay window has been overwritten
+    public List<Message> getMessagesByReceiverAfter(Long receiverId, Long afterId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return messageCipher.openAll(
+                repo.findByReceiverIdAndIdGreaterThanOrderByIdAsc(receiverId, afterId, PageRequest.of(0, size)));
     }
 
     public Message markRead(Long id) {
         Message msg = repo.findById(id)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
         msg.setRead(true);
-        return repo.save(msg);
+        return messageCipher.open(repo.save(msg));
+    }
+
+    private MessageDTO toDTO(Message message) {
+        return new MessageDTO(
+                message.getId(),
+                message.getSenderId(),
+                message.getReceiverId(),
+                message.getContent(),
+                message.isDelivered(),
+                message.isRead(),
+                message.isToxic(),
+                message.getCreatedAt()
+        );
     }
 }
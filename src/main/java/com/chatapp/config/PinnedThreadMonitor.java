@@ -0,0 +1,90 @@
+package com.chatapp.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Streams jdk.VirtualThreadPinned JFR events and aggregates them by the first
+// application frame, so synchronized blocks or JDBC drivers that pin carrier
+// threads show up in the logs.
+public class PinnedThreadMonitor implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(PinnedThreadMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Map<String, LongAdder> pinnedByLocation = new ConcurrentHashMap<>();
+    private final LongAdder pinnedTotal = new LongAdder();
+    private final RecordingStream stream;
+
+    public PinnedThreadMonitor(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    public long getPinnedCount() {
+        return pinnedTotal.sum();
+    }
+
+    public Map<String, Long> getTopLocations(int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        pinnedByLocation.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(limit)
+                .forEach(e -> top.put(e.getKey(), e.getValue().sum()));
+        return top;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.threads.pinning.report-interval-ms:60000}")
+    public void report() {
+        if (pinnedTotal.sum() > 0) {
+            logger.warn("Virtual thread pinning: " + pinnedTotal.sum() + " events, top locations " + getTopLocations(5));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTotal.increment();
+        String location = locate(event.getStackTrace());
+        pinnedByLocation.computeIfAbsent(location, key -> new LongAdder()).increment();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Virtual thread pinned for " + event.getDuration().toMillis() + " ms at " + location);
+        }
+    }
+
+    // Prefer our own frames, otherwise the frame that blocked
+    private static String locate(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith("com.chatapp.")) {
+                return describe(frame);
+            }
+        }
+        return describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,41 @@
+package com.chatapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+
+// Active with spring.threads.virtual.enabled=true on JDK 21+. Spring Boot then runs
+// Tomcat requests and the application task executor on virtual threads;
+// WebSocketConfig switches the STOMP channels and this adds pinning detection.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.threads.pinning.enabled", havingValue = "true", matchIfMissing = true)
+    public PinnedThreadMonitor pinnedThreadMonitor(
+            @Value("${chat.threads.pinning.threshold-ms:20}") long thresholdMs) {
+        return new PinnedThreadMonitor(Duration.ofMillis(thresholdMs));
+    }
+
+    // ChannelRegistration only accepts a ThreadPoolTaskExecutor, so back one with a
+    // virtual thread factory. Idle threads time out, which makes it close to
+    // thread-per-task while capping concurrency. Left uninitialized for the broker
+    // configuration to manage.
+    public static ThreadPoolTaskExecutor channelExecutor(String prefix, int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory());
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(1);
+        return executor;
+    }
+}
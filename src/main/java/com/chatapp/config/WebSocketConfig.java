@@ -1,13 +1,66 @@
 package com.chatapp.config;
 
+import com.chatapp.security.jwt.JwtChannelInterceptor;
+import com.chatapp.websocket.CoalescingFlushScheduler;
+import com.chatapp.websocket.CoalescingWebSocketHandlerDecorator;
+import com.chatapp.websocket.PriorityLaneTaskExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final JwtChannelInterceptor jwtChannelInterceptor;
+
+    @Value("${chat.ws.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    @Value("${chat.ws.coalescing.window-micros:500}")
+    private long coalescingWindowMicros;
+
+    @Value("${chat.ws.coalescing.max-delay-micros:2000}")
+    private long coalescingMaxDelayMicros;
+
+    @Value("${chat.ws.coalescing.max-bytes:16384}")
+    private int coalescingMaxBytes;
+
+    @Value("${chat.threads.virtual.channel-concurrency:10000}")
+    private int virtualChannelConcurrency;
+
+    @Value("${chat.ws.outbound.lanes.enabled:true}")
+    private boolean outboundLanesEnabled;
+
+    // Lane order: call, chat, background
+    @Value("${chat.ws.outbound.lanes.weights:8,3,1}")
+    private int[] outboundLaneWeights;
+
+    @Value("${chat.ws.outbound.lanes.capacities:10000,50000,10000}")
+    private int[] outboundLaneCapacities;
+
+    @Value("${chat.ws.outbound.pool-size:0}")
+    private int outboundPoolSize;
+
+    public WebSocketConfig(Environment environment, MeterRegistry meterRegistry,
+                           JwtChannelInterceptor jwtChannelInterceptor) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.jwtChannelInterceptor = jwtChannelInterceptor;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws/chat")
@@ -19,6 +72,59 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/topic", "/queue");
         registry.setApplicationDestinationPrefixes("/app");
+        // The outbound channel is multithreaded; without ordering two frames for the
+        // same session can overtake each other and break the replay seq order. The
+        // lane executor orders each session's frames per lane itself, so that call
+        // frames can still overtake chat; anything else needs the broker to do it.
+        registry.setPreservePublishOrder(!outboundLanesEnabled);
     }
-}
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(jwtChannelInterceptor);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            registration.taskExecutor(VirtualThreadConfig.channelExecutor("ws-inbound-vt-", virtualChannelConcurrency));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (outboundLanesEnabled) {
+            registration.taskExecutor(outboundLaneExecutor());
+        } else if (Threading.VIRTUAL.isActive(environment)) {
+            registration.taskExecutor(VirtualThreadConfig.channelExecutor("ws-outbound-vt-", virtualChannelConcurrency));
+        }
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        if (coalescingEnabled) {
+            ScheduledExecutorService flushScheduler = coalescingFlushScheduler().executor();
+            registration.addDecoratorFactory(handler -> new CoalescingWebSocketHandlerDecorator(
+                    handler, flushScheduler, coalescingWindowMicros, coalescingMaxDelayMicros, coalescingMaxBytes));
+        }
+    }
+
+    // A fixed worker count is what makes the lanes matter: frames only queue, and
+    // get reordered, once every worker is busy. Virtual threads still make blocking
+    // socket writes cheap when enabled.
+    private PriorityLaneTaskExecutor outboundLaneExecutor() {
+        int poolSize = outboundPoolSize > 0 ? outboundPoolSize : Runtime.getRuntime().availableProcessors() * 2;
+        PriorityLaneTaskExecutor executor = new PriorityLaneTaskExecutor(
+                outboundLaneWeights, outboundLaneCapacities, meterRegistry);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("ws-outbound-");
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("ws-outbound-vt-").getVirtualThreadFactory());
+        }
+        return executor;
+    }
+
+    // Shared by every coalescing session; shut down with the context
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "chat.ws.coalescing.enabled", havingValue = "true")
+    public CoalescingFlushScheduler coalescingFlushScheduler() {
+        return new CoalescingFlushScheduler(Runtime.getRuntime().availableProcessors());
+    }
+}
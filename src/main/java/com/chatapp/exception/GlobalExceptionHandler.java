@@ -1,5 +1,6 @@
 package com.chatapp.exception;
 
+import com.chatapp.file.service.UploadRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +22,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleUploadRejectedException(UploadRejectedException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", e.getStatus().value());
+        response.put("error", e.getStatus().getReasonPhrase());
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(e.getStatus()).body(response);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgumentException(IllegalArgumentException e) {
         Map<String, Object> response = new HashMap<>();
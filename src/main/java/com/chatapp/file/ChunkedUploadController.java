@@ -0,0 +1,93 @@
+package com.chatapp.file;
+
+import com.chatapp.api.dto.ApiResponse;
+import com.chatapp.api.dto.FileDTO;
+import com.chatapp.api.dto.UploadSessionDTO;
+import com.chatapp.file.service.ChunkedUploadService;
+import com.chatapp.file.service.UploadSession;
+import com.chatapp.file.service.UploadThrottle;
+import com.chatapp.security.ChatPrincipal;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/files/uploads")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService service;
+
+    public ChunkedUploadController(ChunkedUploadService service) {
+        this.service = service;
+    }
+
+    // START CHUNKED UPLOAD
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> create(@RequestBody UploadSessionRequest request,
+                                                                @AuthenticationPrincipal ChatPrincipal principal)
+            throws Exception {
+        if (request.getSize() == null) {
+            throw new IllegalArgumentException("Upload size is required");
+        }
+        UploadSession session = service.create(principal.id(), request.getFilename(),
+                request.getContentType(), request.getSize(), request.getChunkSize());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Upload started", convertToDTO(session)));
+    }
+
+    // UPLOAD ONE CHUNK (raw bytes at offset, optional X-Chunk-Sha256 hex digest;
+    // read straight off the socket at the uploader's rate)
+    @PutMapping("/{uploadId}/chunks")
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> chunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long length,
+            @RequestHeader(value = "X-Chunk-Sha256", required = false) String sha256,
+            @RequestAttribute(name = UploadAdmissionFilter.PERMIT_ATTRIBUTE, required = false)
+            UploadThrottle.Permit permit,
+            InputStream body,
+            @AuthenticationPrincipal ChatPrincipal principal
+    ) throws Exception {
+        InputStream content = permit != null ? permit.throttle(body) : body;
+        UploadSession session = service.writeChunk(uploadId, principal.id(), offset, length, sha256, content);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Chunk received", convertToDTO(session)));
+    }
+
+    // GET RECEIVED RANGES (to resume after a dropped connection)
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> status(@PathVariable String uploadId,
+                                                                @AuthenticationPrincipal ChatPrincipal principal) {
+        UploadSession session = service.get(uploadId, principal.id());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Upload status retrieved", convertToDTO(session)));
+    }
+
+    // COMPLETE CHUNKED UPLOAD (202 while thumbnails are still being generated)
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<ApiResponse<FileDTO>> complete(@PathVariable String uploadId,
+                                                         @AuthenticationPrincipal ChatPrincipal principal)
+            throws Exception {
+        StoredFile storedFile = service.complete(uploadId, principal.id());
+        FileDTO dto = new FileDTO(storedFile.getId(), storedFile.getOwnerId(), storedFile.getFilename(),
+                storedFile.getContentType(), storedFile.getSize(), storedFile.getSha256(),
+                storedFile.getProcessingStatus().name(), storedFile.getCreatedAt());
+        HttpStatus status = storedFile.getProcessingStatus() == ProcessingStatus.PENDING
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(new ApiResponse<>(true, "File uploaded successfully", dto));
+    }
+
+    // ABORT CHUNKED UPLOAD
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<Void>> abort(@PathVariable String uploadId,
+                                                   @AuthenticationPrincipal ChatPrincipal principal) throws Exception {
+        service.abort(uploadId, principal.id());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Upload aborted", null));
+    }
+
+    private UploadSessionDTO convertToDTO(UploadSession session) {
+        return new UploadSessionDTO(session.getId(), session.getFilename(), session.getSize(),
+                session.getChunkSize(), session.getReceived(), session.getRanges());
+    }
+}
@@ -0,0 +1,45 @@
+package com.chatapp.file;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Stored content, written once per distinct sha256. refCount is the number of
+// StoredFile rows pointing at it; the bytes are removed when it drops to zero.
+@Entity
+@Table(name = "file_blob")
+public class FileBlob {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    private long size;
+    private long refCount;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public FileBlob() {}
+
+    public FileBlob(String sha256, long size) {
+        this.sha256 = sha256;
+        this.size = size;
+    }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public long getRefCount() { return refCount; }
+    public void setRefCount(long refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
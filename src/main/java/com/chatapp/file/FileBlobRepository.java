@@ -0,0 +1,6 @@
+package com.chatapp.file;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+}
@@ -1,9 +1,31 @@
 package com.chatapp.file;
 
+import com.chatapp.api.dto.ApiResponse;
+import com.chatapp.api.dto.FileDTO;
+import com.chatapp.file.service.BlobStore;
 import com.chatapp.file.service.FileService;
+import com.chatapp.file.service.UploadThrottle;
+import com.chatapp.security.ChatPrincipal;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/files")
 public class FileController {
@@ -14,10 +36,139 @@ public class FileController {
         this.service = service;
     }
 
+    // UPLOAD FILE (202 while thumbnails are still being generated; the container has
+    // already spooled the part, so the throttle only paces the copy into the store.
+    // UploadAdmissionFilter sends anything over the multipart limit to chunked upload)
     @PostMapping("/upload")
-    public String upload(@RequestParam MultipartFile file) throws Exception {
-        service.upload(file);
-        return "File Uploaded Successfully";
+    public ResponseEntity<ApiResponse<FileDTO>> upload(
+            @RequestParam MultipartFile file,
+            @RequestAttribute(name = UploadAdmissionFilter.PERMIT_ATTRIBUTE, required = false)
+            UploadThrottle.Permit permit,
+            @AuthenticationPrincipal ChatPrincipal principal
+    ) throws Exception {
+        InputStream content = permit != null ? permit.throttle(file.getInputStream()) : file.getInputStream();
+        StoredFile storedFile = service.upload(content, principal.id(),
+                file.getOriginalFilename(), file.getContentType());
+        HttpStatus status = storedFile.getProcessingStatus() == ProcessingStatus.PENDING
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status)
+                .body(new ApiResponse<>(true, "File uploaded successfully", convertToDTO(storedFile)));
+    }
+
+    // COPY FILE (forwarding: a new file for the caller with the same content; only
+    // a reference is taken, so nothing is uploaded or read)
+    @PostMapping("/{id}/copy")
+    public ResponseEntity<ApiResponse<FileDTO>> copy(
+            @PathVariable String id,
+            @RequestParam(required = false) String filename,
+            @AuthenticationPrincipal ChatPrincipal principal
+    ) throws Exception {
+        StoredFile storedFile = service.copy(id, principal.id(), filename);
+        HttpStatus status = storedFile.getProcessingStatus() == ProcessingStatus.PENDING
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status)
+                .body(new ApiResponse<>(true, "File copied successfully", convertToDTO(storedFile)));
+    }
+
+    // LIST MY FILES (newest first)
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<FileDTO>>> list(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal ChatPrincipal principal
+    ) {
+        List<FileDTO> dtos = service.listFiles(principal.id(), page, size).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Files retrieved successfully", dtos));
+    }
+
+    // GET FILE METADATA
+    @GetMapping("/{id}/info")
+    public ResponseEntity<ApiResponse<FileDTO>> info(@PathVariable String id) {
+        StoredFile storedFile = service.getFile(id);
+        return ResponseEntity.ok(new ApiResponse<>(true, "File retrieved successfully", convertToDTO(storedFile)));
+    }
+
+    // DOWNLOAD FILE (content never changes for an id, so it can be cached indefinitely;
+    // encrypted blobs are decrypted as they stream, and gzipped ones go out still
+    // gzipped to clients that accept it)
+    @GetMapping("/{id}")
+    public ResponseEntity<Resource> download(@PathVariable String id,
+                                             @RequestParam(required = false) String variant,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                             String acceptEncoding) throws Exception {
+        StoredFile storedFile = service.getFile(id);
+        if (variant != null) {
+            return downloadVariant(storedFile, variant);
+        }
+        Path path = service.getContentPath(storedFile);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(storedFile.getContentType()))
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(storedFile.getFilename(), StandardCharsets.UTF_8).build().toString());
+        if (!BlobStore.isEncrypted(path) && !BlobStore.isCompressed(path)) {
+            return response.contentLength(storedFile.getSize())
+                    .eTag("\"" + storedFile.getSha256() + "\"")
+                    .body(new FileSystemResource(path));
+        }
+        BlobStore.StoredContent content = service.openStoredContent(storedFile);
+        if (content.compressed()) {
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(acceptEncoding)) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .eTag("\"" + storedFile.getSha256() + "-gz\"")
+                        .body(new InputStreamResource(content.stream()));
+            }
+            content.stream().close();
+            return response.contentLength(storedFile.getSize())
+                    .eTag("\"" + storedFile.getSha256() + "\"")
+                    .body(new InputStreamResource(service.openContent(storedFile)));
+        }
+        return response.contentLength(storedFile.getSize())
+                .eTag("\"" + storedFile.getSha256() + "\"")
+                .body(new InputStreamResource(content.stream()));
+    }
+
+    // DELETE FILE (owner only)
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> delete(@PathVariable String id,
+                                                    @AuthenticationPrincipal ChatPrincipal principal) throws Exception {
+        service.delete(id, principal.id());
+        return ResponseEntity.ok(new ApiResponse<>(true, "File deleted successfully", null));
+    }
+
+    private ResponseEntity<Resource> downloadVariant(StoredFile storedFile, String variant) throws Exception {
+        Path path = service.getVariantPath(storedFile, variant).orElse(null);
+        if (path == null) {
+            return ResponseEntity.notFound().build();
+        }
+        MediaType type = path.getFileName().toString().contains(".png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+        return ResponseEntity.ok()
+                .contentType(type)
+                .eTag("\"" + storedFile.getSha256() + "-" + variant + "\"")
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable())
+                .body(BlobStore.isEncrypted(path) ? new InputStreamResource(service.openVariant(path))
+                        : new FileSystemResource(path));
     }
-}
 
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+
+    private FileDTO convertToDTO(StoredFile storedFile) {
+        return new FileDTO(storedFile.getId(), storedFile.getOwnerId(), storedFile.getFilename(),
+                storedFile.getContentType(), storedFile.getSize(), storedFile.getSha256(),
+                storedFile.getProcessingStatus().name(), storedFile.getCreatedAt());
+    }
+}
@@ -0,0 +1,10 @@
+package com.chatapp.file;
+
+// Post-upload processing of a stored file. NONE means nothing is generated for
+// this kind of file; PENDING files are queued or being processed.
+public enum ProcessingStatus {
+    NONE,
+    PENDING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,91 @@
+package com.chatapp.file;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// One uploaded file as a user sees it. The bytes live in a FileBlob keyed by
+// sha256, shared by every StoredFile with the same content; path is where those
+// bytes sit relative to chat.files.dir. Ids are random so they can't be guessed
+// and can be restored as-is when the index is rebuilt from disk.
+@Entity
+@Table(name = "stored_file", indexes = {
+        @Index(name = "idx_stored_file_sha256", columnList = "sha256"),
+        @Index(name = "idx_stored_file_owner", columnList = "owner_id, created_at")
+})
+public class StoredFile implements Persistable<String> {
+
+    @Id
+    @Column(length = 32)
+    private String id;
+
+    private Long ownerId;
+
+    private String filename;
+    private String contentType;
+    private long size;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Enumerated(EnumType.STRING)
+    private ProcessingStatus processingStatus;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Ids are assigned before saving, so tell Spring Data when to insert rather
+    // than merge (which would cost a select first)
+    @Transient
+    private boolean isNew = true;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    @PostPersist
+    @PostLoad
+    protected void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @Override
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Long getOwnerId() { return ownerId; }
+    public void setOwnerId(Long ownerId) { this.ownerId = ownerId; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+
+    public ProcessingStatus getProcessingStatus() {
+        return processingStatus != null ? processingStatus : ProcessingStatus.NONE;
+    }
+    public void setProcessingStatus(ProcessingStatus processingStatus) { this.processingStatus = processingStatus; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
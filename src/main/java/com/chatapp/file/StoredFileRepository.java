@@ -0,0 +1,24 @@
+package com.chatapp.file;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    List<StoredFile> findByOwnerIdOrderByCreatedAtDesc(Long ownerId, Pageable pageable);
+
+    // Bytes counted against the owner's quota (shared content counts for each file)
+    @Query("select coalesce(sum(f.size), 0) from StoredFile f where f.ownerId = :ownerId")
+    long sumSizeByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredFile f set f.processingStatus = :status where f.id = :id")
+    int updateProcessingStatus(@Param("id") String id, @Param("status") ProcessingStatus status);
+}
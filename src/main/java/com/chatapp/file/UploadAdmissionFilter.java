@@ -0,0 +1,106 @@
+package com.chatapp.file;
+
+import com.chatapp.file.service.UploadRejectedException;
+import com.chatapp.file.service.UploadThrottle;
+import com.chatapp.security.ChatPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Admits or rejects upload requests from their headers, before the multipart
+// resolver or a controller touches the body. Registered as a plain servlet
+// filter, so it runs after Spring Security has set the principal. The permit
+// is handed to the controller as a request attribute and released here.
+//
+// The container spools a multipart body to disk before the controller sees it,
+// so multipart is only for files up to spring.servlet.multipart.max-request-size.
+// Larger ones are refused here from Content-Length and belong on the chunked API.
+@Component
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    public static final String PERMIT_ATTRIBUTE = "com.chatapp.file.UploadAdmissionFilter.permit";
+
+    private static final Pattern CHUNK_PATH = Pattern.compile("/files/uploads/[^/]+/chunks");
+
+    private final UploadThrottle uploadThrottle;
+    private final ObjectMapper objectMapper;
+    private final long maxMultipartBytes;
+
+    public UploadAdmissionFilter(UploadThrottle uploadThrottle, ObjectMapper objectMapper,
+                                 MultipartProperties multipartProperties) {
+        this.uploadThrottle = uploadThrottle;
+        this.objectMapper = objectMapper;
+        this.maxMultipartBytes = multipartProperties.getMaxRequestSize().toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(("POST".equals(request.getMethod()) && path.equals("/files/upload"))
+                || ("PUT".equals(request.getMethod()) && CHUNK_PATH.matcher(path).matches()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ChatPrincipal principal = ChatPrincipal.from(request.getUserPrincipal());
+        if (principal == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        UploadThrottle.Permit permit;
+        try {
+            // Chunks count against the quota when their upload is started
+            boolean chunk = "PUT".equals(request.getMethod());
+            long length = request.getContentLengthLong();
+            if (!chunk && length < 0) {
+                throw new UploadRejectedException(HttpStatus.LENGTH_REQUIRED, "Content-Length is required");
+            }
+            if (!chunk && maxMultipartBytes >= 0 && length > maxMultipartBytes) {
+                throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Uploads over " + maxMultipartBytes + " bytes must use a chunked upload");
+            }
+            permit = uploadThrottle.admit(principal.id(), chunk ? 0 : length);
+        } catch (UploadRejectedException e) {
+            reject(response, e);
+            return;
+        }
+
+        try (permit) {
+            request.setAttribute(PERMIT_ATTRIBUTE, permit);
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    // Same body GlobalExceptionHandler produces, which doesn't see filter exceptions
+    private void reject(HttpServletResponse response, UploadRejectedException e) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", e.getStatus().value());
+        body.put("error", e.getStatus().getReasonPhrase());
+        body.put("message", e.getMessage());
+        response.setStatus(e.getStatus().value());
+        if (e.getStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        }
+        // The body won't be read; don't let the client keep sending it
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,21 @@
+package com.chatapp.file;
+
+public class UploadSessionRequest {
+    private String filename;
+    private String contentType;
+    private Long size;
+    private Integer chunkSize; // optional, server default when null
+
+    // Getters and Setters
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public Integer getChunkSize() { return chunkSize; }
+    public void setChunkSize(Integer chunkSize) { this.chunkSize = chunkSize; }
+}
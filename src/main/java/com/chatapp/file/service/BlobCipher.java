@@ -0,0 +1,330 @@
+package com.chatapp.file.service;
+
+import com.chatapp.security.MasterKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// Streaming authenticated encryption for stored content. Each blob gets its own
+// random AES-256 data key, wrapped (RFC 3394) with the master key and kept in the
+// blob's header, so the file is self-describing and the master key can be
+// rotated by rewrapping headers alone. The body is a sequence of AES-GCM chunks:
+//
+//   header:  "CENC" | version | flags | chunk size (int) | wrapped key (40) | nonce prefix (8)
+//   chunk i: GCM(plaintext[i]), nonce = prefix | i (int), AAD = header | final flag
+//
+// Binding the chunk index and a final flag into every chunk means reordered,
+// dropped or truncated chunks fail authentication, while memory per stream stays
+// at one chunk. AES-GCM in the JDK runs on the AES-NI/PCLMULQDQ intrinsics.
+@Component
+public class BlobCipher {
+
+    private static final byte[] MAGIC = "CENC".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION = 1;
+    private static final byte FLAG_COMPRESSED = 1;
+    private static final int KEY_BYTES = 32;
+    private static final int WRAPPED_KEY_BYTES = KEY_BYTES + 8;
+    private static final int NONCE_PREFIX_BYTES = 8;
+    private static final int TAG_BITS = 128;
+    private static final int TAG_BYTES = TAG_BITS / 8;
+    static final int HEADER_BYTES = MAGIC.length + 2 + Integer.BYTES + WRAPPED_KEY_BYTES + NONCE_PREFIX_BYTES;
+
+    private final boolean enabled;
+    private final SecretKey masterKey;
+    private final int chunkSize;
+    private final SecureRandom random = new SecureRandom();
+
+    public BlobCipher(@Value("${chat.files.encryption.enabled:true}") boolean enabled,
+                      @Value("${chat.files.encryption.master-key:}") String masterKey,
+                      @Value("${chat.files.encryption.master-key-file:${chat.keys.dir:keys}/files.key}")
+                      String masterKeyFile,
+                      @Value("${chat.files.encryption.chunk-size:65536}") int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chat.files.encryption.chunk-size must be positive");
+        }
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.masterKey = MasterKeys.load("chat.files.encryption.master-key", masterKey, masterKeyFile, enabled);
+    }
+
+    // Whether new content is written encrypted
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Ciphertext of everything written to the returned stream goes to out; close
+    // it to write the final chunk. compressed is recorded for readers.
+    public OutputStream encrypt(OutputStream out, boolean compressed) throws IOException {
+        if (masterKey == null) {
+            throw new IOException("No master key configured for file encryption");
+        }
+        byte[] dataKey = new byte[KEY_BYTES];
+        random.nextBytes(dataKey);
+        byte[] noncePrefix = new byte[NONCE_PREFIX_BYTES];
+        random.nextBytes(noncePrefix);
+        SecretKey key = new SecretKeySpec(dataKey, "AES");
+        byte[] wrapped;
+        try {
+            Cipher wrapper = Cipher.getInstance("AESWrap");
+            wrapper.init(Cipher.WRAP_MODE, masterKey);
+            wrapped = wrapper.wrap(key);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not wrap the data key", e);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+
+        byte[] header = ByteBuffer.allocate(HEADER_BYTES)
+                .put(MAGIC)
+                .put(VERSION)
+                .put(compressed ? FLAG_COMPRESSED : 0)
+                .putInt(chunkSize)
+                .put(wrapped)
+                .put(noncePrefix)
+                .array();
+        out.write(header);
+        return new EncryptingOutputStream(out, key, header, chunkSize);
+    }
+
+    // Reads the header from in; the returned stream yields the plaintext and fails
+    // with an IOException if anything was altered
+    public DecryptingInputStream decrypt(InputStream in) throws IOException {
+        if (masterKey == null) {
+            throw new IOException("No master key configured for file encryption");
+        }
+        byte[] header = in.readNBytes(HEADER_BYTES);
+        if (header.length < HEADER_BYTES || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not an encrypted blob");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header, MAGIC.length, HEADER_BYTES - MAGIC.length);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported encrypted blob version " + version);
+        }
+        boolean compressed = (buffer.get() & FLAG_COMPRESSED) != 0;
+        int blobChunkSize = buffer.getInt();
+        if (blobChunkSize <= 0 || blobChunkSize > 64 * 1024 * 1024) {
+            throw new IOException("Invalid chunk size " + blobChunkSize);
+        }
+        byte[] wrapped = new byte[WRAPPED_KEY_BYTES];
+        buffer.get(wrapped);
+        SecretKey key;
+        try {
+            Cipher unwrapper = Cipher.getInstance("AESWrap");
+            unwrapper.init(Cipher.UNWRAP_MODE, masterKey);
+            key = (SecretKey) unwrapper.unwrap(wrapped, "AES", Cipher.SECRET_KEY);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not unwrap the data key; wrong master key?", e);
+        }
+        return new DecryptingInputStream(in, key, header, blobChunkSize, compressed);
+    }
+
+    private static Cipher newGcm() throws IOException {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IOException("AES-GCM is not available", e);
+        }
+    }
+
+    // One Cipher per stream, re-initialised for each chunk's nonce
+    private static void init(Cipher cipher, int mode, Key key, byte[] header, int index, boolean last)
+            throws IOException {
+        try {
+            byte[] nonce = ByteBuffer.allocate(NONCE_PREFIX_BYTES + Integer.BYTES)
+                    .put(header, HEADER_BYTES - NONCE_PREFIX_BYTES, NONCE_PREFIX_BYTES)
+                    .putInt(index)
+                    .array();
+            cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(header);
+            cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not initialise AES-GCM", e);
+        }
+    }
+
+    private static final class EncryptingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final SecretKey key;
+        private final byte[] header;
+        private final Cipher cipher;
+        private final byte[] plain;
+        private final byte[] sealed;
+        private int buffered;
+        private int index;
+        private boolean closed;
+
+        EncryptingOutputStream(OutputStream out, SecretKey key, byte[] header, int chunkSize) throws IOException {
+            this.out = out;
+            this.key = key;
+            this.header = header;
+            this.cipher = newGcm();
+            this.plain = new byte[chunkSize];
+            this.sealed = new byte[chunkSize + TAG_BYTES];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (length > 0) {
+                // A full chunk is only sealed once more data arrives, since the
+                // last chunk has to be marked as such
+                if (buffered == plain.length) {
+                    seal(false);
+                }
+                int n = Math.min(length, plain.length - buffered);
+                System.arraycopy(bytes, offset, plain, buffered, n);
+                buffered += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        // Partial chunks are never sealed early, so this only flushes what's sealed
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (out) {
+                seal(true);
+            }
+        }
+
+        private void seal(boolean last) throws IOException {
+            if (index == Integer.MAX_VALUE) {
+                throw new IOException("Content too large to encrypt");
+            }
+            try {
+                init(cipher, Cipher.ENCRYPT_MODE, key, header, index, last);
+                out.write(sealed, 0, cipher.doFinal(plain, 0, buffered, sealed, 0));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Encryption failed", e);
+            }
+            buffered = 0;
+            index++;
+        }
+    }
+
+    public static final class DecryptingInputStream extends InputStream {
+
+        private final PushbackInputStream in;
+        private final SecretKey key;
+        private final byte[] header;
+        private final boolean compressed;
+        private final Cipher cipher;
+        private final byte[] sealed;
+        private final byte[] plain;
+        private int position;
+        private int available;
+        private int index;
+        private boolean finished;
+
+        private DecryptingInputStream(InputStream in, SecretKey key, byte[] header, int chunkSize,
+                                      boolean compressed) throws IOException {
+            this.in = new PushbackInputStream(in, 1);
+            this.key = key;
+            this.header = header;
+            this.compressed = compressed;
+            this.cipher = newGcm();
+            this.sealed = new byte[chunkSize + TAG_BYTES];
+            this.plain = new byte[chunkSize];
+        }
+
+        // Whether the plaintext is gzip
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (position == available) {
+                if (finished) {
+                    return -1;
+                }
+                open();
+            }
+            return plain[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == available) {
+                if (finished) {
+                    return -1;
+                }
+                open();
+            }
+            int n = Math.min(length, available - position);
+            System.arraycopy(plain, position, bytes, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return available - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void open() throws IOException {
+            int read = in.readNBytes(sealed, 0, sealed.length);
+            boolean last = read < sealed.length;
+            if (!last) {
+                int next = in.read();
+                if (next == -1) {
+                    last = true;
+                } else {
+                    in.unread(next);
+                }
+            }
+            if (read < TAG_BYTES) {
+                throw new IOException("Encrypted content is truncated");
+            }
+            try {
+                init(cipher, Cipher.DECRYPT_MODE, key, header, index, last);
+                available = cipher.doFinal(sealed, 0, read, plain, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Encrypted content failed authentication", e);
+            }
+            position = 0;
+            index++;
+            finished = last;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.chatapp.file.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Content-addressed file storage. Uploads are streamed into <dir>/tmp while
+// their SHA-256 is computed, then moved to <dir>/blobs/ab/cd/<sha256> (the first
+// two byte pairs of the hash fan out to 65536 directories, so no directory grows
+// large). Identical content always lands on the same path and is written once.
+//
+// Uploads that CompressionPolicy finds compressible are gzipped on the way in.
+// With encryption on (the default) every new blob and variant is then encrypted
+// by BlobCipher and stored as <name>.enc, the gzip flag living in its header;
+// otherwise compressed blobs are stored as <sha256>.gz. Blobs written before
+// either existed are still read as they are. The hash is always of the original
+// bytes.
+@Component
+public class BlobStore {
+
+    public static final String COMPRESSED_SUFFIX = ".gz";
+    public static final String ENCRYPTED_SUFFIX = ".enc";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path blobs;
+    private final Path variants;
+    private final Path staging;
+    private final CompressionPolicy compressionPolicy;
+    private final BlobCipher cipher;
+
+    public BlobStore(@Value("${chat.files.dir:uploads}") String directory,
+                     CompressionPolicy compressionPolicy,
+                     BlobCipher cipher) {
+        this.root = Paths.get(directory);
+        this.blobs = root.resolve("blobs");
+        this.variants = root.resolve("variants");
+        this.staging = root.resolve("tmp");
+        this.compressionPolicy = compressionPolicy;
+        this.cipher = cipher;
+    }
+
+    // <first two chars>/<next two>/<name>, for names that are random or hashes
+    public static Path fanOut(Path parent, String name) {
+        return parent.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    // Bytes that have been hashed but not yet given their final path. size is the
+    // original length, storedSize what the staged file takes on disk.
+    public record StagedBlob(Path file, String sha256, long size, long storedSize,
+                             boolean compressed, boolean encrypted) {
+    }
+
+    public StagedBlob stage(InputStream in, String contentType) throws IOException {
+        Files.createDirectories(staging);
+        Path temp = Files.createTempFile(staging, "upload", ".tmp");
+        try (in) {
+            return copy(in, temp, contentType);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // An empty file in the staging area, for uploads that arrive in pieces
+    public Path createStagingFile() throws IOException {
+        Files.createDirectories(staging);
+        return Files.createTempFile(staging, "chunked", ".tmp");
+    }
+
+    // Hashes a file that was written to the staging area directly. If it is to be
+    // encrypted or is worth compressing, the stored form replaces it.
+    public StagedBlob stage(Path file, String contentType) throws IOException {
+        byte[] head = new byte[CompressionPolicy.SAMPLE_SIZE];
+        int headLength;
+        try (InputStream in = Files.newInputStream(file)) {
+            headLength = in.readNBytes(head, 0, head.length);
+        }
+        if (cipher.isEnabled()
+                || compressionPolicy.shouldCompress(contentType, head, headLength, headLength < head.length)) {
+            Path temp = Files.createTempFile(staging, "upload", ".tmp");
+            try (InputStream in = Files.newInputStream(file)) {
+                StagedBlob staged = copy(in, temp, contentType);
+                Files.delete(file);
+                return staged;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        return new StagedBlob(file, HexFormat.of().formatHex(digest.digest()), size, size, false, false);
+    }
+
+    // Moves staged bytes into place; returns false if the content was already stored
+    public boolean commit(StagedBlob staged) throws IOException {
+        if (exists(staged.sha256())) {
+            discard(staged);
+            return false;
+        }
+        Path target = staged.encrypted() ? encryptedPath(staged.sha256())
+                : staged.compressed() ? compressedPath(staged.sha256()) : path(staged.sha256());
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(staged.file(), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            discard(staged);
+            return false;
+        }
+        return true;
+    }
+
+    public void discard(StagedBlob staged) throws IOException {
+        Files.deleteIfExists(staged.file());
+    }
+
+    // Where content for sha256 is stored uncompressed
+    public Path path(String sha256) {
+        return fanOut(blobs, sha256);
+    }
+
+    public Path compressedPath(String sha256) {
+        return path(sha256).resolveSibling(sha256 + COMPRESSED_SUFFIX);
+    }
+
+    public Path encryptedPath(String sha256) {
+        return path(sha256).resolveSibling(sha256 + ENCRYPTED_SUFFIX);
+    }
+
+    // The stored file for sha256 in whichever form it was written, or null
+    public Path locate(String sha256) {
+        for (Path candidate : new Path[]{encryptedPath(sha256), path(sha256), compressedPath(sha256)}) {
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isCompressed(Path stored) {
+        return stored.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    public static boolean isEncrypted(Path stored) {
+        return stored.getFileName().toString().endsWith(ENCRYPTED_SUFFIX);
+    }
+
+    // A stored file decrypted, but still gzipped if compressed is true
+    public record StoredContent(InputStream stream, boolean compressed) {
+    }
+
+    public StoredContent openStored(Path stored) throws IOException {
+        InputStream in = Files.newInputStream(stored);
+        if (!isEncrypted(stored)) {
+            return new StoredContent(in, isCompressed(stored));
+        }
+        try {
+            BlobCipher.DecryptingInputStream decrypted = cipher.decrypt(in);
+            return new StoredContent(decrypted, decrypted.isCompressed());
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // The original bytes of a stored blob or variant
+    public InputStream open(Path stored) throws IOException {
+        StoredContent content = openStored(stored);
+        return content.compressed() ? new GZIPInputStream(content.stream(), BUFFER_SIZE) : content.stream();
+    }
+
+    // Where a new variant called name should be written
+    public Path newVariantPath(String sha256, String name) {
+        return variantPath(sha256, cipher.isEnabled() ? name + ENCRYPTED_SUFFIX : name);
+    }
+
+    // Wraps the output for a file at newVariantPath
+    public OutputStream protectVariant(OutputStream out) throws IOException {
+        return cipher.isEnabled() ? cipher.encrypt(out, false) : out;
+    }
+
+    // Where a blob lives relative to chat.files.dir, as recorded in the index
+    public String relativePath(String sha256) {
+        return relativePath(path(sha256));
+    }
+
+    public String relativePath(Path stored) {
+        return root.relativize(stored).toString().replace('\\', '/');
+    }
+
+    public Path resolve(String relativePath) {
+        return root.resolve(relativePath);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path getBlobsDirectory() {
+        return blobs;
+    }
+
+    public boolean exists(String sha256) {
+        return locate(sha256) != null;
+    }
+
+    // Derived renditions (thumbnails etc.) of a blob: variants/ab/cd/<sha256>/<name>
+    public Path variantPath(String sha256, String name) {
+        return fanOut(variants, sha256).resolve(name);
+    }
+
+    public void delete(String sha256) throws IOException {
+        Files.deleteIfExists(path(sha256));
+        Files.deleteIfExists(compressedPath(sha256));
+        Files.deleteIfExists(encryptedPath(sha256));
+        Path variantDirectory = fanOut(variants, sha256);
+        if (Files.isDirectory(variantDirectory)) {
+            try (var files = Files.list(variantDirectory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(variantDirectory);
+        }
+    }
+
+    // Hashes everything read from in while writing it to target, gzipped if the
+    // first block says it is worth it and then encrypted if encryption is on
+    private StagedBlob copy(InputStream in, Path target, String contentType) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[Math.max(BUFFER_SIZE, CompressionPolicy.SAMPLE_SIZE)];
+        int headLength = in.readNBytes(buffer, 0, CompressionPolicy.SAMPLE_SIZE);
+        boolean complete = headLength < CompressionPolicy.SAMPLE_SIZE;
+        boolean compress = compressionPolicy.shouldCompress(contentType, buffer, headLength, complete);
+
+        long size = headLength;
+        digest.update(buffer, 0, headLength);
+        boolean encrypt = cipher.isEnabled();
+        OutputStream sink = Files.newOutputStream(target);
+        try {
+            sink = encrypt ? cipher.encrypt(sink, compress) : sink;
+            sink = compress ? new FastGzipOutputStream(sink) : sink;
+        } catch (IOException | RuntimeException e) {
+            sink.close();
+            throw e;
+        }
+        try (OutputStream out = sink) {
+            out.write(buffer, 0, headLength);
+            int read;
+            while (!complete && (read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                size += read;
+            }
+        }
+        return new StagedBlob(target, HexFormat.of().formatHex(digest.digest()), size, Files.size(target),
+                compress, encrypt);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // gzip framing, so stored bytes can go out as Content-Encoding: gzip, at the
+    // fastest deflate level
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
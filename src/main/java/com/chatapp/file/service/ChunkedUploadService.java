@@ -0,0 +1,291 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.StoredFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+// Resumable uploads: a client opens a session for a known size, PUTs chunks at
+// any offset (in parallel if it likes), asks which ranges have arrived, and
+// completes once everything is there. The result goes through FileService like
+// a normal upload, so it is deduplicated the same way. Sessions idle for
+// expire-ms are dropped with their partial file. Each user may hold at most
+// max-sessions-per-user of the max-sessions slots.
+@Service
+public class ChunkedUploadService implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(ChunkedUploadService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ConcurrentHashMap<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> sessionsByOwner = new ConcurrentHashMap<>();
+    private final BlobStore blobStore;
+    private final FileService fileService;
+    private final UploadThrottle uploadThrottle;
+    private final long maxSize;
+    private final int defaultChunkSize;
+    private final int maxChunkSize;
+    private final int maxSessions;
+    private final int maxSessionsPerUser;
+    private final long expireNanos;
+
+    private final Counter chunks;
+    private final Counter checksumFailures;
+    private final Counter expired;
+
+    public ChunkedUploadService(BlobStore blobStore,
+                                FileService fileService,
+                                UploadThrottle uploadThrottle,
+                                MeterRegistry meterRegistry,
+                                @Value("${chat.files.chunked.max-size:4294967296}") long maxSize,
+                                @Value("${chat.files.chunked.chunk-size:8388608}") int defaultChunkSize,
+                                @Value("${chat.files.chunked.max-chunk-size:33554432}") int maxChunkSize,
+                                @Value("${chat.files.chunked.max-sessions:1000}") int maxSessions,
+                                @Value("${chat.files.chunked.max-sessions-per-user:8}") int maxSessionsPerUser,
+                                @Value("${chat.files.chunked.expire-ms:3600000}") long expireMs) {
+        this.blobStore = blobStore;
+        this.fileService = fileService;
+        this.uploadThrottle = uploadThrottle;
+        this.maxSize = maxSize;
+        this.defaultChunkSize = defaultChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.maxSessions = maxSessions;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        this.expireNanos = TimeUnit.MILLISECONDS.toNanos(expireMs);
+
+        Gauge.builder("chat.files.chunked.sessions", sessions, ConcurrentHashMap::size)
+                .description("Chunked uploads in progress")
+                .register(meterRegistry);
+        this.chunks = meterRegistry.counter("chat.files.chunked.chunks");
+        this.checksumFailures = meterRegistry.counter("chat.files.chunked.checksum.failures");
+        this.expired = meterRegistry.counter("chat.files.chunked.expired");
+    }
+
+    public UploadSession create(Long ownerId, String filename, String contentType,
+                                long size, Integer chunkSize) throws IOException {
+        if (size < 0 || size > maxSize) {
+            throw new IllegalArgumentException("Upload size must be between 0 and " + maxSize + " bytes");
+        }
+        int chunk = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (chunk <= 0 || chunk > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + maxChunkSize + " bytes");
+        }
+        contentType = FileService.checkContentType(contentType);
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many uploads in progress");
+        }
+        if (!reserveSlot(ownerId)) {
+            throw new IllegalStateException("Too many of your uploads in progress");
+        }
+        try {
+            // The whole size is claimed up front, together with the user's other unfinished uploads
+            long pending = sessions.values().stream()
+                    .filter(session -> session.getOwnerId().equals(ownerId))
+                    .mapToLong(UploadSession::getSize)
+                    .sum();
+            uploadThrottle.checkQuota(ownerId, pending + size);
+            String id = UUID.randomUUID().toString();
+            Path file = blobStore.createStagingFile();
+            UploadSession session;
+            try {
+                session = new UploadSession(id, ownerId, FileService.cleanFilename(filename),
+                        contentType, size, chunk, file);
+            } catch (IOException | RuntimeException e) {
+                // e.g. no room to preallocate; nothing else knows about the file
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            sessions.put(id, session);
+            return session;
+        } catch (IOException | RuntimeException e) {
+            releaseSlot(ownerId);
+            throw e;
+        }
+    }
+
+    public UploadSession get(String id, Long ownerId) {
+        UploadSession session = sessions.get(id);
+        if (session == null || !session.getOwnerId().equals(ownerId)) {
+            throw new RuntimeException("Upload not found");
+        }
+        return session;
+    }
+
+    // Writes one chunk at offset. sha256 (hex), when given, must match the bytes
+    // received; otherwise the range is not recorded and the client should resend.
+    public UploadSession writeChunk(String id, Long ownerId, long offset, long length,
+                                    String sha256, InputStream body) throws IOException {
+        UploadSession session = get(id, ownerId);
+        if (offset < 0 || length <= 0 || length > session.getChunkSize() || offset + length > session.getSize()) {
+            throw new IllegalArgumentException("Chunk must be 1 to " + session.getChunkSize()
+                    + " bytes and fit within the upload size");
+        }
+
+        Lock lock = session.getLifecycle().readLock();
+        lock.lock();
+        try {
+            if (session.isClosed()) {
+                throw new RuntimeException("Upload not found");
+            }
+            session.touch();
+            MessageDigest digest = sha256 != null ? sha256() : null;
+            long written = 0;
+            byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length)];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            int read;
+            try {
+                while (written < length
+                        && (read = body.read(buffer, 0, (int) Math.min(buffer.length, length - written))) != -1) {
+                    if (digest != null) {
+                        digest.update(buffer, 0, read);
+                    }
+                    wrapped.clear().limit(read);
+                    long position = offset + written;
+                    while (wrapped.hasRemaining()) {
+                        position += session.getChannel().write(wrapped, position);
+                    }
+                    written += read;
+                }
+                if (written != length) {
+                    throw new IllegalArgumentException("Chunk ended after " + written + " of " + length + " bytes");
+                }
+                if (digest != null && !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256)) {
+                    checksumFailures.increment();
+                    throw new IllegalArgumentException("Chunk checksum mismatch");
+                }
+            } catch (IOException | RuntimeException e) {
+                // A resent chunk may have overwritten good bytes, so the whole range needs sending again
+                session.markMissing(offset, offset + length);
+                throw e;
+            }
+            session.markReceived(offset, offset + length);
+            chunks.increment();
+            return session;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public StoredFile complete(String id, Long ownerId) throws IOException {
+        UploadSession session = get(id, ownerId);
+        BlobStore.StagedBlob staged;
+        Lock lock = session.getLifecycle().writeLock();
+        lock.lock();
+        try {
+            if (session.isClosed()) {
+                throw new RuntimeException("Upload not found");
+            }
+            if (!session.isComplete()) {
+                throw new IllegalArgumentException("Upload is missing "
+                        + (session.getSize() - session.getReceived()) + " bytes");
+            }
+            session.getChannel().force(false);
+            session.close();
+            sessions.remove(id, session);
+            releaseSlot(session.getOwnerId());
+            try {
+                staged = blobStore.stage(session.getFile(), session.getContentType());
+            } catch (IOException | RuntimeException e) {
+                // The session is gone, so nothing else would remove its preallocated file
+                Files.deleteIfExists(session.getFile());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return fileService.store(staged, ownerId, session.getFilename(), session.getContentType());
+    }
+
+    public void abort(String id, Long ownerId) throws IOException {
+        discard(get(id, ownerId));
+    }
+
+    @Scheduled(fixedDelayString = "${chat.files.chunked.sweep-interval-ms:60000}")
+    public void expireIdleSessions() {
+        long now = System.nanoTime();
+        sessions.values().forEach(session -> {
+            if (now - session.getLastActivityNanos() >= expireNanos) {
+                try {
+                    discard(session);
+                    expired.increment();
+                } catch (IOException e) {
+                    logger.warn("Failed to remove expired upload " + session.getId(), e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        // Sessions live in memory and can't be resumed after a restart
+        sessions.values().forEach(session -> {
+            try {
+                discard(session);
+            } catch (IOException e) {
+                logger.warn("Failed to remove upload " + session.getId(), e);
+            }
+        });
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        Lock lock = session.getLifecycle().writeLock();
+        lock.lock();
+        try {
+            if (session.isClosed()) {
+                return;
+            }
+            session.close();
+            sessions.remove(session.getId(), session);
+            releaseSlot(session.getOwnerId());
+            Files.deleteIfExists(session.getFile());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Counted apart from the sessions map so concurrent creates can't overshoot the cap
+    private boolean reserveSlot(Long ownerId) {
+        boolean[] reserved = new boolean[1];
+        sessionsByOwner.compute(ownerId, (owner, count) -> {
+            int current = count == null ? 0 : count;
+            reserved[0] = current < maxSessionsPerUser;
+            return reserved[0] ? current + 1 : count;
+        });
+        return reserved[0];
+    }
+
+    private void releaseSlot(Long ownerId) {
+        sessionsByOwner.computeIfPresent(ownerId, (owner, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.chatapp.file.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.zip.Deflater;
+
+// Decides from the first bytes of an upload whether it is worth storing gzipped.
+// Known compressed formats are recognised by content type or magic number and
+// skipped without compressing anything; everything else has its first block
+// deflated at BEST_SPEED and is compressed only if that block shrank enough.
+@Component
+public class CompressionPolicy {
+
+    // How much of the upload is inspected before deciding
+    public static final int SAMPLE_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/vnd.rar", "application/x-bzip2", "application/x-xz",
+            "application/zstd", "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+            "application/epub+zip", "application/java-archive");
+
+    // Leading bytes of formats that are already compressed
+    private static final byte[][] MAGIC_NUMBERS = {
+            {(byte) 0x1F, (byte) 0x8B},                          // gzip
+            {'P', 'K', 3, 4},                                     // zip, docx, jar, apk
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},             // jpeg
+            {(byte) 0x89, 'P', 'N', 'G'},                         // png
+            {'G', 'I', 'F', '8'},                                 // gif
+            {'7', 'z', (byte) 0xBC, (byte) 0xAF},                 // 7z
+            {'R', 'a', 'r', '!'},                                 // rar
+            {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD}, // zstd
+            {(byte) 0xFD, '7', 'z', 'X', 'Z'},                    // xz
+            {'B', 'Z', 'h'},                                      // bzip2
+            {'O', 'g', 'g', 'S'},                                 // ogg
+            {'I', 'D', '3'},                                      // mp3
+            {(byte) 0x1A, (byte) 0x45, (byte) 0xDF, (byte) 0xA3}, // webm, mkv
+    };
+
+    private final boolean enabled;
+    private final int minSize;
+    private final double maxRatio;
+
+    public CompressionPolicy(@Value("${chat.files.compression.enabled:true}") boolean enabled,
+                             @Value("${chat.files.compression.min-size:1024}") int minSize,
+                             @Value("${chat.files.compression.max-ratio:0.9}") double maxRatio) {
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.maxRatio = maxRatio;
+    }
+
+    // head holds the first headLength bytes; complete is true when that is the whole upload
+    public boolean shouldCompress(String contentType, byte[] head, int headLength, boolean complete) {
+        if (!enabled || (complete && headLength < minSize)) {
+            return false;
+        }
+        if (isCompressedFormat(contentType, head, headLength)) {
+            return false;
+        }
+        return sampleRatio(head, headLength) <= maxRatio;
+    }
+
+    static boolean isCompressedFormat(String contentType, byte[] head, int headLength) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase();
+            int parameters = type.indexOf(';');
+            if (parameters >= 0) {
+                type = type.substring(0, parameters).trim();
+            }
+            if (type.startsWith("video/") || type.startsWith("audio/") || COMPRESSED_TYPES.contains(type)
+                    || (type.startsWith("image/") && !type.equals("image/bmp") && !type.equals("image/svg+xml"))) {
+                return true;
+            }
+        }
+        for (byte[] magic : MAGIC_NUMBERS) {
+            if (startsWith(head, headLength, magic, 0)) {
+                return true;
+            }
+        }
+        // mp4/mov/heic "ftyp" box and RIFF WEBP
+        return startsWith(head, headLength, new byte[]{'f', 't', 'y', 'p'}, 4)
+                || (startsWith(head, headLength, new byte[]{'R', 'I', 'F', 'F'}, 0)
+                && startsWith(head, headLength, new byte[]{'W', 'E', 'B', 'P'}, 8));
+    }
+
+    // Compressed size over original size for the sample
+    static double sampleRatio(byte[] head, int headLength) {
+        if (headLength == 0) {
+            return 1.0;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(head, 0, headLength);
+            deflater.finish();
+            byte[] output = new byte[8 * 1024];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(output);
+            }
+            return (double) compressed / headLength;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static boolean startsWith(byte[] head, int headLength, byte[] magic, int offset) {
+        if (headLength < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
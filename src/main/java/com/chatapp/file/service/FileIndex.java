@@ -0,0 +1,206 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.FileBlob;
+import com.chatapp.file.FileBlobRepository;
+import com.chatapp.file.StoredFile;
+import com.chatapp.file.StoredFileRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// The stored_file and file_blob tables are the index: every metadata lookup and
+// listing goes to the database. Alongside it, each StoredFile has a small JSON
+// record at <dir>/meta/ab/cd/<id>.json, so the index can be rebuilt from disk
+// when it is lost (the default H2 database is in-memory). The rebuild walks the
+// first-level fan-out directories in parallel.
+@Component
+public class FileIndex {
+
+    private static final Log logger = LogFactory.getLog(FileIndex.class);
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})(\\.gz|\\.enc)?");
+
+    private final BlobStore blobStore;
+    private final StoredFileRepository storedFileRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final ObjectMapper objectMapper;
+    private final Path metaDirectory;
+    private final boolean rebuildOnStart;
+    private final int rebuildThreads;
+
+    public FileIndex(BlobStore blobStore,
+                     StoredFileRepository storedFileRepository,
+                     FileBlobRepository fileBlobRepository,
+                     ObjectMapper objectMapper,
+                     @Value("${chat.files.index.rebuild-on-start:true}") boolean rebuildOnStart,
+                     @Value("${chat.files.index.rebuild-threads:0}") int rebuildThreads) {
+        this.blobStore = blobStore;
+        this.storedFileRepository = storedFileRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.objectMapper = objectMapper;
+        this.metaDirectory = blobStore.getRoot().resolve("meta");
+        this.rebuildOnStart = rebuildOnStart;
+        this.rebuildThreads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    // What goes on disk for each file; createdAt is ISO-8601
+    record Sidecar(String id, Long ownerId, String filename, String contentType,
+                   long size, String sha256, String createdAt) {
+    }
+
+    public record RebuildResult(int files, int blobs, int missingBlobs, int orphanBlobs) {
+    }
+
+    public void record(StoredFile file) throws IOException {
+        Path target = sidecarPath(file.getId());
+        Files.createDirectories(target.getParent());
+        Sidecar sidecar = new Sidecar(file.getId(), file.getOwnerId(), file.getFilename(), file.getContentType(),
+                file.getSize(), file.getSha256(), file.getCreatedAt() != null ? file.getCreatedAt().toString() : null);
+        Path temp = target.resolveSibling(file.getId() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), sidecar);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void remove(StoredFile file) throws IOException {
+        Files.deleteIfExists(sidecarPath(file.getId()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!rebuildOnStart || !Files.isDirectory(metaDirectory) || storedFileRepository.count() > 0) {
+            return;
+        }
+        try {
+            RebuildResult result = rebuild();
+            logger.info("Rebuilt file index: " + result.files() + " files, " + result.blobs() + " blobs, "
+                    + result.missingBlobs() + " files without content, " + result.orphanBlobs() + " unreferenced blobs");
+        } catch (IOException e) {
+            logger.error("Failed to rebuild the file index", e);
+        }
+    }
+
+    // Restores file_blob and stored_file rows from the blobs/ and meta/ trees.
+    // Files whose content is gone are skipped; blobs nothing refers to are left
+    // on disk and counted.
+    public RebuildResult rebuild() throws IOException {
+        Map<String, Path> blobPaths = new ConcurrentHashMap<>();
+        walkInParallel(blobStore.getBlobsDirectory(), file -> {
+            Matcher name = BLOB_NAME.matcher(file.getFileName().toString());
+            if (!name.matches()) {
+                return;
+            }
+            String sha256 = name.group(1);
+            Path canonical = name.group(2) == null ? blobStore.path(sha256)
+                    : name.group(2).equals(BlobStore.ENCRYPTED_SUFFIX) ? blobStore.encryptedPath(sha256)
+                    : blobStore.compressedPath(sha256);
+            if (!file.equals(canonical)) {
+                // Written before the fan-out layout; move it where lookups expect it
+                Files.createDirectories(canonical.getParent());
+                Files.move(file, canonical, StandardCopyOption.REPLACE_EXISTING);
+            }
+            blobPaths.put(sha256, canonical);
+        });
+
+        // Sizes come from the sidecars, since a compressed blob's file size isn't the content's
+        Map<String, Long> blobSizes = new ConcurrentHashMap<>();
+        Map<String, LongAdder> references = new ConcurrentHashMap<>();
+        LongAdder restored = new LongAdder();
+        LongAdder missing = new LongAdder();
+        walkInParallel(metaDirectory, file -> {
+            if (!file.getFileName().toString().endsWith(".json")) {
+                return;
+            }
+            Sidecar sidecar = objectMapper.readValue(file.toFile(), Sidecar.class);
+            Path blob = blobPaths.get(sidecar.sha256());
+            if (blob == null) {
+                missing.increment();
+                return;
+            }
+            StoredFile storedFile = new StoredFile();
+            storedFile.setId(sidecar.id());
+            storedFile.setOwnerId(sidecar.ownerId());
+            storedFile.setFilename(sidecar.filename());
+            storedFile.setContentType(sidecar.contentType());
+            storedFile.setSize(sidecar.size());
+            storedFile.setSha256(sidecar.sha256());
+            storedFile.setPath(blobStore.relativePath(blob));
+            storedFile.setCreatedAt(sidecar.createdAt() != null ? LocalDateTime.parse(sidecar.createdAt()) : null);
+            storedFileRepository.save(storedFile);
+            blobSizes.put(sidecar.sha256(), sidecar.size());
+            references.computeIfAbsent(sidecar.sha256(), sha256 -> new LongAdder()).increment();
+            restored.increment();
+        });
+
+        List<FileBlob> blobs = new ArrayList<>(references.size());
+        references.forEach((sha256, count) -> {
+            FileBlob blob = new FileBlob(sha256, blobSizes.get(sha256));
+            blob.setRefCount(count.sum());
+            blobs.add(blob);
+        });
+        fileBlobRepository.saveAll(blobs);
+
+        return new RebuildResult(restored.intValue(), blobs.size(), missing.intValue(),
+                blobPaths.size() - blobs.size());
+    }
+
+    private Path sidecarPath(String id) {
+        return BlobStore.fanOut(metaDirectory, id).resolveSibling(id + ".json");
+    }
+
+    private interface FileVisitor {
+        void visit(Path file) throws IOException;
+    }
+
+    // Visits every regular file under root, one first-level directory per task
+    private void walkInParallel(Path root, FileVisitor visitor) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> children;
+        try (Stream<Path> list = Files.list(root)) {
+            children = list.toList();
+        }
+        ForkJoinPool pool = new ForkJoinPool(rebuildThreads);
+        try {
+            pool.submit(() -> children.parallelStream().forEach(child -> {
+                try (Stream<Path> walk = Files.walk(child)) {
+                    for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                        visitor.visit(file);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while walking " + root, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException("Failed to walk " + root, e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.ProcessingStatus;
+import com.chatapp.file.StoredFile;
+import com.chatapp.file.StoredFileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates downscaled renditions of image uploads off the request thread, on a
+// small fixed pool with a bounded queue. Variants are keyed by content hash, so
+// a forwarded image that was already processed is marked READY without being
+// decoded again. Only the JDK's ImageIO codecs are used (JPEG, PNG, GIF, BMP).
+@Service
+public class FileProcessingService implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(FileProcessingService.class);
+
+    // name -> longest edge in pixels
+    public static final List<Variant> VARIANTS = List.of(new Variant("thumb", 160), new Variant("preview", 800));
+
+    public record Variant(String name, int maxEdge) {
+    }
+
+    private final BlobStore blobStore;
+    private final StoredFileRepository storedFileRepository;
+    private final ThreadPoolExecutor executor;
+    private final long maxPixels;
+    private final long maxBytes;
+
+    private final Timer ready;
+    private final Timer failed;
+    private final Counter rejected;
+
+    public FileProcessingService(BlobStore blobStore,
+                                 StoredFileRepository storedFileRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${chat.files.processing.threads:2}") int threads,
+                                 @Value("${chat.files.processing.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${chat.files.processing.max-pixels:40000000}") long maxPixels,
+                                 @Value("${chat.files.processing.max-bytes:52428800}") long maxBytes) {
+        this.blobStore = blobStore;
+        this.storedFileRepository = storedFileRepository;
+        this.maxPixels = maxPixels;
+        this.maxBytes = maxBytes;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "file-processing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("chat.files.processing.queue", executor, e -> e.getQueue().size())
+                .description("Uploads waiting for processing")
+                .register(meterRegistry);
+        this.ready = Timer.builder("chat.files.processing").tag("outcome", "ready").register(meterRegistry);
+        this.failed = Timer.builder("chat.files.processing").tag("outcome", "failed").register(meterRegistry);
+        this.rejected = meterRegistry.counter("chat.files.processing.rejected");
+    }
+
+    // Whether an upload gets variants; decided before the row is saved so it
+    // starts out PENDING
+    public boolean accepts(String contentType, long size) {
+        return contentType != null && contentType.startsWith("image/") && size > 0 && size <= maxBytes;
+    }
+
+    // Queues a PENDING file; returns false (and marks it FAILED) when the queue is full
+    public boolean submit(StoredFile file) {
+        try {
+            executor.execute(() -> {
+                ProcessingStatus status = process(file);
+                storedFileRepository.updateProcessingStatus(file.getId(), status);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            storedFileRepository.updateProcessingStatus(file.getId(), ProcessingStatus.FAILED);
+            return false;
+        }
+    }
+
+    public Optional<Path> getVariant(StoredFile file, String name) {
+        if (VARIANTS.stream().noneMatch(variant -> variant.name().equals(name))) {
+            throw new IllegalArgumentException("Unknown variant " + name);
+        }
+        for (String extension : new String[]{".jpg", ".png"}) {
+            for (String suffix : new String[]{BlobStore.ENCRYPTED_SUFFIX, ""}) {
+                Path path = blobStore.variantPath(file.getSha256(), name + extension + suffix);
+                if (Files.exists(path)) {
+                    return Optional.of(path);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    ProcessingStatus process(StoredFile file) {
+        long start = System.nanoTime();
+        try {
+            // The smallest variant is written last, so its presence means all are there
+            if (getVariant(file, VARIANTS.get(0).name()).isEmpty()) {
+                generate(file.getSha256());
+            }
+            ready.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return ProcessingStatus.READY;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not process file " + file.getId() + ": " + e.getMessage());
+            failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return ProcessingStatus.FAILED;
+        }
+    }
+
+    private void generate(String sha256) throws IOException {
+        Path stored = blobStore.locate(sha256);
+        if (stored == null) {
+            throw new IOException("Content " + sha256 + " is missing");
+        }
+        BufferedImage source = read(stored, VARIANTS.get(VARIANTS.size() - 1).maxEdge());
+        boolean alpha = source.getColorModel().hasAlpha();
+        String extension = alpha ? ".png" : ".jpg";
+        String format = alpha ? "png" : "jpg";
+
+        // Largest first, so each smaller rendition is scaled from the previous one
+        BufferedImage current = source;
+        for (int i = VARIANTS.size() - 1; i >= 0; i--) {
+            Variant variant = VARIANTS.get(i);
+            current = scale(current, variant.maxEdge(), alpha);
+            Path target = blobStore.newVariantPath(sha256, variant.name() + extension);
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), variant.name(), ".tmp");
+            boolean written;
+            try (OutputStream out = blobStore.protectVariant(Files.newOutputStream(temp));
+                 ImageOutputStream image = new MemoryCacheImageOutputStream(out)) {
+                written = ImageIO.write(current, format, image);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            if (!written) {
+                Files.deleteIfExists(temp);
+                throw new IOException("No " + format + " writer available");
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // Decodes the first frame, checking dimensions before any pixels are read and
+    // subsampling large images so memory stays proportional to the output. The
+    // image streams are memory-cached: ImageIO's default file cache would put
+    // decrypted bytes in java.io.tmpdir.
+    private BufferedImage read(Path path, int maxEdge) throws IOException {
+        try (InputStream content = blobStore.open(path);
+             ImageInputStream in = new MemoryCacheImageInputStream(content)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Not a supported image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image is " + width + "x" + height + ", over the pixel limit");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(width, height) / (maxEdge * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxEdge, boolean alpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double factor = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            if (!alpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, targetWidth, targetHeight);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
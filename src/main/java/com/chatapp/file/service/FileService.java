@@ -1,18 +1,311 @@
 package com.chatapp.file.service;
 
+import com.chatapp.file.FileBlob;
+import com.chatapp.file.FileBlobRepository;
+import com.chatapp.file.ProcessingStatus;
+import com.chatapp.file.StoredFile;
+import com.chatapp.file.StoredFileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
+// Uploads are deduplicated by content: each StoredFile row references a FileBlob
+// by sha256, and the blob's refCount tracks how many rows share it. Sending the
+// same file again (a re-upload) adds a row but never rewrites the bytes, and a
+// forward through copy() doesn't even read them.
+// Metadata reads only ever hit the database; FileIndex keeps the on-disk copy
+// that the database can be rebuilt from. Owners are the authenticated user's id,
+// taken from the ChatPrincipal, so no call looks the user up.
 @Service
 public class FileService {
 
-    public void upload(MultipartFile file) throws Exception {
-        Files.createDirectories(Paths.get("uploads"));
-        Files.write(Paths.get("uploads/" + file.getOriginalFilename()),
-                file.getBytes());
+    private static final int LOCK_STRIPES = 64;
+
+    private final BlobStore blobStore;
+    private final FileIndex fileIndex;
+    private final FileProcessingService processingService;
+    private final StoredFileRepository storedFileRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final UploadThrottle uploadThrottle;
+
+    // Reference counts for one hash are changed under that hash's stripe, so a
+    // blob can't be deleted while another upload is taking a reference to it
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    private final Counter stored;
+    private final Counter deduplicated;
+    private final Counter compressed;
+    private final Counter uncompressed;
+    private final Counter bytesSaved;
+
+    public FileService(BlobStore blobStore,
+                       FileIndex fileIndex,
+                       FileProcessingService processingService,
+                       StoredFileRepository storedFileRepository,
+                       FileBlobRepository fileBlobRepository,
+                       UploadThrottle uploadThrottle,
+                       MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.fileIndex = fileIndex;
+        this.processingService = processingService;
+        this.storedFileRepository = storedFileRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.uploadThrottle = uploadThrottle;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stored = meterRegistry.counter("chat.files.uploads", "outcome", "stored");
+        this.deduplicated = meterRegistry.counter("chat.files.uploads", "outcome", "deduplicated");
+        this.compressed = meterRegistry.counter("chat.files.compression", "outcome", "compressed");
+        this.uncompressed = meterRegistry.counter("chat.files.compression", "outcome", "uncompressed");
+        this.bytesSaved = Counter.builder("chat.files.compression.saved")
+                .baseUnit("bytes")
+                .description("Disk space saved by compressing new blobs")
+                .register(meterRegistry);
+    }
+
+    public StoredFile upload(MultipartFile file, Long ownerId) throws IOException {
+        return upload(file.getInputStream(), ownerId, file.getOriginalFilename(), file.getContentType());
+    }
+
+    // content is read to the end and closed
+    public StoredFile upload(InputStream content, Long ownerId,
+                             String filename, String contentType) throws IOException {
+        try {
+            contentType = checkContentType(contentType);
+        } catch (RuntimeException e) {
+            content.close();
+            throw e;
+        }
+        BlobStore.StagedBlob staged = blobStore.stage(content, contentType);
+        return insert(staged, ownerId, filename, contentType);
+    }
+
+    // Records bytes already hashed into the staging area, e.g. a finished chunked upload
+    public StoredFile store(BlobStore.StagedBlob staged, Long ownerId,
+                            String filename, String contentType) throws IOException {
+        try {
+            contentType = checkContentType(contentType);
+        } catch (RuntimeException e) {
+            blobStore.discard(staged);
+            throw e;
+        }
+        return insert(staged, ownerId, filename, contentType);
+    }
+
+    // A new row for the caller pointing at an existing file's blob, e.g. a forward.
+    // Only a reference is taken; the content is not read. filename defaults to the
+    // source's. The copy counts its full size against the caller's quota, like any
+    // other file they own.
+    public StoredFile copy(String id, Long ownerId, String filename) throws IOException {
+        StoredFile source = getFile(id);
+        uploadThrottle.checkQuota(ownerId, source.getSize());
+        reference(source.getSha256());
+
+        StoredFile storedFile = newRow(ownerId, filename != null ? filename : source.getFilename(),
+                source.getContentType(), source.getSize(), source.getSha256());
+        storedFile.setPath(source.getPath());
+        // Variants are kept per blob, so a processed source needs no more work
+        if (source.getProcessingStatus() == ProcessingStatus.READY) {
+            storedFile.setProcessingStatus(ProcessingStatus.READY);
+        }
+        return record(storedFile);
+    }
+
+    private StoredFile insert(BlobStore.StagedBlob staged, Long ownerId,
+                              String filename, String contentType) throws IOException {
+        acquire(staged.sha256(), staged);
+
+        StoredFile storedFile = newRow(ownerId, filename, contentType, staged.size(), staged.sha256());
+        // The blob may have been stored compressed by an earlier upload even if this one wasn't
+        storedFile.setPath(blobStore.relativePath(blobStore.locate(staged.sha256())));
+        return record(storedFile);
+    }
+
+    private StoredFile newRow(Long ownerId, String filename, String contentType, long size, String sha256) {
+        StoredFile storedFile = new StoredFile();
+        storedFile.setId(UUID.randomUUID().toString().replace("-", ""));
+        storedFile.setOwnerId(ownerId);
+        storedFile.setFilename(cleanFilename(filename));
+        storedFile.setContentType(contentType);
+        storedFile.setSize(size);
+        storedFile.setSha256(sha256);
+        storedFile.setProcessingStatus(processingService.accepts(contentType, size)
+                ? ProcessingStatus.PENDING : ProcessingStatus.NONE);
+        return storedFile;
+    }
+
+    // Saves a row whose blob reference is already held, giving the reference back on failure
+    private StoredFile record(StoredFile storedFile) throws IOException {
+        String sha256 = storedFile.getSha256();
+        try {
+            storedFile = storedFileRepository.save(storedFile);
+        } catch (RuntimeException e) {
+            release(sha256);
+            throw e;
+        }
+        try {
+            fileIndex.record(storedFile);
+        } catch (IOException | RuntimeException e) {
+            // A row without its on-disk record would vanish on the next rebuild
+            storedFileRepository.delete(storedFile);
+            release(sha256);
+            throw e;
+        }
+        // Runs on the processing pool; the caller gets the file back as PENDING
+        if (storedFile.getProcessingStatus() == ProcessingStatus.PENDING && !processingService.submit(storedFile)) {
+            storedFile.setProcessingStatus(ProcessingStatus.FAILED);
+        }
+        return storedFile;
+    }
+
+    public StoredFile getFile(String id) {
+        return storedFileRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("File not found"));
+    }
+
+    // Newest first
+    public List<StoredFile> listFiles(Long ownerId, int page, int size) {
+        return storedFileRepository.findByOwnerIdOrderByCreatedAtDesc(ownerId,
+                PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 100)));
     }
-}
 
+    public Path getContentPath(StoredFile storedFile) {
+        return blobStore.resolve(storedFile.getPath());
+    }
+
+    // The original bytes, decrypted and decompressed
+    public InputStream openContent(StoredFile storedFile) throws IOException {
+        return blobStore.open(getContentPath(storedFile));
+    }
+
+    // Decrypted but still gzipped if stored that way, for serving as Content-Encoding: gzip
+    public BlobStore.StoredContent openStoredContent(StoredFile storedFile) throws IOException {
+        return blobStore.openStored(getContentPath(storedFile));
+    }
+
+    public InputStream openVariant(Path variant) throws IOException {
+        return blobStore.open(variant);
+    }
+
+    // A generated rendition such as "thumb"; empty until processing has produced it
+    public Optional<Path> getVariantPath(StoredFile storedFile, String variant) {
+        return processingService.getVariant(storedFile, variant);
+    }
+
+    public void delete(String id, Long ownerId) throws IOException {
+        StoredFile storedFile = getFile(id);
+        if (!ownerId.equals(storedFile.getOwnerId())) {
+            throw new RuntimeException("Only the owner can delete a file");
+        }
+        storedFileRepository.delete(storedFile);
+        fileIndex.remove(storedFile);
+        release(storedFile.getSha256());
+    }
+
+    // Takes a reference on the blob for sha256, storing the staged bytes only if
+    // no blob exists yet
+    private void acquire(String sha256, BlobStore.StagedBlob staged) throws IOException {
+        ReentrantLock lock = stripe(sha256);
+        lock.lock();
+        try {
+            FileBlob blob = fileBlobRepository.findById(sha256).orElse(null);
+            if (blob != null && blobStore.exists(sha256)) {
+                blobStore.discard(staged);
+                deduplicated.increment();
+            } else {
+                if (blobStore.commit(staged)) {
+                    (staged.compressed() ? compressed : uncompressed).increment();
+                    bytesSaved.increment(Math.max(0, staged.size() - staged.storedSize()));
+                }
+                if (blob == null) {
+                    blob = new FileBlob(sha256, staged.size());
+                }
+                stored.increment();
+            }
+            blob.setRefCount(blob.getRefCount() + 1);
+            fileBlobRepository.save(blob);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes another reference on a blob that must already be stored
+    private void reference(String sha256) {
+        ReentrantLock lock = stripe(sha256);
+        lock.lock();
+        try {
+            FileBlob blob = fileBlobRepository.findById(sha256).orElse(null);
+            if (blob == null || !blobStore.exists(sha256)) {
+                throw new RuntimeException("File not found");
+            }
+            blob.setRefCount(blob.getRefCount() + 1);
+            fileBlobRepository.save(blob);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(String sha256) throws IOException {
+        ReentrantLock lock = stripe(sha256);
+        lock.lock();
+        try {
+            FileBlob blob = fileBlobRepository.findById(sha256).orElse(null);
+            if (blob == null) {
+                return;
+            }
+            if (blob.getRefCount() <= 1) {
+                fileBlobRepository.delete(blob);
+                blobStore.delete(sha256);
+            } else {
+                blob.setRefCount(blob.getRefCount() - 1);
+                fileBlobRepository.save(blob);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(String sha256) {
+        return stripes[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Stored as given and served back as the download's Content-Type, so it has to
+    // parse; a missing one means opaque bytes
+    public static String checkContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+                throw new IllegalArgumentException("Content type must not be a wildcard");
+            }
+            return mediaType.toString();
+        } catch (InvalidMediaTypeException e) {
+            throw new IllegalArgumentException("Invalid content type " + contentType);
+        }
+    }
+
+    // The original name is kept only as metadata for downloads; drop any path
+    static String cleanFilename(String originalFilename) {
+        if (originalFilename == null) {
+            return "file";
+        }
+        String name = originalFilename.substring(Math.max(originalFilename.lastIndexOf('/'),
+                originalFilename.lastIndexOf('\\')) + 1).strip();
+        return name.isEmpty() ? "file" : name;
+    }
+}
@@ -0,0 +1,19 @@
+package com.chatapp.file.service;
+
+import org.springframework.http.HttpStatus;
+
+// An upload turned away before its body was read: too many in progress (429),
+// over quota (413) or of unknown length (411)
+public class UploadRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public UploadRejectedException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,154 @@
+package com.chatapp.file.service;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// A chunked upload in progress: a file preallocated to the final size that
+// chunks are written into by offset, and the byte ranges received so far.
+// Chunk writes share the read lock and may run in parallel; finishing,
+// aborting and expiry take the write lock so no chunk is mid-write.
+public class UploadSession {
+
+    private final String id;
+    private final Long ownerId;
+    private final String filename;
+    private final String contentType;
+    private final long size;
+    private final int chunkSize;
+    private final Path file;
+    private final FileChannel channel;
+
+    private final ReentrantReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private final ReentrantLock rangesLock = new ReentrantLock();
+    // start -> end (exclusive), non-overlapping and non-adjacent
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+    private long received;
+    private boolean closed;
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    public UploadSession(String id, Long ownerId, String filename, String contentType,
+                         long size, int chunkSize, Path file) throws IOException {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.file = file;
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            raf.setLength(size);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        this.channel = raf.getChannel();
+    }
+
+    public String getId() { return id; }
+    public Long getOwnerId() { return ownerId; }
+    public String getFilename() { return filename; }
+    public String getContentType() { return contentType; }
+    public long getSize() { return size; }
+    public int getChunkSize() { return chunkSize; }
+    public Path getFile() { return file; }
+    public FileChannel getChannel() { return channel; }
+    public ReentrantReadWriteLock getLifecycle() { return lifecycle; }
+
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    public void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    // Callers hold the lifecycle lock
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    public void markReceived(long start, long end) {
+        rangesLock.lock();
+        try {
+            Map.Entry<Long, Long> before = ranges.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+                received -= before.getValue() - before.getKey();
+                ranges.remove(before.getKey());
+            }
+            Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+            while (next != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                received -= next.getValue() - next.getKey();
+                ranges.remove(next.getKey());
+                next = ranges.ceilingEntry(start);
+            }
+            ranges.put(start, end);
+            received += end - start;
+        } finally {
+            rangesLock.unlock();
+        }
+    }
+
+    // Forgets [start, end) after a chunk over it failed part-way or didn't verify
+    public void markMissing(long start, long end) {
+        rangesLock.lock();
+        try {
+            Map.Entry<Long, Long> entry = ranges.lowerEntry(end);
+            while (entry != null && entry.getValue() > start) {
+                ranges.remove(entry.getKey());
+                received -= entry.getValue() - entry.getKey();
+                if (entry.getKey() < start) {
+                    ranges.put(entry.getKey(), start);
+                    received += start - entry.getKey();
+                }
+                if (entry.getValue() > end) {
+                    ranges.put(end, entry.getValue());
+                    received += entry.getValue() - end;
+                }
+                entry = ranges.lowerEntry(Math.min(entry.getKey(), end));
+            }
+        } finally {
+            rangesLock.unlock();
+        }
+    }
+
+    public long getReceived() {
+        rangesLock.lock();
+        try {
+            return received;
+        } finally {
+            rangesLock.unlock();
+        }
+    }
+
+    public List<long[]> getRanges() {
+        rangesLock.lock();
+        try {
+            List<long[]> copy = new ArrayList<>(ranges.size());
+            ranges.forEach((start, end) -> copy.add(new long[]{start, end}));
+            return copy;
+        } finally {
+            rangesLock.unlock();
+        }
+    }
+
+    public boolean isComplete() {
+        return getReceived() == size;
+    }
+}
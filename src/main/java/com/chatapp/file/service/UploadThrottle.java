@@ -0,0 +1,281 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.StoredFileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps one user's uploads from crowding out everyone else. Admission (how many
+// uploads a user and the server have in flight, and whether the declared size
+// fits the user's quota) is decided from headers before the body is read. Once
+// admitted, the body is read through a per-user token bucket, so a user's
+// concurrent uploads share one rate and the request thread sleeps instead of
+// buffering ahead.
+@Component
+public class UploadThrottle {
+
+    private final StoredFileRepository storedFileRepository;
+    private final double bytesPerSecond;
+    private final long burstBytes;
+    private final int maxConcurrentPerUser;
+    private final long quotaBytes;
+    private final Semaphore total;
+
+    private final ConcurrentHashMap<Long, UserState> users = new ConcurrentHashMap<>();
+
+    private final Counter userConcurrencyRejections;
+    private final Counter totalConcurrencyRejections;
+    private final Counter quotaRejections;
+    private final Timer waits;
+
+    public UploadThrottle(StoredFileRepository storedFileRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${chat.files.throttle.bytes-per-second:10485760}") long bytesPerSecond,
+                          @Value("${chat.files.throttle.burst-bytes:4194304}") long burstBytes,
+                          @Value("${chat.files.throttle.max-concurrent-per-user:2}") int maxConcurrentPerUser,
+                          @Value("${chat.files.throttle.max-concurrent:32}") int maxConcurrent,
+                          @Value("${chat.files.quota-bytes:1073741824}") long quotaBytes) {
+        this.storedFileRepository = storedFileRepository;
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = Math.max(burstBytes, 1);
+        this.maxConcurrentPerUser = maxConcurrentPerUser;
+        this.quotaBytes = quotaBytes;
+        this.total = new Semaphore(maxConcurrent);
+
+        Gauge.builder("chat.files.uploads.active", total, s -> maxConcurrent - s.availablePermits())
+                .description("Uploads currently being received")
+                .register(meterRegistry);
+        this.userConcurrencyRejections = meterRegistry.counter("chat.files.throttle.rejected", "reason", "user-concurrency");
+        this.totalConcurrencyRejections = meterRegistry.counter("chat.files.throttle.rejected", "reason", "concurrency");
+        this.quotaRejections = meterRegistry.counter("chat.files.throttle.rejected", "reason", "quota");
+        this.waits = Timer.builder("chat.files.throttle.wait")
+                .description("Time upload reads spent waiting for the user's rate")
+                .register(meterRegistry);
+    }
+
+    // Admits an upload whose body adds up to declaredBytes to the user's storage
+    // (0 for chunks of an upload whose size was checked when it started). The
+    // permit must be closed when the request is done with the body.
+    public Permit admit(Long userId, long declaredBytes) {
+        if (!total.tryAcquire()) {
+            totalConcurrencyRejections.increment();
+            throw new UploadRejectedException(HttpStatus.TOO_MANY_REQUESTS, "Server is busy receiving uploads");
+        }
+        boolean[] admitted = new boolean[1];
+        UserState state = users.compute(userId, (key, existing) -> {
+            UserState current = existing != null ? existing : new UserState();
+            if (current.active < maxConcurrentPerUser) {
+                current.active++;
+                admitted[0] = true;
+            }
+            return current;
+        });
+        if (!admitted[0]) {
+            total.release();
+            userConcurrencyRejections.increment();
+            throw new UploadRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    "At most " + maxConcurrentPerUser + " uploads at a time");
+        }
+
+        try {
+            if (declaredBytes > 0) {
+                reserveQuota(userId, state, declaredBytes);
+            }
+        } catch (RuntimeException e) {
+            release(userId);
+            throw e;
+        }
+        return new Permit(userId, state, declaredBytes);
+    }
+
+    // For uploads admitted up front but whose bytes arrive later (chunked uploads),
+    // and for copies, which add to the user's storage without a body
+    public void checkQuota(Long userId, long additionalBytes) {
+        if (quotaBytes <= 0) {
+            return;
+        }
+        UserState state = users.get(userId);
+        long reserved = 0;
+        if (state != null) {
+            state.lock.lock();
+            try {
+                reserved = state.reserved;
+            } finally {
+                state.lock.unlock();
+            }
+        }
+        if (storedFileRepository.sumSizeByOwnerId(userId) + reserved + additionalBytes > quotaBytes) {
+            quotaRejections.increment();
+            throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Storage quota exceeded");
+        }
+    }
+
+    private void reserveQuota(Long userId, UserState state, long bytes) {
+        if (quotaBytes <= 0) {
+            return;
+        }
+        long used = storedFileRepository.sumSizeByOwnerId(userId);
+        state.lock.lock();
+        try {
+            if (used + state.reserved + bytes > quotaBytes) {
+                quotaRejections.increment();
+                throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Storage quota exceeded");
+            }
+            state.reserved += bytes;
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private void release(Long userId) {
+        users.computeIfPresent(userId, (key, current) -> {
+            current.active--;
+            return current;
+        });
+        total.release();
+    }
+
+    // Drops state for users with nothing in flight whose bucket has refilled
+    @Scheduled(fixedDelayString = "${chat.files.throttle.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        users.keySet().forEach(userId -> users.computeIfPresent(userId,
+                (key, state) -> state.active == 0 && state.isFull() ? null : state));
+    }
+
+    int getTrackedUsers() {
+        return users.size();
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final Long userId;
+        private final UserState state;
+        private final long declaredBytes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit(Long userId, UserState state, long declaredBytes) {
+            this.userId = userId;
+            this.state = state;
+            this.declaredBytes = declaredBytes;
+        }
+
+        // in, paced to the user's rate
+        public InputStream throttle(InputStream in) {
+            return bytesPerSecond > 0 ? new ThrottledInputStream(in, state) : in;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (declaredBytes > 0) {
+                state.lock.lock();
+                try {
+                    state.reserved = Math.max(0, state.reserved - declaredBytes);
+                } finally {
+                    state.lock.unlock();
+                }
+            }
+            release(userId);
+        }
+    }
+
+    // active is only touched inside users.compute, so eviction can't race an
+    // admission; the bucket and reserved bytes are guarded by lock
+    private final class UserState {
+
+        final ReentrantLock lock = new ReentrantLock();
+        int active;
+        long reserved;
+        double tokens = burstBytes;
+        long refilledAt = System.nanoTime();
+
+        // Takes bytes from the bucket, going into debt if need be; returns how
+        // long the caller should wait before using them
+        long reserve(long bytes) {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                refill(now);
+                tokens -= bytes;
+                return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFull() {
+            lock.lock();
+            try {
+                refill(System.nanoTime());
+                return tokens >= burstBytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burstBytes, tokens + (now - refilledAt) * bytesPerSecond / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+        }
+    }
+
+    private final class ThrottledInputStream extends FilterInputStream {
+
+        private final UserState state;
+
+        ThrottledInputStream(InputStream in, UserState state) {
+            super(in);
+            this.state = state;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                pace(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            // Never take more than a burst at once, so waits stay short and even
+            int read = super.read(buffer, offset, (int) Math.min(length, burstBytes));
+            if (read > 0) {
+                pace(read);
+            }
+            return read;
+        }
+
+        private void pace(long bytes) throws IOException {
+            long wait = state.reserve(bytes);
+            if (wait <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling upload");
+            }
+            waits.record(wait, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.chatapp.security;
+
+import com.chatapp.user.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.security.Principal;
+import java.util.List;
+
+// The authenticated caller, as the JWT filter puts it in the SecurityContext.
+// Controllers take it with @AuthenticationPrincipal; getName() is still the
+// email, so Principal parameters keep working unchanged. STOMP sessions carry
+// it too, wrapped in the Authentication set on CONNECT.
+public record ChatPrincipal(Long id, String email, String username, String status, List<String> roles)
+        implements Principal {
+
+    public static final List<String> DEFAULT_ROLES = List.of("ROLE_USER");
+    public static final List<String> ADMIN_ROLES = List.of("ROLE_USER", "ROLE_ADMIN");
+
+    public static ChatPrincipal of(User user) {
+        return of(user, DEFAULT_ROLES);
+    }
+
+    public static ChatPrincipal of(User user, List<String> roles) {
+        return new ChatPrincipal(user.getId(), user.getEmail(), user.getUsername(), user.getStatus(), roles);
+    }
+
+    // The ChatPrincipal behind a session or request user, or null if there is none
+    public static ChatPrincipal from(Principal user) {
+        if (user instanceof Authentication authentication) {
+            return authentication.getPrincipal() instanceof ChatPrincipal principal ? principal : null;
+        }
+        return user instanceof ChatPrincipal principal ? principal : null;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return AuthorityUtils.createAuthorityList(roles);
+    }
+}
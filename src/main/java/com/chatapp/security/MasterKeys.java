@@ -0,0 +1,75 @@
+package com.chatapp.security;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+// AES master keys for encryption at rest: a base64 key from configuration, else
+// one read from a key file, which can be generated with owner-only permissions
+// on first start so a fresh checkout works without setup.
+public final class MasterKeys {
+
+    private static final Log logger = LogFactory.getLog(MasterKeys.class);
+    private static final int GENERATED_KEY_BITS = 256;
+
+    private MasterKeys() {
+    }
+
+    // property names the configuration setting in errors and warnings. Returns
+    // null when there is no key and generate is false.
+    public static SecretKey load(String property, String configured, String file, boolean generate)
+            throws IOException {
+        if (configured != null && !configured.isBlank()) {
+            return decode(configured, property);
+        }
+        if (file == null || file.isBlank()) {
+            if (generate) {
+                throw new IllegalStateException(property + " or a key file is required");
+            }
+            return null;
+        }
+        Path path = Paths.get(file);
+        if (Files.exists(path)) {
+            return decode(Files.readString(path), path.toString());
+        }
+        if (!generate) {
+            return null;
+        }
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(GENERATED_KEY_BITS);
+            SecretKey key = generator.generateKey();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            }
+            Files.writeString(path, Base64.getEncoder().encodeToString(key.getEncoded()));
+            logger.warn("Generated a master key at " + path.toAbsolutePath() + "; set " + property
+                    + " from a secret store in production");
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES is not available", e);
+        }
+    }
+
+    private static SecretKey decode(String base64, String source) {
+        byte[] key = Base64.getDecoder().decode(base64.strip());
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalStateException(source + " must be a base64 AES key of 16, 24 or 32 bytes");
+        }
+        return new SecretKeySpec(key, "AES");
+    }
+}
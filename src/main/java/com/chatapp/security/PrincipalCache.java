@@ -0,0 +1,118 @@
+package com.chatapp.security;
+
+import com.chatapp.user.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Token subject (email) to ChatPrincipal, so an authenticated request doesn't
+// cost a users lookup. Entries live for ttl-ms at most; anything that changes a
+// user's username or status invalidates theirs, and the next request reloads it.
+//
+// A miss loads inside compute, so concurrent requests for one user share a
+// single query, and an invalidation waits for a load in progress rather than
+// letting it put back what it read before the change.
+//
+// Users listed in chat.admin.emails get ROLE_ADMIN. AuthService refuses to
+// register those emails, so the list can only promote accounts that already
+// exist, never one an outsider signs up for.
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Set<String> adminEmails;
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PrincipalCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                          @Value("${chat.security.principal-cache.ttl-ms:300000}") long ttlMillis,
+                          @Value("${chat.security.principal-cache.max-size:100000}") int maxSize,
+                          @Value("${chat.admin.emails:}") String adminEmails) {
+        this.userRepository = userRepository;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxSize = Math.max(1, maxSize);
+        this.adminEmails = Arrays.stream(adminEmails.split(","))
+                .map(String::trim)
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+
+        Gauge.builder("chat.security.principal.cache.size", cache, Map::size)
+                .description("Principals held in the cache")
+                .register(meterRegistry);
+        this.hits = meterRegistry.counter("chat.security.principal.cache", "result", "hit");
+        this.misses = meterRegistry.counter("chat.security.principal.cache", "result", "miss");
+    }
+
+    // The user with this email, or null if there is none
+    public ChatPrincipal resolve(String email) {
+        if (email == null) {
+            return null;
+        }
+        Entry entry = cache.get(email);
+        if (entry != null && isFresh(entry, System.nanoTime())) {
+            hits.increment();
+            return entry.principal();
+        }
+        misses.increment();
+        if (entry == null && cache.size() >= maxSize) {
+            // Approximate bound: drop whichever entry comes first
+            Iterator<String> iterator = cache.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        Entry loaded = cache.compute(email, (key, current) -> current != null && isFresh(current, System.nanoTime())
+                ? current
+                : userRepository.findByEmail(key)
+                        .map(user -> new Entry(ChatPrincipal.of(user,
+                                adminEmails.contains(key) ? ChatPrincipal.ADMIN_ROLES : ChatPrincipal.DEFAULT_ROLES),
+                                System.nanoTime()))
+                        .orElse(null));
+        return loaded == null ? null : loaded.principal();
+    }
+
+    public boolean isAdminEmail(String email) {
+        return email != null && adminEmails.contains(email);
+    }
+
+    // Call after saving a change to the user
+    public void invalidate(String email) {
+        if (email != null) {
+            cache.remove(email);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.security.principal-cache.ttl-ms:300000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        cache.values().removeIf(entry -> !isFresh(entry, now));
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private boolean isFresh(Entry entry, long now) {
+        return now - entry.loadedAt() < ttlNanos;
+    }
+
+    private record Entry(ChatPrincipal principal, long loadedAt) {
+    }
+}
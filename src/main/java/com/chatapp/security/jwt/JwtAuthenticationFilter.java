@@ -1,5 +1,8 @@
 package com.chatapp.security.jwt;
 
+import com.chatapp.security.ChatPrincipal;
+import com.chatapp.security.PrincipalCache;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -16,9 +19,14 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final PrincipalCache principalCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenRevocationStore tokenRevocationStore,
+                                   PrincipalCache principalCache) {
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -27,12 +35,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             String token = getJwtFromRequest(request);
+            Claims claims = token != null ? jwtUtil.getValidClaims(token) : null;
 
-            if (token != null && jwtUtil.validateToken(token) && !jwtUtil.isTokenExpired(token)) {
-                String username = jwtUtil.extractUsername(token);
+            // A token for a user that no longer exists authenticates nobody
+            ChatPrincipal principal = claims != null && !tokenRevocationStore.isRevoked(claims.getId())
+                    ? principalCache.resolve(claims.getSubject()) : null;
 
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                        username, null, null);
+                        principal, null, principal.authorities());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(auth);
@@ -0,0 +1,67 @@
+package com.chatapp.security.jwt;
+
+import com.chatapp.security.ChatPrincipal;
+import com.chatapp.security.PrincipalCache;
+import io.jsonwebtoken.Claims;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+// Authenticates STOMP sessions. The WebSocket handshake is open (browsers can't
+// set headers on it), so the client sends "Authorization: Bearer <token>" as a
+// CONNECT header instead; the session's user is then the token's principal for
+// every later frame. A CONNECT without a valid token is refused.
+//
+// Clients subscribe under /user/queue/..., which resolves to their own session.
+// Subscribing to the resolved /queue/... destination directly would bypass that,
+// so it is refused too.
+@Component
+public class JwtChannelInterceptor implements ChannelInterceptor {
+
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final PrincipalCache principalCache;
+
+    public JwtChannelInterceptor(JwtUtil jwtUtil, TokenRevocationStore tokenRevocationStore,
+                                 PrincipalCache principalCache) {
+        this.jwtUtil = jwtUtil;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.principalCache = principalCache;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            ChatPrincipal principal = authenticate(accessor.getFirstNativeHeader("Authorization"));
+            accessor.setUser(new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && accessor.getDestination() != null && accessor.getDestination().startsWith("/queue/")) {
+            throw new AccessDeniedException("Subscribe to /user" + accessor.getDestination() + " instead");
+        }
+        return message;
+    }
+
+    private ChatPrincipal authenticate(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new BadCredentialsException("Missing bearer token");
+        }
+        Claims claims = jwtUtil.getValidClaims(authorization.substring(7));
+        ChatPrincipal principal = claims != null && !tokenRevocationStore.isRevoked(claims.getId())
+                ? principalCache.resolve(claims.getSubject()) : null;
+        if (principal == null) {
+            throw new BadCredentialsException("Invalid token");
+        }
+        return principal;
+    }
+}
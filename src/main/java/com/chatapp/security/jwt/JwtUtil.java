@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -17,16 +18,25 @@ public class JwtUtil {
     @Value("${jwt.secret:SecureChatPlatformSecretKeyForJWTGeneration123456789}")
     private String secret;
 
-    @Value("${jwt.expiration:86400000}")
-    private long expiration; // 1 day in milliseconds
+    @Value("${jwt.expiration:300000}")
+    private long expiration; // 5 minutes in milliseconds; clients renew with a refresh token
 
+    private volatile Key signingKey;
+
+    // Built once: with short-lived tokens every renewal signs one, and every
+    // request verifies one
     private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        Key key = signingKey;
+        if (key == null) {
+            key = Keys.hmacShaKeyFor(secret.getBytes());
+            signingKey = key;
+        }
+        return key;
     }
 
     public String generateToken(String username) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
@@ -50,6 +60,16 @@ public class JwtUtil {
         }
     }
 
+    // Claims of a token with a valid signature that hasn't expired, else null.
+    // Parses once, for callers that need several claims.
+    public Claims getValidClaims(String token) {
+        try {
+            return getClaimsFromToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public boolean isTokenExpired(String token) {
         Date expiration = getClaimsFromToken(token).getExpiration();
         return expiration.before(new Date());
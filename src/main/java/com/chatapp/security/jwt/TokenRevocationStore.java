@@ -0,0 +1,163 @@
+package com.chatapp.security.jwt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Denylist of revoked token ids (jti), checked on every authenticated request.
+// A Bloom filter answers "not revoked" for almost every token from a few reads
+// of a bit array; only tokens it flags reach the exact set, which remembers each
+// id until the token would have expired anyway. Bloom filters can't forget, so
+// the sweep rebuilds the filter from the set whenever entries expire.
+//
+// Revocations are rare and serialised on this object; checks take no lock.
+// State is in memory only: a restart forgets revocations, and every instance
+// keeps its own.
+@Component
+public class TokenRevocationStore {
+
+    private final int expectedTokens;
+    private final double falsePositiveRate;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private int insertionsSinceRebuild;
+
+    private final Counter revocations;
+    private final Counter falsePositives;
+
+    public TokenRevocationStore(MeterRegistry meterRegistry,
+                                @Value("${jwt.revocation.expected-tokens:100000}") int expectedTokens,
+                                @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.expectedTokens = Math.max(expectedTokens, 1);
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(this.expectedTokens, falsePositiveRate);
+
+        Gauge.builder("jwt.revocation.tokens", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+        this.revocations = meterRegistry.counter("jwt.revocation.revoked");
+        this.falsePositives = meterRegistry.counter("jwt.revocation.false-positives");
+    }
+
+    // expiresAtMillis is the token's exp; the id is forgotten after that
+    public synchronized void revoke(String tokenId, long expiresAtMillis) {
+        if (tokenId == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        if (revoked.put(tokenId, expiresAtMillis) != null) {
+            return;
+        }
+        revocations.increment();
+        if (++insertionsSinceRebuild > filter.capacity) {
+            // Over capacity the false positive rate climbs; grow instead
+            rebuild();
+        } else {
+            filter.put(hash(tokenId));
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(hash(tokenId))) {
+            return false;
+        }
+        if (revoked.containsKey(tokenId)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sweep-interval-ms:60000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        if (revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            rebuild();
+        }
+    }
+
+    int size() {
+        return revoked.size();
+    }
+
+    // Caller holds the lock. The new filter is filled before it is published, so
+    // a check never sees a filter missing a revoked id.
+    private void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, 2 * revoked.size()), falsePositiveRate);
+        for (String tokenId : revoked.keySet()) {
+            rebuilt.put(hash(tokenId));
+        }
+        filter = rebuilt;
+        insertionsSinceRebuild = revoked.size();
+    }
+
+    // 64-bit hash of the id, split into the two halves double hashing needs
+    private static long hash(String tokenId) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < tokenId.length(); i++) {
+            h = (h ^ tokenId.charAt(i)) * 0xBF58476D1CE4E5B9L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    // Standard sizing: m = -n ln p / (ln 2)^2 bits and k = (m / n) ln 2 probes,
+    // derived from two hashes as h1 + i * h2 (Kirsch-Mitzenmacher)
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int probes;
+        private final int capacity;
+
+        BloomFilter(int capacity, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long wanted = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            int wordCount = (int) Math.min(Math.max((wanted + 63) / 64, 1), Integer.MAX_VALUE - 8);
+            this.words = new AtomicLongArray(wordCount);
+            this.bits = wordCount * 64L;
+            this.probes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+            this.capacity = capacity;
+        }
+
+        void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= probes; i++) {
+                long bit = index(h1 + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= probes; i++) {
+                long bit = index(h1 + i * h2);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long index(int combined) {
+            return (combined & 0xFFFFFFFFL) % bits;
+        }
+    }
+}
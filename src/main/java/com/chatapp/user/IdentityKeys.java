@@ -0,0 +1,59 @@
+package com.chatapp.user;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A user's long-term public keys for end-to-end encryption: the identity key and
+// the current signed prekey. One-time prekeys are held by PrekeyService.
+@Entity
+@Table(name = "identity_keys")
+public class IdentityKeys {
+
+    @Id
+    private Long userId;
+
+    // Base64 public keys and signature, as uploaded
+    @Column(nullable = false, length = 64)
+    private String identityKey;
+
+    @Column(nullable = false)
+    private Integer signedPrekeyId;
+
+    @Column(nullable = false, length = 64)
+    private String signedPrekey;
+
+    @Column(nullable = false, length = 128)
+    private String signedPrekeySignature;
+
+    private LocalDateTime updatedAt;
+
+    public IdentityKeys() {}
+
+    public IdentityKeys(Long userId) {
+        this.userId = userId;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getIdentityKey() { return identityKey; }
+    public void setIdentityKey(String identityKey) { this.identityKey = identityKey; }
+
+    public Integer getSignedPrekeyId() { return signedPrekeyId; }
+    public void setSignedPrekeyId(Integer signedPrekeyId) { this.signedPrekeyId = signedPrekeyId; }
+
+    public String getSignedPrekey() { return signedPrekey; }
+    public void setSignedPrekey(String signedPrekey) { this.signedPrekey = signedPrekey; }
+
+    public String getSignedPrekeySignature() { return signedPrekeySignature; }
+    public void setSignedPrekeySignature(String signedPrekeySignature) { this.signedPrekeySignature = signedPrekeySignature; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
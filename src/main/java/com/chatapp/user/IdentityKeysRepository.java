@@ -0,0 +1,6 @@
+package com.chatapp.user;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IdentityKeysRepository extends JpaRepository<IdentityKeys, Long> {
+}
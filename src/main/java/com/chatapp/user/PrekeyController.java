@@ -0,0 +1,52 @@
+package com.chatapp.user;
+
+import com.chatapp.api.dto.ApiResponse;
+import com.chatapp.api.dto.PrekeyBundleDTO;
+import com.chatapp.api.dto.PrekeyCountDTO;
+import com.chatapp.security.ChatPrincipal;
+import com.chatapp.user.service.PrekeyService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/keys")
+public class PrekeyController {
+
+    private final PrekeyService prekeyService;
+
+    public PrekeyController(PrekeyService prekeyService) {
+        this.prekeyService = prekeyService;
+    }
+
+    // UPLOAD MY KEYS (identity key, signed prekey and/or a batch of one-time prekeys)
+    @PutMapping
+    public ResponseEntity<ApiResponse<PrekeyCountDTO>> upload(@RequestBody PrekeyUploadRequest request,
+                                                              @AuthenticationPrincipal ChatPrincipal principal) {
+        PrekeyCountDTO count = prekeyService.upload(principal.id(), request);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Keys uploaded successfully", count));
+    }
+
+    // GET MY ONE-TIME PREKEY COUNT (check after connecting, top up below the watermark)
+    @GetMapping("/count")
+    public ResponseEntity<ApiResponse<PrekeyCountDTO>> count(@AuthenticationPrincipal ChatPrincipal principal) {
+        PrekeyCountDTO count = prekeyService.getCount(principal.id());
+        return ResponseEntity.ok(new ApiResponse<>(true, "Prekey count retrieved successfully", count));
+    }
+
+    // GET A USER'S BUNDLE (consumes one of their one-time prekeys)
+    @GetMapping("/{userId}")
+    public ResponseEntity<ApiResponse<PrekeyBundleDTO>> bundle(@PathVariable Long userId) {
+        PrekeyBundleDTO bundle = prekeyService.fetchBundle(userId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Prekey bundle retrieved successfully", bundle));
+    }
+
+    // GET BUNDLES FOR SEVERAL USERS (e.g. when creating a group)
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<PrekeyBundleDTO>>> bundles(@RequestParam List<Long> userIds) {
+        List<PrekeyBundleDTO> bundles = prekeyService.fetchBundles(userIds);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Prekey bundles retrieved successfully", bundles));
+    }
+}
@@ -0,0 +1,54 @@
+package com.chatapp.user;
+
+import java.util.List;
+
+// Every part is optional, but a user's first upload needs the identity key and a
+// signed prekey. Keys and signatures are base64.
+public class PrekeyUploadRequest {
+    private String identityKey;
+    private SignedPrekey signedPrekey;
+    private List<OneTimePrekey> oneTimePrekeys;
+
+    public static class SignedPrekey {
+        private Integer keyId;
+        private String publicKey;
+        private String signature;
+
+        public Integer getKeyId() { return keyId; }
+        public void setKeyId(Integer keyId) { this.keyId = keyId; }
+
+        public String getPublicKey() { return publicKey; }
+        public void setPublicKey(String publicKey) { this.publicKey = publicKey; }
+
+        public String getSignature() { return signature; }
+        public void setSignature(String signature) { this.signature = signature; }
+    }
+
+    public static class OneTimePrekey {
+        private Integer keyId;
+        private String publicKey;
+
+        public OneTimePrekey() {}
+
+        public OneTimePrekey(Integer keyId, String publicKey) {
+            this.keyId = keyId;
+            this.publicKey = publicKey;
+        }
+
+        public Integer getKeyId() { return keyId; }
+        public void setKeyId(Integer keyId) { this.keyId = keyId; }
+
+        public String getPublicKey() { return publicKey; }
+        public void setPublicKey(String publicKey) { this.publicKey = publicKey; }
+    }
+
+    // Getters and Setters
+    public String getIdentityKey() { return identityKey; }
+    public void setIdentityKey(String identityKey) { this.identityKey = identityKey; }
+
+    public SignedPrekey getSignedPrekey() { return signedPrekey; }
+    public void setSignedPrekey(SignedPrekey signedPrekey) { this.signedPrekey = signedPrekey; }
+
+    public List<OneTimePrekey> getOneTimePrekeys() { return oneTimePrekeys; }
+    public void setOneTimePrekeys(List<OneTimePrekey> oneTimePrekeys) { this.oneTimePrekeys = oneTimePrekeys; }
+}
@@ -0,0 +1,289 @@
+package com.chatapp.user.service;
+
+import com.chatapp.api.dto.PrekeyBundleDTO;
+import com.chatapp.api.dto.PrekeyCountDTO;
+import com.chatapp.user.IdentityKeys;
+import com.chatapp.user.IdentityKeysRepository;
+import com.chatapp.user.PrekeyUploadRequest;
+import com.chatapp.websocket.UserSessionMessenger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Key distribution for end-to-end encryption (X3DH, as in the Signal protocol).
+// The server only stores and hands out public keys; it can't read messages.
+//
+// Identity keys and signed prekeys live in the database, with a bounded cache in
+// front since every bundle fetch needs them. One-time prekeys are kept in memory,
+// in a lock-free queue per user: a bundle fetch takes exactly one with a single
+// CAS, so a burst of group creations fetching the same members' bundles never
+// queues on a lock. They don't survive a restart; clients check GET /keys/count
+// after connecting and top up, which they also do when pushed a low count.
+@Service
+public class PrekeyService {
+
+    public static final String KEYS_DESTINATION = "/queue/keys";
+
+    private static final int SIGNATURE_BYTES = 64;
+
+    private final IdentityKeysRepository identityKeysRepository;
+    private final UserSessionMessenger messenger;
+    private final int maxOneTimePrekeys;
+    private final int maxBatch;
+    private final int lowWatermark;
+    private final int identityCacheSize;
+
+    private final ConcurrentHashMap<Long, OneTimePrekeyPool> pools = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, SignedKeys> identityCache = new ConcurrentHashMap<>();
+    private final AtomicLong storedPrekeys = new AtomicLong();
+
+    private final Counter consumed;
+    private final Counter exhausted;
+    private final Counter lowWatermarkNotices;
+    private final Counter identityCacheHits;
+    private final Counter identityCacheMisses;
+
+    public PrekeyService(IdentityKeysRepository identityKeysRepository, UserSessionMessenger messenger,
+                         MeterRegistry meterRegistry,
+                         @Value("${chat.keys.max-one-time-prekeys:500}") int maxOneTimePrekeys,
+                         @Value("${chat.keys.max-batch:100}") int maxBatch,
+                         @Value("${chat.keys.low-watermark:20}") int lowWatermark,
+                         @Value("${chat.keys.identity-cache-size:100000}") int identityCacheSize) {
+        this.identityKeysRepository = identityKeysRepository;
+        this.messenger = messenger;
+        this.maxOneTimePrekeys = maxOneTimePrekeys;
+        this.maxBatch = maxBatch;
+        this.lowWatermark = lowWatermark;
+        this.identityCacheSize = Math.max(1, identityCacheSize);
+
+        Gauge.builder("chat.keys.prekeys.stored", storedPrekeys, AtomicLong::get)
+                .description("One-time prekeys held for all users")
+                .register(meterRegistry);
+        this.consumed = meterRegistry.counter("chat.keys.prekeys.consumed");
+        this.exhausted = meterRegistry.counter("chat.keys.prekeys.exhausted");
+        this.lowWatermarkNotices = meterRegistry.counter("chat.keys.prekeys.low");
+        this.identityCacheHits = meterRegistry.counter("chat.keys.identity.cache", "result", "hit");
+        this.identityCacheMisses = meterRegistry.counter("chat.keys.identity.cache", "result", "miss");
+    }
+
+    // Publishes the caller's keys. A new identity key discards the one-time
+    // prekeys uploaded under the old one. Returns the one-time prekey count.
+    public PrekeyCountDTO upload(Long userId, PrekeyUploadRequest request) {
+        List<OneTimePrekey> batch = validateBatch(request.getOneTimePrekeys());
+        if (request.getIdentityKey() != null || request.getSignedPrekey() != null) {
+            IdentityKeys keys = identityKeysRepository.findById(userId).orElseGet(() -> new IdentityKeys(userId));
+            boolean identityChanged = false;
+            if (request.getIdentityKey() != null) {
+                requireKey(request.getIdentityKey(), "identityKey");
+                identityChanged = keys.getIdentityKey() != null && !keys.getIdentityKey().equals(request.getIdentityKey());
+                keys.setIdentityKey(request.getIdentityKey());
+            }
+            PrekeyUploadRequest.SignedPrekey signed = request.getSignedPrekey();
+            if (signed != null) {
+                if (signed.getKeyId() == null) {
+                    throw new IllegalArgumentException("signedPrekey.keyId is required");
+                }
+                requireKey(signed.getPublicKey(), "signedPrekey.publicKey");
+                requireBytes(signed.getSignature(), "signedPrekey.signature", SIGNATURE_BYTES);
+                keys.setSignedPrekeyId(signed.getKeyId());
+                keys.setSignedPrekey(signed.getPublicKey());
+                keys.setSignedPrekeySignature(signed.getSignature());
+            }
+            if (keys.getIdentityKey() == null || keys.getSignedPrekey() == null) {
+                throw new IllegalArgumentException("An identity key and a signed prekey are required");
+            }
+            IdentityKeys saved = identityKeysRepository.save(keys);
+            // Replaces any entry a concurrent lookup loaded before the save
+            identityCache.put(userId, SignedKeys.of(saved));
+            if (identityChanged) {
+                OneTimePrekeyPool pool = pools.get(userId);
+                if (pool != null) {
+                    pool.clear();
+                }
+            }
+        }
+        OneTimePrekeyPool pool = pools.computeIfAbsent(userId, id -> new OneTimePrekeyPool());
+        if (!batch.isEmpty()) {
+            pool.addAll(batch);
+        }
+        return new PrekeyCountDTO(pool.count(), lowWatermark);
+    }
+
+    public PrekeyCountDTO getCount(Long userId) {
+        OneTimePrekeyPool pool = pools.get(userId);
+        return new PrekeyCountDTO(pool == null ? 0 : pool.count(), lowWatermark);
+    }
+
+    // Takes one of the user's one-time prekeys, if any are left; no key is ever
+    // handed out twice
+    public PrekeyBundleDTO fetchBundle(Long userId) {
+        SignedKeys keys = signedKeys(userId);
+        if (keys == null) {
+            throw new RuntimeException("No keys published for this user");
+        }
+        return bundle(userId, keys);
+    }
+
+    // Bundles for several users at once (e.g. creating a group); users who have
+    // not published keys are left out
+    public List<PrekeyBundleDTO> fetchBundles(List<Long> userIds) {
+        if (userIds.size() > maxBatch) {
+            throw new IllegalArgumentException("At most " + maxBatch + " bundles per request");
+        }
+        List<PrekeyBundleDTO> bundles = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            SignedKeys keys = signedKeys(userId);
+            if (keys != null) {
+                bundles.add(bundle(userId, keys));
+            }
+        }
+        return bundles;
+    }
+
+    int getCachedIdentities() {
+        return identityCache.size();
+    }
+
+    private PrekeyBundleDTO bundle(Long userId, SignedKeys keys) {
+        OneTimePrekeyPool pool = pools.get(userId);
+        OneTimePrekey oneTime = pool == null ? null : pool.take(userId);
+        if (oneTime == null) {
+            exhausted.increment();
+        }
+        return new PrekeyBundleDTO(userId, keys.identityKey(), keys.signedPrekeyId(), keys.signedPrekey(),
+                keys.signature(), oneTime == null ? null : oneTime.keyId(),
+                oneTime == null ? null : oneTime.publicKey());
+    }
+
+    private SignedKeys signedKeys(Long userId) {
+        SignedKeys cached = identityCache.get(userId);
+        if (cached != null) {
+            identityCacheHits.increment();
+            return cached;
+        }
+        identityCacheMisses.increment();
+        if (identityCache.size() >= identityCacheSize) {
+            // Approximate bound: drop whichever entry comes first
+            Iterator<Long> iterator = identityCache.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        // Loading inside computeIfAbsent lets upload's put win over a stale load
+        return identityCache.computeIfAbsent(userId,
+                id -> identityKeysRepository.findById(id).map(SignedKeys::of).orElse(null));
+    }
+
+    private List<OneTimePrekey> validateBatch(List<PrekeyUploadRequest.OneTimePrekey> prekeys) {
+        if (prekeys == null || prekeys.isEmpty()) {
+            return List.of();
+        }
+        if (prekeys.size() > maxBatch) {
+            throw new IllegalArgumentException("At most " + maxBatch + " one-time prekeys per upload");
+        }
+        List<OneTimePrekey> batch = new ArrayList<>(prekeys.size());
+        for (PrekeyUploadRequest.OneTimePrekey prekey : prekeys) {
+            if (prekey.getKeyId() == null) {
+                throw new IllegalArgumentException("oneTimePrekeys.keyId is required");
+            }
+            requireKey(prekey.getPublicKey(), "oneTimePrekeys.publicKey");
+            batch.add(new OneTimePrekey(prekey.getKeyId(), prekey.getPublicKey()));
+        }
+        return batch;
+    }
+
+    // Curve25519 public keys: 32 bytes, or 33 with the Signal type prefix
+    private static void requireKey(String value, String name) {
+        requireBytes(value, name, 32, 33);
+    }
+
+    private static void requireBytes(String value, String name, int... lengths) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        int length;
+        try {
+            length = Base64.getDecoder().decode(value).length;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(name + " is not valid base64");
+        }
+        for (int allowed : lengths) {
+            if (length == allowed) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(name + " has the wrong length");
+    }
+
+    private void notifyLow(Long userId, int remaining) {
+        lowWatermarkNotices.increment();
+        messenger.sendToUser(userId, KEYS_DESTINATION, new PrekeyCountDTO(remaining, lowWatermark));
+    }
+
+    private record OneTimePrekey(int keyId, String publicKey) {
+    }
+
+    private record SignedKeys(String identityKey, Integer signedPrekeyId, String signedPrekey, String signature) {
+        static SignedKeys of(IdentityKeys keys) {
+            return new SignedKeys(keys.getIdentityKey(), keys.getSignedPrekeyId(), keys.getSignedPrekey(),
+                    keys.getSignedPrekeySignature());
+        }
+    }
+
+    // A Michael-Scott queue plus a separate count, since the queue's size() walks
+    // it. The count is reserved before keys are added, so it can briefly run
+    // ahead of the queue but never lets the pool grow past its limit.
+    private final class OneTimePrekeyPool {
+
+        private final Queue<OneTimePrekey> keys = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        void addAll(List<OneTimePrekey> batch) {
+            if (count.addAndGet(batch.size()) > maxOneTimePrekeys) {
+                count.addAndGet(-batch.size());
+                throw new IllegalArgumentException("At most " + maxOneTimePrekeys + " one-time prekeys can be stored");
+            }
+            keys.addAll(batch);
+            storedPrekeys.addAndGet(batch.size());
+        }
+
+        OneTimePrekey take(Long userId) {
+            OneTimePrekey key = keys.poll();
+            if (key == null) {
+                return null;
+            }
+            int remaining = count.decrementAndGet();
+            storedPrekeys.decrementAndGet();
+            consumed.increment();
+            // Exactly one fetch sees each of these values, so each is pushed once
+            if (remaining == lowWatermark || remaining == 0) {
+                notifyLow(userId, remaining);
+            }
+            return key;
+        }
+
+        void clear() {
+            while (keys.poll() != null) {
+                count.decrementAndGet();
+                storedPrekeys.decrementAndGet();
+            }
+        }
+
+        int count() {
+            return count.get();
+        }
+    }
+}
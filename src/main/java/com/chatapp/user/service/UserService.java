@@ -1,5 +1,6 @@
 package com.chatapp.user.service;
 
+import com.chatapp.security.PrincipalCache;
 import com.chatapp.user.User;
 import com.chatapp.user.UserRepository;
 import org.springframework.stereotype.Service;
@@ -8,9 +9,11 @@ import org.springframework.stereotype.Service;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, PrincipalCache principalCache) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     public User getUserById(Long id) {
@@ -21,12 +24,16 @@ public class UserService {
     public User updateUsername(Long id, String username) {
         User user = getUserById(id);
         user.setUsername(username);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
+        return saved;
     }
 
     public User updateStatus(Long id, String status) {
         User user = getUserById(id);
         user.setStatus(status);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
+        return saved;
     }
 }
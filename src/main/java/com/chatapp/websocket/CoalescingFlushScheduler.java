@@ -0,0 +1,32 @@
+package com.chatapp.websocket;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Flush timers for every coalescing session. Registered as a bean of this type
+// rather than as the executor itself: a ScheduledExecutorService bean would
+// replace the scheduler that runs the app's @Scheduled tasks.
+public class CoalescingFlushScheduler {
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public CoalescingFlushScheduler(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "ws-coalescing-flush-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public ScheduledExecutorService executor() {
+        return executor;
+    }
+
+    // Pending flushes are dropped; their sessions are closing with the context
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
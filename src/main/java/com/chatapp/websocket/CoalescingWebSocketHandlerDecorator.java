@@ -0,0 +1,67 @@
+package com.chatapp.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class CoalescingWebSocketHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final Map<String, CoalescingWebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowNanos;
+    private final long maxDelayNanos;
+    private final int maxBytes;
+
+    public CoalescingWebSocketHandlerDecorator(WebSocketHandler delegate, ScheduledExecutorService scheduler,
+                                               long windowMicros, long maxDelayMicros, int maxBytes) {
+        super(delegate);
+        this.scheduler = scheduler;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        CoalescingWebSocketSession coalescing =
+                new CoalescingWebSocketSession(session, scheduler, windowNanos, maxDelayNanos, maxBytes);
+        sessions.put(session.getId(), coalescing);
+        super.afterConnectionEstablished(coalescing);
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        super.handleMessage(resolve(session), message);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        super.handleTransportError(resolve(session), exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        CoalescingWebSocketSession coalescing = sessions.remove(session.getId());
+        if (coalescing != null) {
+            coalescing.discard();
+        }
+        super.afterConnectionClosed(coalescing != null ? coalescing : session, closeStatus);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private WebSocketSession resolve(WebSocketSession session) {
+        WebSocketSession coalescing = sessions.get(session.getId());
+        return coalescing != null ? coalescing : session;
+    }
+}
@@ -0,0 +1,172 @@
+package com.chatapp.websocket;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Buffers outbound STOMP text frames and writes them as a single WebSocket message.
+// STOMP frames are NULL-terminated, so clients split the concatenated payload back
+// into individual frames. A buffer is flushed once the session has been idle for the
+// window, once it reaches maxBytes, or once its oldest frame hits maxDelay.
+public class CoalescingWebSocketSession extends WebSocketSessionDecorator {
+
+    private static final Log logger = LogFactory.getLog(CoalescingWebSocketSession.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final long windowNanos;
+    private final long maxDelayNanos;
+    private final int maxBytes;
+
+    // Not a monitor: flushes write to the socket and would pin virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder buffer = new StringBuilder();
+    private long firstFrameAt;
+    private long lastFrameAt;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    public CoalescingWebSocketSession(WebSocketSession delegate, ScheduledExecutorService scheduler,
+                                      long windowNanos, long maxDelayNanos, int maxBytes) {
+        super(delegate);
+        this.scheduler = scheduler;
+        this.windowNanos = windowNanos;
+        this.maxDelayNanos = Math.max(windowNanos, maxDelayNanos);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        lock.lock();
+        try {
+            if (!(message instanceof TextMessage text) || closed) {
+                flushLocked();
+                getDelegate().sendMessage(message);
+                return;
+            }
+
+            // Payload length is measured in chars; STOMP frames are almost entirely ASCII
+            String payload = text.getPayload();
+            if (buffer.length() + payload.length() > maxBytes) {
+                flushLocked();
+                if (payload.length() >= maxBytes) {
+                    getDelegate().sendMessage(message);
+                    return;
+                }
+            }
+
+            long now = System.nanoTime();
+            if (buffer.length() == 0) {
+                firstFrameAt = now;
+            }
+            lastFrameAt = now;
+            buffer.append(payload);
+
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::onFlushTimer, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedSize() {
+        lock.lock();
+        try {
+            return buffer.length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops pending frames once the underlying connection is gone
+    public void discard() {
+        lock.lock();
+        try {
+            closed = true;
+            buffer.setLength(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        lock.lock();
+        try {
+            try {
+                flushLocked();
+            } catch (IOException e) {
+                logger.debug("Failed to flush coalesced frames before close", e);
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        super.close(status);
+    }
+
+    void onFlushTimer() {
+        lock.lock();
+        try {
+            flushScheduled = false;
+            if (buffer.length() == 0) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            long deadline = Math.min(lastFrameAt + windowNanos, firstFrameAt + maxDelayNanos);
+            if (now - deadline < 0) {
+                flushScheduled = true;
+                scheduler.schedule(this::onFlushTimer, deadline - now, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            try {
+                flushLocked();
+            } catch (IOException e) {
+                logger.warn("Failed to flush coalesced frames for session " + getId(), e);
+                closeQuietly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLocked() throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        String payload = buffer.toString();
+        buffer.setLength(0);
+        getDelegate().sendMessage(new TextMessage(payload));
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        buffer.setLength(0);
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            logger.debug("Failed to close session " + getId(), e);
+        }
+    }
+}
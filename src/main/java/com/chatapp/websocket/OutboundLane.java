@@ -0,0 +1,35 @@
+package com.chatapp.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+
+// Priority classes for frames on the client outbound channel, highest first
+public enum OutboundLane {
+
+    CALL,       // call signaling plus STOMP control frames (CONNECTED, RECEIPT, ERROR)
+    CHAT,
+    BACKGROUND; // presence and typing
+
+    public static OutboundLane classify(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return CALL;
+        }
+        return forDestination(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+    }
+
+    // User destinations arrive resolved, e.g. /queue/call-user{sessionId}
+    static OutboundLane forDestination(String destination) {
+        if (destination == null) {
+            return CHAT;
+        }
+        if (destination.startsWith("/queue/call") || destination.startsWith("/topic/call")) {
+            return CALL;
+        }
+        if (destination.startsWith("/queue/presence") || destination.startsWith("/topic/presence")
+                || destination.startsWith("/queue/typing") || destination.startsWith("/topic/typing")) {
+            return BACKGROUND;
+        }
+        return CHAT;
+    }
+}
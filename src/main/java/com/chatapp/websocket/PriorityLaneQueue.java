@@ -0,0 +1,436 @@
+package com.chatapp.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Work queue for the client outbound channel executor. Each OutboundLane has its
+// own bounded queue, and workers take from them by weighted round robin: a lane may
+// run up to its weight in tasks before lower lanes get a turn, and credits are
+// refilled once every lane with work ready has used its share.
+//
+// Within a lane, frames are kept per session and a session has at most one frame
+// in flight per lane, so each session receives a lane's frames in publish order
+// (and therefore in that lane's seq order). The lanes of one session are
+// independent: a call frame overtakes whatever chat the same session has queued.
+//
+// A full chat or background lane rejects the frame; the executor drops it and the
+// client recovers it through /app/replay. A full call lane never drops: the
+// publishing thread waits for space instead.
+public class PriorityLaneQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final Log logger = LogFactory.getLog(PriorityLaneQueue.class);
+
+    private static final OutboundLane[] LANES = OutboundLane.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition callNotFull = lock.newCondition();
+    private final List<Map<String, SessionFrames>> sessions = new ArrayList<>(LANES.length);
+    private final List<ArrayDeque<SessionFrames>> ready = new ArrayList<>(LANES.length);
+    private final int[] capacities;
+    private final int[] weights;
+    private final int[] credits;
+    private final int[] queued = new int[LANES.length];
+    private int readyCount;
+    private int count;
+
+    // Set while a worker delivers a frame. A worker that publishes (e.g. a hangup
+    // sent from a disconnect listener) must not wait for call lane space, since
+    // only workers make that space.
+    private final ThreadLocal<Boolean> delivering = new ThreadLocal<>();
+
+    private final Timer[] waitTimers = new Timer[LANES.length];
+    private final Counter[] rejected = new Counter[LANES.length];
+
+    public PriorityLaneQueue(int[] weights, int[] capacities, MeterRegistry meterRegistry) {
+        if (weights.length != LANES.length || capacities.length != LANES.length) {
+            throw new IllegalArgumentException("Expected one weight and capacity per lane " + List.of(LANES));
+        }
+        this.weights = weights.clone();
+        this.capacities = capacities.clone();
+        this.credits = weights.clone();
+        for (OutboundLane lane : LANES) {
+            int i = lane.ordinal();
+            if (weights[i] < 1 || capacities[i] < 1) {
+                throw new IllegalArgumentException("Lane weights and capacities must be positive");
+            }
+            sessions.add(new HashMap<>());
+            ready.add(new ArrayDeque<>());
+            String tag = lane.name().toLowerCase();
+            waitTimers[i] = Timer.builder("chat.ws.outbound.queue.wait")
+                    .description("Time outbound frames wait for a worker")
+                    .tag("lane", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            rejected[i] = meterRegistry.counter("chat.ws.outbound.rejected", "lane", tag);
+            Gauge.builder("chat.ws.outbound.queue.size", this, queue -> queue.size(lane))
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static OutboundLane laneOf(Runnable task) {
+        if (task instanceof Delivery delivery) {
+            return LANES[delivery.frames.lane];
+        }
+        return task instanceof MessageHandlingRunnable runnable
+                ? OutboundLane.classify(runnable.getMessage())
+                : OutboundLane.CHAT;
+    }
+
+    // Frames without a session (none are expected on the outbound channel) are not ordered
+    static String sessionOf(Runnable task) {
+        return task instanceof MessageHandlingRunnable runnable
+                ? SimpMessageHeaderAccessor.getSessionId(runnable.getMessage().getHeaders())
+                : null;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        int lane = laneOf(task).ordinal();
+        String sessionId = sessionOf(task);
+        lock.lock();
+        try {
+            if (queued[lane] >= capacities[lane] && !awaitCapacity(lane)) {
+                rejected[lane].increment();
+                return false;
+            }
+            SessionFrames frames = sessionId == null
+                    ? new SessionFrames(lane, null)
+                    : sessions.get(lane).computeIfAbsent(sessionId, id -> new SessionFrames(lane, id));
+            frames.entries.addLast(new Entry(task, System.nanoTime()));
+            queued[lane]++;
+            count++;
+            if (!frames.inFlight && frames.entries.size() == 1) {
+                markReady(frames);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock. Only the call lane waits; the others reject when full.
+    private boolean awaitCapacity(int lane) {
+        if (lane != OutboundLane.CALL.ordinal()) {
+            return false;
+        }
+        if (delivering.get() != null) {
+            return true;
+        }
+        try {
+            while (queued[lane] >= capacities[lane]) {
+                callNotFull.await();
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        // Only the call lane waits for space; the executor only ever calls offer
+        if (!offer(task)) {
+            throw new IllegalStateException("Outbound lane " + laneOf(task) + " is full");
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+        return offer(task);
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return readyCount == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (readyCount == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (readyCount == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            for (ArrayDeque<SessionFrames> lane : ready) {
+                if (!lane.isEmpty()) {
+                    return lane.peekFirst().entries.peekFirst().task;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object task) {
+        lock.lock();
+        try {
+            for (SessionFrames frames : allFrames()) {
+                Iterator<Entry> it = frames.entries.iterator();
+                while (it.hasNext()) {
+                    if (it.next().task.equals(task)) {
+                        it.remove();
+                        removed(frames, 1);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Queued frames, including those waiting behind their session's frame in flight
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size(OutboundLane lane) {
+        lock.lock();
+        try {
+            return queued[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            int remaining = 0;
+            for (int i = 0; i < capacities.length; i++) {
+                remaining += Math.max(0, capacities[i] - queued[i]);
+            }
+            return remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> sink) {
+        return drainTo(sink, Integer.MAX_VALUE);
+    }
+
+    // Used by shutdownNow(): hands back queued frames without regard to session order
+    @Override
+    public int drainTo(Collection<? super Runnable> sink, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            for (SessionFrames frames : allFrames()) {
+                int taken = 0;
+                while (drained < maxElements && !frames.entries.isEmpty()) {
+                    sink.add(frames.entries.pollFirst().task);
+                    drained++;
+                    taken++;
+                }
+                if (taken > 0) {
+                    removed(frames, taken);
+                }
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Snapshot in lane order, used by the executor for purge() and shutdownNow()
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> snapshot = new ArrayList<>(count);
+            for (SessionFrames frames : allFrames()) {
+                for (Entry entry : frames.entries) {
+                    snapshot.add(entry.task);
+                }
+            }
+            return snapshot.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock and has checked readyCount > 0
+    private Runnable dequeue() {
+        while (true) {
+            for (int i = 0; i < credits.length; i++) {
+                if (credits[i] > 0 && !ready.get(i).isEmpty()) {
+                    credits[i]--;
+                    SessionFrames frames = ready.get(i).pollFirst();
+                    readyCount--;
+                    Entry entry = frames.entries.pollFirst();
+                    frames.inFlight = true;
+                    queued[i]--;
+                    count--;
+                    if (i == OutboundLane.CALL.ordinal()) {
+                        callNotFull.signal();
+                    }
+                    waitTimers[i].record(System.nanoTime() - entry.enqueuedAt, TimeUnit.NANOSECONDS);
+                    return new Delivery(entry.task, frames);
+                }
+            }
+            System.arraycopy(weights, 0, credits, 0, weights.length);
+        }
+    }
+
+    // Releases the session's lane and hands its next frame to the workers
+    private void delivered(SessionFrames frames) {
+        lock.lock();
+        try {
+            frames.inFlight = false;
+            if (!frames.entries.isEmpty()) {
+                markReady(frames);
+            } else if (frames.sessionId != null) {
+                sessions.get(frames.lane).remove(frames.sessionId, frames);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock and has just taken `taken` entries out of frames
+    private void removed(SessionFrames frames, int taken) {
+        queued[frames.lane] -= taken;
+        count -= taken;
+        if (frames.lane == OutboundLane.CALL.ordinal()) {
+            callNotFull.signalAll();
+        }
+        if (frames.entries.isEmpty() && !frames.inFlight) {
+            ready.get(frames.lane).remove(frames);
+            readyCount--;
+            if (frames.sessionId != null) {
+                sessions.get(frames.lane).remove(frames.sessionId, frames);
+            }
+        }
+    }
+
+    private void markReady(SessionFrames frames) {
+        ready.get(frames.lane).addLast(frames);
+        readyCount++;
+        notEmpty.signal();
+    }
+
+    // Caller holds the lock. Unordered frames are only reachable through the ready queues.
+    private List<SessionFrames> allFrames() {
+        List<SessionFrames> all = new ArrayList<>();
+        for (int i = 0; i < LANES.length; i++) {
+            all.addAll(sessions.get(i).values());
+            for (SessionFrames frames : ready.get(i)) {
+                if (frames.sessionId == null) {
+                    all.add(frames);
+                }
+            }
+        }
+        return all;
+    }
+
+    private static final class SessionFrames {
+
+        private final int lane;
+        private final String sessionId;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private boolean inFlight;
+
+        SessionFrames(int lane, String sessionId) {
+            this.lane = lane;
+            this.sessionId = sessionId;
+        }
+    }
+
+    // What workers run: the frame, then the release of its session's lane. A failed
+    // send is logged here so it neither kills the worker nor holds up the session.
+    private final class Delivery implements Runnable {
+
+        private final Runnable task;
+        private final SessionFrames frames;
+
+        Delivery(Runnable task, SessionFrames frames) {
+            this.task = task;
+            this.frames = frames;
+        }
+
+        @Override
+        public void run() {
+            delivering.set(Boolean.TRUE);
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                logger.error("Failed to deliver outbound frame to session " + frames.sessionId, ex);
+            } finally {
+                delivering.remove();
+                delivered(frames);
+            }
+        }
+    }
+
+    private record Entry(Runnable task, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.chatapp.websocket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// ThreadPoolTaskExecutor whose work queue is a PriorityLaneQueue. Core and max pool
+// size should match, and all workers are started up front: a task handed to a new
+// worker directly would skip the queue and with it the per-session lane order.
+// Frames a full chat or background lane rejects are dropped (and counted by the
+// queue) rather than failing the code that published them; the client sees a seq
+// gap and replays it. The call lane never rejects.
+public class PriorityLaneTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final int[] weights;
+    private final int[] capacities;
+    private final MeterRegistry meterRegistry;
+
+    public PriorityLaneTaskExecutor(int[] weights, int[] capacities, MeterRegistry meterRegistry) {
+        this.weights = weights.clone();
+        this.capacities = capacities.clone();
+        this.meterRegistry = meterRegistry;
+        setPrestartAllCoreThreads(true);
+        setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+        return new PriorityLaneQueue(weights, capacities, meterRegistry);
+    }
+}
@@ -0,0 +1,200 @@
+package com.chatapp.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per-user outbound sequence numbers plus a bounded ring of recent frames, so a
+// reconnecting client can ask for what it missed instead of reloading its inbox.
+// Each outbound lane has its own stream: call frames overtake chat on the way out,
+// so one sequence across both would look like gaps to the client.
+// Streams only exist for users that were online recently. A stream that is evicted
+// and created again restarts at seq 1 under a new epoch, so a client still holding
+// the old epoch's seq is told it has a gap instead of deduplicating new frames away.
+@Component
+public class ReplayBuffer {
+
+    private final ConcurrentHashMap<StreamKey, UserStream> streams = new ConcurrentHashMap<>();
+    private final SessionRegistry sessionRegistry;
+    private final int capacity;
+    private final long retentionNanos;
+    // Seeded from the clock so epochs also differ from those handed out before a restart
+    private final AtomicLong epochs = new AtomicLong(System.currentTimeMillis());
+
+    public ReplayBuffer(SessionRegistry sessionRegistry,
+                        @Value("${chat.ws.replay.capacity:256}") int capacity,
+                        @Value("${chat.ws.replay.retention-ms:120000}") long retentionMs) {
+        this.sessionRegistry = sessionRegistry;
+        this.capacity = capacity;
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos(retentionMs);
+    }
+
+    // Assigns the next sequence number and runs the publisher while holding the
+    // stream lock, so frames are published in sequence order. The outbound channel
+    // keeps publish order per session within a lane (see WebSocketConfig), so each
+    // session also receives a lane's frames in that order.
+    public long append(Long userId, String destination, Object payload, Publisher publisher) {
+        StreamKey key = new StreamKey(userId, OutboundLane.forDestination(destination));
+        UserStream stream = sessionRegistry.isOnline(userId)
+                ? streams.computeIfAbsent(key, k -> new UserStream(epochs.incrementAndGet(), capacity))
+                : streams.get(key);
+        if (stream == null) {
+            publisher.publish(0L, 0L);
+            return 0L;
+        }
+        return stream.append(destination, payload, publisher);
+    }
+
+    // A lastSeq from another epoch (or with no epoch) cannot be compared with this
+    // stream's sequence, so it is reported as a gap
+    public Window since(Long userId, OutboundLane lane, long epoch, long lastSeq) {
+        UserStream stream = streams.get(new StreamKey(userId, lane));
+        if (stream == null) {
+            return new Window(Collections.emptyList(), 0L, 0L, lastSeq > 0);
+        }
+        return stream.since(epoch, lastSeq);
+    }
+
+    public long getHeadSeq(Long userId, OutboundLane lane) {
+        UserStream stream = streams.get(new StreamKey(userId, lane));
+        return stream == null ? 0L : stream.getHeadSeq();
+    }
+
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.ws.replay.sweep-interval-ms:30000}")
+    public void evictIdleStreams() {
+        long now = System.nanoTime();
+        streams.forEach((key, stream) -> {
+            if (sessionRegistry.isOnline(key.userId())) {
+                stream.touch(now);
+            } else if (now - stream.getLastActiveAt() >= retentionNanos) {
+                streams.remove(key, stream);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    public interface Publisher {
+        // epoch and seq are both 0 when the user has no stream
+        void publish(long epoch, long seq);
+    }
+
+    private record StreamKey(Long userId, OutboundLane lane) {
+    }
+
+    public static final class Frame {
+
+        private final long seq;
+        private final String destination;
+        private final Object payload;
+
+        Frame(long seq, String destination, Object payload) {
+            this.seq = seq;
+            this.destination = destination;
+            this.payload = payload;
+        }
+
+        public long getSeq() { return seq; }
+
+        public String getDestination() { return destination; }
+
+        public Object getPayload() { return payload; }
+    }
+
+    public static final class Window {
+
+        private final List<Frame> frames;
+        private final long epoch;
+        private final long headSeq;
+        private final boolean gap;
+
+        Window(List<Frame> frames, long epoch, long headSeq, boolean gap) {
+            this.frames = frames;
+            this.epoch = epoch;
+            this.headSeq = headSeq;
+            this.gap = gap;
+        }
+
+        public List<Frame> getFrames() { return frames; }
+
+        public long getEpoch() { return epoch; }
+
+        public long getHeadSeq() { return headSeq; }
+
+        // True when frames after the requested sequence are no longer in memory
+        public boolean isGap() { return gap; }
+    }
+
+    private static final class UserStream {
+
+        // The publisher runs under this lock, so keep it off the monitor to avoid pinning
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long epoch;
+        private final Frame[] ring;
+        private long headSeq;
+        private volatile long lastActiveAt = System.nanoTime();
+
+        UserStream(long epoch, int capacity) {
+            this.epoch = epoch;
+            this.ring = new Frame[capacity];
+        }
+
+        long append(String destination, Object payload, Publisher publisher) {
+            lock.lock();
+            try {
+                long seq = ++headSeq;
+                ring[(int) (seq % ring.length)] = new Frame(seq, destination, payload);
+                lastActiveAt = System.nanoTime();
+                publisher.publish(epoch, seq);
+                return seq;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Window since(long lastEpoch, long lastSeq) {
+            lock.lock();
+            try {
+                long oldestSeq = Math.max(1, headSeq - ring.length + 1);
+                if ((lastSeq > 0 && lastEpoch != epoch) || lastSeq > headSeq || lastSeq + 1 < oldestSeq) {
+                    return new Window(Collections.emptyList(), epoch, headSeq, true);
+                }
+                List<Frame> frames = new ArrayList<>((int) (headSeq - lastSeq));
+                for (long seq = lastSeq + 1; seq <= headSeq; seq++) {
+                    frames.add(ring[(int) (seq % ring.length)]);
+                }
+                return new Window(frames, epoch, headSeq, false);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getHeadSeq() {
+            lock.lock();
+            try {
+                return headSeq;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void touch(long now) {
+            lastActiveAt = now;
+        }
+
+        long getLastActiveAt() {
+            return lastActiveAt;
+        }
+    }
+}
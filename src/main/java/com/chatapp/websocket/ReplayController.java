@@ -0,0 +1,53 @@
+package com.chatapp.websocket;
+
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+@Controller
+public class ReplayController {
+
+    private final SessionRegistry sessionRegistry;
+    private final ReplayBuffer replayBuffer;
+    private final UserSessionMessenger messenger;
+
+    public ReplayController(SessionRegistry sessionRegistry, ReplayBuffer replayBuffer,
+                            UserSessionMessenger messenger) {
+        this.sessionRegistry = sessionRegistry;
+        this.replayBuffer = replayBuffer;
+        this.messenger = messenger;
+    }
+
+    @MessageMapping("/replay")
+    public void replay(ReplayRequest request, SimpMessageHeaderAccessor headers) {
+        String sessionId = headers.getSessionId();
+        UserSession session = sessionRegistry.getSession(sessionId);
+        if (session == null) {
+            return;
+        }
+
+        OutboundLane lane;
+        try {
+            lane = request.getLane() == null
+                    ? OutboundLane.CHAT
+                    : OutboundLane.valueOf(request.getLane().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+
+        ReplayBuffer.Window window = replayBuffer.since(
+                session.getUserId(), lane, request.getEpoch(), request.getLastSeq());
+        for (ReplayBuffer.Frame frame : window.getFrames()) {
+            messenger.sendToSession(sessionId, frame.getDestination(), frame.getPayload(),
+                    window.getEpoch(), frame.getSeq());
+        }
+
+        // Only chat can be paged back in over REST; a call lane gap is just reported
+        Long resumeAfter = window.isGap() && lane == OutboundLane.CHAT
+                ? (request.getLastMessageId() != null ? request.getLastMessageId() : 0L)
+                : null;
+        messenger.sendToSession(sessionId, "/queue/replay",
+                new ReplayResponse(lane.name().toLowerCase(), window.getEpoch(), window.getHeadSeq(),
+                        window.getFrames().size(), window.isGap(), resumeAfter));
+    }
+}
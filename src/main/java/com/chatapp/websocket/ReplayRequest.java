@@ -0,0 +1,21 @@
+package com.chatapp.websocket;
+
+public class ReplayRequest {
+
+    private String lane;
+    private long epoch;
+    private long lastSeq;
+    private Long lastMessageId;
+
+    public String getLane() { return lane; }
+    public void setLane(String lane) { this.lane = lane; }
+
+    public long getEpoch() { return epoch; }
+    public void setEpoch(long epoch) { this.epoch = epoch; }
+
+    public long getLastSeq() { return lastSeq; }
+    public void setLastSeq(long lastSeq) { this.lastSeq = lastSeq; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+}
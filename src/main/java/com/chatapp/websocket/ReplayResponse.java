@@ -0,0 +1,41 @@
+package com.chatapp.websocket;
+
+public class ReplayResponse {
+
+    private String lane;
+    private long epoch;
+    private long headSeq;
+    private int replayed;
+    private boolean gap;
+    private Long resumeAfterMessageId; // set when the client must page GET /messages/receiver/{id}/after/{messageId}
+
+    public ReplayResponse() {}
+
+    public ReplayResponse(String lane, long epoch, long headSeq, int replayed, boolean gap,
+                          Long resumeAfterMessageId) {
+        this.lane = lane;
+        this.epoch = epoch;
+        this.headSeq = headSeq;
+        this.replayed = replayed;
+        this.gap = gap;
+        this.resumeAfterMessageId = resumeAfterMessageId;
+    }
+
+    public String getLane() { return lane; }
+    public void setLane(String lane) { this.lane = lane; }
+
+    public long getEpoch() { return epoch; }
+    public void setEpoch(long epoch) { this.epoch = epoch; }
+
+    public long getHeadSeq() { return headSeq; }
+    public void setHeadSeq(long headSeq) { this.headSeq = headSeq; }
+
+    public int getReplayed() { return replayed; }
+    public void setReplayed(int replayed) { this.replayed = replayed; }
+
+    public boolean isGap() { return gap; }
+    public void setGap(boolean gap) { this.gap = gap; }
+
+    public Long getResumeAfterMessageId() { return resumeAfterMessageId; }
+    public void setResumeAfterMessageId(Long resumeAfterMessageId) { this.resumeAfterMessageId = resumeAfterMessageId; }
+}
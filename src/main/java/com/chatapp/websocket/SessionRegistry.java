@@ -0,0 +1,112 @@
+package com.chatapp.websocket;
+
+import com.chatapp.security.ChatPrincipal;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tracks live STOMP sessions per user. The user is the one JwtChannelInterceptor
+// authenticated on CONNECT; clients may add a deviceId native header.
+@Component
+public class SessionRegistry {
+
+    public static final String DEVICE_ID_HEADER = "deviceId";
+
+    private static final UserSession[] NO_SESSIONS = new UserSession[0];
+
+    // Per-user arrays are copy-on-write so lookups never lock
+    private final ConcurrentHashMap<Long, UserSession[]> sessionsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UserSession> sessionsById = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        ChatPrincipal principal = ChatPrincipal.from(event.getUser());
+        if (accessor.getSessionId() == null || principal == null) {
+            return;
+        }
+        register(accessor.getSessionId(), principal.id(), accessor.getFirstNativeHeader(DEVICE_ID_HEADER));
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        unregister(event.getSessionId());
+    }
+
+    public void register(String sessionId, Long userId, String deviceId) {
+        UserSession session = new UserSession(sessionId, userId, deviceId);
+        UserSession previous = sessionsById.put(sessionId, session);
+        if (previous != null) {
+            removeFromUser(previous);
+        }
+        sessionsByUser.merge(userId, new UserSession[]{session}, SessionRegistry::concat);
+    }
+
+    public void unregister(String sessionId) {
+        UserSession session = sessionsById.remove(sessionId);
+        if (session != null) {
+            removeFromUser(session);
+        }
+    }
+
+    public List<UserSession> getSessions(Long userId) {
+        UserSession[] sessions = sessionsByUser.get(userId);
+        return sessions == null ? Collections.emptyList() : Arrays.asList(sessions);
+    }
+
+    public UserSession getSession(Long userId, String deviceId) {
+        UserSession[] sessions = sessionsByUser.getOrDefault(userId, NO_SESSIONS);
+        for (int i = sessions.length - 1; i >= 0; i--) {
+            if (sessions[i].getDeviceId() != null && sessions[i].getDeviceId().equals(deviceId)) {
+                return sessions[i];
+            }
+        }
+        return null;
+    }
+
+    public UserSession getSession(String sessionId) {
+        return sessionsById.get(sessionId);
+    }
+
+    public boolean isOnline(Long userId) {
+        return sessionsByUser.containsKey(userId);
+    }
+
+    public int getUserCount() {
+        return sessionsByUser.size();
+    }
+
+    public int getSessionCount() {
+        return sessionsById.size();
+    }
+
+    private void removeFromUser(UserSession session) {
+        sessionsByUser.computeIfPresent(session.getUserId(), (userId, sessions) -> {
+            for (int i = 0; i < sessions.length; i++) {
+                if (sessions[i].getSessionId().equals(session.getSessionId())) {
+                    if (sessions.length == 1) {
+                        return null;
+                    }
+                    UserSession[] remaining = new UserSession[sessions.length - 1];
+                    System.arraycopy(sessions, 0, remaining, 0, i);
+                    System.arraycopy(sessions, i + 1, remaining, i, sessions.length - i - 1);
+                    return remaining;
+                }
+            }
+            return sessions;
+        });
+    }
+
+    private static UserSession[] concat(UserSession[] current, UserSession[] added) {
+        UserSession[] result = Arrays.copyOf(current, current.length + added.length);
+        System.arraycopy(added, 0, result, current.length, added.length);
+        return result;
+    }
+}
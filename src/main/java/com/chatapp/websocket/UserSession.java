@@ -0,0 +1,20 @@
+package com.chatapp.websocket;
+
+public final class UserSession {
+
+    private final String sessionId;
+    private final Long userId;
+    private final String deviceId;
+
+    public UserSession(String sessionId, Long userId, String deviceId) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.deviceId = deviceId;
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    public Long getUserId() { return userId; }
+
+    public String getDeviceId() { return deviceId; }
+}
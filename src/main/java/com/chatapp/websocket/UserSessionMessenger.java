@@ -0,0 +1,73 @@
+package com.chatapp.websocket;
+
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Delivers frames straight to a user's registered sessions. Clients receive them
+// by subscribing to the destination under the /user prefix, e.g. /user/queue/call.
+// Frames sent with sendToUser carry a "seq" header, counted per user and outbound
+// lane (named in the "lane" header) within the stream's "epoch", and can be replayed.
+@Component
+public class UserSessionMessenger {
+
+    public static final String SEQUENCE_HEADER = "seq";
+    public static final String LANE_HEADER = "lane";
+    public static final String EPOCH_HEADER = "epoch";
+
+    private final SimpMessagingTemplate template;
+    private final SessionRegistry sessionRegistry;
+    private final ReplayBuffer replayBuffer;
+
+    public UserSessionMessenger(SimpMessagingTemplate template, SessionRegistry sessionRegistry,
+                                ReplayBuffer replayBuffer) {
+        this.template = template;
+        this.sessionRegistry = sessionRegistry;
+        this.replayBuffer = replayBuffer;
+    }
+
+    // Returns the number of sessions the payload was sent to
+    public int sendToUser(Long userId, String destination, Object payload) {
+        if (userId == null) {
+            return 0;
+        }
+        List<UserSession> sessions = sessionRegistry.getSessions(userId);
+        replayBuffer.append(userId, destination, payload, (epoch, seq) -> {
+            for (UserSession session : sessions) {
+                sendToSession(session.getSessionId(), destination, payload, epoch, seq);
+            }
+        });
+        return sessions.size();
+    }
+
+    public boolean sendToDevice(Long userId, String deviceId, String destination, Object payload) {
+        if (userId == null) {
+            return false;
+        }
+        UserSession session = sessionRegistry.getSession(userId, deviceId);
+        if (session == null) {
+            return false;
+        }
+        sendToSession(session.getSessionId(), destination, payload);
+        return true;
+    }
+
+    public void sendToSession(String sessionId, String destination, Object payload) {
+        sendToSession(sessionId, destination, payload, 0L, 0L);
+    }
+
+    public void sendToSession(String sessionId, String destination, Object payload, long epoch, long seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        if (seq > 0) {
+            accessor.setNativeHeader(SEQUENCE_HEADER, Long.toString(seq));
+            accessor.setNativeHeader(LANE_HEADER, OutboundLane.forDestination(destination).name().toLowerCase());
+            accessor.setNativeHeader(EPOCH_HEADER, Long.toString(epoch));
+        }
+        accessor.setLeaveMutable(true);
+        template.convertAndSendToUser(sessionId, destination, payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,252 @@
+package com.chatapp.admin.service;
+
+import com.chatapp.chat.Message;
+import com.chatapp.chat.service.MessageCipher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ImportService Tests")
+class ImportServiceTest {
+
+    private static final String MASTER_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private MessageCipher messageCipher;
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:import-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table users (id bigint auto_increment primary key, username varchar(255), "
+                + "email varchar(255) not null unique, password varchar(255), status varchar(255), "
+                + "created_at timestamp not null, updated_at timestamp)");
+        jdbcTemplate.execute("create table message (id bigint auto_increment primary key, sender_id bigint, "
+                + "receiver_id bigint, content varbinary(2048), delivered boolean, read boolean, toxic boolean, "
+                + "created_at timestamp not null)");
+
+        meterRegistry = new SimpleMeterRegistry();
+        messageCipher = new MessageCipher(meterRegistry, true, MASTER_KEY, null, 3, 8, 2);
+        // Chunks of 2 lines, so every test crosses chunk boundaries
+        importService = new ImportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                messageCipher, new ObjectMapper(), meterRegistry, 2, 100, 1000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("shutdown");
+        importService.destroy();
+    }
+
+    @Test
+    @DisplayName("Should import users from NDJSON")
+    void testImportUsersNdjson() {
+        // Act
+        ImportJob job = importService.importUsers(input(
+                "{\"email\":\"a@example.com\",\"username\":\"a\",\"password\":\"pa\"}",
+                "{\"email\":\"b@example.com\",\"username\":\"b\",\"password\":\"pb\"}",
+                "",
+                "{\"email\":\"c@example.com\",\"username\":\"c\",\"password\":\"pc\"}"
+        ), ImportFormat.NDJSON, 0);
+
+        // Assert
+        assertEquals(ImportJob.State.COMPLETED, job.getState());
+        assertEquals(3, job.getImported());
+        assertEquals(4, job.getCommittedLines());
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"), emails());
+        assertEquals("OFFLINE", jdbcTemplate.queryForObject(
+                "select status from users where email = 'a@example.com'", String.class));
+        assertEquals(3.0, meterRegistry.counter("chat.import.rows", "kind", "users", "result", "imported").count());
+    }
+
+    @Test
+    @DisplayName("Should import users from CSV with quoted fields")
+    void testImportUsersCsv() {
+        // Act
+        ImportJob job = importService.importUsers(input(
+                "\uFEFFusername,email,password",
+                "\"Smith, Jo\",jo@example.com,secret",
+                "\"say \"\"hi\"\"\",hi@example.com,secret"
+        ), ImportFormat.CSV, 0);
+
+        // Assert
+        assertEquals(ImportJob.State.COMPLETED, job.getState());
+        assertEquals(2, job.getImported());
+        assertEquals("Smith, Jo", jdbcTemplate.queryForObject(
+                "select username from users where email = 'jo@example.com'", String.class));
+        assertEquals("say \"hi\"", jdbcTemplate.queryForObject(
+                "select username from users where email = 'hi@example.com'", String.class));
+    }
+
+    @Test
+    @DisplayName("Should skip emails seen earlier in the input or already registered")
+    void testDuplicates() {
+        // Arrange
+        importService.importUsers(input(user("taken@example.com")), ImportFormat.NDJSON, 0);
+
+        // Act
+        ImportJob job = importService.importUsers(input(
+                user("new@example.com"),
+                user("new@example.com"),
+                user("taken@example.com"),
+                user("new@example.com")
+        ), ImportFormat.NDJSON, 0);
+
+        // Assert
+        assertEquals(ImportJob.State.COMPLETED, job.getState());
+        assertEquals(1, job.getImported());
+        assertEquals(3, job.getDuplicates());
+        assertEquals(List.of("new@example.com", "taken@example.com"), emails());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid lines with their line numbers and import the rest")
+    void testRejects() {
+        // Act
+        ImportJob job = importService.importUsers(input(
+                "not json",
+                "{\"email\":\"nope\",\"username\":\"a\",\"password\":\"p\"}",
+                "{\"email\":\"a@example.com\",\"password\":\"p\"}",
+                user("ok@example.com")
+        ), ImportFormat.NDJSON, 0);
+
+        // Assert
+        assertEquals(ImportJob.State.COMPLETED, job.getState());
+        assertEquals(1, job.getImported());
+        assertEquals(3, job.getRejected());
+        assertEquals(List.of("line 1: Invalid JSON", "line 2: email is not a valid email",
+                "line 3: username is required"), job.getErrors());
+    }
+
+    @Test
+    @DisplayName("Should skip the lines already committed when resuming")
+    void testResume() {
+        // Act
+        ImportJob job = importService.importUsers(input(
+                user("a@example.com"),
+                user("b@example.com"),
+                user("c@example.com")
+        ), ImportFormat.NDJSON, 2);
+
+        // Assert
+        assertEquals(1, job.getImported());
+        assertEquals(3, job.getCommittedLines());
+        assertEquals(List.of("c@example.com"), emails());
+    }
+
+    @Test
+    @DisplayName("Should fail with the committed line count when the input breaks")
+    void testFailure() {
+        // Arrange
+        InputStream broken = new InputStream() {
+            private final InputStream lines = input(user("a@example.com"), user("b@example.com"), "");
+
+            @Override
+            public int read() throws IOException {
+                int b = lines.read();
+                if (b < 0) {
+                    throw new IOException("Connection reset");
+                }
+                return b;
+            }
+        };
+
+        // Act
+        ImportJob job = importService.importUsers(broken, ImportFormat.NDJSON, 0);
+
+        // Assert
+        assertEquals(ImportJob.State.FAILED, job.getState());
+        assertEquals("Connection reset", job.getFailure());
+        assertEquals(2, job.getCommittedLines());
+        assertSame(job, importService.getJob(job.getId()));
+    }
+
+    @Test
+    @DisplayName("Should import messages sealed and addressed by email")
+    void testImportMessages() {
+        // Arrange
+        importService.importUsers(input(user("a@example.com"), user("b@example.com")), ImportFormat.NDJSON, 0);
+
+        // Act
+        ImportJob job = importService.importMessages(input(
+                "from,to,content,sentAt,read",
+                "a@example.com,b@example.com,\"hi, b\",2023-05-01T10:15:30Z,true",
+                "b@example.com,a@example.com,hello,,",
+                "a@example.com,ghost@example.com,anyone?,,"
+        ), ImportFormat.CSV, 0);
+
+        // Assert
+        assertEquals(ImportJob.State.COMPLETED, job.getState());
+        assertEquals(2, job.getImported());
+        assertEquals(List.of("line 3: Unknown receiver ghost@example.com"), job.getErrors());
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select m.sender_id, m.receiver_id, m.content, m.read from message m "
+                        + "join users u on u.id = m.sender_id where u.email = 'a@example.com'");
+        long senderId = ((Number) row.get("SENDER_ID")).longValue();
+        long receiverId = ((Number) row.get("RECEIVER_ID")).longValue();
+        byte[] sealed = (byte[]) row.get("CONTENT");
+        assertFalse(new String(sealed, StandardCharsets.ISO_8859_1).contains("hi, b"));
+        Message stored = new Message();
+        stored.setSenderId(senderId);
+        stored.setReceiverId(receiverId);
+        stored.setSealedContent(sealed);
+        assertEquals("hi, b", messageCipher.open(stored).getContent());
+        assertEquals(Boolean.TRUE, row.get("READ"));
+    }
+
+    @Test
+    @DisplayName("Should reject content too long to fit once sealed")
+    void testContentTooLong() {
+        // Arrange
+        importService.importUsers(input(user("a@example.com"), user("b@example.com")), ImportFormat.NDJSON, 0);
+
+        // Act
+        ImportJob job = importService.importMessages(input(
+                "{\"from\":\"a@example.com\",\"to\":\"b@example.com\",\"content\":\"" + "x".repeat(2048) + "\"}"
+        ), ImportFormat.NDJSON, 0);
+
+        // Assert
+        assertEquals(0, job.getImported());
+        assertEquals(1, job.getRejected());
+    }
+
+    @Test
+    @DisplayName("Should parse CSV fields with quotes and escaped quotes")
+    void testSplit() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), ImportFormat.split("a,\"b, c\",\"say \"\"hi\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> ImportFormat.split("a,\"b"));
+    }
+
+    private List<String> emails() {
+        return jdbcTemplate.queryForList("select email from users order by email", String.class);
+    }
+
+    private static String user(String email) {
+        return "{\"email\":\"" + email + "\",\"username\":\"u\",\"password\":\"p\"}";
+    }
+
+    private static InputStream input(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,6 +2,8 @@ package com.chatapp.auth;
 
 import com.chatapp.api.dto.ApiResponse;
 import com.chatapp.security.jwt.JwtUtil;
+import com.chatapp.security.jwt.TokenRevocationStore;
+import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,10 +12,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import com.chatapp.auth.RegisterRequest;
 import com.chatapp.auth.LoginRequest;
 
+import java.util.Date;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,11 +35,21 @@ class AuthControllerTest {
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private LoginThrottle loginThrottle;
+
     @InjectMocks
     private AuthController authController;
 
     private RegisterRequest registerRequest;
     private LoginRequest loginRequest;
+    private MockHttpServletRequest httpRequest;
 
     @BeforeEach
     void setUp() {
@@ -46,6 +61,9 @@ class AuthControllerTest {
         loginRequest = new LoginRequest();
         loginRequest.setEmail("test@example.com");
         loginRequest.setPassword("password123");
+
+        httpRequest = new MockHttpServletRequest();
+        httpRequest.setRemoteAddr("203.0.113.7");
     }
 
     @Test
@@ -102,7 +120,7 @@ class AuthControllerTest {
         when(jwtUtil.generateToken(loginRequest.getEmail())).thenReturn(expectedToken);
 
         // Act
-        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest);
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -122,7 +140,7 @@ class AuthControllerTest {
                 .thenThrow(new RuntimeException("Invalid credentials"));
 
         // Act
-        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest);
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
@@ -143,7 +161,7 @@ class AuthControllerTest {
         when(jwtUtil.generateToken(loginRequest.getEmail())).thenReturn(expectedToken);
 
         // Act
-        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest);
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest, httpRequest);
 
         // Assert
         assertNotNull(response.getBody());
@@ -162,7 +180,7 @@ class AuthControllerTest {
         when(jwtUtil.generateToken(loginRequest.getEmail())).thenReturn(expectedToken);
 
         // Act
-        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest);
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest, httpRequest);
 
         // Assert
         assertNotNull(response.getBody());
@@ -195,10 +213,155 @@ class AuthControllerTest {
         when(jwtUtil.generateToken(anyString())).thenReturn("token");
 
         // Act
-        authController.login(loginRequest);
+        authController.login(loginRequest, httpRequest);
 
         // Assert
         verify(jwtUtil, times(1)).generateToken("test@example.com");
     }
-}
 
+    @Test
+    @DisplayName("Should revoke the presented token and set the user offline on logout")
+    void testLogoutSuccess() {
+        // Arrange
+        Claims claims = mock(Claims.class);
+        when(claims.getId()).thenReturn("token-id");
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(claims.getExpiration()).thenReturn(new Date(5_000_000_000_000L));
+        when(jwtUtil.getValidClaims("token")).thenReturn(claims);
+
+        // Act
+        ResponseEntity<ApiResponse<Void>> response = authController.logout("Bearer token", null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().isSuccess());
+        verify(tokenRevocationStore, times(1)).revoke("token-id", 5_000_000_000_000L);
+        verify(authService, times(1)).logout("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should return 401 UNAUTHORIZED on logout without a valid token")
+    void testLogoutInvalidToken() {
+        // Arrange
+        when(jwtUtil.getValidClaims("expired")).thenReturn(null);
+
+        // Act
+        ResponseEntity<ApiResponse<Void>> missing = authController.logout(null, null);
+        ResponseEntity<ApiResponse<Void>> invalid = authController.logout("Bearer expired", null);
+
+        // Assert
+        assertEquals(HttpStatus.UNAUTHORIZED, missing.getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, invalid.getStatusCode());
+        verify(tokenRevocationStore, never()).revoke(anyString(), anyLong());
+        verify(authService, never()).logout(anyString());
+    }
+
+    @Test
+    @DisplayName("Should return a refresh token alongside the access token on login")
+    void testLoginReturnsRefreshToken() {
+        // Arrange
+        when(authService.login(loginRequest.getEmail(), loginRequest.getPassword())).thenReturn("LOGIN_SUCCESS");
+        when(jwtUtil.generateToken(loginRequest.getEmail())).thenReturn("access");
+        when(refreshTokenService.issue(loginRequest.getEmail())).thenReturn("session.secret");
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest, httpRequest);
+
+        // Assert
+        assertEquals("access", response.getBody().getData().get("token"));
+        assertEquals("session.secret", response.getBody().getData().get("refreshToken"));
+    }
+
+    @Test
+    @DisplayName("Should swap a refresh token for new tokens without checking the password")
+    void testRefreshSuccess() {
+        // Arrange
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken("session.old");
+        when(refreshTokenService.rotate("session.old"))
+                .thenReturn(new RefreshTokenService.Rotation("test@example.com", "session.new"));
+        when(jwtUtil.generateToken("test@example.com")).thenReturn("access");
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.refresh(request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("access", response.getBody().getData().get("token"));
+        assertEquals("session.new", response.getBody().getData().get("refreshToken"));
+        assertEquals("test@example.com", response.getBody().getData().get("email"));
+        verify(authService, never()).login(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should return 401 UNAUTHORIZED for a rejected refresh token")
+    void testRefreshFailure() {
+        // Arrange
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken("session.reused");
+        when(refreshTokenService.rotate("session.reused"))
+                .thenThrow(new RuntimeException("Refresh token reuse detected"));
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.refresh(request);
+
+        // Assert
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertEquals("Refresh token reuse detected", response.getBody().getMessage());
+        verify(jwtUtil, never()).generateToken(anyString());
+    }
+
+    @Test
+    @DisplayName("Should end the refresh token's session on logout")
+    void testLogoutRevokesRefreshToken() {
+        // Arrange
+        Claims claims = mock(Claims.class);
+        when(claims.getExpiration()).thenReturn(new Date(5_000_000_000_000L));
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(jwtUtil.getValidClaims("token")).thenReturn(claims);
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken("session.secret");
+
+        // Act
+        authController.logout("Bearer token", request);
+
+        // Assert
+        verify(refreshTokenService, times(1)).revoke("session.secret", "test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should return 429 TOO_MANY_REQUESTS without checking credentials while throttled")
+    void testLoginThrottled() {
+        // Arrange
+        when(loginThrottle.retryAfterSeconds("203.0.113.7", "test@example.com")).thenReturn(30L);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, String>>> response = authController.login(loginRequest, httpRequest);
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("30", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertFalse(response.getBody().isSuccess());
+        verifyNoInteractions(authService);
+        verify(loginThrottle, never()).recordFailure(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should record failed and successful logins with the throttle")
+    void testLoginRecordsAttempts() {
+        // Arrange
+        when(authService.login(loginRequest.getEmail(), "wrong")).thenThrow(new RuntimeException("Invalid credentials"));
+        when(authService.login(loginRequest.getEmail(), loginRequest.getPassword())).thenReturn("LOGIN_SUCCESS");
+        LoginRequest wrongPassword = new LoginRequest();
+        wrongPassword.setEmail(loginRequest.getEmail());
+        wrongPassword.setPassword("wrong");
+
+        // Act
+        authController.login(wrongPassword, httpRequest);
+        authController.login(loginRequest, httpRequest);
+
+        // Assert
+        verify(loginThrottle, times(1)).recordFailure("203.0.113.7", "test@example.com");
+        verify(loginThrottle, times(1)).recordSuccess("test@example.com");
+    }
+}
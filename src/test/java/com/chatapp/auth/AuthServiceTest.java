@@ -1,5 +1,6 @@
 package com.chatapp.auth;
 
+import com.chatapp.security.PrincipalCache;
 import com.chatapp.user.User;
 import com.chatapp.user.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,6 +25,9 @@ class AuthServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
     @InjectMocks
     private AuthService authService;
 
@@ -77,6 +81,19 @@ class AuthServiceTest {
         verify(userRepository, never()).save(any(User.class));
     }
 
+    @Test
+    @DisplayName("Should refuse to register a configured admin email")
+    void testRegisterAdminEmail() {
+        // Arrange
+        when(principalCache.isAdminEmail("root@example.com")).thenReturn(true);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> authService.register("mallory", "root@example.com", "password123"));
+        assertEquals("Email is reserved", exception.getMessage());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
     @Test
     @DisplayName("Should login user successfully")
     void testLoginUserSuccess() {
@@ -182,5 +199,32 @@ class AuthServiceTest {
         // Assert
         verify(userRepository, times(1)).save(any(User.class));
     }
-}
 
+    @Test
+    @DisplayName("Should set user offline on logout")
+    void testLogoutSetsOffline() {
+        // Arrange
+        testUser.setStatus("ONLINE");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+
+        // Act
+        authService.logout("test@example.com");
+
+        // Assert
+        verify(userRepository, times(1)).save(argThat(user -> "OFFLINE".equals(user.getStatus())));
+        verify(principalCache, times(1)).invalidate("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should ignore logout for unknown user")
+    void testLogoutUnknownUser() {
+        // Arrange
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+
+        // Act
+        authService.logout("nobody@example.com");
+
+        // Assert
+        verify(userRepository, never()).save(any(User.class));
+    }
+}
@@ -0,0 +1,163 @@
+package com.chatapp.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LoginThrottle Tests")
+class LoginThrottleTest {
+
+    private static final String IP = "203.0.113.7";
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // IP threshold 10, account threshold 3, lockouts of 1s doubling up to 4s
+        throttle = new LoginThrottle(meterRegistry, 10, 3, 1000, 4000, 60_000, 4, 1000);
+    }
+
+    @Test
+    @DisplayName("Should lock an account out once it reaches the failure threshold")
+    void testAccountLockout() {
+        // Arrange
+        throttle.recordFailure(IP, "alice@example.com");
+        throttle.recordFailure(IP, "alice@example.com");
+        assertEquals(0, throttle.retryAfterSeconds(IP, "alice@example.com"));
+
+        // Act
+        throttle.recordFailure(IP, "Alice@Example.com ");
+
+        // Assert
+        assertEquals(1, throttle.retryAfterSeconds(IP, "alice@example.com"));
+        assertEquals(1, throttle.retryAfterSeconds("198.51.100.1", "alice@example.com"));
+        assertEquals(0, throttle.retryAfterSeconds(IP, "bob@example.com"));
+        assertEquals(2.0, meterRegistry.counter("chat.auth.throttle.rejected", "scope", "account").count());
+    }
+
+    @Test
+    @DisplayName("Should double the lockout with every further failure up to the cap")
+    void testExponentialBackoff() {
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure(IP, "alice@example.com");
+        }
+        assertEquals(1, throttle.retryAfterSeconds(IP, "alice@example.com"));
+
+        throttle.recordFailure(IP, "alice@example.com");
+        assertEquals(2, throttle.retryAfterSeconds(IP, "alice@example.com"));
+
+        throttle.recordFailure(IP, "alice@example.com");
+        assertEquals(4, throttle.retryAfterSeconds(IP, "alice@example.com"));
+
+        throttle.recordFailure(IP, "alice@example.com");
+        assertEquals(4, throttle.retryAfterSeconds(IP, "alice@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should lock out an IP spraying many accounts")
+    void testIpLockout() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            throttle.recordFailure(IP, "user" + i + "@example.com");
+        }
+
+        // Assert
+        assertTrue(throttle.retryAfterSeconds(IP, "new@example.com") > 0);
+        assertEquals(0, throttle.retryAfterSeconds("198.51.100.1", "new@example.com"));
+        assertEquals(1.0, meterRegistry.counter("chat.auth.throttle.rejected", "scope", "ip").count());
+    }
+
+    @Test
+    @DisplayName("Should clear the account's failures on a successful login")
+    void testSuccessClearsAccount() {
+        // Arrange
+        throttle.recordFailure(IP, "alice@example.com");
+        throttle.recordFailure(IP, "alice@example.com");
+
+        // Act
+        throttle.recordSuccess("alice@example.com");
+        throttle.recordFailure(IP, "alice@example.com");
+
+        // Assert
+        assertEquals(0, throttle.retryAfterSeconds(IP, "alice@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should let a locked out account try again once the lockout ends")
+    void testLockoutExpires() throws InterruptedException {
+        // Arrange
+        throttle = new LoginThrottle(meterRegistry, 10, 1, 50, 50, 60_000, 4, 1000);
+        throttle.recordFailure(IP, "alice@example.com");
+        assertTrue(throttle.retryAfterSeconds(IP, "alice@example.com") > 0);
+
+        // Act
+        Thread.sleep(100);
+
+        // Assert
+        assertEquals(0, throttle.retryAfterSeconds(IP, "alice@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should stay within its entry bound under a spray of distinct keys")
+    void testBoundedMemory() {
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            throttle.recordFailure("10.0." + (i / 256) + "." + (i % 256), "user" + i + "@example.com");
+        }
+
+        // Assert: 1000 entries per table
+        assertTrue(throttle.getTrackedKeys() <= 2000);
+    }
+
+    @Test
+    @DisplayName("Should count every failure under concurrent logins")
+    void testConcurrentFailures() throws Exception {
+        // Arrange
+        throttle = new LoginThrottle(meterRegistry, 100_000, 8 * 500, 1000, 4000, 60_000, 4, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    throttle.recordFailure(IP, "alice@example.com");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert: the 4000th failure hit the account threshold exactly
+        assertEquals(1, throttle.retryAfterSeconds(IP, "alice@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should forget idle keys on eviction")
+    void testEvictIdle() throws InterruptedException {
+        // Arrange
+        throttle = new LoginThrottle(meterRegistry, 10, 3, 1000, 4000, 20, 4, 1000);
+        throttle.recordFailure(IP, "alice@example.com");
+        Thread.sleep(50);
+
+        // Act
+        throttle.evictIdle();
+
+        // Assert
+        assertEquals(0, throttle.getTrackedKeys());
+    }
+}
@@ -0,0 +1,166 @@
+package com.chatapp.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RefreshTokenService Tests")
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<String, RefreshToken> stored;
+    private RefreshTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        stored = new HashMap<>();
+        lenient().when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            stored.put(token.getId(), token);
+            return token;
+        });
+        lenient().when(refreshTokenRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<String>getArgument(0))));
+        lenient().doAnswer(invocation -> stored.remove(invocation.<String>getArgument(0)))
+                .when(refreshTokenRepository).deleteById(anyString());
+        lenient().when(refreshTokenRepository.rotate(anyString(), anyString(), anyString(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    RefreshToken token = stored.get(invocation.<String>getArgument(0));
+                    if (token == null || !token.getTokenHash().equals(invocation.getArgument(1))) {
+                        return 0;
+                    }
+                    token.setTokenHash(invocation.getArgument(2));
+                    token.setExpiresAt(invocation.getArgument(3));
+                    return 1;
+                });
+        meterRegistry = new SimpleMeterRegistry();
+        service = new RefreshTokenService(refreshTokenRepository, meterRegistry, 60_000);
+    }
+
+    @Test
+    @DisplayName("Should store only a hash of the token's secret")
+    void testIssueStoresHash() {
+        // Act
+        String token = service.issue("alice@example.com");
+
+        // Assert
+        String[] parts = token.split("\\.");
+        assertEquals(2, parts.length);
+        RefreshToken session = stored.get(parts[0]);
+        assertEquals("alice@example.com", session.getEmail());
+        assertEquals(64, session.getTokenHash().length());
+        assertFalse(session.getTokenHash().contains(parts[1]));
+    }
+
+    @Test
+    @DisplayName("Should rotate to a new token in the same session")
+    void testRotate() {
+        // Arrange
+        String first = service.issue("alice@example.com");
+
+        // Act
+        RefreshTokenService.Rotation second = service.rotate(first);
+        RefreshTokenService.Rotation third = service.rotate(second.refreshToken());
+
+        // Assert
+        assertEquals("alice@example.com", third.email());
+        assertNotEquals(first, second.refreshToken());
+        assertEquals(first.split("\\.")[0], third.refreshToken().split("\\.")[0]);
+        assertEquals(1, stored.size());
+        verify(refreshTokenRepository, times(2)).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("Should end the session when an old token is presented again")
+    void testReuseEndsSession() {
+        // Arrange
+        String first = service.issue("alice@example.com");
+        String second = service.rotate(first).refreshToken();
+
+        // Act
+        RuntimeException reuse = assertThrows(RuntimeException.class, () -> service.rotate(first));
+
+        // Assert
+        assertEquals("Refresh token reuse detected", reuse.getMessage());
+        assertThrows(RuntimeException.class, () -> service.rotate(second));
+        assertTrue(stored.isEmpty());
+        assertEquals(1.0, meterRegistry.counter("jwt.refresh.reused").count());
+    }
+
+    @Test
+    @DisplayName("Should end the session when another refresh wins the race for the same token")
+    void testConcurrentRotationEndsSession() {
+        // Arrange
+        String token = service.issue("alice@example.com");
+        doReturn(0).when(refreshTokenRepository)
+                .rotate(anyString(), anyString(), anyString(), any(LocalDateTime.class));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> service.rotate(token));
+        assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject malformed, unknown and expired tokens")
+    void testInvalidTokens() {
+        assertThrows(RuntimeException.class, () -> service.rotate(null));
+        assertThrows(RuntimeException.class, () -> service.rotate("no-separator"));
+        assertThrows(RuntimeException.class, () -> service.rotate("unknown.secret"));
+
+        String token = service.issue("alice@example.com");
+        stored.get(token.split("\\.")[0]).setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        RuntimeException expired = assertThrows(RuntimeException.class, () -> service.rotate(token));
+        assertEquals("Refresh token expired", expired.getMessage());
+        assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should end the session on revoke")
+    void testRevoke() {
+        // Arrange
+        String token = service.issue("alice@example.com");
+
+        // Act
+        service.revoke(token, "alice@example.com");
+        service.revoke(null, "alice@example.com");
+
+        // Assert
+        assertTrue(stored.isEmpty());
+        assertThrows(RuntimeException.class, () -> service.rotate(token));
+    }
+
+    @Test
+    @DisplayName("Should not revoke another user's session or a wrong secret")
+    void testRevokeRequiresOwnerAndSecret() {
+        // Arrange
+        String token = service.issue("alice@example.com");
+        String id = token.substring(0, token.indexOf('.'));
+
+        // Act
+        service.revoke(token, "mallory@example.com");
+        service.revoke(id + ".guessed", "alice@example.com");
+        service.revoke(id, "alice@example.com");
+
+        // Assert
+        assertEquals(1, stored.size());
+        verify(refreshTokenRepository, never()).deleteById(anyString());
+    }
+}
@@ -0,0 +1,82 @@
+package com.chatapp.call;
+
+import com.chatapp.call.service.CallRoomRegistry;
+import com.chatapp.call.service.CallSessionRegistry;
+import com.chatapp.websocket.SessionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CallController Tests")
+class CallControllerTest {
+
+    @Mock
+    private CallSessionRegistry callSessionRegistry;
+
+    @Mock
+    private CallRoomRegistry callRoomRegistry;
+
+    private SessionRegistry sessionRegistry;
+    private CallController callController;
+
+    @BeforeEach
+    void setUp() {
+        sessionRegistry = new SessionRegistry();
+        sessionRegistry.register("s1", 1L, null);
+        callController = new CallController(callSessionRegistry, callRoomRegistry, sessionRegistry);
+    }
+
+    @Test
+    @DisplayName("Should take the caller from the STOMP session, not the payload")
+    void testCallSenderFromSession() {
+        // Act
+        callController.call(new CallSignal(null, 99L, 2L, CallSignal.OFFER), headers("s1"));
+
+        // Assert
+        ArgumentCaptor<CallSignal> captor = ArgumentCaptor.forClass(CallSignal.class);
+        verify(callSessionRegistry).onSignal(captor.capture());
+        assertEquals(1L, captor.getValue().getCallerId());
+        assertEquals(2L, captor.getValue().getReceiverId());
+    }
+
+    @Test
+    @DisplayName("Should drop signals from an unregistered session")
+    void testCallWithoutSession() {
+        // Act
+        callController.call(new CallSignal(null, 1L, 2L, CallSignal.OFFER), headers("unknown"));
+
+        // Assert
+        verifyNoInteractions(callSessionRegistry);
+    }
+
+    @Test
+    @DisplayName("Should take the room signal sender from the STOMP session")
+    void testRoomSenderFromSession() {
+        // Arrange
+        CallSignal join = new CallSignal(null, 99L, null, CallSignal.JOIN);
+        join.setRoomId("standup");
+
+        // Act
+        callController.room(join, headers("s1"));
+
+        // Assert
+        ArgumentCaptor<CallSignal> captor = ArgumentCaptor.forClass(CallSignal.class);
+        verify(callRoomRegistry).onSignal(captor.capture());
+        assertEquals(1L, captor.getValue().getCallerId());
+    }
+
+    private static SimpMessageHeaderAccessor headers(String sessionId) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setSessionId(sessionId);
+        return headers;
+    }
+}
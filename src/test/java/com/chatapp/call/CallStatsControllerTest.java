@@ -0,0 +1,71 @@
+package com.chatapp.call;
+
+import com.chatapp.call.service.CallRoomRegistry;
+import com.chatapp.call.service.CallSession;
+import com.chatapp.call.service.CallSessionRegistry;
+import com.chatapp.call.service.CallStatsService;
+import com.chatapp.security.ChatPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CallStatsController Tests")
+class CallStatsControllerTest {
+
+    @Mock
+    private CallStatsService callStatsService;
+
+    @Mock
+    private CallSessionRegistry callSessionRegistry;
+
+    @Mock
+    private CallRoomRegistry callRoomRegistry;
+
+    private CallStatsController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new CallStatsController(callStatsService, callSessionRegistry, callRoomRegistry);
+    }
+
+    @Test
+    @DisplayName("Should record stats as the caller for the call they are in")
+    void testReportOwnCall() {
+        // Arrange
+        when(callSessionRegistry.getCall(1L)).thenReturn(new CallSession("call-1", 1L, 2L));
+        List<CallStatsSample> samples = List.of(new CallStatsSample());
+
+        // Act
+        controller.report("call-1", samples, principal(1L));
+
+        // Assert
+        verify(callStatsService).ingest(eq("call-1"), eq(1L), aryEq(new long[]{1L, 2L}), same(samples));
+    }
+
+    @Test
+    @DisplayName("Should refuse stats for a call the caller is not in")
+    void testReportOtherCall() {
+        // Arrange
+        when(callSessionRegistry.getCall(3L)).thenReturn(new CallSession("call-2", 3L, 4L));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class,
+                () -> controller.report("call-1", List.of(new CallStatsSample()), principal(3L)));
+        verifyNoInteractions(callStatsService);
+    }
+
+    private static ChatPrincipal principal(Long id) {
+        return new ChatPrincipal(id, "user" + id + "@example.com", "user" + id, "ONLINE", ChatPrincipal.DEFAULT_ROLES);
+    }
+}
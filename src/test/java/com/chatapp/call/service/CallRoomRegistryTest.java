@@ -0,0 +1,214 @@
+package com.chatapp.call.service;
+
+import com.chatapp.call.CallSignal;
+import com.chatapp.websocket.SessionRegistry;
+import com.chatapp.websocket.UserSessionMessenger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CallRoomRegistry Tests")
+class CallRoomRegistryTest {
+
+    private static final String ROOM = "standup";
+
+    @Mock
+    private CallRelay relay;
+
+    @Mock
+    private UserSessionMessenger messenger;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CallRoomRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CallRoomRegistry(relay, messenger, new SessionRegistry(), objectMapper,
+                new SimpleMeterRegistry(), 3, 100, 10);
+    }
+
+    @Test
+    @DisplayName("Should push the roster to every participant on join")
+    void testJoinPublishesRoster() throws Exception {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+        registry.onSignal(signal(1L, 2L, CallSignal.INVITE));
+
+        // Act
+        registry.onSignal(signal(2L, null, CallSignal.JOIN));
+
+        // Assert
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messenger, times(2)).sendToUser(eq(1L), eq(CallRoomRegistry.ROOM_DESTINATION), captor.capture());
+        JsonNode event = objectMapper.readTree((String) captor.getValue());
+        assertEquals("JOINED", event.get("type").asText());
+        assertEquals(2L, event.get("userId").asLong());
+        assertEquals(2L, event.get("version").asLong());
+        assertEquals(2, event.get("participants").size());
+        verify(messenger, times(2)).sendToUser(eq(2L), eq(CallRoomRegistry.ROOM_DESTINATION), any());
+    }
+
+    @Test
+    @DisplayName("Should relay pair signals only between participants")
+    void testRelayBetweenParticipants() {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+        registry.onSignal(signal(1L, 2L, CallSignal.INVITE));
+        registry.onSignal(signal(2L, null, CallSignal.JOIN));
+        CallSignal offer = signal(1L, 2L, CallSignal.OFFER);
+        CallSignal outsider = signal(3L, 2L, CallSignal.OFFER);
+
+        // Act
+        registry.onSignal(offer);
+        registry.onSignal(outsider);
+
+        // Assert
+        verify(relay).send(offer);
+        verify(relay, never()).send(outsider);
+    }
+
+    @Test
+    @DisplayName("Should reject joins once the room is full")
+    void testRoomFull() throws Exception {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+        for (long userId = 2; userId <= 4; userId++) {
+            registry.onSignal(signal(1L, userId, CallSignal.INVITE));
+        }
+        registry.onSignal(signal(2L, null, CallSignal.JOIN));
+        registry.onSignal(signal(3L, null, CallSignal.JOIN));
+
+        // Act
+        registry.onSignal(signal(4L, null, CallSignal.JOIN));
+
+        // Assert
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messenger, times(2)).sendToUser(eq(4L), eq(CallRoomRegistry.ROOM_DESTINATION), captor.capture());
+        assertEquals("FULL", objectMapper.readTree((String) captor.getValue()).get("type").asText());
+        assertNull(registry.getRoomOf(4L));
+        assertEquals(3, registry.getRoom(ROOM).getRoster().participants().length);
+    }
+
+    @Test
+    @DisplayName("Should deny joins from users nobody invited")
+    void testUninvitedJoinDenied() throws Exception {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+        registry.onSignal(signal(3L, 2L, CallSignal.INVITE)); // not a participant
+
+        // Act
+        registry.onSignal(signal(2L, null, CallSignal.JOIN));
+
+        // Assert
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messenger).sendToUser(eq(2L), eq(CallRoomRegistry.ROOM_DESTINATION), captor.capture());
+        assertEquals("DENIED", objectMapper.readTree((String) captor.getValue()).get("type").asText());
+        assertNull(registry.getRoomOf(2L));
+        assertFalse(registry.getRoom(ROOM).contains(2L));
+    }
+
+    @Test
+    @DisplayName("Should tell the invitee who invited them")
+    void testInviteNotifiesInvitee() throws Exception {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+
+        // Act
+        registry.onSignal(signal(1L, 2L, CallSignal.INVITE));
+
+        // Assert
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messenger).sendToUser(eq(2L), eq(CallRoomRegistry.ROOM_DESTINATION), captor.capture());
+        JsonNode event = objectMapper.readTree((String) captor.getValue());
+        assertEquals("INVITED", event.get("type").asText());
+        assertEquals(1L, event.get("userId").asLong());
+        assertTrue(registry.getRoom(ROOM).isInvited(2L));
+    }
+
+    @Test
+    @DisplayName("Should remove the room when the last participant leaves")
+    void testLastLeaveClosesRoom() {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+        CallRoom room = registry.getRoom(ROOM);
+
+        // Act
+        registry.onSignal(signal(1L, null, CallSignal.LEAVE));
+
+        // Assert
+        assertTrue(room.isClosed());
+        assertNull(registry.getRoom(ROOM));
+        assertEquals(0, registry.getRoomCount());
+        assertNull(registry.getRoomOf(1L));
+    }
+
+    @Test
+    @DisplayName("Should leave the current room when joining another")
+    void testJoinOtherRoomLeavesCurrent() {
+        // Arrange
+        registry.onSignal(signal(1L, null, CallSignal.JOIN));
+        registry.onSignal(signal(1L, 2L, CallSignal.INVITE));
+        registry.onSignal(signal(2L, null, CallSignal.JOIN));
+        CallSignal other = signal(2L, null, CallSignal.JOIN);
+        other.setRoomId("retro");
+
+        // Act
+        registry.onSignal(other);
+
+        // Assert
+        assertEquals("retro", registry.getRoomOf(2L));
+        assertFalse(registry.getRoom(ROOM).contains(2L));
+        verify(messenger, atLeastOnce()).sendToUser(anyLong(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should keep a user in exactly one room under concurrent joins")
+    void testConcurrentJoins() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> joins = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 400; i++) {
+            CallSignal join = signal(1L, null, CallSignal.JOIN);
+            join.setRoomId("room-" + (i % 4));
+            joins.add(executor.submit(() -> registry.onSignal(join)));
+        }
+        for (Future<?> join : joins) {
+            join.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        String current = registry.getRoomOf(1L);
+        assertNotNull(current);
+        assertTrue(registry.getRoom(current).contains(1L));
+        assertEquals(1, registry.getRoomCount());
+    }
+
+    private static CallSignal signal(Long from, Long to, String type) {
+        CallSignal signal = new CallSignal(null, from, to, type);
+        signal.setRoomId(ROOM);
+        return signal;
+    }
+}
@@ -0,0 +1,295 @@
+package com.chatapp.call.service;
+
+import com.chatapp.call.CallSignal;
+import com.chatapp.websocket.SessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CallSessionRegistry Tests")
+class CallSessionRegistryTest {
+
+    @Mock
+    private CallRelay relay;
+
+    @Mock
+    private CallStatsService callStatsService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CallSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new CallSessionRegistry(relay, new SessionRegistry(), callStatsService, meterRegistry, 2, 30000, 20000, 100, 1000, 32);
+    }
+
+    @Test
+    @DisplayName("Should ring on OFFER and assign a call id")
+    void testOfferStartsRinging() {
+        // Act
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Assert
+        CallSignal sent = lastSent();
+        assertNotNull(sent.getCallId());
+        assertEquals(CallSignal.OFFER, sent.getType());
+        assertEquals(CallState.RINGING, registry.getCall(2L).getState());
+        assertTrue(registry.isBusy(1L));
+        assertEquals(1, registry.getCallCount());
+    }
+
+    @Test
+    @DisplayName("Should move through connecting to active")
+    void testAnswerAndConnect() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Act
+        registry.onSignal(signal(2L, 1L, CallSignal.ANSWER));
+        CallState afterAnswer = registry.getCall(1L).getState();
+        registry.onSignal(signal(1L, 2L, CallSignal.CONNECTED));
+
+        // Assert
+        assertEquals(CallState.CONNECTING, afterAnswer);
+        assertEquals(CallState.ACTIVE, registry.getCall(1L).getState());
+        verify(relay, times(3)).send(any(CallSignal.class));
+    }
+
+    @Test
+    @DisplayName("Should drop a duplicate ANSWER")
+    void testDuplicateAnswerDropped() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        registry.onSignal(signal(2L, 1L, CallSignal.ANSWER));
+
+        // Act
+        registry.onSignal(signal(2L, 1L, CallSignal.ANSWER));
+
+        // Assert
+        verify(relay, times(2)).send(any(CallSignal.class));
+        assertEquals(1.0, meterRegistry.counter("chat.call.signals", "outcome", "dropped").count());
+    }
+
+    @Test
+    @DisplayName("Should let the lower user id win on glare")
+    void testGlareLowerIdWins() {
+        // Arrange
+        registry.onSignal(signal(2L, 1L, CallSignal.OFFER));
+
+        // Act
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Assert
+        CallSession call = registry.getCall(1L);
+        assertEquals(1L, call.getCallerId());
+        assertEquals(2L, call.getReceiverId());
+        assertEquals(1, registry.getCallCount());
+        assertEquals(2L, lastSent().getReceiverId());
+    }
+
+    @Test
+    @DisplayName("Should drop the higher user id's OFFER on glare")
+    void testGlareHigherIdDropped() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Act
+        registry.onSignal(signal(2L, 1L, CallSignal.OFFER));
+
+        // Assert
+        verify(relay, times(1)).send(any(CallSignal.class));
+        assertEquals(1L, registry.getCall(2L).getCallerId());
+    }
+
+    @Test
+    @DisplayName("Should reply BUSY when the receiver is in another call")
+    void testBusyReceiver() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Act
+        registry.onSignal(signal(3L, 2L, CallSignal.OFFER));
+
+        // Assert
+        CallSignal sent = lastSent();
+        assertEquals(CallSignal.BUSY, sent.getType());
+        assertEquals(3L, sent.getReceiverId());
+        assertFalse(registry.isBusy(3L));
+    }
+
+    @Test
+    @DisplayName("Should reply BUSY once the call limit is reached")
+    void testCallLimit() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        registry.onSignal(signal(3L, 4L, CallSignal.OFFER));
+
+        // Act
+        registry.onSignal(signal(5L, 6L, CallSignal.OFFER));
+
+        // Assert
+        assertEquals(CallSignal.BUSY, lastSent().getType());
+        assertEquals(2, registry.getCallCount());
+        assertFalse(registry.isBusy(5L));
+    }
+
+    @Test
+    @DisplayName("Should end the call on HANGUP and reject later signals")
+    void testHangupEndsCall() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        String callId = registry.getCall(1L).getCallId();
+
+        // Act
+        registry.onSignal(signal(1L, 2L, CallSignal.HANGUP));
+        registry.onSignal(signal(1L, 2L, CallSignal.ICE));
+        registry.onSignal(signal(2L, 1L, CallSignal.ANSWER));
+
+        // Assert
+        assertFalse(registry.isBusy(1L));
+        assertFalse(registry.isBusy(2L));
+        assertEquals(0, registry.getCallCount());
+        CallSignal sent = lastSent();
+        assertEquals(CallSignal.HANGUP, sent.getType());
+        assertEquals(2L, sent.getReceiverId());
+        verify(relay, times(3)).send(any(CallSignal.class));
+        verify(callStatsService).callEnded(callId);
+    }
+
+    @Test
+    @DisplayName("Should reject signals carrying a stale call id")
+    void testStaleCallIdRejected() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        CallSignal ice = signal(1L, 2L, CallSignal.ICE);
+        ice.setCallId("previous-call");
+
+        // Act
+        registry.onSignal(ice);
+
+        // Assert
+        verify(relay, times(1)).send(any(CallSignal.class));
+    }
+
+    @Test
+    @DisplayName("Should time out an unanswered call")
+    void testRingTimeout() throws InterruptedException {
+        // Arrange
+        registry = new CallSessionRegistry(relay, new SessionRegistry(), callStatsService, meterRegistry, 10, 5, 5, 1, 1000, 32);
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Act
+        Thread.sleep(20);
+        registry.advanceTimers();
+
+        // Assert
+        ArgumentCaptor<CallSignal> captor = ArgumentCaptor.forClass(CallSignal.class);
+        verify(relay, times(3)).send(captor.capture());
+        List<CallSignal> sent = captor.getAllValues();
+        assertEquals(CallSignal.TIMEOUT, sent.get(1).getType());
+        assertEquals(CallSignal.TIMEOUT, sent.get(2).getType());
+        assertFalse(registry.isBusy(1L));
+        assertEquals(1.0, meterRegistry.counter("chat.call.timeouts").count());
+    }
+
+    @Test
+    @DisplayName("Should relay trickled candidates as one ICE signal")
+    void testIceBatched() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        for (int i = 0; i < 3; i++) {
+            registry.onSignal(ice(1L, 2L, Map.of("candidate", "c" + i)));
+        }
+        verify(relay, times(1)).send(any(CallSignal.class));
+
+        // Act
+        registry.flushIce(registry.getCall(1L), 1L);
+
+        // Assert
+        CallSignal sent = lastSent();
+        assertEquals(CallSignal.ICE, sent.getType());
+        assertEquals(2L, sent.getReceiverId());
+        assertEquals(3, ((List<?>) sent.getPayload()).size());
+    }
+
+    @Test
+    @DisplayName("Should flush pending candidates before the sender's ANSWER")
+    void testIceFlushedBeforeAnswer() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        registry.onSignal(ice(2L, 1L, List.of(Map.of("candidate", "a"), Map.of("candidate", "b"))));
+
+        // Act
+        registry.onSignal(signal(2L, 1L, CallSignal.ANSWER));
+
+        // Assert
+        ArgumentCaptor<CallSignal> captor = ArgumentCaptor.forClass(CallSignal.class);
+        verify(relay, times(3)).send(captor.capture());
+        List<CallSignal> sent = captor.getAllValues();
+        assertEquals(CallSignal.ICE, sent.get(1).getType());
+        assertEquals(2, ((List<?>) sent.get(1).getPayload()).size());
+        assertEquals(CallSignal.ANSWER, sent.get(2).getType());
+    }
+
+    @Test
+    @DisplayName("Should send a full batch without waiting for the window")
+    void testIceBatchLimit() {
+        // Arrange
+        registry = new CallSessionRegistry(relay, new SessionRegistry(), callStatsService, meterRegistry, 2, 30000, 20000, 100, 1000, 2);
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+
+        // Act
+        registry.onSignal(ice(1L, 2L, Map.of("candidate", "a")));
+        registry.onSignal(ice(1L, 2L, Map.of("candidate", "b")));
+
+        // Assert
+        verify(relay, times(2)).send(any(CallSignal.class));
+        assertEquals(CallSignal.ICE, lastSent().getType());
+    }
+
+    @Test
+    @DisplayName("Should discard pending candidates when the call ends")
+    void testIceDiscardedOnHangup() {
+        // Arrange
+        registry.onSignal(signal(1L, 2L, CallSignal.OFFER));
+        registry.onSignal(ice(1L, 2L, Map.of("candidate", "a")));
+        CallSession call = registry.getCall(1L);
+
+        // Act
+        registry.onSignal(signal(1L, 2L, CallSignal.HANGUP));
+        registry.flushIce(call, 1L);
+
+        // Assert
+        verify(relay, times(2)).send(any(CallSignal.class));
+        assertEquals(CallSignal.HANGUP, lastSent().getType());
+    }
+
+    private CallSignal lastSent() {
+        ArgumentCaptor<CallSignal> captor = ArgumentCaptor.forClass(CallSignal.class);
+        verify(relay, atLeastOnce()).send(captor.capture());
+        return captor.getValue();
+    }
+
+    private static CallSignal signal(Long from, Long to, String type) {
+        return new CallSignal(null, from, to, type);
+    }
+
+    private static CallSignal ice(Long from, Long to, Object payload) {
+        CallSignal signal = signal(from, to, CallSignal.ICE);
+        signal.setPayload(payload);
+        return signal;
+    }
+}
@@ -0,0 +1,253 @@
+package com.chatapp.call.service;
+
+import com.chatapp.api.dto.CallStatsPointDTO;
+import com.chatapp.call.CallStatsSample;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CallStatsService Tests")
+class CallStatsServiceTest {
+
+    private static final String CALL = "call-1";
+    private static final long[] PARTICIPANTS = {1L, 2L};
+    // A recent whole minute, so sample times stay within the allowed skew
+    private static final long T = (System.currentTimeMillis() / 60_000 - 1) * 60_000;
+
+    @TempDir
+    Path directory;
+
+    private CallStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CallStatsService(new SimpleMeterRegistry(), directory.toString(), 10, 100, 0, 3600, 300_000);
+    }
+
+    @Test
+    @DisplayName("Should return raw samples in the requested range")
+    void testRawTimeline() {
+        // Arrange
+        ingest(1L, sample(T + 1_000, 40));
+        ingest(2L, sample(T + 2_000, 60));
+        ingest(1L, sample(T + 3_000, 80));
+
+        // Act
+        List<CallStatsPointDTO> points = service.getTimeline(CALL, 1L, "raw", T + 1_500, T + 3_000);
+
+        // Assert
+        assertEquals(1, points.size());
+        assertEquals(T + 2_000, points.get(0).getTimestamp());
+        assertEquals(2L, points.get(0).getUserId());
+        assertEquals(60.0, points.get(0).getRttAvgMs(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should roll samples up into 10s buckets")
+    void testTenSecondRollup() {
+        // Arrange
+        ingest(1L, sample(T + 10_000, 40), sample(T + 15_000, 60), sample(T + 21_000, 100));
+        // Late sample for the first bucket
+        ingest(2L, sample(T + 12_000, 80));
+
+        // Act
+        List<CallStatsPointDTO> points = service.getTimeline(CALL, 1L, "10s", null, null);
+
+        // Assert
+        assertEquals(2, points.size());
+        assertEquals(T + 10_000, points.get(0).getTimestamp());
+        assertEquals(3, points.get(0).getSamples());
+        assertEquals(60.0, points.get(0).getRttAvgMs(), 0.001);
+        assertEquals(80.0, points.get(0).getRttMaxMs(), 0.001);
+        assertEquals(T + 20_000, points.get(1).getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should keep rollups after the raw sample limit")
+    void testRawLimit() {
+        // Arrange
+        service = new CallStatsService(new SimpleMeterRegistry(), directory.toString(), 10, 2, 0, 3600, 300_000);
+
+        // Act
+        ingest(1L, sample(T + 1_000, 10), sample(T + 1_100, 20), sample(T + 1_200, 30));
+
+        // Assert
+        assertEquals(2, service.getTimeline(CALL, 1L, "raw", null, null).size());
+        assertEquals(3, service.getTimeline(CALL, 1L, "1s", null, null).get(0).getSamples());
+    }
+
+    @Test
+    @DisplayName("Should stop adding rollup buckets at the limit")
+    void testBucketLimit() {
+        // Arrange
+        service = new CallStatsService(new SimpleMeterRegistry(), directory.toString(), 10, 100, 0, 2, 300_000);
+
+        // Act
+        ingest(1L, sample(T + 1_000, 10), sample(T + 2_000, 20), sample(T + 3_000, 30), sample(T + 2_500, 40));
+
+        // Assert
+        List<CallStatsPointDTO> buckets = service.getTimeline(CALL, 1L, "1s", null, null);
+        assertEquals(2, buckets.size());
+        assertEquals(2, buckets.get(1).getSamples());
+        assertEquals(4, service.getTimeline(CALL, 1L, "raw", null, null).size());
+    }
+
+    @Test
+    @DisplayName("Should clamp sample times to within the allowed skew of now")
+    void testTimestampClamped() {
+        // Arrange
+        service = new CallStatsService(new SimpleMeterRegistry(), directory.toString(), 10, 100, 0, 3600, 1_000);
+        long before = System.currentTimeMillis();
+
+        // Act
+        ingest(1L, sample(1_000, 40), sample(Long.MAX_VALUE, 50));
+
+        // Assert
+        List<CallStatsPointDTO> points = service.getTimeline(CALL, 1L, "raw", null, null);
+        long after = System.currentTimeMillis();
+        assertTrue(points.get(0).getTimestamp() >= before - 1_000);
+        assertTrue(points.get(1).getTimestamp() <= after + 1_000);
+    }
+
+    @Test
+    @DisplayName("Should only let participants read a call's stats")
+    void testTimelineParticipantsOnly() {
+        // Arrange
+        ingest(1L, sample(T + 1_000, 40));
+
+        // Act & Assert
+        assertEquals(1, service.getTimeline(CALL, 2L, "raw", null, null).size());
+        assertThrows(RuntimeException.class, () -> service.getTimeline(CALL, 3L, "raw", null, null));
+    }
+
+    @Test
+    @DisplayName("Should spill idle calls to disk and still serve them")
+    void testSpillAndReload() {
+        // Arrange
+        ingest(1L, sample(T + 1_000, 40), sample(T + 61_000, 60));
+
+        // Act
+        service.spillIdleCalls();
+
+        // Assert
+        assertEquals(0, service.getLiveCallCount());
+        assertTrue(Files.exists(directory.resolve(CALL + ".stats")));
+        assertEquals(2, service.getTimeline(CALL, 1L, "raw", null, null).size());
+        assertEquals(2, service.getTimeline(CALL, 1L, "1m", null, null).size());
+        assertThrows(RuntimeException.class, () -> service.getTimeline(CALL, 3L, "raw", null, null));
+    }
+
+    @Test
+    @DisplayName("Should continue a spilled call when it reports again")
+    void testResumeAfterSpill() {
+        // Arrange
+        ingest(1L, sample(T + 1_000, 40));
+        service.spillIdleCalls();
+
+        // Act
+        ingest(1L, sample(T + 2_000, 60));
+
+        // Assert
+        assertEquals(2, service.getTimeline(CALL, 1L, "raw", null, null).size());
+    }
+
+    @Test
+    @DisplayName("Should spill an ended call on the next sweep without waiting for idle")
+    void testSpillEndedCall() {
+        // Arrange
+        service = new CallStatsService(new SimpleMeterRegistry(), directory.toString(), 10, 100, 60_000, 3600, 300_000);
+        ingest(1L, sample(T + 1_000, 40));
+        service.ingest("call-2", 1L, PARTICIPANTS, List.of(sample(T + 1_000, 40)));
+
+        // Act
+        service.callEnded(CALL);
+        service.spillIdleCalls();
+
+        // Assert
+        assertEquals(1, service.getLiveCallCount());
+        assertTrue(Files.exists(directory.resolve(CALL + ".stats")));
+        assertEquals(1, service.getTimeline(CALL, 1L, "raw", null, null).size());
+    }
+
+    @Test
+    @DisplayName("Should keep samples that arrive while the call is being spilled")
+    void testConcurrentSpill() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+
+        // Act
+        for (int writer = 0; writer < 3; writer++) {
+            long userId = writer;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    ingest(userId, sample(T + 1_000 + i, 40));
+                }
+            }));
+        }
+        Future<?> sweeper = executor.submit(() -> {
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                service.spillIdleCalls();
+            }
+        });
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        sweeper.get();
+        executor.shutdown();
+
+        // Assert
+        assertEquals(600, service.getTimeline(CALL, 1L, "1m", null, null).get(0).getSamples());
+    }
+
+    @Test
+    @DisplayName("Should reject call ids that are not safe file names")
+    void testInvalidCallId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.ingest("../etc", 1L, PARTICIPANTS, List.of(sample(T + 1_000, 40))));
+    }
+
+    @Test
+    @DisplayName("Should reject incomplete samples")
+    void testIncompleteSample() {
+        // Arrange
+        CallStatsSample sample = sample(T + 1_000, 40);
+        sample.setJitterMs(null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ingest(1L, sample));
+        assertEquals(0, service.getLiveCallCount());
+    }
+
+    @Test
+    @DisplayName("Should return an empty timeline for unknown calls")
+    void testUnknownCall() {
+        assertTrue(service.getTimeline("missing", 1L, "10s", null, null).isEmpty());
+    }
+
+    private void ingest(Long userId, CallStatsSample... samples) {
+        service.ingest(CALL, userId, PARTICIPANTS, List.of(samples));
+    }
+
+    private static CallStatsSample sample(long timestamp, double rttMs) {
+        CallStatsSample sample = new CallStatsSample();
+        sample.setTimestamp(timestamp);
+        sample.setRttMs(rttMs);
+        sample.setJitterMs(5.0);
+        sample.setPacketLoss(0.01);
+        sample.setBitrateKbps(800.0);
+        return sample;
+    }
+}
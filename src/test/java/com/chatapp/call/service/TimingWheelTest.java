@@ -0,0 +1,72 @@
+package com.chatapp.call.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimingWheel Tests")
+class TimingWheelTest {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    @DisplayName("Should fire a timeout once its tick has passed")
+    void testFiresWhenDue() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 8);
+        long now = System.nanoTime();
+        AtomicInteger fired = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 30, TimeUnit.MILLISECONDS, now);
+
+        // Act
+        wheel.advance(now + TICK);
+        int early = fired.get();
+        wheel.advance(now + 5 * TICK);
+
+        // Assert
+        assertEquals(0, early);
+        assertEquals(1, fired.get());
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    @DisplayName("Should not fire a cancelled timeout")
+    void testCancelled() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 8);
+        long now = System.nanoTime();
+        AtomicInteger fired = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 20, TimeUnit.MILLISECONDS, now);
+
+        // Act
+        timeout.cancel();
+        wheel.advance(now + 5 * TICK);
+
+        // Assert
+        assertEquals(0, fired.get());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Should keep timeouts longer than one rotation for later rounds")
+    void testMultipleRotations() {
+        // Arrange
+        TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS, 4);
+        long now = System.nanoTime();
+        AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(fired::incrementAndGet, 100, TimeUnit.MILLISECONDS, now);
+
+        // Act
+        wheel.advance(now + 6 * TICK);
+        int afterOneRotation = fired.get();
+        wheel.advance(now + 12 * TICK);
+
+        // Assert
+        assertEquals(0, afterOneRotation);
+        assertEquals(1, fired.get());
+    }
+}
@@ -0,0 +1,137 @@
+package com.chatapp.call.service;
+
+import com.chatapp.api.dto.TurnCredentialsDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TurnCredentialService Tests")
+class TurnCredentialServiceTest {
+
+    private static final List<String> URIS = List.of("turn:turn.example.com:3478");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should issue an HMAC-SHA1 password over the expiring username")
+    void testIssue() throws Exception {
+        // Arrange
+        TurnCredentialService service = service("s3cret", "");
+        long now = System.currentTimeMillis() / 1000;
+
+        // Act
+        TurnCredentialsDTO credentials = service.issue("alice@example.com");
+
+        // Assert
+        String[] parts = credentials.getUsername().split(":");
+        assertEquals("alice@example.com", parts[1]);
+        long expiry = Long.parseLong(parts[0]);
+        assertTrue(expiry >= now + 600 && expiry <= now + 601);
+        assertEquals(hmac("s3cret", credentials.getUsername()), credentials.getPassword());
+        assertEquals(600, credentials.getTtl());
+        assertEquals(URIS, credentials.getUris());
+    }
+
+    @Test
+    @DisplayName("Should sign with the new secret after rotation")
+    void testRotate() throws Exception {
+        // Arrange
+        TurnCredentialService service = service("old", "");
+        service.issue("alice@example.com");
+
+        // Act
+        service.rotate("new");
+        TurnCredentialsDTO credentials = service.issue("alice@example.com");
+
+        // Assert
+        assertEquals(2, service.getSecretGeneration());
+        assertEquals(hmac("new", credentials.getUsername()), credentials.getPassword());
+    }
+
+    @Test
+    @DisplayName("Should give concurrent rotations distinct generations")
+    void testConcurrentRotate() throws Exception {
+        // Arrange
+        TurnCredentialService service = service("old", "");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> rotations = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            String secret = "secret-" + i;
+            rotations.add(executor.submit(() -> service.rotate(secret)));
+        }
+        for (Future<?> rotation : rotations) {
+            rotation.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(101, service.getSecretGeneration());
+    }
+
+    @Test
+    @DisplayName("Should pick up a replaced secret file")
+    void testReloadSecretFile() throws Exception {
+        // Arrange
+        Path file = directory.resolve("turn-secret");
+        Files.writeString(file, "first\n");
+        TurnCredentialService service = service("", file.toString());
+
+        // Act
+        Files.writeString(file, "second\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        service.reloadSecretFile();
+        TurnCredentialsDTO credentials = service.issue("bob@example.com");
+
+        // Assert
+        assertEquals(hmac("second", credentials.getUsername()), credentials.getPassword());
+    }
+
+    @Test
+    @DisplayName("Should keep ':' out of the user part")
+    void testColonInPrincipal() {
+        // Arrange
+        TurnCredentialService service = service("s3cret", "");
+
+        // Act
+        TurnCredentialsDTO credentials = service.issue("odd:name");
+
+        // Assert
+        assertEquals(2, credentials.getUsername().split(":").length);
+    }
+
+    @Test
+    @DisplayName("Should refuse to issue without a secret")
+    void testNotConfigured() {
+        TurnCredentialService service = service("", "");
+        assertThrows(IllegalStateException.class, () -> service.issue("alice@example.com"));
+    }
+
+    private static TurnCredentialService service(String secret, String secretFile) {
+        return new TurnCredentialService(new SimpleMeterRegistry(), secret, secretFile, 600, URIS);
+    }
+
+    private static String hmac(String secret, String username) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(username.getBytes(StandardCharsets.UTF_8)));
+    }
+}
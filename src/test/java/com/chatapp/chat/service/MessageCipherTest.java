@@ -0,0 +1,125 @@
+package com.chatapp.chat.service;
+
+import com.chatapp.chat.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MessageCipher Tests")
+class MessageCipherTest {
+
+    private static final String MASTER_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private SimpleMeterRegistry meterRegistry;
+    private MessageCipher cipher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        cipher = new MessageCipher(meterRegistry, true, MASTER_KEY, null, 3, 8, 2);
+    }
+
+    @Test
+    @DisplayName("Should round-trip content without leaving plaintext")
+    void testRoundTrip() {
+        // Act
+        byte[] sealed = cipher.encrypt(1L, 2L, "meet at noon ☕");
+
+        // Assert
+        assertFalse(new String(sealed, StandardCharsets.ISO_8859_1).contains("meet at noon"));
+        assertEquals("meet at noon ☕", cipher.decrypt(1L, 2L, sealed));
+        assertEquals("", cipher.decrypt(1L, 2L, cipher.encrypt(1L, 2L, "")));
+    }
+
+    @Test
+    @DisplayName("Should use a fresh nonce for every message")
+    void testFreshNonces() {
+        assertFalse(Arrays.equals(cipher.encrypt(1L, 2L, "hi"), cipher.encrypt(1L, 2L, "hi")));
+    }
+
+    @Test
+    @DisplayName("Should bind content to its conversation and direction")
+    void testBoundToConversation() {
+        // Arrange
+        byte[] sealed = cipher.encrypt(1L, 2L, "hello");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cipher.decrypt(2L, 1L, sealed));
+        assertThrows(IllegalStateException.class, () -> cipher.decrypt(1L, 3L, sealed));
+    }
+
+    @Test
+    @DisplayName("Should detect modified content")
+    void testTampering() {
+        // Arrange
+        byte[] sealed = cipher.encrypt(1L, 2L, "hello");
+        sealed[sealed.length - 1] ^= 1;
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cipher.decrypt(1L, 2L, sealed));
+        assertThrows(IllegalStateException.class, () -> cipher.decrypt(1L, 2L, Arrays.copyOf(sealed, 10)));
+    }
+
+    @Test
+    @DisplayName("Should read content written while encryption was off, and the reverse")
+    void testDisabled() throws IOException {
+        // Arrange
+        MessageCipher plain = new MessageCipher(meterRegistry, false, MASTER_KEY, null, 3, 8, 2);
+
+        // Act
+        byte[] unencrypted = plain.encrypt(1L, 2L, "hello");
+
+        // Assert
+        assertEquals("hello", new String(unencrypted, 1, unencrypted.length - 1, StandardCharsets.UTF_8));
+        assertEquals("hello", cipher.decrypt(1L, 2L, unencrypted));
+        assertEquals("hello", plain.decrypt(1L, 2L, cipher.encrypt(1L, 2L, "hello")));
+    }
+
+    @Test
+    @DisplayName("Should keep the key cache bounded")
+    void testKeyCacheBounded() {
+        // Act
+        for (long peer = 2; peer < 20; peer++) {
+            cipher.encrypt(1L, peer, "hi");
+        }
+        cipher.encrypt(2L, 1L, "hi");
+
+        // Assert
+        assertEquals(3, cipher.getCachedKeys());
+        assertTrue(meterRegistry.counter("chat.messages.keys.derived").count() >= 18);
+    }
+
+    @Test
+    @DisplayName("Should seal and open messages, in parallel for large pages")
+    void testSealAndOpenAll() {
+        // Arrange: above the parallel threshold of 8
+        List<Message> messages = new ArrayList<>();
+        for (long i = 0; i < 50; i++) {
+            Message message = new Message();
+            message.setSenderId(i % 5);
+            message.setReceiverId(7L);
+            message.setContent("message " + i);
+            cipher.seal(message);
+            message.setContent(null);
+            messages.add(message);
+        }
+
+        // Act
+        cipher.openAll(messages);
+
+        // Assert
+        for (int i = 0; i < 50; i++) {
+            assertEquals("message " + i, messages.get(i).getContent());
+        }
+    }
+}
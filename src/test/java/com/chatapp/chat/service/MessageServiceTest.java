@@ -1,18 +1,25 @@
 package com.chatapp.chat.service;
 
 import com.chatapp.ai.service.ToxicityService;
+import com.chatapp.api.dto.MessageDTO;
 import com.chatapp.chat.Message;
 import com.chatapp.chat.MessageRepository;
+import com.chatapp.websocket.UserSessionMessenger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,13 +38,20 @@ class MessageServiceTest {
     @Mock
     private ToxicityService toxicityService;
 
-    @InjectMocks
+    @Mock
+    private UserSessionMessenger messenger;
+
+    private MessageCipher messageCipher;
     private MessageService messageService;
 
     private Message testMessage;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
+        messageCipher = new MessageCipher(new SimpleMeterRegistry(), true,
+                Base64.getEncoder().encodeToString(new byte[32]), null, 100, 4, 2);
+        messageService = new MessageService(messageRepository, toxicityService, messenger, messageCipher);
+
         testMessage = new Message();
         testMessage.setId(1L);
         testMessage.setSenderId(1L);
@@ -254,5 +268,86 @@ class MessageServiceTest {
         // Assert
         assertEquals(2, result.size());
     }
-}
 
+    @Test
+    @DisplayName("Should push saved message to the receiver's sessions")
+    void testSendMessagePushesToReceiver() {
+        // Arrange
+        when(toxicityService.isToxic(anyString())).thenReturn(false);
+        when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
+
+        // Act
+        messageService.sendMessage(testMessage);
+
+        // Assert
+        verify(messenger, times(1)).sendToUser(eq(2L), eq("/queue/messages"),
+                argThat(payload -> payload instanceof MessageDTO dto && dto.getId().equals(1L)));
+    }
+
+    @Test
+    @DisplayName("Should cap page size for catch-up queries")
+    void testGetMessagesByReceiverAfterCapsPageSize() {
+        // Arrange
+        when(messageRepository.findByReceiverIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(testMessage));
+
+        // Act
+        List<Message> result = messageService.getMessagesByReceiverAfter(2L, 10L, 10_000);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(messageRepository).findByReceiverIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(10L),
+                argThat(pageable -> pageable.getPageSize() == 200));
+    }
+
+    @Test
+    @DisplayName("Should store only sealed content and still push plaintext")
+    void testSendMessageSealsContent() {
+        // Arrange
+        when(toxicityService.isToxic(anyString())).thenReturn(false);
+        when(messageRepository.save(any(Message.class))).thenReturn(testMessage);
+
+        // Act
+        Message result = messageService.sendMessage(testMessage);
+
+        // Assert
+        ArgumentCaptor<Message> saved = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository).save(saved.capture());
+        byte[] sealed = saved.getValue().getSealedContent();
+        assertNotNull(sealed);
+        assertFalse(new String(sealed, StandardCharsets.ISO_8859_1).contains("Hello"));
+        assertEquals("Hello, how are you?", result.getContent());
+        verify(messenger).sendToUser(eq(2L), eq("/queue/messages"),
+                argThat(payload -> payload instanceof MessageDTO dto && "Hello, how are you?".equals(dto.getContent())));
+    }
+
+    @Test
+    @DisplayName("Should decrypt every message of a page, inline or in parallel")
+    void testGetMessagesByReceiverDecrypts() {
+        // Arrange: above the parallel threshold of 4
+        List<Message> stored = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            Message message = new Message();
+            message.setId(i);
+            message.setSenderId(i);
+            message.setReceiverId(2L);
+            message.setContent("message " + i);
+            messageCipher.seal(message);
+            message.setContent(null);
+            stored.add(message);
+        }
+        when(messageRepository.findByReceiverId(2L)).thenReturn(stored);
+        when(messageRepository.findByReceiverIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(8L), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(stored.subList(8, 10)));
+
+        // Act
+        List<Message> all = messageService.getMessagesByReceiver(2L);
+        List<Message> after = messageService.getMessagesByReceiverAfter(2L, 8L, 50);
+
+        // Assert
+        for (int i = 0; i < 10; i++) {
+            assertEquals("message " + (i + 1), all.get(i).getContent());
+        }
+        assertEquals("message 10", after.get(1).getContent());
+    }
+}
@@ -1,5 +1,6 @@
 package com.chatapp.exception;
 
+import com.chatapp.file.service.UploadRejectedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -41,6 +42,23 @@ class GlobalExceptionHandlerTest {
         assertEquals("Bad Request", response.getBody().get("error"));
     }
 
+    @Test
+    @DisplayName("Should handle UploadRejectedException with its own status")
+    void testHandleUploadRejectedException() {
+        // Arrange
+        UploadRejectedException exception = new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Storage quota exceeded");
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = exceptionHandler.handleUploadRejectedException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(413, response.getBody().get("status"));
+        assertEquals("Storage quota exceeded", response.getBody().get("message"));
+    }
+
     @Test
     @DisplayName("Should handle IllegalArgumentException with BAD_REQUEST status")
     void testHandleIllegalArgumentException() {
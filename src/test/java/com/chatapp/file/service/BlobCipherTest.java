@@ -0,0 +1,161 @@
+package com.chatapp.file.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BlobCipher Tests")
+class BlobCipherTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final String MASTER_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private BlobCipher cipher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cipher = new BlobCipher(true, MASTER_KEY, null, CHUNK_SIZE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, 5 * CHUNK_SIZE, 5 * CHUNK_SIZE + 17})
+    @DisplayName("Should round-trip content of any length")
+    void testRoundTrip(int length) throws IOException {
+        // Arrange
+        byte[] content = random(length);
+
+        // Act
+        byte[] sealed = encrypt(content, false);
+        BlobCipher.DecryptingInputStream in = cipher.decrypt(new ByteArrayInputStream(sealed));
+
+        // Assert
+        assertArrayEquals(content, in.readAllBytes());
+        assertFalse(in.isCompressed());
+        int chunks = Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        assertEquals(BlobCipher.HEADER_BYTES + length + chunks * 16, sealed.length);
+    }
+
+    @Test
+    @DisplayName("Should not leave plaintext in the output")
+    void testCiphertext() throws IOException {
+        // Arrange
+        byte[] content = "attack at dawn, attack at dawn, attack at dawn".getBytes();
+
+        // Act
+        byte[] sealed = encrypt(content, true);
+
+        // Assert
+        assertFalse(new String(sealed).contains("attack at dawn"));
+        assertTrue(cipher.decrypt(new ByteArrayInputStream(sealed)).isCompressed());
+    }
+
+    @Test
+    @DisplayName("Should use a fresh data key for every blob")
+    void testFreshKeys() throws IOException {
+        byte[] content = random(100);
+        assertFalse(Arrays.equals(encrypt(content, false), encrypt(content, false)));
+    }
+
+    @Test
+    @DisplayName("Should detect modified ciphertext")
+    void testTampering() throws IOException {
+        // Arrange
+        byte[] sealed = encrypt(random(3 * CHUNK_SIZE), false);
+        sealed[BlobCipher.HEADER_BYTES + CHUNK_SIZE + 5] ^= 1;
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> cipher.decrypt(new ByteArrayInputStream(sealed)).readAllBytes());
+    }
+
+    @Test
+    @DisplayName("Should detect content truncated at a chunk boundary")
+    void testTruncation() throws IOException {
+        // Arrange
+        byte[] sealed = encrypt(random(3 * CHUNK_SIZE), false);
+        byte[] truncated = Arrays.copyOf(sealed, BlobCipher.HEADER_BYTES + 2 * (CHUNK_SIZE + 16));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> cipher.decrypt(new ByteArrayInputStream(truncated)).readAllBytes());
+    }
+
+    @Test
+    @DisplayName("Should detect a modified header")
+    void testHeaderTampering() throws IOException {
+        // Arrange: flip the compressed flag
+        byte[] sealed = encrypt(random(100), false);
+        sealed[5] ^= 1;
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> cipher.decrypt(new ByteArrayInputStream(sealed)).readAllBytes());
+    }
+
+    @Test
+    @DisplayName("Should refuse to decrypt under another master key")
+    void testWrongMasterKey() throws IOException {
+        // Arrange
+        byte[] sealed = encrypt(random(100), false);
+        byte[] otherKey = new byte[32];
+        otherKey[0] = 1;
+        BlobCipher other = new BlobCipher(true, Base64.getEncoder().encodeToString(otherKey), null, CHUNK_SIZE);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> other.decrypt(new ByteArrayInputStream(sealed)));
+    }
+
+    @Test
+    @DisplayName("Should generate and then reuse a master key file")
+    void testMasterKeyFile(@TempDir Path directory) throws IOException {
+        // Arrange
+        Path keyFile = directory.resolve("keys/master.key");
+        byte[] sealed;
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (OutputStream encrypting = new BlobCipher(true, "", keyFile.toString(), CHUNK_SIZE).encrypt(out, false)) {
+                encrypting.write(42);
+            }
+            sealed = out.toByteArray();
+        }
+
+        // Act: encryption off still reads existing blobs with the same key
+        BlobCipher reader = new BlobCipher(false, "", keyFile.toString(), CHUNK_SIZE);
+
+        // Assert
+        assertTrue(Files.exists(keyFile));
+        try (InputStream in = reader.decrypt(new ByteArrayInputStream(sealed))) {
+            assertEquals(42, in.read());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private byte[] encrypt(byte[] content, boolean compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encrypting = cipher.encrypt(out, compressed)) {
+            // Uneven writes, so chunk boundaries don't line up with them
+            for (int offset = 0; offset < content.length; offset += 333) {
+                encrypting.write(content, offset, Math.min(333, content.length - offset));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
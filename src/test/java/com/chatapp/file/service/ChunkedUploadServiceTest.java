@@ -0,0 +1,233 @@
+package com.chatapp.file.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ChunkedUploadService Tests")
+class ChunkedUploadServiceTest {
+
+    private static final Long OWNER = 1L;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private UploadThrottle uploadThrottle;
+
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        BlobStore blobStore = new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(false, "", null, 65536));
+        service = new ChunkedUploadService(blobStore, fileService, uploadThrottle, new SimpleMeterRegistry(),
+                1024, 4, 4, 10, 2, 0);
+    }
+
+    @Test
+    @DisplayName("Should assemble chunks sent out of order")
+    void testOutOfOrderChunks() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 10, null);
+
+        // Act
+        write(session, 8, "ij");
+        write(session, 0, "abcd");
+        write(session, 4, "efgh");
+        service.complete(session.getId(), OWNER);
+
+        // Assert
+        ArgumentCaptor<BlobStore.StagedBlob> captor = ArgumentCaptor.forClass(BlobStore.StagedBlob.class);
+        verify(fileService).store(captor.capture(), eq(OWNER), eq("notes.txt"), eq("text/plain"));
+        BlobStore.StagedBlob staged = captor.getValue();
+        assertEquals("abcdefghij", Files.readString(staged.file()));
+        assertEquals(sha256("abcdefghij"), staged.sha256());
+        assertEquals(10, staged.size());
+        assertEquals(0, service.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Should delete the assembled file when staging it fails")
+    void testCompleteStagingFails() throws Exception {
+        // Arrange
+        BlobStore blobStore = spy(new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(false, "", null, 65536)));
+        doThrow(new IOException("No space left on device")).when(blobStore).stage(any(Path.class), any());
+        service = new ChunkedUploadService(blobStore, fileService, uploadThrottle, new SimpleMeterRegistry(),
+                1024, 4, 4, 10, 2, 0);
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 4, null);
+        write(session, 0, "abcd");
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> service.complete(session.getId(), OWNER));
+        assertFalse(Files.exists(session.getFile()));
+        assertEquals(0, service.getSessionCount());
+        verify(fileService, never()).store(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should report merged received ranges")
+    void testReceivedRanges() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 12, null);
+
+        // Act
+        write(session, 0, "abcd");
+        write(session, 8, "ijkl");
+        write(session, 4, "efgh");
+
+        // Assert
+        assertEquals(12, session.getReceived());
+        assertEquals(1, session.getRanges().size());
+        assertArrayEquals(new long[]{0, 12}, session.getRanges().get(0));
+    }
+
+    @Test
+    @DisplayName("Should refuse to complete with missing bytes")
+    void testCompleteWithGap() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 8, null);
+        write(session, 0, "abcd");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service.complete(session.getId(), OWNER));
+        verify(fileService, never()).store(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should drop a chunk whose checksum doesn't match")
+    void testChecksumMismatch() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 8, null);
+        write(session, 0, "abcd");
+
+        // Act
+        assertThrows(IllegalArgumentException.class, () -> service.writeChunk(session.getId(), OWNER, 0, 4,
+                sha256("abcd"), new ByteArrayInputStream("abXd".getBytes(StandardCharsets.UTF_8))));
+
+        // Assert
+        assertEquals(0, session.getReceived());
+    }
+
+    @Test
+    @DisplayName("Should reject chunks outside the upload")
+    void testChunkOutOfBounds() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 6, null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> write(session, 4, "efgh"));
+        assertThrows(IllegalArgumentException.class, () -> write(session, 0, "abcdef"));
+    }
+
+    @Test
+    @DisplayName("Should count unfinished uploads against the quota")
+    void testQuotaIncludesOpenUploads() throws Exception {
+        // Arrange
+        service.create(OWNER, "a.bin", null, 100, null);
+        doThrow(new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Storage quota exceeded"))
+                .when(uploadThrottle).checkQuota(OWNER, 300);
+
+        // Act & Assert
+        assertThrows(UploadRejectedException.class, () -> service.create(OWNER, "b.bin", null, 200, null));
+        assertEquals(1, service.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Should delete the staging file when the session cannot be set up")
+    void testCreateFailsRemovesStagingFile() throws Exception {
+        // Arrange
+        BlobStore blobStore = spy(new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(false, "", null, 65536)));
+        // A directory can't be opened for writing, so the session constructor fails
+        Path unusable = Files.createDirectory(directory.resolve("unusable"));
+        doReturn(unusable).when(blobStore).createStagingFile();
+        service = new ChunkedUploadService(blobStore, fileService, uploadThrottle, new SimpleMeterRegistry(),
+                1024, 4, 4, 10, 1, 0);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> service.create(OWNER, "notes.txt", "text/plain", 4, null));
+        assertFalse(Files.exists(unusable));
+        assertEquals(0, service.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Should cap the uploads one user has in progress")
+    void testSessionsPerUser() throws Exception {
+        // Arrange
+        UploadSession first = service.create(OWNER, "a.bin", null, 4, null);
+        service.create(OWNER, "b.bin", null, 4, null);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> service.create(OWNER, "c.bin", null, 4, null));
+        service.create(2L, "c.bin", null, 4, null);
+        service.abort(first.getId(), OWNER);
+        service.create(OWNER, "c.bin", null, 4, null);
+        assertEquals(3, service.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Should hide sessions from other users")
+    void testOtherOwner() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 4, null);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> service.get(session.getId(), 2L));
+    }
+
+    @Test
+    @DisplayName("Should remove idle sessions and their partial file")
+    void testExpireIdleSessions() throws Exception {
+        // Arrange
+        UploadSession session = service.create(OWNER, "notes.txt", "text/plain", 8, null);
+        write(session, 0, "abcd");
+
+        // Act
+        service.expireIdleSessions();
+
+        // Assert
+        assertEquals(0, service.getSessionCount());
+        assertFalse(Files.exists(session.getFile()));
+        assertThrows(RuntimeException.class, () -> write(session, 4, "efgh"));
+    }
+
+    private void write(UploadSession session, long offset, String data) throws IOException {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        service.writeChunk(session.getId(), OWNER, offset, bytes.length, sha256(data), new ByteArrayInputStream(bytes));
+    }
+
+    private static String sha256(String data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.chatapp.file.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CompressionPolicy Tests")
+class CompressionPolicyTest {
+
+    private final CompressionPolicy policy = new CompressionPolicy(true, 1024, 0.9);
+
+    @Test
+    @DisplayName("Should compress repetitive content")
+    void testCompressesText() {
+        byte[] text = "{\"type\":\"message\",\"content\":\"hello\"}\n".repeat(200).getBytes();
+        assertTrue(policy.shouldCompress("application/json", text, text.length, true));
+    }
+
+    @Test
+    @DisplayName("Should skip content that doesn't shrink")
+    void testSkipsRandomContent() {
+        byte[] random = new byte[CompressionPolicy.SAMPLE_SIZE];
+        new Random(42).nextBytes(random);
+        assertFalse(policy.shouldCompress("application/octet-stream", random, random.length, false));
+    }
+
+    @Test
+    @DisplayName("Should skip small uploads")
+    void testSkipsSmallUploads() {
+        byte[] text = "aaaa".repeat(100).getBytes();
+        assertFalse(policy.shouldCompress("text/plain", text, text.length, true));
+    }
+
+    @Test
+    @DisplayName("Should recognise compressed formats by type and magic number")
+    void testCompressedFormats() {
+        byte[] empty = new byte[16];
+        assertTrue(CompressionPolicy.isCompressedFormat("video/mp4", empty, empty.length));
+        assertTrue(CompressionPolicy.isCompressedFormat("image/jpeg; charset=binary", empty, empty.length));
+        assertFalse(CompressionPolicy.isCompressedFormat("image/svg+xml", empty, empty.length));
+
+        byte[] gzip = {(byte) 0x1F, (byte) 0x8B, 8, 0};
+        assertTrue(CompressionPolicy.isCompressedFormat("application/octet-stream", gzip, gzip.length));
+        byte[] mp4 = {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+        assertTrue(CompressionPolicy.isCompressedFormat(null, mp4, mp4.length));
+    }
+
+    @Test
+    @DisplayName("Should never compress when disabled")
+    void testDisabled() {
+        byte[] text = "a".repeat(10_000).getBytes();
+        assertFalse(new CompressionPolicy(false, 1024, 0.9).shouldCompress("text/plain", text, text.length, true));
+    }
+}
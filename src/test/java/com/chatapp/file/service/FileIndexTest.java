@@ -0,0 +1,191 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.FileBlob;
+import com.chatapp.file.FileBlobRepository;
+import com.chatapp.file.StoredFile;
+import com.chatapp.file.StoredFileRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FileIndex Tests")
+class FileIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Mock
+    private FileBlobRepository fileBlobRepository;
+
+    private final Map<String, StoredFile> restored = new ConcurrentHashMap<>();
+
+    private BlobStore blobStore;
+    private FileIndex fileIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // The rebuild saves from several threads
+        lenient().when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(invocation -> {
+            StoredFile file = invocation.getArgument(0);
+            restored.put(file.getId(), file);
+            return file;
+        });
+        blobStore = new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(false, "", null, 65536));
+        fileIndex = new FileIndex(blobStore, storedFileRepository, fileBlobRepository, new ObjectMapper(), true, 4);
+    }
+
+    @Test
+    @DisplayName("Should restore files and reference counts from disk")
+    void testRebuild() throws IOException {
+        // Arrange
+        String shared = store("shared");
+        String single = store("single");
+        fileIndex.record(file("aa11", shared));
+        fileIndex.record(file("bb22", shared));
+        fileIndex.record(file("cc33", single));
+
+        // Act
+        FileIndex.RebuildResult result = fileIndex.rebuild();
+
+        // Assert
+        assertEquals(3, result.files());
+        assertEquals(2, result.blobs());
+        assertEquals(0, result.missingBlobs());
+        StoredFile file = restored.get("aa11");
+        assertEquals(7L, file.getOwnerId());
+        assertEquals("aa11.txt", file.getFilename());
+        assertEquals(blobStore.relativePath(shared), file.getPath());
+        assertEquals(LocalDateTime.of(2026, 2, 7, 10, 30), file.getCreatedAt());
+
+        Map<String, Long> refCounts = savedRefCounts();
+        assertEquals(2L, refCounts.get(shared));
+        assertEquals(1L, refCounts.get(single));
+    }
+
+    @Test
+    @DisplayName("Should skip files whose content is gone and count unreferenced blobs")
+    void testRebuildWithMissingAndOrphanBlobs() throws IOException {
+        // Arrange
+        String orphan = store("orphan");
+        fileIndex.record(file("aa11", "0".repeat(64)));
+
+        // Act
+        FileIndex.RebuildResult result = fileIndex.rebuild();
+
+        // Assert
+        assertEquals(0, result.files());
+        assertEquals(1, result.missingBlobs());
+        assertEquals(1, result.orphanBlobs());
+        assertTrue(Files.exists(blobStore.path(orphan)));
+    }
+
+    @Test
+    @DisplayName("Should move flat blobs into the fan-out layout")
+    void testRebuildMovesFlatBlobs() throws IOException {
+        // Arrange
+        String sha256 = store("legacy");
+        Path flat = blobStore.getBlobsDirectory().resolve(sha256);
+        Files.move(blobStore.path(sha256), flat);
+        fileIndex.record(file("aa11", sha256));
+
+        // Act
+        fileIndex.rebuild();
+
+        // Assert
+        assertFalse(Files.exists(flat));
+        assertTrue(Files.exists(blobStore.path(sha256)));
+        assertEquals(1, restored.size());
+    }
+
+    @Test
+    @DisplayName("Should restore files whose content is stored compressed")
+    void testRebuildCompressedBlob() throws IOException {
+        // Arrange
+        String text = "compressible ".repeat(500);
+        BlobStore.StagedBlob staged = blobStore.stage(new ByteArrayInputStream(text.getBytes()), "text/plain");
+        blobStore.commit(staged);
+        StoredFile stored = file("aa11", staged.sha256());
+        stored.setSize(staged.size());
+        fileIndex.record(stored);
+
+        // Act
+        FileIndex.RebuildResult result = fileIndex.rebuild();
+
+        // Assert
+        assertTrue(staged.compressed());
+        assertEquals(1, result.files());
+        assertEquals(blobStore.relativePath(blobStore.compressedPath(staged.sha256())), restored.get("aa11").getPath());
+        assertEquals(text.length(), savedBlobs().iterator().next().getSize());
+    }
+
+    @Test
+    @DisplayName("Should only rebuild on start when the index is empty")
+    void testRebuildIfEmpty() throws IOException {
+        // Arrange
+        fileIndex.record(file("aa11", store("content")));
+        when(storedFileRepository.count()).thenReturn(5L);
+
+        // Act
+        fileIndex.rebuildIfEmpty();
+
+        // Assert
+        verify(storedFileRepository, never()).save(any());
+    }
+
+    private String store(String content) throws IOException {
+        BlobStore.StagedBlob staged = blobStore.stage(new ByteArrayInputStream(content.getBytes()), "text/plain");
+        blobStore.commit(staged);
+        return staged.sha256();
+    }
+
+    private static StoredFile file(String id, String sha256) {
+        StoredFile file = new StoredFile();
+        file.setId(id);
+        file.setOwnerId(7L);
+        file.setFilename(id + ".txt");
+        file.setContentType("text/plain");
+        file.setSize(6);
+        file.setSha256(sha256);
+        file.setCreatedAt(LocalDateTime.of(2026, 2, 7, 10, 30));
+        return file;
+    }
+
+    private Map<String, Long> savedRefCounts() {
+        Map<String, Long> refCounts = new ConcurrentHashMap<>();
+        for (FileBlob blob : savedBlobs()) {
+            refCounts.put(blob.getSha256(), blob.getRefCount());
+        }
+        return refCounts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<FileBlob> savedBlobs() {
+        ArgumentCaptor<Collection<FileBlob>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(fileBlobRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+}
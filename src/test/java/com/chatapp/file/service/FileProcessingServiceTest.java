@@ -0,0 +1,206 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.ProcessingStatus;
+import com.chatapp.file.StoredFile;
+import com.chatapp.file.StoredFileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FileProcessingService Tests")
+class FileProcessingServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    private BlobStore blobStore;
+    private FileProcessingService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(false, "", null, 65536));
+        service = new FileProcessingService(blobStore, storedFileRepository, new SimpleMeterRegistry(),
+                1, 10, 10_000_000, 10_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    @DisplayName("Should write thumbnail and preview within their size limits")
+    void testGeneratesVariants() throws IOException {
+        // Arrange
+        StoredFile file = store(image(2000, 1000, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        // Act
+        ProcessingStatus status = service.process(file);
+
+        // Assert
+        assertEquals(ProcessingStatus.READY, status);
+        BufferedImage thumb = ImageIO.read(service.getVariant(file, "thumb").orElseThrow().toFile());
+        BufferedImage preview = ImageIO.read(service.getVariant(file, "preview").orElseThrow().toFile());
+        assertEquals(160, thumb.getWidth());
+        assertEquals(80, thumb.getHeight());
+        assertEquals(800, preview.getWidth());
+        assertEquals(400, preview.getHeight());
+    }
+
+    @Test
+    @DisplayName("Should read encrypted images and encrypt their variants")
+    void testEncryptedImage() throws IOException {
+        // Arrange
+        blobStore = new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(true, Base64.getEncoder().encodeToString(new byte[32]), null, 4096));
+        service.destroy();
+        service = new FileProcessingService(blobStore, storedFileRepository, new SimpleMeterRegistry(),
+                1, 10, 10_000_000, 10_000_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image(1000, 500, BufferedImage.TYPE_INT_RGB), "png", out);
+        BlobStore.StagedBlob staged = blobStore.stage(new ByteArrayInputStream(out.toByteArray()), "image/png");
+        blobStore.commit(staged);
+        StoredFile file = file(staged.sha256());
+
+        // Act
+        ProcessingStatus status = service.process(file);
+
+        // Assert
+        assertEquals(ProcessingStatus.READY, status);
+        Path thumb = service.getVariant(file, "thumb").orElseThrow();
+        assertTrue(thumb.toString().endsWith(".jpg.enc"));
+        assertNull(ImageIO.read(thumb.toFile()));
+        try (InputStream in = blobStore.open(thumb)) {
+            assertEquals(160, ImageIO.read(in).getWidth());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep transparency as PNG")
+    void testTransparentImage() throws IOException {
+        // Arrange
+        StoredFile file = store(image(300, 300, BufferedImage.TYPE_INT_ARGB), "png");
+
+        // Act
+        service.process(file);
+
+        // Assert
+        assertTrue(service.getVariant(file, "thumb").orElseThrow().toString().endsWith(".png"));
+    }
+
+    @Test
+    @DisplayName("Should not enlarge small images")
+    void testSmallImage() throws IOException {
+        // Arrange
+        StoredFile file = store(image(100, 50, BufferedImage.TYPE_INT_RGB), "png");
+
+        // Act
+        service.process(file);
+
+        // Assert
+        BufferedImage preview = ImageIO.read(service.getVariant(file, "preview").orElseThrow().toFile());
+        assertEquals(100, preview.getWidth());
+    }
+
+    @Test
+    @DisplayName("Should fail images over the pixel limit without decoding them")
+    void testPixelLimit() throws IOException {
+        // Arrange
+        service.destroy();
+        service = new FileProcessingService(blobStore, storedFileRepository, new SimpleMeterRegistry(),
+                1, 10, 1_000, 10_000_000);
+        StoredFile file = store(image(100, 100, BufferedImage.TYPE_INT_RGB), "png");
+
+        // Act & Assert
+        assertEquals(ProcessingStatus.FAILED, service.process(file));
+        assertTrue(service.getVariant(file, "thumb").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should fail content that isn't an image")
+    void testNotAnImage() throws IOException {
+        // Arrange
+        BlobStore.StagedBlob staged = blobStore.stage(new ByteArrayInputStream("not an image".getBytes()), "image/png");
+        blobStore.commit(staged);
+
+        // Act & Assert
+        assertEquals(ProcessingStatus.FAILED, service.process(file(staged.sha256())));
+    }
+
+    @Test
+    @DisplayName("Should record the outcome after processing in the background")
+    void testSubmit() throws IOException {
+        // Arrange
+        StoredFile file = store(image(400, 300, BufferedImage.TYPE_INT_RGB), "png");
+
+        // Act
+        assertTrue(service.submit(file));
+
+        // Assert
+        verify(storedFileRepository, timeout(5_000)).updateProcessingStatus(file.getId(), ProcessingStatus.READY);
+    }
+
+    @Test
+    @DisplayName("Should reject unknown variant names")
+    void testUnknownVariant() {
+        assertThrows(IllegalArgumentException.class, () -> service.getVariant(file("0".repeat(64)), "huge"));
+    }
+
+    @Test
+    @DisplayName("Should only accept images within the size limit")
+    void testAccepts() {
+        assertTrue(service.accepts("image/jpeg", 1_000));
+        assertFalse(service.accepts("application/pdf", 1_000));
+        assertFalse(service.accepts("image/png", 20_000_000));
+        assertFalse(service.accepts(null, 1_000));
+    }
+
+    private StoredFile store(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        BlobStore.StagedBlob staged = blobStore.stage(new ByteArrayInputStream(out.toByteArray()), "image/" + format);
+        blobStore.commit(staged);
+        assertTrue(Files.exists(blobStore.path(staged.sha256())));
+        return file(staged.sha256());
+    }
+
+    private static StoredFile file(String sha256) {
+        StoredFile file = new StoredFile();
+        file.setId("f" + sha256.substring(0, 31));
+        file.setSha256(sha256);
+        file.setContentType("image/png");
+        return file;
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int x = 0; x < width; x += 10) {
+            image.setRGB(x, height / 2, 0xFF336699);
+        }
+        return image;
+    }
+}
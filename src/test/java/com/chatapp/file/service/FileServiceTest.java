@@ -1,20 +1,35 @@
 package com.chatapp.file.service;
 
+import com.chatapp.file.FileBlob;
+import com.chatapp.file.FileBlobRepository;
+import com.chatapp.file.ProcessingStatus;
+import com.chatapp.file.StoredFile;
+import com.chatapp.file.StoredFileRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -22,109 +37,265 @@ import static org.mockito.Mockito.*;
 @DisplayName("FileService Tests")
 class FileServiceTest {
 
-    @InjectMocks
-    private FileService fileService;
+    private static final Long OWNER = 1L;
+    // SHA-256 of "test content"
+    private static final String TEST_CONTENT_SHA256 = "6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72";
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
 
     @Mock
-    private MultipartFile multipartFile;
+    private FileBlobRepository fileBlobRepository;
+
+    @Mock
+    private FileProcessingService processingService;
+
+    @Mock
+    private UploadThrottle uploadThrottle;
+
+    private final Map<String, FileBlob> blobs = new HashMap<>();
+    private final Map<String, StoredFile> files = new HashMap<>();
+
+    private BlobStore blobStore;
+    private FileService fileService;
 
     @BeforeEach
-    void setUp() {
-        // Setup is empty - each test configures its own mocks
+    void setUp() throws IOException {
+        // Back the repositories with maps so reference counts can be observed
+        lenient().when(fileBlobRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(blobs.get(invocation.<String>getArgument(0))));
+        lenient().when(fileBlobRepository.save(any(FileBlob.class))).thenAnswer(invocation -> {
+            FileBlob blob = invocation.getArgument(0);
+            blobs.put(blob.getSha256(), blob);
+            return blob;
+        });
+        lenient().doAnswer(invocation -> blobs.remove(invocation.<FileBlob>getArgument(0).getSha256()))
+                .when(fileBlobRepository).delete(any(FileBlob.class));
+        lenient().when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(invocation -> {
+            StoredFile file = invocation.getArgument(0);
+            files.put(file.getId(), file);
+            return file;
+        });
+        lenient().when(storedFileRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(files.get(invocation.<String>getArgument(0))));
+        lenient().doAnswer(invocation -> files.remove(invocation.<StoredFile>getArgument(0).getId()))
+                .when(storedFileRepository).delete(any(StoredFile.class));
+
+        blobStore = new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(false, "", null, 65536));
+        FileIndex fileIndex = new FileIndex(blobStore, storedFileRepository, fileBlobRepository,
+                new ObjectMapper(), false, 1);
+        fileService = new FileService(blobStore, fileIndex, processingService, storedFileRepository, fileBlobRepository,
+                uploadThrottle, new SimpleMeterRegistry());
     }
 
     @Test
     @DisplayName("Should upload file successfully")
     void testUploadFileSuccess() throws IOException {
-        // Arrange
-        when(multipartFile.getOriginalFilename()).thenReturn("testfile.txt");
-        byte[] fileContent = "test content".getBytes();
-        when(multipartFile.getBytes()).thenReturn(fileContent);
+        // Act
+        StoredFile stored = fileService.upload(multipart("testfile.txt", "test content".getBytes()), OWNER);
 
-        // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
+        // Assert
+        assertEquals(1L, stored.getOwnerId());
+        assertEquals("testfile.txt", stored.getFilename());
+        assertEquals(12, stored.getSize());
+        assertEquals(TEST_CONTENT_SHA256, stored.getSha256());
+        assertEquals("blobs/6a/e8/" + TEST_CONTENT_SHA256, stored.getPath());
+        assertEquals(32, stored.getId().length());
+        assertArrayEquals("test content".getBytes(), Files.readAllBytes(fileService.getContentPath(stored)));
+    }
 
-        verify(multipartFile, times(1)).getOriginalFilename();
-        verify(multipartFile, times(1)).getBytes();
+    @Test
+    @DisplayName("Should store identical content once")
+    void testDeduplicatesContent() throws IOException {
+        // Act
+        StoredFile first = fileService.upload(multipart("a.txt", "same".getBytes()), OWNER);
+        StoredFile second = fileService.upload(multipart("b.txt", "same".getBytes()), OWNER);
+
+        // Assert
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(first.getSha256(), second.getSha256());
+        assertEquals(2, blobs.get(first.getSha256()).getRefCount());
+        try (var stream = Files.walk(directory.resolve("blobs"))) {
+            assertEquals(1, stream.filter(Files::isRegularFile).count());
+        }
+        try (var stream = Files.list(directory.resolve("tmp"))) {
+            assertEquals(0, stream.count());
+        }
     }
 
     @Test
-    @DisplayName("Should get original filename from multipart file")
-    void testGetOriginalFilename() throws IOException {
+    @DisplayName("Should not overwrite files that share a name")
+    void testSameNameDifferentContent() throws IOException {
+        // Act
+        StoredFile first = fileService.upload(multipart("file.txt", "content1".getBytes()), OWNER);
+        StoredFile second = fileService.upload(multipart("file.txt", "content2".getBytes()), OWNER);
+
+        // Assert
+        assertArrayEquals("content1".getBytes(), Files.readAllBytes(fileService.getContentPath(first)));
+        assertArrayEquals("content2".getBytes(), Files.readAllBytes(fileService.getContentPath(second)));
+    }
+
+    @Test
+    @DisplayName("Should keep content until its last reference is deleted")
+    void testDeleteReleasesBlob() throws IOException {
         // Arrange
-        when(multipartFile.getOriginalFilename()).thenReturn("testfile.txt");
-        when(multipartFile.getBytes()).thenReturn("content".getBytes());
+        StoredFile first = fileService.upload(multipart("a.txt", "shared".getBytes()), OWNER);
+        StoredFile second = fileService.upload(multipart("b.txt", "shared".getBytes()), OWNER);
+        Path content = fileService.getContentPath(first);
 
         // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
-        verify(multipartFile).getOriginalFilename();
+        fileService.delete(first.getId(), OWNER);
+        assertTrue(Files.exists(content));
+        assertEquals(1, blobs.get(first.getSha256()).getRefCount());
+
+        fileService.delete(second.getId(), OWNER);
+        assertFalse(Files.exists(content));
+        assertFalse(blobs.containsKey(first.getSha256()));
+        assertTrue(files.isEmpty());
     }
 
     @Test
-    @DisplayName("Should handle IOException during upload")
-    void testUploadThrowsIOException() throws IOException {
+    @DisplayName("Should copy a file by taking a reference on its blob")
+    void testCopy() throws IOException {
         // Arrange
-        when(multipartFile.getBytes()).thenThrow(new IOException("File read error"));
+        StoredFile source = fileService.upload(multipart("a.txt", "forwarded".getBytes()), OWNER);
+        Path content = fileService.getContentPath(source);
 
-        // Act & Assert
-        assertThrows(IOException.class, () -> fileService.upload(multipartFile));
+        // Act
+        StoredFile copy = fileService.copy(source.getId(), OWNER, null);
 
-        verify(multipartFile, times(1)).getBytes();
+        // Assert
+        assertNotEquals(source.getId(), copy.getId());
+        assertEquals("a.txt", copy.getFilename());
+        assertEquals(source.getPath(), copy.getPath());
+        assertEquals(2, blobs.get(source.getSha256()).getRefCount());
+
+        fileService.delete(source.getId(), OWNER);
+        assertTrue(Files.exists(content));
+        fileService.delete(copy.getId(), OWNER);
+        assertFalse(Files.exists(content));
     }
 
     @Test
-    @DisplayName("Should use correct upload directory")
-    void testUploadDirectoryCreation() throws IOException {
+    @DisplayName("Should count a copy against the caller's quota")
+    void testCopyOverQuota() throws IOException {
         // Arrange
-        when(multipartFile.getBytes()).thenReturn("test".getBytes());
+        StoredFile source = fileService.upload(multipart("a.txt", "forwarded".getBytes()), OWNER);
+        doThrow(new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "Storage quota exceeded"))
+                .when(uploadThrottle).checkQuota(OWNER, source.getSize());
 
         // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
+        assertThrows(UploadRejectedException.class, () -> fileService.copy(source.getId(), OWNER, null));
+        assertEquals(1, blobs.get(source.getSha256()).getRefCount());
+        assertEquals(1, files.size());
     }
 
     @Test
-    @DisplayName("Should save file with original filename")
-    void testFileSavedWithCorrectName() throws IOException {
+    @DisplayName("Should refuse to copy a file that does not exist")
+    void testCopyMissing() {
+        assertThrows(RuntimeException.class, () -> fileService.copy("missing", OWNER, null));
+        assertTrue(blobs.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject content types that do not parse")
+    void testInvalidContentType() throws IOException {
         // Arrange
-        String expectedFilename = "myfile.pdf";
-        when(multipartFile.getOriginalFilename()).thenReturn(expectedFilename);
-        when(multipartFile.getBytes()).thenReturn("pdf content".getBytes());
+        MultipartFile file = multipart("a.txt", "x".getBytes());
+        when(file.getContentType()).thenReturn("not a type");
 
         // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
+        assertThrows(IllegalArgumentException.class, () -> fileService.upload(file, OWNER));
+        assertThrows(IllegalArgumentException.class, () -> FileService.checkContentType("image/*"));
+        assertEquals("application/octet-stream", FileService.checkContentType(null));
+        verify(storedFileRepository, never()).save(any());
+    }
 
-        verify(multipartFile, atLeastOnce()).getOriginalFilename();
+    @Test
+    @DisplayName("Should write an index record next to each upload")
+    void testWritesIndexRecord() throws IOException {
+        // Act
+        StoredFile stored = fileService.upload(multipart("a.txt", "indexed".getBytes()), OWNER);
+
+        // Assert
+        Path record = BlobStore.fanOut(directory.resolve("meta"), stored.getId())
+                .resolveSibling(stored.getId() + ".json");
+        assertTrue(Files.readString(record).contains(stored.getSha256()));
+
+        fileService.delete(stored.getId(), OWNER);
+        assertFalse(Files.exists(record));
     }
 
     @Test
-    @DisplayName("Should handle multiple file uploads")
-    void testMultipleFileUploads() throws IOException {
+    @DisplayName("Should queue images for processing and return them as pending")
+    void testImageQueuedForProcessing() throws IOException {
         // Arrange
-        MultipartFile file1 = mock(MultipartFile.class);
-        MultipartFile file2 = mock(MultipartFile.class);
+        MultipartFile image = multipart("photo.png", new byte[]{1, 2, 3});
+        when(image.getContentType()).thenReturn("image/png");
+        when(processingService.accepts("image/png", 3)).thenReturn(true);
+        when(processingService.submit(any(StoredFile.class))).thenReturn(true);
 
-        when(file1.getOriginalFilename()).thenReturn("file1.txt");
-        when(file1.getBytes()).thenReturn("content1".getBytes());
-        when(file2.getOriginalFilename()).thenReturn("file2.txt");
-        when(file2.getBytes()).thenReturn("content2".getBytes());
+        // Act
+        StoredFile stored = fileService.upload(image, OWNER);
 
-        // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(file1));
-        assertDoesNotThrow(() -> fileService.upload(file2));
+        // Assert
+        assertEquals(ProcessingStatus.PENDING, stored.getProcessingStatus());
+        verify(processingService).submit(stored);
+    }
+
+    @Test
+    @DisplayName("Should not process other files")
+    void testOtherFilesNotProcessed() throws IOException {
+        // Act
+        StoredFile stored = fileService.upload(multipart("notes.txt", "text".getBytes()), OWNER);
 
-        verify(file1, times(1)).getOriginalFilename();
-        verify(file2, times(1)).getOriginalFilename();
+        // Assert
+        assertEquals(ProcessingStatus.NONE, stored.getProcessingStatus());
+        verify(processingService, never()).submit(any());
     }
 
     @Test
-    @DisplayName("Should handle file with special characters in name")
-    void testFileWithSpecialCharacters() throws IOException {
+    @DisplayName("Should only let the owner delete a file")
+    void testDeleteByOtherUser() throws IOException {
         // Arrange
-        when(multipartFile.getOriginalFilename()).thenReturn("file-with-special_chars.txt");
-        when(multipartFile.getBytes()).thenReturn("content".getBytes());
+        StoredFile stored = fileService.upload(multipart("a.txt", "mine".getBytes()), OWNER);
 
         // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
+        assertThrows(RuntimeException.class, () -> fileService.delete(stored.getId(), 2L));
+        assertTrue(Files.exists(fileService.getContentPath(stored)));
+    }
+
+    @Test
+    @DisplayName("Should handle IOException during upload")
+    void testUploadThrowsIOException() throws IOException {
+        // Arrange
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenThrow(new IOException("File read error"));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> fileService.upload(file, OWNER));
+        verify(storedFileRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should name files without a filename")
+    void testMissingFilename() throws IOException {
+        // Act
+        StoredFile stored = fileService.upload(multipart(null, "content".getBytes()), OWNER);
+
+        // Assert
+        assertEquals("file", stored.getFilename());
+    }
+
+    @Test
+    @DisplayName("Should strip path components from the filename")
+    void testFilenameWithPath() {
+        assertEquals("passwd", FileService.cleanFilename("../../etc/passwd"));
+        assertEquals("file-with-special_chars.txt", FileService.cleanFilename("C:\\tmp\\file-with-special_chars.txt"));
     }
 
     @Test
@@ -132,56 +303,118 @@ class FileServiceTest {
     void testLargeFileUpload() throws IOException {
         // Arrange
         byte[] largeContent = new byte[1024 * 1024]; // 1MB
-        when(multipartFile.getBytes()).thenReturn(largeContent);
-        when(multipartFile.getOriginalFilename()).thenReturn("largefile.bin");
 
-        // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
+        // Act
+        StoredFile stored = fileService.upload(multipart("largefile.bin", largeContent), OWNER);
+
+        // Assert
+        assertEquals(largeContent.length, stored.getSize());
+        try (InputStream content = fileService.openContent(stored)) {
+            assertArrayEquals(largeContent, content.readAllBytes());
+        }
     }
 
     @Test
-    @DisplayName("Should handle empty file")
-    void testEmptyFileUpload() throws IOException {
+    @DisplayName("Should store compressible content gzipped")
+    void testCompressesText() throws IOException {
         // Arrange
-        when(multipartFile.getBytes()).thenReturn(new byte[0]);
-        when(multipartFile.getOriginalFilename()).thenReturn("emptyfile.txt");
+        byte[] text = "the quick brown fox jumps over the lazy dog\n".repeat(1000).getBytes();
 
-        // Act & Assert
-        assertDoesNotThrow(() -> fileService.upload(multipartFile));
+        // Act
+        StoredFile stored = fileService.upload(multipart("log.txt", text), OWNER);
+
+        // Assert
+        Path content = fileService.getContentPath(stored);
+        assertTrue(stored.getPath().endsWith(".gz"));
+        assertTrue(Files.size(content) < text.length / 10);
+        assertEquals(text.length, stored.getSize());
+        assertEquals(text.length, blobs.get(stored.getSha256()).getSize());
+        try (InputStream in = fileService.openContent(stored)) {
+            assertArrayEquals(text, in.readAllBytes());
+        }
     }
 
     @Test
-    @DisplayName("Should call getOriginalFilename method")
-    void testCallsGetOriginalFilename() throws IOException {
+    @DisplayName("Should encrypt content at rest and decrypt it on read")
+    void testEncryptsContent() throws IOException {
         // Arrange
-        when(multipartFile.getBytes()).thenReturn("content".getBytes());
+        blobStore = new BlobStore(directory.toString(), new CompressionPolicy(true, 1024, 0.9),
+                new BlobCipher(true, Base64.getEncoder().encodeToString(new byte[32]), null, 4096));
+        fileService = new FileService(blobStore, new FileIndex(blobStore, storedFileRepository, fileBlobRepository,
+                new ObjectMapper(), false, 1), processingService, storedFileRepository, fileBlobRepository,
+                uploadThrottle, new SimpleMeterRegistry());
+        byte[] text = "confidential line\n".repeat(2000).getBytes();
 
         // Act
-        try {
-            fileService.upload(multipartFile);
-        } catch (Exception e) {
-            // Expected - testing mock calls
+        StoredFile stored = fileService.upload(multipart("secret.txt", text), OWNER);
+
+        // Assert
+        Path content = fileService.getContentPath(stored);
+        assertTrue(stored.getPath().endsWith(".enc"));
+        assertFalse(new String(Files.readAllBytes(content)).contains("confidential"));
+        try (InputStream in = fileService.openContent(stored)) {
+            assertArrayEquals(text, in.readAllBytes());
+        }
+        BlobStore.StoredContent gzipped = fileService.openStoredContent(stored);
+        try (InputStream in = new GZIPInputStream(gzipped.stream())) {
+            assertTrue(gzipped.compressed());
+            assertArrayEquals(text, in.readAllBytes());
         }
+    }
+
+    @Test
+    @DisplayName("Should store already-compressed formats as they are")
+    void testSkipsCompressedFormats() throws IOException {
+        // Arrange
+        byte[] archive = new byte[8 * 1024];
+        archive[0] = 'P';
+        archive[1] = 'K';
+        archive[2] = 3;
+        archive[3] = 4;
+
+        // Act
+        StoredFile stored = fileService.upload(multipart("bundle.bin", archive), OWNER);
 
         // Assert
-        verify(multipartFile, atLeastOnce()).getOriginalFilename();
+        assertFalse(stored.getPath().endsWith(".gz"));
+        assertEquals(archive.length, Files.size(fileService.getContentPath(stored)));
     }
 
     @Test
-    @DisplayName("Should call getBytes method")
-    void testCallsGetBytes() throws IOException {
+    @DisplayName("Should reuse a compressed blob for the same content")
+    void testDeduplicatesCompressedContent() throws IOException {
         // Arrange
-        when(multipartFile.getBytes()).thenReturn("content".getBytes());
+        byte[] text = "a".repeat(10_000).getBytes();
+        StoredFile first = fileService.upload(multipart("a.txt", text), OWNER);
 
         // Act
-        try {
-            fileService.upload(multipartFile);
-        } catch (Exception e) {
-            // Expected - testing mock calls
-        }
+        StoredFile second = fileService.upload(multipart("b.txt", text), OWNER);
 
         // Assert
-        verify(multipartFile, times(1)).getBytes();
+        assertEquals(first.getPath(), second.getPath());
+        assertEquals(2, blobs.get(first.getSha256()).getRefCount());
+
+        fileService.delete(first.getId(), OWNER);
+        fileService.delete(second.getId(), OWNER);
+        assertFalse(Files.exists(blobStore.compressedPath(first.getSha256())));
+    }
+
+    @Test
+    @DisplayName("Should handle empty file")
+    void testEmptyFileUpload() throws IOException {
+        // Act
+        StoredFile stored = fileService.upload(multipart("emptyfile.txt", new byte[0]), OWNER);
+
+        // Assert
+        assertEquals(0, stored.getSize());
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", stored.getSha256());
     }
-}
 
+    private static MultipartFile multipart(String filename, byte[] content) throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        lenient().when(file.getOriginalFilename()).thenReturn(filename);
+        lenient().when(file.getContentType()).thenReturn("text/plain");
+        lenient().when(file.getInputStream()).thenReturn(new ByteArrayInputStream(content));
+        return file;
+    }
+}
@@ -0,0 +1,133 @@
+package com.chatapp.file.service;
+
+import com.chatapp.file.StoredFileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UploadThrottle Tests")
+class UploadThrottleTest {
+
+    private static final Long OWNER = 1L;
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UploadThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        throttle = new UploadThrottle(storedFileRepository, meterRegistry,
+                200_000, 10_000, 2, 3, 1_000);
+    }
+
+    @Test
+    @DisplayName("Should limit how many uploads a user has in flight")
+    void testUserConcurrency() {
+        // Arrange
+        UploadThrottle.Permit first = throttle.admit(OWNER, 0);
+        throttle.admit(OWNER, 0);
+
+        // Act & Assert
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> throttle.admit(OWNER, 0));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+
+        first.close();
+        assertNotNull(throttle.admit(OWNER, 0));
+        assertEquals(1.0, meterRegistry.counter("chat.files.throttle.rejected", "reason", "user-concurrency").count());
+    }
+
+    @Test
+    @DisplayName("Should limit uploads across all users")
+    void testTotalConcurrency() {
+        // Arrange
+        throttle.admit(2L, 0);
+        throttle.admit(3L, 0);
+        throttle.admit(4L, 0);
+
+        // Act & Assert
+        assertThrows(UploadRejectedException.class, () -> throttle.admit(5L, 0));
+    }
+
+    @Test
+    @DisplayName("Should reject uploads that would exceed the quota, counting those in flight")
+    void testQuota() {
+        // Arrange
+        when(storedFileRepository.sumSizeByOwnerId(OWNER)).thenReturn(900L);
+
+        // Act & Assert
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> throttle.admit(OWNER, 200));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+
+        UploadThrottle.Permit permit = throttle.admit(OWNER, 50);
+        assertThrows(UploadRejectedException.class, () -> throttle.checkQuota(OWNER, 60));
+        permit.close();
+        assertDoesNotThrow(() -> throttle.checkQuota(OWNER, 60));
+    }
+
+    @Test
+    @DisplayName("Should release the slot when the quota check fails")
+    void testQuotaRejectionReleasesSlot() {
+        // Arrange
+        when(storedFileRepository.sumSizeByOwnerId(OWNER)).thenReturn(1_000L);
+
+        // Act
+        assertThrows(UploadRejectedException.class, () -> throttle.admit(OWNER, 1));
+        assertThrows(UploadRejectedException.class, () -> throttle.admit(OWNER, 1));
+        assertThrows(UploadRejectedException.class, () -> throttle.admit(OWNER, 1));
+
+        // Assert
+        assertNotNull(throttle.admit(OWNER, 0));
+    }
+
+    @Test
+    @DisplayName("Should pace reads to the user's rate after the burst")
+    void testThrottlesReads() throws IOException {
+        // Arrange
+        byte[] content = new byte[60_000];
+        content[59_999] = 7;
+
+        // Act
+        long start = System.nanoTime();
+        byte[] read;
+        try (UploadThrottle.Permit permit = throttle.admit(OWNER, 0);
+             InputStream in = permit.throttle(new ByteArrayInputStream(content))) {
+            read = in.readAllBytes();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert: 10 KB burst, then 50 KB at 200 KB/s
+        assertArrayEquals(content, read);
+        assertTrue(elapsedMs >= 200, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    @DisplayName("Should forget idle users")
+    void testEvictIdle() {
+        // Arrange
+        throttle.admit(OWNER, 0).close();
+        UploadThrottle.Permit active = throttle.admit(2L, 0);
+
+        // Act
+        throttle.evictIdle();
+
+        // Assert
+        assertEquals(1, throttle.getTrackedUsers());
+        active.close();
+    }
+}
@@ -0,0 +1,137 @@
+package com.chatapp.loadtest;
+
+import com.chatapp.file.service.BlobCipher;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Measures what at-rest encryption costs file uploads and downloads: writes and
+// reads the same content to a temporary file directly and through BlobCipher,
+// and reports throughput for both.
+//
+//   mvn -Pbenchmark test-compile exec:java -Dexec.args="--size-mb=256 --chunk-size=65536 --iterations=5"
+//
+// The report header shows whether the JVM is using the AES and GHASH intrinsics;
+// without them AES-GCM falls back to a much slower Java implementation.
+public final class BlobEncryptionBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int sizeMb;
+    private final int chunkSize;
+    private final int iterations;
+
+    private BlobEncryptionBenchmark(int sizeMb, int chunkSize, int iterations) {
+        this.sizeMb = sizeMb;
+        this.chunkSize = chunkSize;
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = 256;
+        int chunkSize = 64 * 1024;
+        int iterations = 5;
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            switch (parts[0]) {
+                case "size-mb" -> sizeMb = Integer.parseInt(parts[1]);
+                case "chunk-size" -> chunkSize = Integer.parseInt(parts[1]);
+                case "iterations" -> iterations = Integer.parseInt(parts[1]);
+                default -> throw new IllegalArgumentException("Unknown option " + parts[0]);
+            }
+        }
+        new BlobEncryptionBenchmark(sizeMb, chunkSize, iterations).run();
+    }
+
+    private void run() throws IOException {
+        System.out.printf("JVM %s %s, UseAESIntrinsics=%s, UseGHASHIntrinsics=%s%n",
+                System.getProperty("java.vm.name"), System.getProperty("java.version"),
+                vmOption("UseAESIntrinsics"), vmOption("UseGHASHIntrinsics"));
+        System.out.printf("%d MB, chunk size %d, %d iterations (first one is warm-up)%n",
+                sizeMb, chunkSize, iterations);
+
+        byte[] masterKey = new byte[32];
+        ThreadLocalRandom.current().nextBytes(masterKey);
+        BlobCipher cipher = new BlobCipher(true, Base64.getEncoder().encodeToString(masterKey), null, chunkSize);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ThreadLocalRandom.current().nextBytes(buffer);
+        long bytes = (long) sizeMb * 1024 * 1024;
+
+        Path file = Files.createTempFile("blob-benchmark", ".bin");
+        try {
+            double plainWrite = 0, plainRead = 0, encryptedWrite = 0, encryptedRead = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    write(out, buffer, bytes);
+                }
+                long written = System.nanoTime();
+                try (InputStream in = Files.newInputStream(file)) {
+                    drain(in, buffer);
+                }
+                long read = System.nanoTime();
+                try (OutputStream out = cipher.encrypt(Files.newOutputStream(file), false)) {
+                    write(out, buffer, bytes);
+                }
+                long encrypted = System.nanoTime();
+                try (InputStream in = cipher.decrypt(Files.newInputStream(file))) {
+                    drain(in, buffer);
+                }
+                long decrypted = System.nanoTime();
+
+                if (i > 0 || iterations == 1) {
+                    plainWrite += written - start;
+                    plainRead += read - written;
+                    encryptedWrite += encrypted - read;
+                    encryptedRead += decrypted - encrypted;
+                }
+            }
+            report("write", bytes, plainWrite, encryptedWrite);
+            report("read", bytes, plainRead, encryptedRead);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void report(String operation, long bytes, double plainNanos, double encryptedNanos) {
+        int measured = Math.max(1, iterations - 1);
+        double plain = megabytesPerSecond(bytes * measured, plainNanos);
+        double encrypted = megabytesPerSecond(bytes * measured, encryptedNanos);
+        System.out.printf("%-6s plain %8.1f MB/s   encrypted %8.1f MB/s   (%.2fx)%n",
+                operation, plain, encrypted, plain / encrypted);
+    }
+
+    private static void write(OutputStream out, byte[] buffer, long bytes) throws IOException {
+        for (long remaining = bytes; remaining > 0; remaining -= buffer.length) {
+            out.write(buffer, 0, (int) Math.min(buffer.length, remaining));
+        }
+    }
+
+    private static void drain(InputStream in, byte[] buffer) throws IOException {
+        while (in.read(buffer) != -1) {
+            // discard
+        }
+    }
+
+    private static double megabytesPerSecond(long bytes, double nanos) {
+        return bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    private static String vmOption(String name) {
+        try {
+            return ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption(name).getValue();
+        } catch (RuntimeException e) {
+            return "n/a";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Send-to-receive latency in microseconds. Client and server share one JVM, so
+// System.nanoTime() stamps taken on send can be compared on receive.
+public class LatencyTracker {
+
+    public static final String CONTENT_PREFIX = "lt:";
+
+    private final Histogram chat = new ConcurrentHistogram(3);
+    private final Histogram call = new ConcurrentHistogram(3);
+    private final Histogram presence = new ConcurrentHistogram(3);
+
+    // Call signals carry no timestamp; frames between one pair arrive in send order
+    private final Map<Long, Queue<Long>> pendingCalls = new ConcurrentHashMap<>();
+
+    private final AtomicLong chatSent = new AtomicLong();
+    private final AtomicLong callSent = new AtomicLong();
+    private final AtomicLong presenceSent = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean recording;
+
+    public void startRecording() {
+        chat.reset();
+        call.reset();
+        presence.reset();
+        recording = true;
+    }
+
+    public void stopRecording() {
+        recording = false;
+    }
+
+    public String chatContent() {
+        chatSent.incrementAndGet();
+        return CONTENT_PREFIX + System.nanoTime();
+    }
+
+    public void chatReceived(long sentAt) {
+        record(chat, sentAt);
+    }
+
+    public void callSent(long callerId, long receiverId) {
+        callSent.incrementAndGet();
+        pendingCalls.computeIfAbsent(pairKey(callerId, receiverId), key -> new ConcurrentLinkedQueue<>())
+                .add(System.nanoTime());
+    }
+
+    public void callReceived(long callerId, long receiverId) {
+        Queue<Long> pending = pendingCalls.get(pairKey(callerId, receiverId));
+        Long sentAt = pending == null ? null : pending.poll();
+        if (sentAt != null) {
+            record(call, sentAt);
+        }
+    }
+
+    // A signal the server answered instead of relaying, e.g. with BUSY
+    public void callDropped(long callerId, long receiverId) {
+        Queue<Long> pending = pendingCalls.get(pairKey(callerId, receiverId));
+        if (pending != null) {
+            pending.poll();
+        }
+    }
+
+    public void presenceCompleted(long sentAt, boolean success) {
+        presenceSent.incrementAndGet();
+        if (success) {
+            record(presence, sentAt);
+        } else {
+            failures.incrementAndGet();
+        }
+    }
+
+    public void failed() {
+        failures.incrementAndGet();
+    }
+
+    public Histogram getChat() { return chat; }
+
+    public Histogram getCall() { return call; }
+
+    public Histogram getPresence() { return presence; }
+
+    public long getChatSent() { return chatSent.get(); }
+
+    public long getCallSent() { return callSent.get(); }
+
+    public long getPresenceSent() { return presenceSent.get(); }
+
+    public long getFailures() { return failures.get(); }
+
+    private void record(Histogram histogram, long sentAt) {
+        if (recording) {
+            histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+        }
+    }
+
+    private static long pairKey(long callerId, long receiverId) {
+        return (callerId << 32) ^ receiverId;
+    }
+}
@@ -0,0 +1,144 @@
+package com.chatapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// One simulated user: a STOMP session subscribed to its message and call queues
+public class LoadClient extends StompSessionHandlerAdapter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long userId;
+    private final LatencyTracker tracker;
+    private final AtomicLong transportErrors;
+    private volatile StompSession session;
+    private volatile long callPeer; // 0 when not in a call
+
+    public LoadClient(long userId, LatencyTracker tracker, AtomicLong transportErrors) {
+        this.userId = userId;
+        this.tracker = tracker;
+        this.transportErrors = transportErrors;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public boolean isConnected() {
+        StompSession current = session;
+        return current != null && current.isConnected();
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        session.subscribe("/user/queue/messages", new JsonFrameHandler(this::onChatMessage));
+        session.subscribe("/user/queue/call", new JsonFrameHandler(this::onCallSignal));
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                byte[] payload, Throwable exception) {
+        transportErrors.incrementAndGet();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        transportErrors.incrementAndGet();
+    }
+
+    // Calls the receiver, or hangs up if this client already has a call going. The
+    // server answers repeated OFFERs to a busy user with BUSY, so alternate instead.
+    public void placeOrEndCall(long receiverId) {
+        long peer = callPeer;
+        if (peer != 0) {
+            callPeer = 0;
+            sendCallSignal(peer, "HANGUP");
+        } else if (receiverId != userId) {
+            callPeer = receiverId;
+            sendCallSignal(receiverId, "OFFER");
+        }
+    }
+
+    public void sendCallSignal(long receiverId, String type) {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            return;
+        }
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/call");
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        String body = "{\"callerId\":" + userId + ",\"receiverId\":" + receiverId + ",\"type\":\"" + type + "\"}";
+        tracker.callSent(userId, receiverId);
+        current.send(headers, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    private void onChatMessage(JsonNode message) {
+        String content = message.path("content").asText("");
+        if (content.startsWith(LatencyTracker.CONTENT_PREFIX)) {
+            tracker.chatReceived(Long.parseLong(content.substring(LatencyTracker.CONTENT_PREFIX.length())));
+        }
+    }
+
+    private void onCallSignal(JsonNode signal) {
+        long from = signal.path("callerId").asLong();
+        switch (signal.path("type").asText("")) {
+            case "OFFER", "HANGUP" -> tracker.callReceived(from, userId);
+            case "BUSY" -> {
+                // Our OFFER never reached the other side
+                tracker.callDropped(userId, from);
+                if (callPeer == from) {
+                    callPeer = 0;
+                }
+            }
+            case "TIMEOUT" -> {
+                if (callPeer == from) {
+                    callPeer = 0;
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private final class JsonFrameHandler implements StompFrameHandler {
+
+        private final Consumer<JsonNode> consumer;
+
+        JsonFrameHandler(Consumer<JsonNode> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return byte[].class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            try {
+                consumer.accept(MAPPER.readTree((byte[]) payload));
+            } catch (IOException e) {
+                transportErrors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.chatapp.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Command line options, passed as --name=value
+public class LoadTestOptions {
+
+    private int clients = 1000;
+    private int connectConcurrency = 256;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private int rate = 2000;
+    private int chatWeight = 70;
+    private int callWeight = 20;
+    private int presenceWeight = 10;
+    private int presenceUsers = 100;
+    private int loopbackHosts = 1;
+    private double maxP99Millis = 0;
+    private boolean virtualThreads;
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        options.clients = intValue(values, "clients", options.clients);
+        options.connectConcurrency = intValue(values, "connect-concurrency", options.connectConcurrency);
+        options.durationSeconds = intValue(values, "duration", options.durationSeconds);
+        options.warmupSeconds = intValue(values, "warmup", options.warmupSeconds);
+        options.rate = intValue(values, "rate", options.rate);
+        options.presenceUsers = intValue(values, "presence-users", options.presenceUsers);
+        options.loopbackHosts = intValue(values, "loopback-hosts", options.loopbackHosts);
+        options.maxP99Millis = Double.parseDouble(values.getOrDefault("max-p99-ms", "0"));
+        options.virtualThreads = Boolean.parseBoolean(values.getOrDefault("virtual-threads", "false"));
+
+        // --mix=chat:70,call:20,presence:10
+        String mix = values.get("mix");
+        if (mix != null) {
+            options.chatWeight = 0;
+            options.callWeight = 0;
+            options.presenceWeight = 0;
+            for (String part : mix.split(",")) {
+                String[] kv = part.split(":");
+                int weight = Integer.parseInt(kv[1].trim());
+                switch (kv[0].trim()) {
+                    case "chat" -> options.chatWeight = weight;
+                    case "call" -> options.callWeight = weight;
+                    case "presence" -> options.presenceWeight = weight;
+                    default -> throw new IllegalArgumentException("Unknown mix entry " + kv[0]);
+                }
+            }
+        }
+
+        if (options.clients < 2) {
+            throw new IllegalArgumentException("At least two clients are needed");
+        }
+        if (options.chatWeight + options.callWeight + options.presenceWeight <= 0) {
+            throw new IllegalArgumentException("Mix must have a positive total weight");
+        }
+        return options;
+    }
+
+    private static int intValue(Map<String, String> values, String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public int getClients() { return clients; }
+
+    public int getConnectConcurrency() { return connectConcurrency; }
+
+    public int getDurationSeconds() { return durationSeconds; }
+
+    public int getWarmupSeconds() { return warmupSeconds; }
+
+    public int getRate() { return rate; }
+
+    public int getChatWeight() { return chatWeight; }
+
+    public int getCallWeight() { return callWeight; }
+
+    public int getPresenceWeight() { return presenceWeight; }
+
+    public int getPresenceUsers() { return presenceUsers; }
+
+    // Each 127.0.0.x address gives another ~28k ephemeral ports
+    public int getLoopbackHosts() { return loopbackHosts; }
+
+    public double getMaxP99Millis() { return maxP99Millis; }
+
+    // Only takes effect on JDK 21+, see spring.threads.virtual.enabled
+    public boolean isVirtualThreads() { return virtualThreads; }
+
+    @Override
+    public String toString() {
+        return "clients=" + clients + ", rate=" + rate + "/s, duration=" + durationSeconds + "s"
+                + ", mix=chat:" + chatWeight + ",call:" + callWeight + ",presence:" + presenceWeight
+                + ", virtualThreads=" + virtualThreads;
+    }
+}
@@ -0,0 +1,313 @@
+package com.chatapp.loadtest;
+
+import com.chatapp.SecureChatPlatformApplication;
+import com.chatapp.config.PinnedThreadMonitor;
+import com.chatapp.security.jwt.JwtUtil;
+import com.chatapp.user.User;
+import com.chatapp.user.UserRepository;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Capacity-planning harness: starts SecureChatPlatformApplication on a random local
+// port, opens many STOMP-over-WebSocket clients against it and drives a mix of chat
+// sends, call signals and presence updates.
+//
+//   mvn -Ploadtest test-compile exec:java -Dexec.args="--clients=20000 --rate=5000 --duration=60"
+//
+// Exits with status 1 when --max-p99-ms is set and any lane's p99 exceeds it.
+//
+// To compare execution modes, run the same arguments on JDK 17 and again on JDK 21
+// with --virtual-threads=true; the report header shows the JVM and active mode.
+public final class StompLoadGenerator {
+
+    private static final int TICKS_PER_SECOND = 100;
+
+    private final LoadTestOptions options;
+    private final LatencyTracker tracker = new LatencyTracker();
+    private final AtomicLong transportErrors = new AtomicLong();
+    private final ResourceSampler sampler = new ResourceSampler();
+
+    private StompLoadGenerator(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        boolean passed = new StompLoadGenerator(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        System.out.println("Starting load test: " + options);
+        try (ConfigurableApplicationContext context = startServer()) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            // STOMP sessions authenticate as real users, one per client
+            List<User> clientUsers = createUsers(userRepository, "loadclient", options.getClients());
+            String token = jwtUtil.generateToken(clientUsers.get(0).getEmail());
+            List<Long> presenceUsers = createUsers(userRepository, "loadtest", options.getPresenceUsers())
+                    .stream().map(User::getId).toList();
+
+            ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+            scheduler.scheduleAtFixedRate(sampler::sample, 0, 1, TimeUnit.SECONDS);
+
+            WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+            stompClient.setDefaultHeartbeat(new long[]{0, 0});
+
+            long connectStart = System.nanoTime();
+            List<LoadClient> clients = connectClients(stompClient, port, clientUsers, jwtUtil);
+            PinnedThreadMonitor pinnedThreadMonitor = context.getBeanProvider(PinnedThreadMonitor.class).getIfAvailable();
+            double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+
+            HttpClient http = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                    .build();
+            LoadDriver driver = new LoadDriver(clients, presenceUsers, http, port, token);
+            scheduler.scheduleAtFixedRate(driver::tick, 0, 1000 / TICKS_PER_SECOND, TimeUnit.MILLISECONDS);
+
+            TimeUnit.SECONDS.sleep(options.getWarmupSeconds());
+            sampler.reset();
+            tracker.startRecording();
+            TimeUnit.SECONDS.sleep(options.getDurationSeconds());
+            driver.stop();
+            // Let in-flight frames land before closing the window
+            TimeUnit.SECONDS.sleep(1);
+            tracker.stopRecording();
+
+            scheduler.shutdownNow();
+            clients.forEach(LoadClient::disconnect);
+            return report(clients, connectSeconds, pinnedThreadMonitor);
+        }
+    }
+
+    private ConfigurableApplicationContext startServer() {
+        SpringApplication application = new SpringApplication(SecureChatPlatformApplication.class);
+        return application.run(
+                "--server.port=0",
+                "--server.tomcat.max-connections=" + (options.getClients() + 1024),
+                "--server.tomcat.accept-count=" + options.getConnectConcurrency(),
+                "--spring.jpa.show-sql=false",
+                "--spring.threads.virtual.enabled=" + options.isVirtualThreads(),
+                "--logging.level.root=WARN");
+    }
+
+    private List<User> createUsers(UserRepository userRepository, String prefix, int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUsername(prefix + i);
+            user.setEmail(prefix + i + "@localhost");
+            user.setPassword("loadtest");
+            user.setStatus("OFFLINE");
+            users.add(user);
+        }
+        return userRepository.saveAll(users);
+    }
+
+    private List<LoadClient> connectClients(WebSocketStompClient stompClient, int port, List<User> users,
+                                            JwtUtil jwtUtil) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.getConnectConcurrency());
+        List<LoadClient> clients = new ArrayList<>(options.getClients());
+        AtomicLong failures = new AtomicLong();
+
+        for (int i = 0; i < options.getClients(); i++) {
+            inFlight.acquire();
+            User user = users.get(i);
+            LoadClient client = new LoadClient(user.getId(), tracker, transportErrors);
+            String host = "127.0.0." + (1 + i % options.getLoopbackHosts());
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + jwtUtil.generateToken(user.getEmail()));
+
+            stompClient.connectAsync("ws://" + host + ":" + port + "/ws/chat/websocket",
+                            new WebSocketHttpHeaders(), connectHeaders, client)
+                    .whenComplete((session, ex) -> {
+                        if (ex != null) {
+                            failures.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+            clients.add(client);
+        }
+        inFlight.acquire(options.getConnectConcurrency());
+
+        if (failures.get() > 0) {
+            System.out.println("Connect failures: " + failures.get());
+        }
+        return clients;
+    }
+
+    private boolean report(List<LoadClient> clients, double connectSeconds, PinnedThreadMonitor pinnedThreadMonitor) {
+        long connected = clients.stream().filter(LoadClient::isConnected).count();
+        double seconds = options.getDurationSeconds();
+
+        System.out.println();
+        System.out.printf("JVM                 : %s, %s threads%n", Runtime.version(),
+                options.isVirtualThreads() && Runtime.version().feature() >= 21 ? "virtual" : "platform");
+        if (pinnedThreadMonitor != null) {
+            System.out.printf("Pinned events       : %d %s%n", pinnedThreadMonitor.getPinnedCount(),
+                    pinnedThreadMonitor.getTopLocations(3));
+        }
+        System.out.printf("Connected clients   : %d / %d%n", connected, options.getClients());
+        System.out.printf("Connect rate        : %.0f clients/s (%.1fs)%n", options.getClients() / connectSeconds, connectSeconds);
+        System.out.printf("Sent                : chat=%d call=%d presence=%d%n",
+                tracker.getChatSent(), tracker.getCallSent(), tracker.getPresenceSent());
+        System.out.printf("Failures            : requests=%d transport=%d%n", tracker.getFailures(), transportErrors.get());
+        System.out.printf("Server heap         : max %d MiB used%n", sampler.getMaxHeapBytes() / (1024 * 1024));
+        System.out.printf("Process CPU         : avg %.0f%%, max %.0f%%%n", sampler.getAvgCpu() * 100, sampler.getMaxCpu() * 100);
+        System.out.println();
+        System.out.println("Lane       delivered/s      p50      p90      p99    p99.9      max  (ms)");
+
+        boolean passed = printLane("chat", tracker.getChat(), seconds);
+        passed &= printLane("call", tracker.getCall(), seconds);
+        passed &= printLane("presence", tracker.getPresence(), seconds);
+        System.out.println(passed ? "RESULT: PASS" : "RESULT: FAIL (p99 above " + options.getMaxP99Millis() + " ms)");
+        return passed;
+    }
+
+    private boolean printLane(String name, Histogram histogram, double seconds) {
+        System.out.printf("%-10s %11.0f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                name,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+        return options.getMaxP99Millis() <= 0
+                || histogram.getTotalCount() == 0
+                || histogram.getValueAtPercentile(99) / 1000.0 <= options.getMaxP99Millis();
+    }
+
+    private final class LoadDriver {
+
+        private final List<LoadClient> clients;
+        private final List<Long> presenceUsers;
+        private final HttpClient http;
+        private final String baseUrl;
+        private final String token;
+        private final int totalWeight = options.getChatWeight() + options.getCallWeight() + options.getPresenceWeight();
+        private double carry;
+        private volatile boolean stopped;
+
+        LoadDriver(List<LoadClient> clients, List<Long> presenceUsers, HttpClient http, int port, String token) {
+            this.clients = clients;
+            this.presenceUsers = presenceUsers;
+            this.http = http;
+            this.baseUrl = "http://127.0.0.1:" + port;
+            this.token = token;
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        void tick() {
+            if (stopped) {
+                return;
+            }
+            carry += (double) options.getRate() / TICKS_PER_SECOND;
+            int operations = (int) carry;
+            carry -= operations;
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                LoadClient sender = clients.get(random.nextInt(clients.size()));
+                LoadClient receiver = clients.get(random.nextInt(clients.size()));
+                int pick = random.nextInt(totalWeight);
+                if (pick < options.getChatWeight()) {
+                    sendChat(sender.getUserId(), receiver.getUserId());
+                } else if (pick < options.getChatWeight() + options.getCallWeight()) {
+                    sender.placeOrEndCall(receiver.getUserId());
+                } else if (!presenceUsers.isEmpty()) {
+                    updatePresence(presenceUsers.get(random.nextInt(presenceUsers.size())), random.nextBoolean());
+                }
+            }
+        }
+
+        private void sendChat(long senderId, long receiverId) {
+            String body = "{\"senderId\":" + senderId + ",\"receiverId\":" + receiverId
+                    + ",\"content\":\"" + tracker.chatContent() + "\"}";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/messages/send"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        if (ex != null || response.statusCode() != 200) {
+                            tracker.failed();
+                        }
+                    });
+        }
+
+        private void updatePresence(long userId, boolean online) {
+            long sentAt = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create(baseUrl + "/users/" + userId + "/status?status=" + (online ? "ONLINE" : "AWAY")))
+                    .header("Authorization", "Bearer " + token)
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) ->
+                            tracker.presenceCompleted(sentAt, ex == null && response.statusCode() == 200));
+        }
+    }
+
+    // Client and server share the JVM, so these figures include client overhead
+    private static final class ResourceSampler {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        private long maxHeapBytes;
+        private double cpuTotal;
+        private double maxCpu;
+        private int samples;
+
+        synchronized void sample() {
+            maxHeapBytes = Math.max(maxHeapBytes, memory.getHeapMemoryUsage().getUsed());
+            double cpu = os.getProcessCpuLoad();
+            if (cpu >= 0) {
+                cpuTotal += cpu;
+                maxCpu = Math.max(maxCpu, cpu);
+                samples++;
+            }
+        }
+
+        synchronized void reset() {
+            maxHeapBytes = 0;
+            cpuTotal = 0;
+            maxCpu = 0;
+            samples = 0;
+        }
+
+        synchronized long getMaxHeapBytes() { return maxHeapBytes; }
+
+        synchronized double getAvgCpu() { return samples == 0 ? 0 : cpuTotal / samples; }
+
+        synchronized double getMaxCpu() { return maxCpu; }
+    }
+}
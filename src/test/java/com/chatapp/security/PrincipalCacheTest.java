@@ -0,0 +1,166 @@
+package com.chatapp.security;
+
+import com.chatapp.user.User;
+import com.chatapp.user.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PrincipalCache Tests")
+class PrincipalCacheTest {
+
+    private static final String EMAIL = "alice@example.com";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private PrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail(EMAIL);
+        user.setUsername("alice");
+        user.setStatus("ONLINE");
+        lenient().when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        lenient().when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        cache = new PrincipalCache(userRepository, new SimpleMeterRegistry(), 60_000, 100, "");
+    }
+
+    @Test
+    @DisplayName("Should resolve the full principal and serve repeats from the cache")
+    void testResolve() {
+        // Act
+        ChatPrincipal first = cache.resolve(EMAIL);
+        ChatPrincipal second = cache.resolve(EMAIL);
+
+        // Assert
+        assertEquals(1L, first.id());
+        assertEquals(EMAIL, first.getName());
+        assertEquals("alice", first.username());
+        assertEquals("ONLINE", first.status());
+        assertEquals(ChatPrincipal.DEFAULT_ROLES, first.roles());
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+    }
+
+    @Test
+    @DisplayName("Should give configured admins the admin role")
+    void testAdminRole() {
+        // Arrange
+        cache = new PrincipalCache(userRepository, new SimpleMeterRegistry(), 60_000, 100,
+                " root@example.com, alice@example.com ");
+
+        // Act
+        ChatPrincipal principal = cache.resolve(EMAIL);
+
+        // Assert
+        assertEquals(ChatPrincipal.ADMIN_ROLES, principal.roles());
+        assertTrue(cache.isAdminEmail("root@example.com"));
+        assertFalse(cache.isAdminEmail("bob@example.com"));
+        assertFalse(cache.isAdminEmail(null));
+    }
+
+    @Test
+    @DisplayName("Should not resolve or cache unknown users")
+    void testUnknownUser() {
+        assertNull(cache.resolve("nobody@example.com"));
+        assertNull(cache.resolve(null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should reload a user after invalidation")
+    void testInvalidate() {
+        // Arrange
+        cache.resolve(EMAIL);
+
+        // Act
+        cache.invalidate(EMAIL);
+        cache.resolve(EMAIL);
+
+        // Assert
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    @DisplayName("Should reload a user once the entry expires")
+    void testTtl() throws InterruptedException {
+        // Arrange
+        cache = new PrincipalCache(userRepository, new SimpleMeterRegistry(), 20, 100, "");
+        cache.resolve(EMAIL);
+        Thread.sleep(50);
+
+        // Act
+        cache.resolve(EMAIL);
+        Thread.sleep(50);
+        cache.evictExpired();
+
+        // Assert
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should stay within its size bound")
+    void testBound() {
+        // Arrange
+        when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> {
+            User user = new User();
+            user.setEmail(invocation.getArgument(0));
+            return Optional.of(user);
+        });
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            cache.resolve("user" + i + "@example.com");
+        }
+
+        // Assert
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    @DisplayName("Should load a user once under concurrent first requests")
+    void testConcurrentMisses() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        List<Future<ChatPrincipal>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.resolve(EMAIL);
+            }));
+        }
+        start.countDown();
+        for (Future<ChatPrincipal> future : futures) {
+            assertEquals(1L, future.get(10, TimeUnit.SECONDS).id());
+        }
+        executor.shutdown();
+
+        // Assert
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+    }
+}
@@ -0,0 +1,106 @@
+package com.chatapp.security.jwt;
+
+import com.chatapp.security.ChatPrincipal;
+import com.chatapp.security.PrincipalCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("JwtChannelInterceptor Tests")
+class JwtChannelInterceptorTest {
+
+    private static final ChatPrincipal ALICE =
+            new ChatPrincipal(1L, "alice@example.com", "alice", "ONLINE", ChatPrincipal.DEFAULT_ROLES);
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private MessageChannel channel;
+
+    private JwtChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new JwtChannelInterceptor(jwtUtil, tokenRevocationStore, principalCache);
+    }
+
+    @Test
+    @DisplayName("Should make the token's principal the session user on CONNECT")
+    void testConnect() {
+        // Arrange
+        Claims claims = Jwts.claims().setSubject(ALICE.email());
+        claims.setId("jti");
+        when(jwtUtil.getValidClaims("good")).thenReturn(claims);
+        when(principalCache.resolve(ALICE.email())).thenReturn(ALICE);
+
+        // Act
+        Message<?> result = interceptor.preSend(frame(StompCommand.CONNECT, "Bearer good", null), channel);
+
+        // Assert
+        assertSame(ALICE, ChatPrincipal.from(StompHeaderAccessor.wrap(result).getUser()));
+    }
+
+    @Test
+    @DisplayName("Should refuse CONNECT without a valid, unrevoked token")
+    void testConnectRejected() {
+        // Arrange
+        Claims claims = Jwts.claims().setSubject(ALICE.email());
+        claims.setId("revoked");
+        lenient().when(jwtUtil.getValidClaims("revoked")).thenReturn(claims);
+        when(tokenRevocationStore.isRevoked("revoked")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(BadCredentialsException.class,
+                () -> interceptor.preSend(frame(StompCommand.CONNECT, null, null), channel));
+        assertThrows(BadCredentialsException.class,
+                () -> interceptor.preSend(frame(StompCommand.CONNECT, "Bearer bad", null), channel));
+        assertThrows(BadCredentialsException.class,
+                () -> interceptor.preSend(frame(StompCommand.CONNECT, "Bearer revoked", null), channel));
+        verify(principalCache, never()).resolve(anyString());
+    }
+
+    @Test
+    @DisplayName("Should refuse subscriptions to another session's resolved queue")
+    void testSubscribe() {
+        // Act & Assert
+        assertDoesNotThrow(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, null, "/user/queue/call"), channel));
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, null, "/queue/call-userabc"), channel));
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String authorization, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        if (authorization != null) {
+            accessor.setNativeHeader("Authorization", authorization);
+        }
+        if (destination != null) {
+            accessor.setDestination(destination);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -1,5 +1,6 @@
 package com.chatapp.security.jwt;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -234,5 +235,31 @@ class JwtUtilTest {
         // Assert
         assertEquals(username, extracted);
     }
-}
 
+    @Test
+    @DisplayName("Should give every token its own id")
+    void testTokenIds() {
+        // Act
+        Claims first = jwtUtil.getValidClaims(jwtUtil.generateToken("user@example.com"));
+        Claims second = jwtUtil.getValidClaims(jwtUtil.generateToken("user@example.com"));
+
+        // Assert
+        assertNotNull(first.getId());
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals("user@example.com", first.getSubject());
+        assertNotNull(first.getExpiration());
+    }
+
+    @Test
+    @DisplayName("Should return no claims for invalid or expired tokens")
+    void testGetValidClaimsInvalid() {
+        // Arrange
+        ReflectionTestUtils.setField(jwtUtil, "expiration", -1000L);
+        String expired = jwtUtil.generateToken("user@example.com");
+
+        // Act & Assert
+        assertNull(jwtUtil.getValidClaims(expired));
+        assertNull(jwtUtil.getValidClaims("not.a.token"));
+        assertNull(jwtUtil.getValidClaims(null));
+    }
+}
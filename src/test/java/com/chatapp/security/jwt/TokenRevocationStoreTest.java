@@ -0,0 +1,109 @@
+package com.chatapp.security.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TokenRevocationStore Tests")
+class TokenRevocationStoreTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRevocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new TokenRevocationStore(meterRegistry, 1000, 0.01);
+    }
+
+    @Test
+    @DisplayName("Should report revoked tokens and only those")
+    void testRevoke() {
+        // Act
+        store.revoke("a", future());
+
+        // Assert
+        assertTrue(store.isRevoked("a"));
+        assertFalse(store.isRevoked("b"));
+        assertFalse(store.isRevoked(null));
+    }
+
+    @Test
+    @DisplayName("Should not keep tokens that have already expired")
+    void testRevokeExpired() {
+        // Act
+        store.revoke("a", System.currentTimeMillis() - 1);
+
+        // Assert
+        assertFalse(store.isRevoked("a"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @DisplayName("Should forget tokens once they have expired")
+    void testSweep() throws InterruptedException {
+        // Arrange
+        store.revoke("short", System.currentTimeMillis() + 50);
+        store.revoke("long", future());
+        Thread.sleep(100);
+
+        // Act
+        store.sweep();
+
+        // Assert
+        assertEquals(1, store.size());
+        assertFalse(store.isRevoked("short"));
+        assertTrue(store.isRevoked("long"));
+    }
+
+    @Test
+    @DisplayName("Should keep every revoked token when growing past its capacity")
+    void testGrowth() {
+        // Arrange
+        String[] ids = new String[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID().toString();
+        }
+
+        // Act
+        for (String id : ids) {
+            store.revoke(id, future());
+        }
+
+        // Assert
+        for (String id : ids) {
+            assertTrue(store.isRevoked(id), id);
+        }
+        assertEquals(5000.0, meterRegistry.counter("jwt.revocation.revoked").count());
+    }
+
+    @Test
+    @DisplayName("Should let almost every valid token past the filter")
+    void testFalsePositiveRate() {
+        // Arrange
+        for (int i = 0; i < 1000; i++) {
+            store.revoke(UUID.randomUUID().toString(), future());
+        }
+
+        // Act
+        int flagged = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (store.isRevoked(UUID.randomUUID().toString())) {
+                flagged++;
+            }
+        }
+
+        // Assert: none are revoked, and about 1% reach the exact set
+        assertEquals(0, flagged);
+        assertTrue(meterRegistry.counter("jwt.revocation.false-positives").count() < 3000);
+    }
+
+    private static long future() {
+        return System.currentTimeMillis() + 3_600_000;
+    }
+}
@@ -0,0 +1,247 @@
+package com.chatapp.user.service;
+
+import com.chatapp.api.dto.PrekeyBundleDTO;
+import com.chatapp.api.dto.PrekeyCountDTO;
+import com.chatapp.user.IdentityKeys;
+import com.chatapp.user.IdentityKeysRepository;
+import com.chatapp.user.PrekeyUploadRequest;
+import com.chatapp.websocket.UserSessionMessenger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PrekeyService Tests")
+class PrekeyServiceTest {
+
+    private static final Long OWNER = 1L;
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[33]);
+    private static final String SIGNATURE = Base64.getEncoder().encodeToString(new byte[64]);
+
+    @Mock
+    private IdentityKeysRepository identityKeysRepository;
+
+    @Mock
+    private UserSessionMessenger messenger;
+
+    private PrekeyService service;
+
+    @BeforeEach
+    void setUp() {
+        Map<Long, IdentityKeys> stored = new HashMap<>();
+        lenient().when(identityKeysRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<Long>getArgument(0))));
+        lenient().when(identityKeysRepository.save(any(IdentityKeys.class))).thenAnswer(invocation -> {
+            IdentityKeys keys = invocation.getArgument(0);
+            stored.put(keys.getUserId(), keys);
+            return keys;
+        });
+        service = new PrekeyService(identityKeysRepository, messenger, new SimpleMeterRegistry(),
+                2000, 1000, 5, 100);
+    }
+
+    @Test
+    @DisplayName("Should require an identity key and signed prekey first")
+    void testFirstUploadNeedsIdentity() {
+        // Arrange
+        PrekeyUploadRequest request = new PrekeyUploadRequest();
+        request.setIdentityKey(KEY);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service.upload(OWNER, request));
+        verify(identityKeysRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should reject malformed keys and oversized batches")
+    void testValidation() {
+        PrekeyUploadRequest badKey = new PrekeyUploadRequest();
+        badKey.setOneTimePrekeys(List.of(new PrekeyUploadRequest.OneTimePrekey(1, "AAAA")));
+        assertThrows(IllegalArgumentException.class, () -> service.upload(OWNER, badKey));
+
+        PrekeyUploadRequest tooMany = new PrekeyUploadRequest();
+        tooMany.setOneTimePrekeys(prekeys(0, 1001));
+        assertThrows(IllegalArgumentException.class, () -> service.upload(OWNER, tooMany));
+    }
+
+    @Test
+    @DisplayName("Should hand out each one-time prekey once, then bundles without one")
+    void testFetchBundle() {
+        // Arrange
+        service.upload(OWNER, identity(KEY));
+        service.upload(OWNER, batch(0, 2));
+
+        // Act
+        PrekeyBundleDTO first = service.fetchBundle(1L);
+        PrekeyBundleDTO second = service.fetchBundle(1L);
+        PrekeyBundleDTO third = service.fetchBundle(1L);
+
+        // Assert
+        assertEquals(KEY, first.getIdentityKey());
+        assertEquals(7, first.getSignedPrekeyId());
+        assertEquals(0, first.getOneTimePrekeyId());
+        assertEquals(1, second.getOneTimePrekeyId());
+        assertNull(third.getOneTimePrekeyId());
+        assertNotNull(third.getSignedPrekey());
+        assertEquals(0, service.getCount(OWNER).getCount());
+    }
+
+    @Test
+    @DisplayName("Should not hand out a one-time prekey twice under concurrent fetches")
+    void testConcurrentFetch() throws Exception {
+        // Arrange
+        service.upload(OWNER, identity(KEY));
+        service.upload(OWNER, batch(0, 1000));
+        service.upload(OWNER, batch(1000, 1000));
+        Set<Integer> handedOut = ConcurrentHashMap.newKeySet();
+        AtomicInteger withoutKey = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 300; i++) {
+                    Integer keyId = service.fetchBundle(1L).getOneTimePrekeyId();
+                    if (keyId == null) {
+                        withoutKey.incrementAndGet();
+                    } else {
+                        assertTrue(handedOut.add(keyId), "handed out twice: " + keyId);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(2000, handedOut.size());
+        assertEquals(400, withoutKey.get());
+        assertEquals(0, service.getCount(OWNER).getCount());
+    }
+
+    @Test
+    @DisplayName("Should push the count once at the low watermark and once when empty")
+    void testLowWatermarkNotification() {
+        // Arrange
+        service.upload(OWNER, identity(KEY));
+        service.upload(OWNER, batch(0, 8));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            service.fetchBundle(1L);
+        }
+
+        // Assert
+        verify(messenger).sendToUser(eq(1L), eq(PrekeyService.KEYS_DESTINATION),
+                argThat(payload -> payload instanceof PrekeyCountDTO count && count.getCount() == 5));
+        verify(messenger).sendToUser(eq(1L), eq(PrekeyService.KEYS_DESTINATION),
+                argThat(payload -> payload instanceof PrekeyCountDTO count && count.getCount() == 0));
+        verifyNoMoreInteractions(messenger);
+    }
+
+    @Test
+    @DisplayName("Should serve identity keys from the cache and refresh it on upload")
+    void testIdentityCache() {
+        // Arrange
+        service.upload(OWNER, identity(KEY));
+        String newKey = Base64.getEncoder().encodeToString(new byte[32]);
+
+        // Act
+        service.fetchBundle(1L);
+        service.fetchBundle(1L);
+        service.upload(OWNER, identity(newKey));
+        PrekeyBundleDTO bundle = service.fetchBundle(1L);
+
+        // Assert
+        assertEquals(newKey, bundle.getIdentityKey());
+        // Only the uploads read the stored keys; every fetch was a cache hit
+        verify(identityKeysRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Should drop one-time prekeys uploaded under a replaced identity key")
+    void testIdentityChangeClearsPrekeys() {
+        // Arrange
+        service.upload(OWNER, identity(KEY));
+        service.upload(OWNER, batch(0, 10));
+
+        // Act
+        PrekeyCountDTO count = service.upload(OWNER, identity(Base64.getEncoder().encodeToString(new byte[32])));
+
+        // Assert
+        assertEquals(0, count.getCount());
+        assertNull(service.fetchBundle(1L).getOneTimePrekeyId());
+    }
+
+    @Test
+    @DisplayName("Should leave out users without keys when fetching several bundles")
+    void testFetchBundles() {
+        // Arrange
+        service.upload(OWNER, identity(KEY));
+
+        // Act
+        List<PrekeyBundleDTO> bundles = service.fetchBundles(List.of(1L, 2L));
+
+        // Assert
+        assertEquals(1, bundles.size());
+        assertEquals(1L, bundles.get(0).getUserId());
+        assertThrows(RuntimeException.class, () -> service.fetchBundle(2L));
+    }
+
+    private static PrekeyUploadRequest identity(String identityKey) {
+        PrekeyUploadRequest.SignedPrekey signed = new PrekeyUploadRequest.SignedPrekey();
+        signed.setKeyId(7);
+        signed.setPublicKey(KEY);
+        signed.setSignature(SIGNATURE);
+        PrekeyUploadRequest request = new PrekeyUploadRequest();
+        request.setIdentityKey(identityKey);
+        request.setSignedPrekey(signed);
+        return request;
+    }
+
+    private static PrekeyUploadRequest batch(int firstId, int count) {
+        PrekeyUploadRequest request = new PrekeyUploadRequest();
+        request.setOneTimePrekeys(prekeys(firstId, count));
+        return request;
+    }
+
+    private static List<PrekeyUploadRequest.OneTimePrekey> prekeys(int firstId, int count) {
+        List<PrekeyUploadRequest.OneTimePrekey> prekeys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            prekeys.add(new PrekeyUploadRequest.OneTimePrekey(firstId + i, KEY));
+        }
+        return prekeys;
+    }
+}
@@ -1,5 +1,6 @@
 package com.chatapp.user.service;
 
+import com.chatapp.security.PrincipalCache;
 import com.chatapp.user.User;
 import com.chatapp.user.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,6 +25,9 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
     @InjectMocks
     private UserService userService;
 
@@ -213,5 +217,19 @@ class UserServiceTest {
         // Assert
         verify(userRepository, times(1)).save(any(User.class));
     }
-}
 
+    @Test
+    @DisplayName("Should invalidate the cached principal after changing the user")
+    void testUpdateInvalidatesPrincipal() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+
+        // Act
+        userService.updateUsername(1L, "newname");
+        userService.updateStatus(1L, "AWAY");
+
+        // Assert
+        verify(principalCache, times(2)).invalidate("test@example.com");
+    }
+}
@@ -0,0 +1,151 @@
+package com.chatapp.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CoalescingWebSocketSession Tests")
+class CoalescingWebSocketSessionTest {
+
+    private static final long WINDOW = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long MAX_DELAY = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Mock
+    private WebSocketSession delegate;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    @Test
+    @DisplayName("Should buffer frames and write them as one message on flush")
+    void testFramesCoalescedIntoSingleWrite() throws Exception {
+        // Arrange
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, WINDOW, MAX_DELAY, 1024);
+
+        // Act
+        session.sendMessage(new TextMessage("MESSAGE\n\nfirst\0"));
+        session.sendMessage(new TextMessage("MESSAGE\n\nsecond\0"));
+        verify(delegate, never()).sendMessage(any());
+        session.flush();
+
+        // Assert
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(delegate, times(1)).sendMessage(captor.capture());
+        assertEquals("MESSAGE\n\nfirst\0MESSAGE\n\nsecond\0", captor.getValue().getPayload());
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(WINDOW), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    @DisplayName("Should flush when byte limit is reached")
+    void testFlushOnByteLimit() throws Exception {
+        // Arrange
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, WINDOW, MAX_DELAY, 10);
+
+        // Act
+        session.sendMessage(new TextMessage("123456"));
+        session.sendMessage(new TextMessage("7890ab"));
+
+        // Assert
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(delegate, times(1)).sendMessage(captor.capture());
+        assertEquals("123456", captor.getValue().getPayload());
+        assertEquals(6, session.getBufferedSize());
+    }
+
+    @Test
+    @DisplayName("Should send oversized frame directly")
+    void testOversizedFrameBypassesBuffer() throws Exception {
+        // Arrange
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, WINDOW, MAX_DELAY, 4);
+        TextMessage large = new TextMessage("0123456789");
+
+        // Act
+        session.sendMessage(large);
+
+        // Assert
+        verify(delegate, times(1)).sendMessage(large);
+        assertEquals(0, session.getBufferedSize());
+    }
+
+    @Test
+    @DisplayName("Should flush pending text before a non-text message")
+    void testNonTextMessagePreservesOrder() throws Exception {
+        // Arrange
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, WINDOW, MAX_DELAY, 1024);
+        BinaryMessage binary = new BinaryMessage(new byte[]{1, 2, 3});
+
+        // Act
+        session.sendMessage(new TextMessage("pending"));
+        session.sendMessage(binary);
+
+        // Assert
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).sendMessage(new TextMessage("pending"));
+        inOrder.verify(delegate).sendMessage(binary);
+    }
+
+    @Test
+    @DisplayName("Should flush on timer once the window has elapsed")
+    void testTimerFlushesAfterWindow() throws Exception {
+        // Arrange
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, 0, 0, 1024);
+        session.sendMessage(new TextMessage("frame"));
+
+        // Act
+        session.onFlushTimer();
+
+        // Assert
+        verify(delegate, times(1)).sendMessage(new TextMessage("frame"));
+        assertEquals(0, session.getBufferedSize());
+    }
+
+    @Test
+    @DisplayName("Should reschedule timer while frames are still arriving within the window")
+    void testTimerReschedulesWithinWindow() throws Exception {
+        // Arrange
+        long window = TimeUnit.SECONDS.toNanos(10);
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, window, window, 1024);
+        session.sendMessage(new TextMessage("frame"));
+
+        // Act
+        session.onFlushTimer();
+
+        // Assert
+        verify(delegate, never()).sendMessage(any());
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    @DisplayName("Should drop buffered frames when discarded")
+    void testDiscardDropsPendingFrames() throws Exception {
+        // Arrange
+        CoalescingWebSocketSession session = new CoalescingWebSocketSession(delegate, scheduler, WINDOW, MAX_DELAY, 1024);
+        session.sendMessage(new TextMessage("frame"));
+
+        // Act
+        session.discard();
+        session.onFlushTimer();
+
+        // Assert
+        verify(delegate, never()).sendMessage(any(WebSocketMessage.class));
+        assertEquals(0, session.getBufferedSize());
+    }
+}
@@ -0,0 +1,247 @@
+package com.chatapp.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PriorityLaneQueue Tests")
+class PriorityLaneQueueTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriorityLaneQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new PriorityLaneQueue(new int[]{2, 1, 1}, new int[]{10, 10, 10}, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should classify frames by destination")
+    void testClassify() {
+        assertEquals(OutboundLane.CALL, PriorityLaneQueue.laneOf(frame("/queue/call-user123")));
+        assertEquals(OutboundLane.CALL, PriorityLaneQueue.laneOf(frame("/topic/call/7")));
+        assertEquals(OutboundLane.CHAT, PriorityLaneQueue.laneOf(frame("/queue/messages-user123")));
+        assertEquals(OutboundLane.BACKGROUND, PriorityLaneQueue.laneOf(frame("/topic/presence")));
+        assertEquals(OutboundLane.CALL, PriorityLaneQueue.laneOf(control()));
+    }
+
+    @Test
+    @DisplayName("Should serve lanes by weighted round robin")
+    void testWeightedOrder() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            queue.offer(frame("/queue/messages-user1"));
+        }
+        for (int i = 0; i < 4; i++) {
+            queue.offer(frame("/queue/call-user1"));
+        }
+
+        // Act
+        List<OutboundLane> order = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            order.add(PriorityLaneQueue.laneOf(task));
+        }
+
+        // Assert
+        OutboundLane call = OutboundLane.CALL;
+        OutboundLane chat = OutboundLane.CHAT;
+        assertEquals(List.of(call, call, chat, call, call, chat, chat, chat), order);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    @DisplayName("Should reject frames once a lane is full")
+    void testLaneCapacity() {
+        // Arrange
+        queue = new PriorityLaneQueue(new int[]{1, 1, 1}, new int[]{1, 1, 1}, meterRegistry);
+        queue.offer(frame("/queue/messages-user1"));
+
+        // Act
+        boolean chatAccepted = queue.offer(frame("/queue/messages-user1"));
+        boolean callAccepted = queue.offer(frame("/queue/call-user1"));
+
+        // Assert
+        assertFalse(chatAccepted);
+        assertTrue(callAccepted);
+        assertEquals(1.0, meterRegistry.counter("chat.ws.outbound.rejected", "lane", "chat").count());
+    }
+
+    @Test
+    @DisplayName("Should let a call frame overtake its own session's chat backlog")
+    void testCallOvertakesSameSessionChat() {
+        // Arrange
+        queue.offer(frame("/queue/messages-users1", "s1"));
+        queue.offer(frame("/queue/messages-users1", "s1"));
+        Runnable firstChat = queue.poll();
+
+        // Act
+        queue.offer(frame("/queue/call-users1", "s1"));
+        Runnable call = queue.poll();
+        Runnable blocked = queue.poll();
+        firstChat.run();
+        Runnable secondChat = queue.poll();
+
+        // Assert
+        assertEquals(OutboundLane.CALL, PriorityLaneQueue.laneOf(call));
+        assertNull(blocked);
+        assertEquals(OutboundLane.CHAT, PriorityLaneQueue.laneOf(secondChat));
+    }
+
+    @Test
+    @DisplayName("Should deliver a session's frames in order per lane through the executor")
+    void testExecutorOrdersPerSessionLane() throws Exception {
+        // Arrange
+        PriorityLaneTaskExecutor executor = new PriorityLaneTaskExecutor(
+                new int[]{2, 1, 1}, new int[]{10, 10, 10}, meterRegistry);
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.initialize();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            // Act
+            executor.execute(frame("/queue/messages-users1", "s1", () -> {
+                started.countDown();
+                await(release);
+                delivered.add("chat-1");
+            }));
+            await(started);
+            executor.execute(frame("/queue/messages-users1", "s1", () -> delivered.add("chat-2")));
+            executor.execute(frame("/queue/messages-users1", "s1", () -> delivered.add("chat-3")));
+            executor.execute(frame("/queue/call-users1", "s1", () -> delivered.add("call")));
+            release.countDown();
+            executor.getThreadPoolExecutor().shutdown();
+            assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+
+            // Assert
+            assertEquals(List.of("chat-1", "call", "chat-2", "chat-3"), delivered);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should make call frames wait for space instead of dropping them")
+    void testCallLaneBlocksWhenFull() throws Exception {
+        // Arrange
+        queue = new PriorityLaneQueue(new int[]{1, 1, 1}, new int[]{1, 1, 1}, meterRegistry);
+        queue.offer(frame("/queue/call-users1", "s1"));
+        ExecutorService publisher = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act
+            Future<Boolean> offered = publisher.submit(() -> queue.offer(frame("/queue/call-users2", "s2")));
+            Thread.sleep(100);
+            boolean doneWhileFull = offered.isDone();
+            queue.poll();
+
+            // Assert
+            assertFalse(doneWhileFull);
+            assertTrue(offered.get(5, TimeUnit.SECONDS));
+            assertEquals(0.0, meterRegistry.counter("chat.ws.outbound.rejected", "lane", "call").count());
+        } finally {
+            publisher.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should record queue wait per lane")
+    void testWaitTimer() {
+        // Arrange
+        queue.offer(frame("/queue/call-user1"));
+
+        // Act
+        queue.poll();
+
+        // Assert
+        assertEquals(1L, meterRegistry.get("chat.ws.outbound.queue.wait").tag("lane", "call").timer().count());
+        assertEquals(0L, meterRegistry.get("chat.ws.outbound.queue.wait").tag("lane", "chat").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should remove a queued task")
+    void testRemove() {
+        // Arrange
+        Runnable task = frame("/queue/messages-user1");
+        queue.offer(task);
+
+        // Act & Assert
+        assertTrue(queue.remove(task));
+        assertNull(queue.poll());
+    }
+
+    private static Runnable frame(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return task(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private static Runnable frame(String destination, String sessionId) {
+        return frame(destination, sessionId, () -> { });
+    }
+
+    private static Runnable frame(String destination, String sessionId, Runnable body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId(sessionId);
+        return task(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), body);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Runnable control() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+        return task(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private static Runnable task(Message<?> message) {
+        return task(message, () -> { });
+    }
+
+    private static Runnable task(Message<?> message, Runnable body) {
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return msg -> { };
+            }
+
+            @Override
+            public void run() {
+                body.run();
+            }
+        };
+    }
+}
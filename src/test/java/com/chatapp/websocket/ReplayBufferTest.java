@@ -0,0 +1,159 @@
+package com.chatapp.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReplayBuffer Tests")
+class ReplayBufferTest {
+
+    private SessionRegistry sessionRegistry;
+    private ReplayBuffer replayBuffer;
+
+    @BeforeEach
+    void setUp() {
+        sessionRegistry = new SessionRegistry();
+        sessionRegistry.register("s1", 1L, null);
+        replayBuffer = new ReplayBuffer(sessionRegistry, 4, 0);
+    }
+
+    @Test
+    @DisplayName("Should assign increasing sequence numbers per user")
+    void testSequenceNumbersIncrease() {
+        // Arrange
+        List<Long> published = new ArrayList<>();
+
+        // Act
+        replayBuffer.append(1L, "/queue/messages", "a", (epoch, seq) -> published.add(seq));
+        replayBuffer.append(1L, "/queue/messages", "b", (epoch, seq) -> published.add(seq));
+
+        // Assert
+        assertEquals(List.of(1L, 2L), published);
+        assertEquals(2L, replayBuffer.getHeadSeq(1L, OutboundLane.CHAT));
+    }
+
+    @Test
+    @DisplayName("Should count call frames separately from chat")
+    void testSequencePerLane() {
+        // Arrange
+        List<Long> published = new ArrayList<>();
+
+        // Act
+        replayBuffer.append(1L, "/queue/messages", "a", (epoch, seq) -> published.add(seq));
+        replayBuffer.append(1L, "/queue/call", "offer", (epoch, seq) -> published.add(seq));
+        replayBuffer.append(1L, "/queue/messages", "b", (epoch, seq) -> published.add(seq));
+
+        // Assert
+        assertEquals(List.of(1L, 1L, 2L), published);
+        assertEquals(2L, replayBuffer.getHeadSeq(1L, OutboundLane.CHAT));
+        assertEquals("offer", replayBuffer.since(1L, OutboundLane.CALL, 0L, 0L).getFrames().get(0).getPayload());
+    }
+
+    @Test
+    @DisplayName("Should return frames after the last seen sequence")
+    void testSinceReturnsMissingFrames() {
+        // Arrange
+        for (String payload : List.of("a", "b", "c")) {
+            replayBuffer.append(1L, "/queue/messages", payload, (epoch, seq) -> { });
+        }
+
+        // Act
+        ReplayBuffer.Window window = replayBuffer.since(1L, OutboundLane.CHAT, epoch(), 1L);
+
+        // Assert
+        assertFalse(window.isGap());
+        assertEquals(3L, window.getHeadSeq());
+        assertEquals(2, window.getFrames().size());
+        assertEquals("b", window.getFrames().get(0).getPayload());
+        assertEquals(3L, window.getFrames().get(1).getSeq());
+    }
+
+    @Test
+    @DisplayName("Should report a gap once the ring has been overwritten")
+    void testSinceReportsGapWhenOverwritten() {
+        // Arrange
+        for (int i = 0; i < 6; i++) {
+            replayBuffer.append(1L, "/queue/messages", i, (epoch, seq) -> { });
+        }
+
+        // Act
+        ReplayBuffer.Window window = replayBuffer.since(1L, OutboundLane.CHAT, epoch(), 1L);
+
+        // Assert
+        assertTrue(window.isGap());
+        assertTrue(window.getFrames().isEmpty());
+        assertFalse(replayBuffer.since(1L, OutboundLane.CHAT, epoch(), 2L).isGap());
+    }
+
+    @Test
+    @DisplayName("Should report a gap when the client is ahead of the stream")
+    void testSinceReportsGapAfterReset() {
+        // Act
+        ReplayBuffer.Window window = replayBuffer.since(1L, OutboundLane.CHAT, epoch(), 10L);
+
+        // Assert
+        assertTrue(window.isGap());
+    }
+
+    @Test
+    @DisplayName("Should report a gap for a sequence from an evicted stream")
+    void testSinceReportsGapAcrossEpochs() {
+        // Arrange
+        replayBuffer.append(1L, "/queue/messages", "a", (epoch, seq) -> { });
+        replayBuffer.append(1L, "/queue/messages", "b", (epoch, seq) -> { });
+        long oldEpoch = epoch();
+        sessionRegistry.unregister("s1");
+        replayBuffer.evictIdleStreams();
+        sessionRegistry.register("s2", 1L, null);
+        replayBuffer.append(1L, "/queue/messages", "c", (epoch, seq) -> { });
+        replayBuffer.append(1L, "/queue/messages", "d", (epoch, seq) -> { });
+        replayBuffer.append(1L, "/queue/messages", "e", (epoch, seq) -> { });
+
+        // Act
+        ReplayBuffer.Window window = replayBuffer.since(1L, OutboundLane.CHAT, oldEpoch, 2L);
+
+        // Assert
+        assertNotEquals(oldEpoch, window.getEpoch());
+        assertTrue(window.isGap());
+        assertTrue(window.getFrames().isEmpty());
+        assertFalse(replayBuffer.since(1L, OutboundLane.CHAT, window.getEpoch(), 2L).isGap());
+    }
+
+    @Test
+    @DisplayName("Should not keep a stream for users who never connected")
+    void testNoStreamForOfflineUser() {
+        // Arrange
+        List<Long> published = new ArrayList<>();
+
+        // Act
+        long seq = replayBuffer.append(2L, "/queue/messages", "a", (epoch, next) -> published.add(next));
+
+        // Assert
+        assertEquals(0L, seq);
+        assertEquals(List.of(0L), published);
+        assertEquals(0, replayBuffer.getStreamCount());
+    }
+
+    @Test
+    @DisplayName("Should evict streams of users who stayed offline past retention")
+    void testEvictIdleStreams() {
+        // Arrange
+        replayBuffer.append(1L, "/queue/messages", "a", (epoch, seq) -> { });
+        sessionRegistry.unregister("s1");
+
+        // Act
+        replayBuffer.evictIdleStreams();
+
+        // Assert
+        assertEquals(0, replayBuffer.getStreamCount());
+    }
+
+    private long epoch() {
+        return replayBuffer.since(1L, OutboundLane.CHAT, 0L, 0L).getEpoch();
+    }
+}
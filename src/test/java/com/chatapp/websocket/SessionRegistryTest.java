@@ -0,0 +1,129 @@
+package com.chatapp.websocket;
+
+import com.chatapp.security.ChatPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SessionRegistry Tests")
+class SessionRegistryTest {
+
+    private SessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRegistry();
+    }
+
+    @Test
+    @DisplayName("Should return all sessions of a user")
+    void testMultipleDevicesPerUser() {
+        // Arrange
+        registry.register("s1", 1L, "phone");
+        registry.register("s2", 1L, "laptop");
+        registry.register("s3", 2L, null);
+
+        // Act
+        List<UserSession> sessions = registry.getSessions(1L);
+
+        // Assert
+        assertEquals(2, sessions.size());
+        assertEquals(1, registry.getSessions(2L).size());
+        assertEquals(2, registry.getUserCount());
+        assertEquals(3, registry.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Should find session by device id")
+    void testGetSessionByDevice() {
+        // Arrange
+        registry.register("s1", 1L, "phone");
+        registry.register("s2", 1L, "laptop");
+
+        // Act
+        UserSession session = registry.getSession(1L, "laptop");
+
+        // Assert
+        assertNotNull(session);
+        assertEquals("s2", session.getSessionId());
+        assertNull(registry.getSession(1L, "tablet"));
+    }
+
+    @Test
+    @DisplayName("Should remove user once the last session is unregistered")
+    void testUnregisterLastSession() {
+        // Arrange
+        registry.register("s1", 1L, "phone");
+        registry.register("s2", 1L, "laptop");
+
+        // Act
+        registry.unregister("s1");
+
+        // Assert
+        assertTrue(registry.isOnline(1L));
+        assertEquals("s2", registry.getSessions(1L).get(0).getSessionId());
+
+        registry.unregister("s2");
+        assertFalse(registry.isOnline(1L));
+        assertTrue(registry.getSessions(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should ignore unknown session on unregister")
+    void testUnregisterUnknownSession() {
+        // Act & Assert
+        assertDoesNotThrow(() -> registry.unregister("missing"));
+        assertEquals(0, registry.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Should register the authenticated user on CONNECT and unregister on disconnect")
+    void testConnectAndDisconnectEvents() {
+        // Arrange
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        accessor.setNativeHeader(SessionRegistry.DEVICE_ID_HEADER, "phone");
+        Message<byte[]> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        ChatPrincipal principal = new ChatPrincipal(7L, "bob@example.com", "bob", "ONLINE", ChatPrincipal.DEFAULT_ROLES);
+        UsernamePasswordAuthenticationToken user =
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities());
+
+        // Act
+        registry.onConnect(new SessionConnectEvent(this, connect, user));
+
+        // Assert
+        assertEquals("s1", registry.getSession(7L, "phone").getSessionId());
+
+        registry.onDisconnect(new SessionDisconnectEvent(this, connect, "s1", CloseStatus.NORMAL));
+        assertFalse(registry.isOnline(7L));
+    }
+
+    @Test
+    @DisplayName("Should ignore a userId header and skip unauthenticated sessions")
+    void testConnectWithoutUser() {
+        // Arrange
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        accessor.setNativeHeader("userId", "7");
+        Message<byte[]> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        // Act
+        registry.onConnect(new SessionConnectEvent(this, connect));
+
+        // Assert
+        assertEquals(0, registry.getSessionCount());
+        assertFalse(registry.isOnline(7L));
+    }
+}